@@ -405,6 +405,7 @@ public class AnalyzerTexWriter {
     /* make sure the model is up to date */
     boolean modelIsUpdating = model.getOutputExpressions().UpdatesEnabled();
     model.getOutputExpressions().enableUpdates();
+    model.getOutputExpressions().finishMinimization();
     PrintStream out = new PrintStream(file);
     try {
       /*
@@ -148,6 +148,7 @@ class BuildCircuitButton extends JButton {
       boolean useNands = false;
       boolean replace = false;
 
+      model.getOutputExpressions().finishMinimization();
       boolean ok = false;
       while (!ok) {
         DialogPanel dlog = new DialogPanel();
@@ -232,8 +232,11 @@ class MinimizedTab extends AnalyzerTab {
   private class MyListener implements OutputExpressionsListener, ActionListener, ItemListener {
     public void actionPerformed(ActionEvent event) {
       String output = getCurrentVariable();
+      if (output == null) return;
       int format = outputExprs.getMinimizedFormat(output);
       formatChoice.setSelectedIndex(FormatModel.getFormatIndex(format));
+      // the minimal expression may still be computed in the background
+      outputExprs.finishMinimization(output);
       outputExprs.setExpression(output, outputExprs.getMinimalExpression(output));
     }
 
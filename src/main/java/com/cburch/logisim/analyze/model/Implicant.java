@@ -28,6 +28,7 @@
 
 package com.cburch.logisim.analyze.model;
 
+import com.cburch.logisim.prefs.AppPreferences;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -76,191 +77,30 @@ public class Implicant implements Comparable<Implicant> {
     TruthTable table = model.getTruthTable();
     int column = model.getOutputs().bits.indexOf(variable);
     if (column < 0) return Collections.emptyList();
+    return computeMinimal(
+        format,
+        table.getPackedOutputColumn(column),
+        table.getInputColumnCount(),
+        AppPreferences.MINIMIZE_EXACT_INPUTS.get());
+  }
 
+  /**
+   * Computes a minimal cover of the given output column. Up to exactInputs
+   * inputs the result is exact (as far as the covering heuristics go), above
+   * that a faster heuristic minimization is used.
+   */
+  static List<Implicant> computeMinimal(
+      int format, PackedColumn column, int inputs, int exactInputs) {
     Entry desired = format == AnalyzerModel.FORMAT_SUM_OF_PRODUCTS ? Entry.ONE : Entry.ZERO;
-    Entry undesired = desired == Entry.ONE ? Entry.ZERO : Entry.ONE;
-
-    // determine the first-cut implicants, as well as the rows
-    // that we need to cover.
-    HashMap<Implicant, Entry> base = new HashMap<Implicant, Entry>();
-    HashSet<Implicant> toCover = new HashSet<Implicant>();
-    boolean knownFound = false;
-    for (int i = 0; i < table.getRowCount(); i++) {
-      Entry entry = table.getOutputEntry(i, column);
-      if (entry == undesired) {
-        knownFound = true;
-      } else if (entry == desired) {
-        knownFound = true;
-        Implicant imp = new Implicant(0, i);
-        base.put(imp, entry);
-        toCover.add(imp);
-      } else {
-        Implicant imp = new Implicant(0, i);
-        base.put(imp, entry);
-      }
-    }
-    if (!knownFound) return null;
-
-    // work up to more general implicants, discovering
-    // any prime implicants.
-    HashSet<Implicant> primes = new HashSet<Implicant>();
-    HashMap<Implicant, Entry> current = base;
-    while (current.size() > 1) {
-      HashSet<Implicant> toRemove = new HashSet<Implicant>();
-      HashMap<Implicant, Entry> next = new HashMap<Implicant, Entry>();
-      for (Map.Entry<Implicant, Entry> curEntry : current.entrySet()) {
-        Implicant imp = curEntry.getKey();
-        Entry detEntry = curEntry.getValue();
-        for (int j = 1; j <= imp.values; j *= 2) {
-          if ((imp.values & j) != 0) {
-            Implicant opp = new Implicant(imp.unknowns, imp.values ^ j);
-            Entry oppEntry = current.get(opp);
-            if (oppEntry != null) {
-              toRemove.add(imp);
-              toRemove.add(opp);
-              Implicant i = new Implicant(opp.unknowns | j, opp.values);
-              Entry e;
-              if (oppEntry == Entry.DONT_CARE && detEntry == Entry.DONT_CARE) {
-                e = Entry.DONT_CARE;
-              } else {
-                e = desired;
-              }
-              next.put(i, e);
-            }
-          }
-        }
-      }
-
-      for (Map.Entry<Implicant, Entry> curEntry : current.entrySet()) {
-        Implicant det = curEntry.getKey();
-        if (!toRemove.contains(det) && curEntry.getValue() == desired) {
-          primes.add(det);
-        }
-      }
-
-      current = next;
-    }
-
-    // we won't have more than one implicant left, but it
-    // is probably prime.
-    for (Map.Entry<Implicant, Entry> curEntry : current.entrySet()) {
-      Implicant imp = curEntry.getKey();
-      if (current.get(imp) == desired) {
-        primes.add(imp);
-      }
-    }
-
-    // determine the essential prime implicants
-    HashSet<Implicant> retSet = new HashSet<Implicant>();
-    HashSet<Implicant> covered = new HashSet<Implicant>();
-    for (Implicant required : toCover) {
-      if (covered.contains(required)) continue;
-      int row = required.getRow();
-      Implicant essential = null;
-      for (Implicant imp : primes) {
-        if ((row & ~imp.unknowns) == imp.values) {
-          if (essential == null) essential = imp;
-          else {
-            essential = null;
-            break;
-          }
-        }
-      }
-      if (essential != null) {
-        retSet.add(essential);
-        primes.remove(essential);
-        for (Implicant imp : essential.getTerms()) {
-          covered.add(imp);
-        }
-      }
-    }
-    toCover.removeAll(covered);
-
-    // This is an unusual case, but it's possible that the
-    // essential prime implicants don't cover everything.
-    // In that case, greedily pick out prime implicants
-    // that cover the most uncovered rows.
-    // BUG: This algorithm does not always find the correct solution
-    // Fix: We are first making a set that contains primes without the don't care set
-    boolean ContainsDontCare;
-    HashSet<Implicant> primesNoDontCare = new HashSet<Implicant>();
-    for (Iterator<Implicant> it = primes.iterator(); it.hasNext(); ) {
-      Implicant implicant = it.next();
-      ContainsDontCare = false;
-      for (Implicant term : implicant.getTerms()) {
-        if (table.getOutputEntry(term.getRow(), column).equals(Entry.DONT_CARE))
-          ContainsDontCare = true;
-      }
-      if (!ContainsDontCare) {
-        primesNoDontCare.add(implicant);
-      }
-    }
-
-    // Now we determine again the essential primes of this reduced set
-    for (Implicant required : toCover) {
-      if (covered.contains(required)) continue;
-      int row = required.getRow();
-      Implicant essential = null;
-      for (Implicant imp : primesNoDontCare) {
-        if ((row & ~imp.unknowns) == imp.values) {
-          if (essential == null) essential = imp;
-          else {
-            essential = null;
-            break;
-          }
-        }
-      }
-      if (essential != null) {
-        retSet.add(essential);
-        primesNoDontCare.remove(essential);
-        primes.remove(essential);
-        for (Implicant imp : essential.getTerms()) {
-          covered.add(imp);
-        }
-      }
-    }
-    toCover.removeAll(covered);
-
-    /* When this did not do the job we use a greedy algorithm */
-    while (!toCover.isEmpty()) {
-      // find the implicant covering the most rows
-      Implicant max = null;
-      int maxCount = 0;
-      int maxUnknowns = Integer.MAX_VALUE;
-      for (Iterator<Implicant> it = primes.iterator(); it.hasNext(); ) {
-        Implicant imp = it.next();
-        int count = 0;
-        for (Implicant term : imp.getTerms()) {
-          if (toCover.contains(term)) ++count;
-        }
-        if (count == 0) {
-          it.remove();
-        } else if (count > maxCount) {
-          max = imp;
-          maxCount = count;
-          maxUnknowns = imp.getUnknownCount();
-        } else if (count == maxCount) {
-          int unk = imp.getUnknownCount();
-          if (unk > maxUnknowns) {
-            max = imp;
-            maxUnknowns = unk;
-          }
-        }
-      }
-
-      // add it to our choice, and remove the covered rows
-      if (max != null) {
-        retSet.add(max);
-        primes.remove(max);
-        for (Implicant term : max.getTerms()) {
-          toCover.remove(term);
-        }
-      }
-    }
+    long[] packed = new Minimizer(column, inputs, desired).minimize(inputs <= exactInputs);
+    if (packed == null) return null;
 
     // Now build up our sum-of-products expression
     // from the remaining terms
-    ArrayList<Implicant> ret = new ArrayList<Implicant>(retSet);
+    ArrayList<Implicant> ret = new ArrayList<Implicant>(packed.length);
+    for (long imp : packed) {
+      ret.add(new Implicant(Minimizer.unknowns(imp), Minimizer.values(imp)));
+    }
     Collections.sort(ret);
     return ret;
   }
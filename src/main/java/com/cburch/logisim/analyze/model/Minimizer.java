@@ -0,0 +1,404 @@
+/**
+ * This file is part of logisim-evolution.
+ *
+ * Logisim-evolution is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * Logisim-evolution is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with logisim-evolution. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Original code by Carl Burch (http://www.cburch.com), 2011.
+ * Subsequent modifications by:
+ *   + College of the Holy Cross
+ *     http://www.holycross.edu
+ *   + Haute École Spécialisée Bernoise/Berner Fachhochschule
+ *     http://www.bfh.ch
+ *   + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *     http://hepia.hesge.ch/
+ *   + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *     http://www.heig-vd.ch/
+ */
+
+package com.cburch.logisim.analyze.model;
+
+import java.util.Arrays;
+
+/**
+ * Two-level minimization of a single truth table column on primitive arrays.
+ * An implicant is packed into a long as (unknowns << 32) | values, so that a
+ * sorted array of them can be searched for merge partners without boxing.
+ * Up to a given number of inputs the exact Quine-McCluskey algorithm is used;
+ * beyond it an Espresso-style expand and irredundant pass gives a good cover
+ * in a fraction of the time.
+ */
+class Minimizer {
+  static long pack(int unknowns, int values) {
+    return ((long) unknowns << 32) | (values & 0xffffffffL);
+  }
+
+  static int unknowns(long imp) {
+    return (int) (imp >>> 32);
+  }
+
+  static int values(long imp) {
+    return (int) imp;
+  }
+
+  private final PackedColumn column;
+  private final int rows;
+  private final Entry desired;
+  private final Entry undesired;
+
+  // the rows that must be covered, numbered densely for the bitsets
+  private final int[] coverIndex;
+  private int toCoverCount;
+
+  Minimizer(PackedColumn column, int inputs, Entry desired) {
+    this.column = column;
+    this.rows = 1 << inputs;
+    this.desired = desired;
+    this.undesired = desired == Entry.ONE ? Entry.ZERO : Entry.ONE;
+    this.coverIndex = new int[rows];
+  }
+
+  private Entry entry(int row) {
+    return row < column.size() ? column.get(row) : Entry.DONT_CARE;
+  }
+
+  /**
+   * Returns the packed implicants of a minimal cover, or null when the column
+   * holds no known entry at all.
+   */
+  long[] minimize(boolean exact) {
+    boolean knownFound = false;
+    toCoverCount = 0;
+    for (int i = 0; i < rows; i++) {
+      Entry entry = entry(i);
+      coverIndex[i] = -1;
+      if (entry == undesired) {
+        knownFound = true;
+      } else if (entry == desired) {
+        knownFound = true;
+        coverIndex[i] = toCoverCount++;
+      }
+    }
+    if (!knownFound) return null;
+    return exact ? cover(computePrimes()) : espresso();
+  }
+
+  //
+  // exact minimization
+  //
+  private long[] computePrimes() {
+    // the first-cut implicants are all rows that are not undesired; a flag
+    // tells whether an implicant covers nothing but don't cares.
+    int n = 0;
+    long[] current = new long[rows];
+    boolean[] dontCare = new boolean[rows];
+    for (int i = 0; i < rows; i++) {
+      if (entry(i) == undesired) continue;
+      current[n] = i;
+      dontCare[n] = entry(i) != desired;
+      n++;
+    }
+
+    LongBuffer primes = new LongBuffer();
+    while (n > 1) {
+      // every pair is found from its upper half; the merged implicant is
+      // stored shifted left by one with its don't care flag in bit 0, so
+      // that sorting brings the duplicates together.
+      boolean[] merged = new boolean[n];
+      LongBuffer next = new LongBuffer();
+      for (int i = 0; i < n; i++) {
+        long imp = current[i];
+        for (int bits = values(imp); bits != 0; bits &= bits - 1) {
+          int j = bits & -bits;
+          int opp = Arrays.binarySearch(current, 0, n, imp ^ j);
+          if (opp >= 0) {
+            merged[i] = true;
+            merged[opp] = true;
+            long m = (imp ^ j) | ((long) j << 32);
+            next.add((m << 1) | (dontCare[i] && dontCare[opp] ? 1 : 0));
+          }
+        }
+      }
+      for (int i = 0; i < n; i++) {
+        if (!merged[i] && !dontCare[i]) primes.add(current[i]);
+      }
+
+      long[] sorted = next.toSortedArray();
+      n = 0;
+      current = new long[sorted.length];
+      dontCare = new boolean[sorted.length];
+      for (int i = 0; i < sorted.length; i++) {
+        if (n > 0 && (sorted[i] >>> 1) == current[n - 1]) continue;
+        current[n] = sorted[i] >>> 1;
+        dontCare[n] = (sorted[i] & 1) != 0;
+        n++;
+      }
+    }
+    // we won't have more than one implicant left, but it
+    // is probably prime.
+    if (n == 1 && !dontCare[0]) primes.add(current[0]);
+    return primes.toSortedArray();
+  }
+
+  private long[] cover(long[] primes) {
+    int words = (toCoverCount + 63) >> 6;
+    long[][] covers = new long[primes.length][words];
+    boolean[] hasDontCare = new boolean[primes.length];
+    int[] coverCount = new int[toCoverCount];
+    int[] lastCover = new int[toCoverCount];
+    for (int p = 0; p < primes.length; p++) {
+      int unknowns = unknowns(primes[p]);
+      int values = values(primes[p]);
+      int t = 0;
+      do {
+        int row = values | t;
+        int idx = coverIndex[row];
+        if (idx >= 0) {
+          covers[p][idx >> 6] |= 1L << idx;
+          coverCount[idx]++;
+          lastCover[idx] = p;
+        }
+        if (entry(row) == Entry.DONT_CARE) hasDontCare[p] = true;
+        t = (t - unknowns) & unknowns;
+      } while (t != 0);
+    }
+
+    boolean[] chosen = new boolean[primes.length];
+    long[] uncovered = new long[words];
+    for (int i = 0; i < toCoverCount; i++) uncovered[i >> 6] |= 1L << i;
+
+    // determine the essential prime implicants
+    for (int i = 0; i < toCoverCount; i++) {
+      if (coverCount[i] == 1) chosen[lastCover[i]] = true;
+    }
+    for (int p = 0; p < primes.length; p++) {
+      if (chosen[p]) clear(uncovered, covers[p]);
+    }
+
+    // This is an unusual case, but it's possible that the essential
+    // prime implicants don't cover everything. We first determine again
+    // the essential primes of the set of primes that contain no don't
+    // care, and then greedily pick out the prime implicants that cover
+    // the most uncovered rows.
+    Arrays.fill(coverCount, 0);
+    for (int p = 0; p < primes.length; p++) {
+      if (chosen[p] || hasDontCare[p]) continue;
+      for (int w = 0; w < words; w++) {
+        for (long bits = covers[p][w] & uncovered[w]; bits != 0; bits &= bits - 1) {
+          int idx = (w << 6) + Long.numberOfTrailingZeros(bits);
+          coverCount[idx]++;
+          lastCover[idx] = p;
+        }
+      }
+    }
+    boolean[] essential = new boolean[primes.length];
+    for (int i = 0; i < toCoverCount; i++) {
+      if (coverCount[i] == 1 && (uncovered[i >> 6] & (1L << i)) != 0) {
+        essential[lastCover[i]] = true;
+      }
+    }
+    // these are not truly essential, so they are picks that may turn out to
+    // be redundant just like the greedy ones
+    LongBuffer picked = new LongBuffer();
+    for (int p = 0; p < primes.length; p++) {
+      if (essential[p]) {
+        chosen[p] = true;
+        picked.add(p);
+        clear(uncovered, covers[p]);
+      }
+    }
+
+    boolean[] useless = new boolean[primes.length];
+    while (!isEmpty(uncovered)) {
+      int max = -1;
+      int maxCount = 0;
+      int maxUnknowns = 0;
+      for (int p = 0; p < primes.length; p++) {
+        if (chosen[p] || useless[p]) continue;
+        int count = 0;
+        for (int w = 0; w < words; w++) count += Long.bitCount(covers[p][w] & uncovered[w]);
+        int unk = Integer.bitCount(unknowns(primes[p]));
+        if (count == 0) {
+          useless[p] = true;
+        } else if (count > maxCount || (count == maxCount && unk > maxUnknowns)) {
+          max = p;
+          maxCount = count;
+          maxUnknowns = unk;
+        }
+      }
+      if (max < 0) break; // should never happen
+      chosen[max] = true;
+      picked.add(max);
+      clear(uncovered, covers[max]);
+    }
+
+    // a pick may have become redundant by the later ones
+    if (picked.size > 1) {
+      int[] count = new int[toCoverCount];
+      for (int p = 0; p < primes.length; p++) {
+        if (chosen[p]) addCover(covers[p], count, 1);
+      }
+      for (int i = 0; i < picked.size; i++) {
+        int p = (int) picked.data[i];
+        if (isRedundant(covers[p], count)) {
+          chosen[p] = false;
+          addCover(covers[p], count, -1);
+        }
+      }
+    }
+
+    LongBuffer ret = new LongBuffer();
+    for (int p = 0; p < primes.length; p++) {
+      if (chosen[p]) ret.add(primes[p]);
+    }
+    return ret.toSortedArray();
+  }
+
+  private static void addCover(long[] cover, int[] count, int delta) {
+    for (int w = 0; w < cover.length; w++) {
+      for (long bits = cover[w]; bits != 0; bits &= bits - 1) {
+        count[(w << 6) + Long.numberOfTrailingZeros(bits)] += delta;
+      }
+    }
+  }
+
+  private static boolean isRedundant(long[] cover, int[] count) {
+    for (int w = 0; w < cover.length; w++) {
+      for (long bits = cover[w]; bits != 0; bits &= bits - 1) {
+        if (count[(w << 6) + Long.numberOfTrailingZeros(bits)] < 2) return false;
+      }
+    }
+    return true;
+  }
+
+  private static void clear(long[] set, long[] toClear) {
+    for (int w = 0; w < set.length; w++) set[w] &= ~toClear[w];
+  }
+
+  private static boolean isEmpty(long[] set) {
+    for (long word : set) if (word != 0) return false;
+    return true;
+  }
+
+  //
+  // heuristic minimization
+  //
+  private long[] espresso() {
+    // expand each desired row that is not yet covered into a cube that is
+    // as large as possible without touching an undesired row.
+    int inputs = Integer.numberOfTrailingZeros(rows);
+    long[] uncovered = new long[(rows + 63) >> 6];
+    for (int i = 0; i < rows; i++) {
+      if (coverIndex[i] >= 0) uncovered[i >> 6] |= 1L << i;
+    }
+    LongBuffer cubes = new LongBuffer();
+    for (int w = 0; w < uncovered.length; w++) {
+      while (uncovered[w] != 0) {
+        int row = (w << 6) + Long.numberOfTrailingZeros(uncovered[w]);
+        int unknowns = 0;
+        int values = row;
+        for (int b = inputs - 1; b >= 0; b--) {
+          int bit = 1 << b;
+          if (!touchesUndesired(unknowns, (values ^ bit))) {
+            unknowns |= bit;
+            values &= ~bit;
+          }
+        }
+        int t = 0;
+        do {
+          int r = values | t;
+          uncovered[r >> 6] &= ~(1L << r);
+          t = (t - unknowns) & unknowns;
+        } while (t != 0);
+        cubes.add(pack(unknowns, values));
+      }
+    }
+
+    // drop the cubes of which every desired row is also covered by
+    // another cube, trying the smallest cubes first.
+    long[] result = cubes.toArray();
+    int[] count = new int[toCoverCount];
+    for (long cube : result) forEachCovered(cube, count, 1);
+    Integer[] order = new Integer[result.length];
+    for (int i = 0; i < order.length; i++) order[i] = i;
+    Arrays.sort(order, (a, b) -> size(result[a]) - size(result[b]));
+    LongBuffer ret = new LongBuffer();
+    boolean[] removed = new boolean[result.length];
+    for (int i : order) {
+      if (isRedundant(result[i], count)) {
+        removed[i] = true;
+        forEachCovered(result[i], count, -1);
+      }
+    }
+    for (int i = 0; i < result.length; i++) {
+      if (!removed[i]) ret.add(result[i]);
+    }
+    return ret.toSortedArray();
+  }
+
+  private static int size(long cube) {
+    return Integer.bitCount(unknowns(cube));
+  }
+
+  private boolean touchesUndesired(int unknowns, int values) {
+    int t = 0;
+    do {
+      if (entry(values | t) == undesired) return true;
+      t = (t - unknowns) & unknowns;
+    } while (t != 0);
+    return false;
+  }
+
+  private void forEachCovered(long cube, int[] count, int delta) {
+    int unknowns = unknowns(cube);
+    int values = values(cube);
+    int t = 0;
+    do {
+      int idx = coverIndex[values | t];
+      if (idx >= 0) count[idx] += delta;
+      t = (t - unknowns) & unknowns;
+    } while (t != 0);
+  }
+
+  private boolean isRedundant(long cube, int[] count) {
+    int unknowns = unknowns(cube);
+    int values = values(cube);
+    int t = 0;
+    do {
+      int idx = coverIndex[values | t];
+      if (idx >= 0 && count[idx] < 2) return false;
+      t = (t - unknowns) & unknowns;
+    } while (t != 0);
+    return true;
+  }
+
+  private static class LongBuffer {
+    private long[] data = new long[16];
+    private int size = 0;
+
+    void add(long value) {
+      if (size == data.length) data = Arrays.copyOf(data, size * 2);
+      data[size++] = value;
+    }
+
+    long[] toArray() {
+      return Arrays.copyOf(data, size);
+    }
+
+    long[] toSortedArray() {
+      long[] ret = toArray();
+      Arrays.sort(ret);
+      return ret;
+    }
+  }
+}
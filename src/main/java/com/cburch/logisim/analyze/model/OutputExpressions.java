@@ -28,11 +28,16 @@
 
 package com.cburch.logisim.analyze.model;
 
+import com.cburch.logisim.prefs.AppPreferences;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import javax.swing.SwingUtilities;
 
 public class OutputExpressions {
   private class MyListener implements VariableListListener, TruthTableListener {
@@ -115,6 +120,52 @@ public class OutputExpressions {
     public void structureChanged(TruthTableEvent event) {}
   }
 
+  private class Minimization extends FutureTask<List<Implicant>> {
+    final OutputData data;
+    final int format;
+    final boolean initializing;
+    final boolean formatChanged;
+    final boolean checkExpression;
+    boolean inBackground = false;
+
+    Minimization(
+        OutputData data,
+        int format,
+        PackedColumn column,
+        int inputs,
+        boolean initializing,
+        boolean formatChanged,
+        boolean checkExpression) {
+      super(minimizeTask(format, column, inputs, AppPreferences.MINIMIZE_EXACT_INPUTS.get()));
+      this.data = data;
+      this.format = format;
+      this.initializing = initializing;
+      this.formatChanged = formatChanged;
+      this.checkExpression = checkExpression;
+    }
+
+    @Override
+    protected void done() {
+      if (inBackground && !isCancelled()) {
+        SwingUtilities.invokeLater(() -> data.finish(this));
+      }
+    }
+  }
+
+  private static Callable<List<Implicant>> minimizeTask(
+      int format, PackedColumn column, int inputs, int exactInputs) {
+    return () -> Implicant.computeMinimal(format, column, inputs, exactInputs);
+  }
+
+  private static final ExecutorService minimizer =
+      Executors.newFixedThreadPool(
+          Math.max(1, Runtime.getRuntime().availableProcessors()),
+          r -> {
+            Thread t = new Thread(r, "minimizer");
+            t.setDaemon(true);
+            return t;
+          });
+
   private class OutputData {
     String output;
     int format;
@@ -122,8 +173,10 @@ public class OutputExpressions {
     String exprString = null;
     List<Implicant> minimalImplicants = null;
     Expression minimalExpr = null;
+    boolean minimalValid = false;
 
     private boolean invalidating = false;
+    private Minimization pending = null;
 
     OutputData(String output) {
       this.output = output;
@@ -136,14 +189,14 @@ public class OutputExpressions {
 
     String getExpressionString() {
       if (exprString == null) {
-        if (expr == null) invalidate(false, false);
+        if (expr == null && pending == null) invalidate(false, false);
         exprString = expr == null ? "" : expr.toString();
       }
       return exprString;
     }
 
     Expression getMinimalExpression() {
-      if (minimalExpr == null) invalidate(false, false);
+      if (!minimalValid && pending == null) invalidate(false, false);
       return minimalExpr;
     }
 
@@ -157,38 +210,89 @@ public class OutputExpressions {
 
     private void invalidate(boolean initializing, boolean formatChanged) {
       if (invalidating) return;
+      int outputIndex = model.getOutputs().bits.indexOf(output);
+      if (outputIndex < 0) return;
+      TruthTable table = model.getTruthTable();
+      PackedColumn column = table.getPackedOutputColumn(outputIndex);
+      Minimization job =
+          new Minimization(
+              this,
+              format,
+              column,
+              table.getInputColumnCount(),
+              initializing,
+              formatChanged || (pending != null && pending.formatChanged),
+              !updatingTable);
+      if (pending != null) pending.cancel(false);
+      if (SwingUtilities.isEventDispatchThread()) {
+        // the minimization is done in the background, the results are
+        // applied (and the listeners told) when it is done.
+        job.inBackground = true;
+        pending = job;
+        minimizer.execute(job);
+      } else {
+        pending = null;
+        job.run();
+        apply(job);
+      }
+    }
+
+    private void discardPending() {
+      if (pending != null) {
+        pending.cancel(false);
+        pending = null;
+      }
+    }
+
+    private void finish(Minimization job) {
+      if (job != pending) return;
+      pending = null;
+      apply(job);
+    }
+
+    private void apply(Minimization job) {
+      List<Implicant> implicants;
+      try {
+        implicants = job.get();
+      } catch (Exception e) {
+        return;
+      }
+      // listeners only learn about changes made in the background
+      boolean notify = !job.initializing || job.inBackground;
+      if (notify && outputData.get(output) != this) return;
       invalidating = true;
       try {
         List<Implicant> oldImplicants = minimalImplicants;
         Expression oldMinExpr = minimalExpr;
-        minimalImplicants = Implicant.computeMinimal(format, model, output);
-        minimalExpr = Implicant.toExpression(format, model, minimalImplicants);
-        boolean minChanged = !implicantsSame(oldImplicants, minimalImplicants);
+        minimalImplicants = implicants;
+        minimalExpr = Implicant.toExpression(job.format, model, minimalImplicants);
+        boolean minChanged = !minimalValid || !implicantsSame(oldImplicants, minimalImplicants);
+        minimalValid = true;
 
-        if (!updatingTable) {
+        if (job.checkExpression) {
           // see whether the expression is still consistent with the
           // truth table
           TruthTable table = model.getTruthTable();
-          Entry[] outputColumn = computeColumn(model.getTruthTable(), expr);
+          PackedColumn outputColumn = computeColumn(model.getTruthTable(), expr);
           int outputIndex = model.getOutputs().bits.indexOf(output);
-          Entry[] currentColumn = table.getOutputColumn(outputIndex);
-          if (!columnsMatch(currentColumn, outputColumn)
-              || isAllUndefined(outputColumn)
-              || formatChanged) {
+          PackedColumn currentColumn = table.getPackedOutputColumn(outputIndex);
+          if (!currentColumn.matches(outputColumn)
+              || outputColumn.isAllUndefined()
+              || job.formatChanged) {
             // if not, then we need to change the expression to
             // maintain consistency
             boolean exprChanged = expr != oldMinExpr || minChanged;
             expr = minimalExpr;
             if (exprChanged) {
               exprString = null;
-              if (!initializing) {
+              if (notify) {
                 fireModelChanged(OutputExpressionsEvent.OUTPUT_EXPRESSION, output);
               }
             }
           }
         }
 
-        if (!initializing && minChanged) {
+        if (notify && minChanged) {
           fireModelChanged(OutputExpressionsEvent.OUTPUT_MINIMAL, output);
         }
       } finally {
@@ -201,9 +305,11 @@ public class OutputExpressions {
     }
 
     private void removeInput(String input) {
+      discardPending();
       Expression oldMinExpr = minimalExpr;
       minimalImplicants = null;
       minimalExpr = null;
+      minimalValid = false;
 
       if (exprString != null) {
         exprString = null; // invalidate it so it recomputes
@@ -226,7 +332,9 @@ public class OutputExpressions {
     }
 
     private void replaceInput(String input, String newName) {
+      discardPending();
       minimalExpr = null;
+      minimalValid = false;
 
       if (exprString != null) {
         exprString = Parser.replaceVariable(exprString, input, newName);
@@ -248,7 +356,7 @@ public class OutputExpressions {
       exprString = newExprString;
 
       if (expr != minimalExpr) { // for efficiency to avoid recomputation
-        Entry[] values = computeColumn(model.getTruthTable(), expr);
+        PackedColumn values = computeColumn(model.getTruthTable(), expr);
         int outputColumn = model.getOutputs().bits.indexOf(output);
         updatingTable = true;
         try {
@@ -269,31 +377,17 @@ public class OutputExpressions {
     }
   }
 
-  private static boolean columnsMatch(Entry[] a, Entry[] b) {
-    if (a.length != b.length) return false;
-    for (int i = 0; i < a.length; i++) {
-      if (a[i] != b[i]) {
-        boolean bothDefined =
-            (a[i] == Entry.ZERO || a[i] == Entry.ONE) && (b[i] == Entry.ZERO || b[i] == Entry.ONE);
-        if (bothDefined) return false;
-      }
-    }
-    return true;
-  }
-
-  private static Entry[] computeColumn(TruthTable table, Expression expr) {
+  private static PackedColumn computeColumn(TruthTable table, Expression expr) {
     int rows = table.getRowCount();
     int cols = table.getInputColumnCount();
-    Entry[] values = new Entry[rows];
-    if (expr == null) {
-      Arrays.fill(values, Entry.DONT_CARE);
-    } else {
+    PackedColumn values = new PackedColumn(rows, Entry.DONT_CARE);
+    if (expr != null) {
       Assignments assn = new Assignments();
       for (int i = 0; i < rows; i++) {
         for (int j = 0; j < cols; j++) {
           assn.put(table.getInputHeader(j), TruthTable.isInputSet(i, j, cols));
         }
-        values[i] = expr.evaluate(assn) ? Entry.ONE : Entry.ZERO;
+        values.set(i, expr.evaluate(assn) ? Entry.ONE : Entry.ZERO);
       }
     }
     return values;
@@ -317,13 +411,6 @@ public class OutputExpressions {
     }
   }
 
-  private static boolean isAllUndefined(Entry[] a) {
-    for (int i = 0; i < a.length; i++) {
-      if (a[i] == Entry.ZERO || a[i] == Entry.ONE) return false;
-    }
-    return true;
-  }
-
   private MyListener myListener = new MyListener();
 
   private AnalyzerModel model;
@@ -385,6 +472,13 @@ public class OutputExpressions {
     }
   }
 
+  /**
+   * Returns the minimal expression of the output. While the output is being
+   * minimized in the background this is the previous result, or null if
+   * there is none yet; an OUTPUT_MINIMAL event follows once the new result
+   * is in. Callers that need the current result call finishMinimization
+   * first.
+   */
   public Expression getMinimalExpression(String output) {
     if (output == null) return Expressions.constant(0);
     try {
@@ -394,6 +488,10 @@ public class OutputExpressions {
     }
   }
 
+  /**
+   * Returns the implicants of the minimal expression, which, like the
+   * expression, may be stale or null while a minimization is pending.
+   */
   public List<Implicant> getMinimalImplicants(String output) {
     if (output == null) return Implicant.MINIMAL_LIST;
     try {
@@ -436,6 +534,30 @@ public class OutputExpressions {
     }
   }
 
+  /**
+   * Brings the minimal expressions of all outputs up to date, waiting for
+   * the minimizations running in the background, for callers that need all
+   * of them at once.
+   */
+  public void finishMinimization() {
+    ArrayList<OutputData> all = new ArrayList<OutputData>();
+    for (String output : model.getOutputs().bits) {
+      OutputData data = getOutputData(output, true);
+      if (!data.minimalValid && data.pending == null) data.invalidate(false, false);
+      all.add(data);
+    }
+    for (OutputData data : all) {
+      if (data.pending != null) data.finish(data.pending);
+    }
+  }
+
+  /** Brings the minimal expression of one output up to date, waiting for it if needed. */
+  public void finishMinimization(String output) {
+    OutputData data = getOutputData(output, true);
+    if (!data.minimalValid && data.pending == null) data.invalidate(false, false);
+    if (data.pending != null) data.finish(data.pending);
+  }
+
   public boolean isExpressionMinimal(String output) {
     OutputData data = getOutputData(output, false);
     return data == null ? true : data.isExpressionMinimal();
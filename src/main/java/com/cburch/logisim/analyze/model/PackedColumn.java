@@ -0,0 +1,207 @@
+/**
+ * This file is part of logisim-evolution.
+ *
+ * Logisim-evolution is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * Logisim-evolution is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with logisim-evolution. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Original code by Carl Burch (http://www.cburch.com), 2011.
+ * Subsequent modifications by:
+ *   + College of the Holy Cross
+ *     http://www.holycross.edu
+ *   + Haute École Spécialisée Bernoise/Berner Fachhochschule
+ *     http://www.bfh.ch
+ *   + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *     http://hepia.hesge.ch/
+ *   + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *     http://www.heig-vd.ch/
+ */
+
+package com.cburch.logisim.analyze.model;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * An output column of a truth table, stored with two bits per row: zero,
+ * one, don't care or error. The rows with an oscillation error, rather than
+ * a bus error, are remembered apart since they are rare.
+ */
+public class PackedColumn {
+  private static final int ZERO = 0;
+  private static final int ONE = 1;
+  private static final int DONT_CARE = 2;
+  private static final int ERROR = 3;
+
+  private static final Entry[] ENTRIES = {Entry.ZERO, Entry.ONE, Entry.DONT_CARE, Entry.BUS_ERROR};
+  private static final long[] FILLS = {0L, 0x5555555555555555L, 0xaaaaaaaaaaaaaaaaL, -1L};
+
+  private static int code(Entry value) {
+    if (value == Entry.ZERO) return ZERO;
+    if (value == Entry.ONE) return ONE;
+    if (value == Entry.DONT_CARE) return DONT_CARE;
+    return ERROR;
+  }
+
+  private final int size;
+  private final long[] words;
+  private BitSet oscillating = null;
+
+  public PackedColumn(int size, Entry value) {
+    this.size = size;
+    this.words = new long[(size + 31) >> 5];
+    fill(value);
+  }
+
+  public PackedColumn(Entry[] values) {
+    this(values.length, Entry.ZERO);
+    for (int i = 0; i < values.length; i++) {
+      if (values[i] != Entry.ZERO) set(i, values[i]);
+    }
+  }
+
+  private PackedColumn(PackedColumn other) {
+    this.size = other.size;
+    this.words = other.words.clone();
+    this.oscillating = other.oscillating == null ? null : (BitSet) other.oscillating.clone();
+  }
+
+  public PackedColumn copy() {
+    return new PackedColumn(this);
+  }
+
+  public int size() {
+    return size;
+  }
+
+  private int getCode(int idx) {
+    return (int) (words[idx >> 5] >>> ((idx & 31) << 1)) & 3;
+  }
+
+  private void setCode(int idx, int code) {
+    int shift = (idx & 31) << 1;
+    words[idx >> 5] = (words[idx >> 5] & ~(3L << shift)) | ((long) code << shift);
+  }
+
+  public Entry get(int idx) {
+    int code = getCode(idx);
+    if (code == ERROR && oscillating != null && oscillating.get(idx)) return Entry.OSCILLATE_ERROR;
+    return ENTRIES[code];
+  }
+
+  public void set(int idx, Entry value) {
+    setCode(idx, code(value));
+    if (value == Entry.OSCILLATE_ERROR) {
+      if (oscillating == null) oscillating = new BitSet();
+      oscillating.set(idx);
+    } else if (oscillating != null) {
+      oscillating.clear(idx);
+    }
+  }
+
+  public void fill(Entry value) {
+    Arrays.fill(words, FILLS[code(value)]);
+    if ((size & 31) != 0) words[words.length - 1] &= (1L << ((size & 31) << 1)) - 1;
+    oscillating = null;
+    if (value == Entry.OSCILLATE_ERROR) {
+      oscillating = new BitSet(size);
+      oscillating.set(0, size);
+    }
+  }
+
+  /**
+   * Sets all rows (base | t) for the subsets t of dcMask, i.e. the rows
+   * making up one visible row of the table. Returns whether anything changed.
+   */
+  public boolean set(int base, int dcMask, Entry value) {
+    boolean changed = false;
+    if (value != Entry.OSCILLATE_ERROR && (dcMask & (dcMask + 1)) == 0 && dcMask >= 31) {
+      // the rows form a contiguous range of whole words
+      long fill = FILLS[code(value)];
+      int last = base | dcMask;
+      for (int w = base >> 5; w <= last >> 5; w++) {
+        if (words[w] != fill) {
+          words[w] = fill;
+          changed = true;
+        }
+      }
+      if (oscillating != null) {
+        int next = oscillating.nextSetBit(base);
+        if (next >= 0 && next <= last) {
+          oscillating.clear(base, last + 1);
+          changed = true;
+        }
+      }
+      return changed;
+    }
+    int t = 0;
+    do {
+      int idx = base | t;
+      if (get(idx) != value) {
+        set(idx, value);
+        changed = true;
+      }
+      t = (t - dcMask) & dcMask;
+    } while (t != 0);
+    return changed;
+  }
+
+  /**
+   * Sets the rows first to first + count - 1 (at most 64) from bit masks
+   * with one bit per row, as produced by a bit-parallel evaluation. The error
+   * mask takes precedence over the unknown mask, which takes precedence over
+   * the value mask.
+   */
+  public void setBits(int first, int count, long value, long unknown, long error) {
+    for (int k = 0; k < count; k++) {
+      int code;
+      if (((error >>> k) & 1) != 0) code = ERROR;
+      else if (((unknown >>> k) & 1) != 0) code = DONT_CARE;
+      else code = (int) (value >>> k) & 1;
+      setCode(first + k, code);
+    }
+    if (oscillating != null) oscillating.clear(first, first + count);
+  }
+
+  public Entry[] toArray() {
+    Entry[] ret = new Entry[size];
+    for (int i = 0; i < size; i++) ret[i] = get(i);
+    return ret;
+  }
+
+  /**
+   * Tells whether the two columns agree on every row where both are zero or
+   * one.
+   */
+  public boolean matches(PackedColumn other) {
+    if (size != other.size) return false;
+    for (int w = 0; w < words.length; w++) {
+      long a = words[w];
+      long b = other.words[w];
+      // the low bit of a pair is the value, the high bit is set for don't
+      // care and error; pairs with both high bits clear have to agree.
+      long defined = ~(a | b) & 0xaaaaaaaaaaaaaaaaL;
+      if ((((a ^ b) << 1) & defined) != 0) return false;
+    }
+    return true;
+  }
+
+  /** Tells whether no row is zero or one. */
+  public boolean isAllUndefined() {
+    for (int w = 0; w < words.length; w++) {
+      int valid = Math.min(32, size - (w << 5));
+      long mask = valid == 32 ? -1L : (1L << (valid << 1)) - 1;
+      if ((~words[w] & 0xaaaaaaaaaaaaaaaaL & mask) != 0) return false;
+    }
+    return true;
+  }
+}
@@ -30,8 +30,6 @@ package com.cburch.logisim.analyze.model;
 
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collections;
-import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -45,53 +43,55 @@ public class TruthTable {
   private List<TruthTableListener> listeners = new ArrayList<TruthTableListener>();
 
   private AnalyzerModel model;
-  private ArrayList<Row> rows = new ArrayList<>(); // visible input rows
-  private ArrayList<Entry[]> columns = new ArrayList<>(); // output columns
-  private static final CompareInputs sortByInputs = new CompareInputs();
+  private RowList rows = new RowList(); // visible input rows
+  private ArrayList<PackedColumn> columns = new ArrayList<>(); // output columns
 
   private class Row implements Iterable<Integer> {
-    // todo: probably more efficient to store this in baseIdx/dcMask format.
-    Entry inputs[];
+    final int base;
+    final int dc;
+    final int numInputs;
 
     Row(int idx, int numInputs, int mask) {
-      inputs = new Entry[numInputs];
-      for (int i = numInputs - 1; i >= 0; i--) {
-        inputs[i] = (mask & 1) == 0 ? (idx & 1) == 0 ? Entry.ZERO : Entry.ONE : Entry.DONT_CARE;
-        idx = idx >> 1;
-        mask = mask >> 1;
-      }
+      int all = (1 << numInputs) - 1;
+      this.dc = mask & all;
+      this.base = idx & all & ~dc;
+      this.numInputs = numInputs;
     }
 
     Row(Entry entries[], int numInputs) {
-      inputs = new Entry[numInputs];
-      for (int i = 0; i < numInputs; i++) inputs[i] = entries[i];
+      int idx = 0;
+      int mask = 0;
+      for (int i = 0; i < numInputs; i++) {
+        idx = (idx << 1) | (entries[i] == Entry.ONE ? 1 : 0);
+        mask = (mask << 1) | (entries[i] == Entry.DONT_CARE ? 1 : 0);
+      }
+      this.dc = mask;
+      this.base = idx;
+      this.numInputs = numInputs;
+    }
+
+    Entry input(int col) {
+      return inputEntry(base, dc, numInputs, col);
     }
 
     public int baseIndex() {
-      int idx = 0;
-      for (int i = 0; i < inputs.length; i++) idx = (idx << 1) | (inputs[i] == Entry.ONE ? 1 : 0);
-      return idx;
+      return base;
     }
 
     public int dcMask() {
-      int mask = 0;
-      for (int i = 0; i < inputs.length; i++)
-        mask = (mask << 1) | (inputs[i] == Entry.DONT_CARE ? 1 : 0);
-      return mask;
+      return dc;
     }
 
     public int duplicity() {
-      int count = 1;
-      for (int i = 0; i < inputs.length; i++) count *= (inputs[i] == Entry.DONT_CARE ? 2 : 1);
-      return count;
+      return 1 << Integer.bitCount(dc);
     }
 
     @Override
     public String toString() {
       String s = "row[";
-      for (int i = 0; i < inputs.length; i++) {
+      for (int i = 0; i < numInputs; i++) {
         if (i != 0) s += " ";
-        s += inputs[i].getDescription();
+        s += input(i).getDescription();
       }
       s += "]";
       s += " dup=" + duplicity();
@@ -105,13 +105,13 @@ public class TruthTable {
       for (Var v : vars) {
         if (s == null) s = "";
         else s += " ";
-        for (int j = 0; j < v.width; j++) s += inputs[i++].toBitString();
+        for (int j = 0; j < v.width; j++) s += input(i++).toBitString();
       }
       return s;
     }
 
     public boolean contains(int idx) {
-      return (idx & ~dcMask()) == baseIndex();
+      return (idx & ~dc) == base;
     }
 
     public boolean contains(Row other) {
@@ -125,27 +125,20 @@ public class TruthTable {
 
     public Iterator<Integer> iterator() {
       return new Iterator<Integer>() {
-        int base = baseIndex();
-        int mask = dcMask();
-        int nbits = inputs.length;
-        int count = duplicity();
-        int iter = 0;
+        int current = 0;
+        boolean done = false;
 
         @Override
         public boolean hasNext() {
-          return iter < count;
+          return !done;
         }
 
         @Override
         public Integer next() {
-          int add = iter;
-          int keep = 0;
-          for (int b = 0; b < nbits; b++) {
-            if ((mask & (1 << b)) == 0) add = ((add & ~keep) << 1) | (add & keep);
-            keep |= (1 << b);
-          }
-          iter++;
-          return base | add;
+          int ret = base | current;
+          current = (current - dc) & dc;
+          done = current == 0;
+          return ret;
         }
 
         @Override
@@ -156,18 +149,95 @@ public class TruthTable {
     }
   }
 
-  public static class CompareInputs implements Comparator<Row> {
-    public int compare(Row r1, Row r2) {
-      return r1.baseIndex() - r2.baseIndex();
+  private static Entry inputEntry(int base, int dc, int numInputs, int col) {
+    int bit = 1 << (numInputs - 1 - col);
+    return (dc & bit) != 0 ? Entry.DONT_CARE : (base & bit) != 0 ? Entry.ONE : Entry.ZERO;
+  }
+
+  /**
+   * The visible rows, as base index and don't care mask pairs sorted by base
+   * index. Row objects are only made for the rows that are asked for, so a
+   * fully expanded table of many inputs costs two ints per row.
+   */
+  private static class RowList {
+    int[] bases = new int[16];
+    int[] masks = new int[16];
+    int size = 0;
+    int dcRows = 0; // the number of rows with a non-zero mask
+
+    static RowList expanded(int n) {
+      RowList ret = new RowList();
+      ret.bases = new int[Math.max(16, n)];
+      ret.masks = new int[ret.bases.length];
+      for (int i = 0; i < n; i++) ret.bases[i] = i;
+      ret.size = n;
+      return ret;
+    }
+
+    int base(int i) {
+      if (i < 0 || i >= size) throw new IndexOutOfBoundsException("bad row index");
+      return bases[i];
+    }
+
+    int mask(int i) {
+      if (i < 0 || i >= size) throw new IndexOutOfBoundsException("bad row index");
+      return masks[i];
+    }
+
+    void add(int base, int mask) {
+      insert(size, base, mask);
     }
+
+    void insert(int pos, int base, int mask) {
+      if (size == bases.length) {
+        bases = Arrays.copyOf(bases, 2 * size);
+        masks = Arrays.copyOf(masks, 2 * size);
+      }
+      System.arraycopy(bases, pos, bases, pos + 1, size - pos);
+      System.arraycopy(masks, pos, masks, pos + 1, size - pos);
+      bases[pos] = base;
+      masks[pos] = mask;
+      if (mask != 0) dcRows++;
+      size++;
+    }
+
+    void remove(int pos) {
+      if (masks[pos] != 0) dcRows--;
+      System.arraycopy(bases, pos + 1, bases, pos, size - pos - 1);
+      System.arraycopy(masks, pos + 1, masks, pos, size - pos - 1);
+      size--;
+    }
+
+    int search(int base) {
+      return Arrays.binarySearch(bases, 0, size, base);
+    }
+
+    void sort() {
+      long[] keys = new long[size];
+      for (int i = 0; i < size; i++) keys[i] = ((long) bases[i] << 32) | (masks[i] & 0xffffffffL);
+      Arrays.sort(keys);
+      for (int i = 0; i < size; i++) {
+        bases[i] = (int) (keys[i] >>> 32);
+        masks[i] = (int) keys[i];
+      }
+    }
+
+    // In a fully expanded table row i holds index i.
+    int find(int idx) {
+      if (dcRows == 0) return idx < size ? idx : -1;
+      for (int i = size - 1; i >= 0; i--) {
+        if ((idx & ~masks[i]) == bases[i]) return i;
+      }
+      return -1;
+    }
+  }
+
+  private Row row(int i, int numInputs) {
+    return new Row(rows.base(i), numInputs, rows.mask(i));
   }
 
   private void initRows() {
-    int inputs = getInputColumnCount();
-    int n = getRowCount();
-    rows.clear();
-    rows.ensureCapacity(n);
-    for (int i = 0; i < n; i++) rows.add(new Row(i, inputs, 0));
+    rows = RowList.expanded(getRowCount());
   }
 
   private void initColumns() {
@@ -193,7 +263,7 @@ public class TruthTable {
 
   public void compactVisibleRows() {
     SortedMap<Implicant, String> partition = Implicant.computePartition(model);
-    rows.clear();
+    rows = new RowList();
     initColumns();
     int ni = getInputColumnCount();
     int no = getOutputColumnCount();
@@ -201,17 +271,16 @@ public class TruthTable {
       Implicant imp = it.getKey();
       String val = it.getValue();
       Row r = new Row(imp.values, ni, imp.unknowns);
-      rows.add(r);
+      rows.add(r.base, r.dc);
       for (int col = 0; col < no; col++) {
         Entry value = Entry.parse("" + val.charAt(col));
-        Entry[] column = columns.get(col);
+        PackedColumn column = columns.get(col);
         if (column == null && value == DEFAULT_ENTRY) continue;
-        else if (column == null) column = getOutputColumn(col);
-        for (Integer idx : r) {
-          column[idx] = value;
-        }
+        else if (column == null) column = getColumn(col);
+        column.set(r.base, r.dc, value);
       }
     }
+    rows.sort();
     fireRowsChanged();
     for (int col = 0; col < no; col++) {
       if (columns.get(col) != null) fireCellsChanged(col);
@@ -220,89 +289,91 @@ public class TruthTable {
 
   public void setOutputColumn(int col, Entry[] values) {
     if (values.length != getRowCount()) throw new IllegalArgumentException("bad column length");
-    Entry[] oldValues = columns.set(col, values);
+    setOutputColumn(col, new PackedColumn(values));
+  }
+
+  public void setOutputColumn(int col, PackedColumn values) {
+    if (values.size() != getRowCount()) throw new IllegalArgumentException("bad column length");
+    PackedColumn oldValues = columns.set(col, values);
     if (oldValues == values) return;
     // Expand rows as dictated by column inconsistencies
     boolean rowsChanged = false;
-    for (int i = rows.size() - 1; i >= 0; i--) {
-      Row r = rows.get(i);
-      int base = r.baseIndex();
-      Entry v = values[base];
-      boolean split = true;
-      while (split) {
-        split = false;
-        for (Integer idx : r) {
-          if (v != values[idx]) {
-            splitRow(r, idx);
-            rowsChanged = true;
-            split = true;
-            break;
-          }
-        }
-      }
+    int ni = getInputColumnCount();
+    for (int i = rows.size - 1; i >= 0 && rows.dcRows > 0; i--) {
+      if (rows.masks[i] != 0 && splitInconsistent(row(i, ni), values)) rowsChanged = true;
     }
     if (rowsChanged) fireRowsChanged();
     fireCellsChanged(col);
   }
 
-  void splitRow(Row r, int idx) {
+  private boolean splitInconsistent(Row r, PackedColumn values) {
+    Entry v = values.get(r.base);
+    for (Integer idx : r) {
+      if (v != values.get(idx)) {
+        for (Row s : splitRow(r, idx)) {
+          if (s.dc != 0) splitInconsistent(s, values);
+        }
+        return true;
+      }
+    }
+    return false;
+  }
+
+  List<Row> splitRow(Row r, int idx) {
     int base = r.baseIndex();
     if (idx == base || !r.contains(idx)) throw new IllegalArgumentException("bad row split");
     int diff = idx ^ base;
     int n = r.duplicity();
     if (n <= 1) throw new IllegalStateException("row duplicity should be at least 2");
-    Row splits = new Row(base, r.inputs.length, diff);
+    int pos = rows.search(base);
+    if (pos < 0 || rows.masks[pos] != r.dc) throw new IllegalStateException("missing row");
+    rows.remove(pos);
+    ArrayList<Row> ret = new ArrayList<>();
     int m = 0;
-    rows.remove(r);
-    for (Integer other : splits) {
-      Row s = new Row(other, r.inputs.length, r.dcMask() & ~diff);
+    for (Integer other : new Row(base, r.numInputs, diff)) {
+      Row s = new Row(other, r.numInputs, r.dcMask() & ~diff);
       m += s.duplicity();
-      int pos = Collections.binarySearch(rows, s, sortByInputs);
-      if (pos < 0) rows.add(-pos - 1, s);
+      pos = rows.search(s.base);
+      if (pos < 0) rows.insert(-pos - 1, s.base, s.dc);
       else throw new IllegalStateException("unexpected row split");
+      ret.add(s);
     }
     if (m != n) throw new IllegalStateException("assertion failed in row split");
+    return ret;
   }
 
   public Entry getVisibleOutputEntry(int row, int col) {
-    Row r = rows.get(row);
-    int idx = r.baseIndex();
-    return getOutputEntry(idx, col);
+    return getOutputEntry(rows.base(row), col);
   }
 
   public Entry getOutputEntry(int idx, int col) {
     if (idx < 0 || col < 0) return DEFAULT_ENTRY;
-    Entry[] column = columns.get(col);
-    return (column == null ? DEFAULT_ENTRY : idx < column.length ? column[idx] : DEFAULT_ENTRY);
+    PackedColumn column = columns.get(col);
+    return (column == null ? DEFAULT_ENTRY : idx < column.size() ? column.get(idx) : DEFAULT_ENTRY);
   }
 
   public String getVisibleOutputs(int row) {
-    Row r = rows.get(row);
-    int idx = r.baseIndex();
+    int idx = rows.base(row);
     String s = "";
-    for (Entry[] column : columns)
-      s += (column == null ? DEFAULT_ENTRY : column[idx]).getDescription();
+    for (PackedColumn column : columns)
+      s += (column == null ? DEFAULT_ENTRY : column.get(idx)).getDescription();
     return s;
   }
 
   public Entry getVisibleInputEntry(int row, int col) {
-    Row r = rows.get(row);
-    return r.inputs[col];
+    return inputEntry(rows.base(row), rows.mask(row), getInputColumnCount(), col);
   }
 
   public int getVisibleRowDcMask(int row) {
-    Row r = rows.get(row);
-    return r.dcMask();
+    return rows.mask(row);
   }
 
   public int getVisibleRowIndex(int row) {
-    Row r = rows.get(row);
-    return r.baseIndex();
+    return rows.base(row);
   }
 
   public Iterable<Integer> getVisibleRowIndexes(int row) {
-    Row r = rows.get(row);
-    return r;
+    return row(row, getInputColumnCount());
   }
 
   public Entry getInputEntry(int idx, int col) {
@@ -316,13 +387,22 @@ public class TruthTable {
     return (idx & (1 << (inputs - col - 1))) != 0;
   }
 
+  /** Returns the entries of an output column; the array is a copy. */
   public Entry[] getOutputColumn(int col) {
-    Entry[] column = columns.get(col);
+    return getColumn(col).toArray();
+  }
+
+  /** Returns a copy of an output column in its packed form. */
+  public PackedColumn getPackedOutputColumn(int col) {
+    return getColumn(col).copy();
+  }
+
+  private PackedColumn getColumn(int col) {
+    PackedColumn column = columns.get(col);
     if (column == null) {
       if (col < 0 || col >= getOutputColumnCount())
         throw new IndexOutOfBoundsException("bad output column index");
-      column = new Entry[getRowCount()];
-      Arrays.fill(column, DEFAULT_ENTRY);
+      column = new PackedColumn(getRowCount(), DEFAULT_ENTRY);
       columns.set(col, column);
     }
     return column;
@@ -331,9 +411,9 @@ public class TruthTable {
   private boolean identicalOutputs(int idx1, int idx2) {
     if (idx1 == idx2) return true;
     for (int col = 0; col < columns.size(); col++) {
-      Entry[] column = columns.get(col);
+      PackedColumn column = columns.get(col);
       if (column == null) continue;
-      if (column[idx1] != column[idx2]) return false;
+      if (column.get(idx1) != column.get(idx2)) return false;
     }
     return true;
   }
@@ -341,51 +421,48 @@ public class TruthTable {
   private void mergeOutputs(int idx1, int idx2, boolean changed[]) {
     if (idx1 == idx2) return;
     for (int col = 0; col < columns.size(); col++) {
-      Entry[] column = columns.get(col);
+      PackedColumn column = columns.get(col);
       if (column == null) continue;
-      if (column[idx1] != column[idx2]) {
-        column[idx2] = column[idx1];
+      if (column.get(idx1) != column.get(idx2)) {
+        column.set(idx2, column.get(idx1));
         changed[col] = true;
       }
     }
   }
 
   private boolean setDontCare(Row r, int dc, boolean force, boolean changed[]) {
-    Row rNew = new Row(r.baseIndex(), r.inputs.length, r.dcMask() | dc);
+    Row rNew = new Row(r.baseIndex(), r.numInputs, r.dcMask() | dc);
     int base = rNew.baseIndex();
     if (!force) {
       for (Integer idx : rNew) {
         if (!identicalOutputs(base, idx)) return false;
       }
     }
-    for (int i = 0; i < rows.size(); i++) {
-      Row s = rows.get(i);
-      if (!rNew.intersects(s)) continue;
+    for (int i = 0; i < rows.size; i++) {
+      int both = rNew.dc | rows.masks[i];
+      if ((rows.bases[i] & ~both) != (base & ~both)) continue;
+      Row s = row(i, r.numInputs);
       if (rNew.contains(s)) {
         for (Integer idx : s) mergeOutputs(base, idx, changed);
         rows.remove(i);
       } else {
         // find a bit we can flip in s so it doesn't conflict
-        int pos;
-        for (pos = s.inputs.length - 1; pos >= 0; pos--) {
-          if (s.inputs[pos] == Entry.DONT_CARE && rNew.inputs[pos] != Entry.DONT_CARE) break;
-        }
-        if (pos < 0) throw new IllegalStateException("failed row merge");
-        int bit = (1 << (s.inputs.length - 1 - pos));
-        splitRow(s, s.baseIndex() ^ bit);
+        int bits = s.dc & ~rNew.dc;
+        if (bits == 0) throw new IllegalStateException("failed row merge");
+        splitRow(s, s.baseIndex() ^ (bits & -bits));
       }
       i--; // back up, may need a second split
     }
-    int pos = Collections.binarySearch(rows, rNew, sortByInputs);
-    if (pos < 0) rows.add(-pos - 1, rNew);
+    int pos = rows.search(base);
+    if (pos < 0) rows.insert(-pos - 1, base, rNew.dc);
     else throw new IllegalStateException("failed row merge");
     return true;
   }
 
   public boolean setVisibleInputEntry(int row, int col, Entry value, boolean force) {
-    Row r = rows.get(row);
-    if (r.inputs[col] == value) return false;
-    int dc = (1 << (r.inputs.length - 1 - col));
+    Row r = row(row, getInputColumnCount());
+    if (r.input(col) == value) return false;
+    int dc = (1 << (r.numInputs - 1 - col));
     if (value == Entry.DONT_CARE) {
       boolean changed[] = new boolean[columns.size()];
       if (!setDontCare(r, dc, force, changed)) return false;
@@ -395,7 +472,7 @@ public class TruthTable {
       }
       return true;
     } else if (value == Entry.ONE || value == Entry.ZERO) {
-      if (r.inputs[col] != Entry.DONT_CARE) return false;
+      if (r.input(col) != Entry.DONT_CARE) return false;
       splitRow(r, r.baseIndex() | dc);
       fireRowsChanged();
       return true;
@@ -405,33 +482,23 @@ public class TruthTable {
   }
 
   public void setVisibleOutputEntry(int row, int col, Entry value) {
-    Row r = rows.get(row);
-    Entry[] column = columns.get(col);
+    Row r = row(row, getInputColumnCount());
+    PackedColumn column = columns.get(col);
     if (column == null && value == DEFAULT_ENTRY) return;
-    else if (column == null) column = getOutputColumn(col);
-    boolean changed = false;
-    for (Integer idx : r) {
-      if (column[idx] == value) continue;
-      changed = true;
-      column[idx] = value;
-    }
-    if (changed) fireCellsChanged(col);
+    else if (column == null) column = getColumn(col);
+    if (column.set(r.base, r.dc, value)) fireCellsChanged(col);
   }
 
   Row findRow(int idx) {
-    for (int i = rows.size() - 1; i >= 0; i--) {
-      Row r = rows.get(i);
-      if (r.contains(idx)) return r;
-    }
-    throw new IllegalStateException("missing row");
+    int i = rows.find(idx);
+    if (i < 0) throw new IllegalStateException("missing row");
+    return row(i, getInputColumnCount());
   }
 
   public int findVisibleRowContaining(int idx) {
-    for (int i = rows.size() - 1; i >= 0; i--) {
-      Row r = rows.get(i);
-      if (r.contains(idx)) return i;
-    }
-    throw new IllegalStateException("missing row");
+    int i = rows.find(idx);
+    if (i < 0) throw new IllegalStateException("missing row");
+    return i;
   }
 
   public void setVisibleRows(ArrayList<Entry[]> newEntries, boolean force) {
@@ -478,21 +545,21 @@ public class TruthTable {
       }
     }
 
-    Collections.sort(newRows, sortByInputs);
-    rows.clear();
-    rows = newRows;
+    RowList sorted = new RowList();
+    for (Row r : newRows) sorted.add(r.base, r.dc);
+    sorted.sort();
+    rows = sorted;
     initColumns();
 
-    for (Entry values[] : newEntries) {
-      Row r = new Row(values, ni);
+    for (int i = 0; i < newEntries.size(); i++) {
+      Entry values[] = newEntries.get(i);
+      Row r = newRows.get(i);
       for (int col = 0; col < no; col++) {
         Entry value = values[ni + col];
-        Entry[] column = columns.get(col);
+        PackedColumn column = columns.get(col);
         if (column == null && value == DEFAULT_ENTRY) continue;
-        else if (column == null) column = getOutputColumn(col);
-        for (Integer idx : r) {
-          column[idx] = value;
-        }
+        else if (column == null) column = getColumn(col);
+        column.set(r.base, r.dc, value);
       }
     }
     fireRowsChanged();
@@ -502,16 +569,13 @@ public class TruthTable {
   }
 
   public void setOutputEntry(int idx, int col, Entry value) {
-    Entry[] column = columns.get(col);
+    PackedColumn column = columns.get(col);
     if (column == null && value == DEFAULT_ENTRY) return;
-    else if (column == null) column = getOutputColumn(col);
-    if (column[idx] == value) return;
-    column[idx] = value;
+    else if (column == null) column = getColumn(col);
+    if (column.get(idx) == value) return;
+    column.set(idx, value);
     Row r = findRow(idx);
-    if (r.duplicity() > 1) {
-      splitRow(r, idx);
-      fireRowsChanged();
-    }
+    if (r.duplicity() > 1 && splitInconsistent(r, column)) fireRowsChanged();
     fireCellsChanged(col);
   }
 
@@ -521,7 +585,7 @@ public class TruthTable {
       if (event.getSource() == model.getInputs()) {
         inputsChanged(event);
         for (int col = 0; col < columns.size(); col++) {
-          Entry[] column = columns.get(col);
+          PackedColumn column = columns.get(col);
           if (column == null) continue;
           column = inputsChangedForOutput(column, event);
           columns.set(col, column);
@@ -546,12 +610,12 @@ public class TruthTable {
         int newIndex = getOutputIndex(v.bitName(0));
         if (delta > 0) {
           for (int b = 0; b < v.width; b++) {
-            Entry[] column = columns.remove(newIndex - delta - b);
+            PackedColumn column = columns.remove(newIndex - delta - b);
             columns.add(newIndex - b, column);
           }
         } else if (delta < 0) {
           for (int b = v.width - 1; b >= 0; b--) {
-            Entry[] column = columns.remove(newIndex - delta - b);
+            PackedColumn column = columns.remove(newIndex - delta - b);
             columns.add(newIndex - b, column);
           }
         }
@@ -609,6 +673,7 @@ public class TruthTable {
     }
 
     private void moveInput(int oldIndex, int newIndex) {
+      if (rows.dcRows == 0) return; // still every index in its own row
       int inputs = getInputColumnCount();
       oldIndex = inputs - 1 - oldIndex;
       newIndex = inputs - 1 - newIndex;
@@ -621,10 +686,10 @@ public class TruthTable {
       int moveDist = Math.abs(newIndex - oldIndex);
       boolean moveLeft = newIndex > oldIndex;
       int blockMask = allMask ^ sameMask ^ moveMask; // bits that move by one
-      ArrayList<Row> ret = new ArrayList<>(2 * rows.size());
-      for (Row r : rows) {
-        int i = r.baseIndex();
-        int dc = r.dcMask();
+      RowList ret = new RowList();
+      for (int r = 0; r < rows.size; r++) {
+        int i = rows.bases[r];
+        int dc = rows.masks[r];
         int idx0;
         int dc0;
         if (moveLeft) {
@@ -634,52 +699,78 @@ public class TruthTable {
           idx0 = (i & sameMask) | ((i & moveMask) >> moveDist) | ((i & blockMask) << 1);
           dc0 = (dc & sameMask) | ((dc & moveMask) >> moveDist) | ((dc & blockMask) << 1);
         }
-        ret.add(new Row(idx0, inputs, dc0));
+        ret.add(idx0, dc0);
       }
-      Collections.sort(ret, sortByInputs);
+      ret.sort();
       rows = ret;
     }
 
     private void addInput(int index, int oldCount) {
       // add another Entry column to each row.input
-      ArrayList<Row> ret = new ArrayList<>(2 * rows.size());
-      for (Row r : rows) {
-        int i = r.baseIndex();
-        int dc = r.dcMask();
+      if (rows.dcRows == 0) {
+        rows = RowList.expanded(2 * rows.size);
+        return;
+      }
+      RowList ret = new RowList();
+      for (int r = 0; r < rows.size; r++) {
+        int i = rows.bases[r];
+        int dc = rows.masks[r];
         int b = 1 << (oldCount - index); // _0001000
         int mask = b - 1; // _0000111
         int idx0 = ((i & ~mask) << 1) | 0 | (i & mask); // xxxx0yyy
         int dc0 = ((dc & ~mask) << 1) | 0 | (dc & mask); // wwww0zzz
-        ret.add(new Row(idx0 | 0, oldCount + 1, dc0)); // xxxx0yyy
-        ret.add(new Row(idx0 | b, oldCount + 1, dc0)); // xxxx1yyy
+        ret.add(idx0 | 0, dc0); // xxxx0yyy
+        ret.add(idx0 | b, dc0); // xxxx1yyy
       }
-      Collections.sort(ret, sortByInputs);
+      ret.sort();
       rows = ret;
     }
 
     private void removeInput(int index, int oldCount) {
       // force an Entry column of each row.input to 'x', then remove it
       int b = (1 << (oldCount - 1 - index)); // _0001000
+      if (rows.dcRows == 0) {
+        // merging the rows pairwise copies the outputs of the rows with
+        // the input at 0 onto those with the input at 1
+        for (PackedColumn column : columns) {
+          if (column == null) continue;
+          for (int i = 0; i < column.size(); i++) {
+            if ((i & b) == 0) column.set(i | b, column.get(i));
+          }
+        }
+        rows = RowList.expanded(rows.size / 2);
+        removeInputForOutputs(index, oldCount);
+        return;
+      }
       boolean changed[] = new boolean[columns.size()];
-      for (int i = 0; i < rows.size(); i++) {
-        Row r = rows.get(i);
-        if (r.inputs[index] == Entry.DONT_CARE) continue;
-        setDontCare(r, b, true, changed);
+      for (int i = 0; i < rows.size; i++) {
+        if ((rows.masks[i] & b) != 0) continue;
+        setDontCare(row(i, oldCount), b, true, changed);
       }
       int mask = b - 1; // _0000111
-      ArrayList<Row> ret = new ArrayList<>(rows.size());
-      for (Row r : rows) {
-        int i = r.baseIndex();
-        int dc = r.dcMask();
+      RowList ret = new RowList();
+      for (int r = 0; r < rows.size; r++) {
+        int i = rows.bases[r];
+        int dc = rows.masks[r];
         int idx0 = ((i >> 1) & ~mask) | (i & mask); // __xxxyyy
         int dc0 = ((dc >> 1) & ~mask) | (dc & mask); // wwww0zzz
-        ret.add(new Row(idx0, oldCount - 1, dc0));
+        ret.add(idx0, dc0);
       }
-      Collections.sort(ret, sortByInputs);
+      ret.sort();
       rows = ret;
+      removeInputForOutputs(index, oldCount);
     }
 
-    private Entry[] inputsChangedForOutput(Entry[] column, VariableListEvent event) {
+    // The columns lose the input right away, as the next input removed may
+    // merge outputs again.
+    private void removeInputForOutputs(int index, int oldCount) {
+      for (int col = 0; col < columns.size(); col++) {
+        PackedColumn column = columns.get(col);
+        if (column != null) columns.set(col, removeInputForOutput(column, index, oldCount));
+      }
+    }
+
+    private PackedColumn inputsChangedForOutput(PackedColumn column, VariableListEvent event) {
       Var v = event.getVariable();
       int action = event.getType();
       if (action == VariableListEvent.ADD) {
@@ -687,11 +778,6 @@ public class TruthTable {
         int oldCount = getInputColumnCount() - v.width;
         for (int b = v.width - 1; b >= 0; b--)
           column = addInputForOutput(column, bitIndex - b, oldCount++);
-      } else if (action == VariableListEvent.REMOVE) {
-        int bitIndex = event.getBitIndex();
-        int oldCount = getInputColumnCount() + v.width;
-        for (int b = 0; b < v.width; b++)
-          column = removeInputForOutput(column, bitIndex - b, oldCount--);
       } else if (action == VariableListEvent.MOVE) {
         int delta = event.getBitIndex();
         int newIndex = getInputIndex(v.bitName(0));
@@ -709,61 +795,59 @@ public class TruthTable {
         int lost = oldVar.width - newVar.width;
         int oldCount = getInputColumnCount() + lost;
         int pos = bitIndex + 1 - oldVar.width;
-        if (lost > 0) {
-          while (lost-- != 0) column = removeInputForOutput(column, pos, oldCount--);
-        } else if (lost < 0) {
+        if (lost < 0) {
           while (lost++ != 0) column = addInputForOutput(column, pos, oldCount++);
         }
       }
       return column;
     }
 
-    private Entry[] moveInputForOutput(Entry[] old, int oldIndex, int newIndex) {
+    private PackedColumn moveInputForOutput(PackedColumn old, int oldIndex, int newIndex) {
       int inputs = getInputColumnCount();
       oldIndex = inputs - 1 - oldIndex;
       newIndex = inputs - 1 - newIndex;
-      Entry[] ret = new Entry[old.length];
+      PackedColumn ret = new PackedColumn(old.size(), Entry.ZERO);
       int sameMask =
-          (old.length - 1)
+          (old.size() - 1)
               ^ ((1 << (1 + Math.max(oldIndex, newIndex))) - 1)
               ^ ((1 << Math.min(oldIndex, newIndex)) - 1); // bits that don't change
       int moveMask = 1 << oldIndex; // bit that moves
       int moveDist = Math.abs(newIndex - oldIndex);
       boolean moveLeft = newIndex > oldIndex;
-      int blockMask = (old.length - 1) ^ sameMask ^ moveMask; // bits that move by one
-      for (int i = 0; i < old.length; i++) {
+      int blockMask = (old.size() - 1) ^ sameMask ^ moveMask; // bits that move by one
+      for (int i = 0; i < old.size(); i++) {
         int j; // new index
         if (moveLeft) {
           j = (i & sameMask) | ((i & moveMask) << moveDist) | ((i & blockMask) >> 1);
         } else {
           j = (i & sameMask) | ((i & moveMask) >> moveDist) | ((i & blockMask) << 1);
         }
-        ret[j] = old[i];
+        ret.set(j, old.get(i));
       }
       return ret;
     }
 
-    private Entry[] removeInputForOutput(Entry[] old, int index, int oldCount) {
-      Entry[] ret = new Entry[old.length / 2];
+    private PackedColumn removeInputForOutput(PackedColumn old, int index, int oldCount) {
+      PackedColumn ret = new PackedColumn(old.size() / 2, Entry.ZERO);
       int j = 0;
       int mask = 1 << (oldCount - 1 - index);
-      for (int i = 0; i < old.length; i++) {
+      for (int i = 0; i < old.size(); i++) {
         if ((i & mask) == 0) {
-          Entry e0 = old[i];
-          Entry e1 = old[i | mask];
-          ret[j++] = (e0 == e1 ? e0 : Entry.DONT_CARE);
+          Entry e0 = old.get(i);
+          Entry e1 = old.get(i | mask);
+          ret.set(j++, e0 == e1 ? e0 : Entry.DONT_CARE);
         }
       }
       return ret;
     }
 
-    private Entry[] addInputForOutput(Entry[] old, int index, int oldCount) {
-      Entry[] ret = new Entry[2 * old.length];
+    private PackedColumn addInputForOutput(PackedColumn old, int index, int oldCount) {
+      PackedColumn ret = new PackedColumn(2 * old.size(), Entry.ZERO);
       int b = 1 << (oldCount - index); // _0001000
       int mask = b - 1; // _0000111
-      for (int i = 0; i < old.length; i++) {
-        ret[((i & ~mask) << 1) | 0 | (i & mask)] = old[i]; // xxxx0yyy
-        ret[((i & ~mask) << 1) | b | (i & mask)] = old[i]; // xxxx1yyy
+      for (int i = 0; i < old.size(); i++) {
+        ret.set(((i & ~mask) << 1) | 0 | (i & mask), old.get(i)); // xxxx0yyy
+        ret.set(((i & ~mask) << 1) | b | (i & mask), old.get(i)); // xxxx1yyy
       }
       return ret;
     }
@@ -843,6 +927,6 @@ public class TruthTable {
   }
 
   public int getVisibleRowCount() {
-    return rows.size();
+    return rows.size;
   }
 }
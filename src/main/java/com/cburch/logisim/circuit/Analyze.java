@@ -34,6 +34,7 @@ import com.cburch.logisim.analyze.model.AnalyzerModel;
 import com.cburch.logisim.analyze.model.Entry;
 import com.cburch.logisim.analyze.model.Expression;
 import com.cburch.logisim.analyze.model.Expressions;
+import com.cburch.logisim.analyze.model.PackedColumn;
 import com.cburch.logisim.analyze.model.TruthTable;
 import com.cburch.logisim.analyze.model.Var;
 import com.cburch.logisim.comp.Component;
@@ -50,6 +51,7 @@ import java.util.Collection;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.SortedMap;
@@ -213,49 +215,56 @@ public class Analyze {
 
     int inputCount = inputNames.size();
     int rowCount = 1 << inputCount;
-    Entry[][] columns = new Entry[outputNames.size()][rowCount];
-
-    for (int i = 0; i < rowCount; i++) {
-      CircuitState circuitState = new CircuitState(proj, circuit);
-      int incol = 0;
-      for (int j = 0; j < inputPins.size(); j++) {
-        Instance pin = inputPins.get(j);
-        int width = pin.getAttributeValue(StdAttr.WIDTH).getWidth();
-        Value v[] = new Value[width];
-        for (int b = width - 1; b >= 0; b--) {
-          boolean value = TruthTable.isInputSet(i, incol++, inputCount);
-          v[b] = value ? Value.TRUE : Value.FALSE;
-        }
-        InstanceState pinState = circuitState.getInstanceState(pin);
-        Pin.FACTORY.setValue(pinState, Value.create(v));
-      }
-
-      Propagator prop = circuitState.getPropagator();
-      prop.propagate();
-      /*
-       * TODO for the SimulatorPrototype class do { prop.step(); } while
-       * (prop.isPending());
-       */
-      // TODO: Search for circuit state
-
-      if (prop.isOscillating()) {
-        for (int j = 0; j < columns.length; j++) {
-          columns[j][i] = Entry.OSCILLATE_ERROR;
-        }
-      } else {
-        int outcol = 0;
-        for (int j = 0; j < outputPins.size(); j++) {
-          Instance pin = outputPins.get(j);
+    PackedColumn[] columns = new PackedColumn[outputNames.size()];
+    for (int j = 0; j < columns.length; j++) columns[j] = new PackedColumn(rowCount, Entry.ZERO);
+
+    BitSliceEvaluator evaluator =
+        BitSliceEvaluator.create(new CircuitState(proj, circuit), inputPins, outputPins);
+    if (evaluator != null) {
+      computeColumns(evaluator, inputPins, outputPins, inputCount, columns);
+    } else {
+      for (int i = 0; i < rowCount; i++) {
+        CircuitState circuitState = new CircuitState(proj, circuit);
+        int incol = 0;
+        for (int j = 0; j < inputPins.size(); j++) {
+          Instance pin = inputPins.get(j);
           int width = pin.getAttributeValue(StdAttr.WIDTH).getWidth();
-          InstanceState pinState = circuitState.getInstanceState(pin);
-          Entry out;
+          Value v[] = new Value[width];
           for (int b = width - 1; b >= 0; b--) {
-            Value outValue = Pin.FACTORY.getValue(pinState).get(b);
-            if (outValue == Value.TRUE) out = Entry.ONE;
-            else if (outValue == Value.FALSE) out = Entry.ZERO;
-            else if (outValue == Value.ERROR) out = Entry.BUS_ERROR;
-            else out = Entry.DONT_CARE;
-            columns[outcol++][i] = out;
+            boolean value = TruthTable.isInputSet(i, incol++, inputCount);
+            v[b] = value ? Value.TRUE : Value.FALSE;
+          }
+          InstanceState pinState = circuitState.getInstanceState(pin);
+          Pin.FACTORY.setValue(pinState, Value.create(v));
+        }
+
+        Propagator prop = circuitState.getPropagator();
+        prop.propagate();
+        /*
+         * TODO for the SimulatorPrototype class do { prop.step(); } while
+         * (prop.isPending());
+         */
+        // TODO: Search for circuit state
+
+        if (prop.isOscillating()) {
+          for (int j = 0; j < columns.length; j++) {
+            columns[j].set(i, Entry.OSCILLATE_ERROR);
+          }
+        } else {
+          int outcol = 0;
+          for (int j = 0; j < outputPins.size(); j++) {
+            Instance pin = outputPins.get(j);
+            int width = pin.getAttributeValue(StdAttr.WIDTH).getWidth();
+            InstanceState pinState = circuitState.getInstanceState(pin);
+            Entry out;
+            for (int b = width - 1; b >= 0; b--) {
+              Value outValue = Pin.FACTORY.getValue(pinState).get(b);
+              if (outValue == Value.TRUE) out = Entry.ONE;
+              else if (outValue == Value.FALSE) out = Entry.ZERO;
+              else if (outValue == Value.ERROR) out = Entry.BUS_ERROR;
+              else out = Entry.DONT_CARE;
+              columns[outcol++].set(i, out);
+            }
           }
         }
       }
@@ -267,6 +276,39 @@ public class Analyze {
     }
   }
 
+  /** Computes the output columns 64 rows at a time, as the propagation loop above does. */
+  private static void computeColumns(
+      BitSliceEvaluator evaluator,
+      List<Instance> inputPins,
+      List<Instance> outputPins,
+      int inputCount,
+      PackedColumn[] columns) {
+    int rowCount = 1 << inputCount;
+    for (int first = 0; first < rowCount; first += 64) {
+      int incol = 0;
+      for (int j = 0; j < inputPins.size(); j++) {
+        int width = inputPins.get(j).getAttributeValue(StdAttr.WIDTH).getWidth();
+        for (int b = width - 1; b >= 0; b--) {
+          int rowBit = inputCount - 1 - incol++;
+          evaluator.setInput(j, b, BitSliceEvaluator.getRowLanes(first, rowBit));
+        }
+      }
+      evaluator.evaluate();
+
+      int lanes = Math.min(64, rowCount - first);
+      int outcol = 0;
+      for (int j = 0; j < outputPins.size(); j++) {
+        int width = outputPins.get(j).getAttributeValue(StdAttr.WIDTH).getWidth();
+        for (int b = width - 1; b >= 0; b--) {
+          long value = evaluator.getOutputValue(j, b);
+          long unknown = evaluator.getOutputUnknown(j, b);
+          long error = evaluator.getOutputError(j, b);
+          columns[outcol++].setBits(first, lanes, value, unknown, error);
+        }
+      }
+    }
+  }
+
   // computes outputs of affected components
   private static HashSet<Component> getDirtyComponents(
       Circuit circuit, Set<LocationBit> pointsToProcess) throws AnalyzeException {
@@ -0,0 +1,65 @@
+/**
+ * This file is part of logisim-evolution.
+ *
+ * Logisim-evolution is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * Logisim-evolution is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU General Public License along 
+ * with logisim-evolution. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Original code by Carl Burch (http://www.cburch.com), 2011.
+ * Subsequent modifications by:
+ *   + College of the Holy Cross
+ *     http://www.holycross.edu
+ *   + Haute École Spécialisée Bernoise/Berner Fachhochschule
+ *     http://www.bfh.ch
+ *   + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *     http://hepia.hesge.ch/
+ *   + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *     http://www.heig-vd.ch/
+ */
+
+package com.cburch.logisim.circuit;
+
+import com.cburch.logisim.data.AttributeSet;
+
+public interface BitSliceComputer {
+  /** The feature of components that neither read nor drive values, such as tunnels and probes. */
+  public static final BitSliceComputer PASSIVE =
+      new BitSliceComputer() {
+        public void computeLanes(Lanes lanes) {}
+      };
+
+  /**
+   * Computes the outputs of the component for 64 assignments of the circuit inputs at once. Each
+   * bit of a port is given as three lane masks: bit <i>n</i> of a mask describes assignment
+   * <i>n</i>. A lane is set in at most one of the unknown and error masks, and the value mask is
+   * only set in lanes where the bit is neither unknown nor an error.
+   *
+   * <p>The computation must give the same result as the component's propagate method does for
+   * each assignment on its own. Components that return this feature are used by {@link
+   * BitSliceEvaluator} to build truth tables 64 rows at a time.
+   */
+  public void computeLanes(Lanes lanes);
+
+  public interface Lanes {
+    public long getValue(int port, int bit);
+
+    public long getUnknown(int port, int bit);
+
+    public long getError(int port, int bit);
+
+    public void setPort(int port, int bit, long value, long unknown, long error);
+
+    public boolean isPortConnected(int port);
+
+    public AttributeSet getProjectOptions();
+  }
+}
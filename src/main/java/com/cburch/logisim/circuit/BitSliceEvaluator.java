@@ -0,0 +1,461 @@
+/**
+ * This file is part of logisim-evolution.
+ *
+ * Logisim-evolution is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * Logisim-evolution is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU General Public License along 
+ * with logisim-evolution. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Original code by Carl Burch (http://www.cburch.com), 2011.
+ * Subsequent modifications by:
+ *   + College of the Holy Cross
+ *     http://www.holycross.edu
+ *   + Haute École Spécialisée Bernoise/Berner Fachhochschule
+ *     http://www.bfh.ch
+ *   + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *     http://hepia.hesge.ch/
+ *   + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *     http://www.heig-vd.ch/
+ */
+
+package com.cburch.logisim.circuit;
+
+import com.cburch.logisim.comp.Component;
+import com.cburch.logisim.comp.EndData;
+import com.cburch.logisim.data.AttributeSet;
+import com.cburch.logisim.data.Value;
+import com.cburch.logisim.instance.Instance;
+import com.cburch.logisim.instance.InstanceStateImpl;
+import com.cburch.logisim.std.wiring.Pin;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Evaluates a combinational circuit for 64 assignments of its input pins at once, as used to build
+ * truth tables.
+ *
+ * <p>The circuit is flattened by {@link CompiledNetlist}. Every net then holds three lane masks
+ * (value, unknown and error), where bit <i>n</i> of each mask belongs to assignment <i>n</i>, and
+ * every component computes its outputs through its {@link BitSliceComputer} feature. Components
+ * are evaluated once each in topological order, so the circuit must be free of feedback; {@link
+ * #create} returns null for circuits containing loops or components without the feature, and the
+ * caller falls back to the event-driven {@link Propagator}.
+ */
+public class BitSliceEvaluator implements BitSliceComputer.Lanes {
+  private static final int PASSIVE = 0;
+  private static final int COMPUTER = 1;
+  private static final int ROOT_INPUT = 2;
+  private static final int SUB_INPUT = 3;
+  private static final int SUB_OUTPUT = 4;
+
+  /** The lanes of the six lowest row bits within a block of 64 consecutive rows. */
+  private static final long[] ROW_LANES = {
+    0xAAAAAAAAAAAAAAAAL,
+    0xCCCCCCCCCCCCCCCCL,
+    0xF0F0F0F0F0F0F0F0L,
+    0xFF00FF00FF00FF00L,
+    0xFFFF0000FFFF0000L,
+    0xFFFFFFFF00000000L
+  };
+
+  /**
+   * Returns the lanes in which bit <code>rowBit</code> of the row number is set, for the block of
+   * 64 rows starting at <code>firstRow</code> (a multiple of 64).
+   */
+  public static long getRowLanes(long firstRow, int rowBit) {
+    if (rowBit < ROW_LANES.length) return ROW_LANES[rowBit];
+    return ((firstRow >>> rowBit) & 1) != 0 ? -1L : 0L;
+  }
+
+  /**
+   * Builds an evaluator for the state tree rooted at the given state. Returns null if the circuit
+   * cannot be evaluated bit-sliced, or if some input pin of the root circuit is not listed.
+   */
+  public static BitSliceEvaluator create(
+      CircuitState root, List<Instance> inputPins, List<Instance> outputPins) {
+    CompiledNetlist netlist = CompiledNetlist.compile(root);
+    try {
+      if (!netlist.isSupported()) return null;
+      BitSliceEvaluator ret = new BitSliceEvaluator(root);
+      return ret.build(netlist, inputPins, outputPins) ? ret : null;
+    } finally {
+      netlist.dispose();
+    }
+  }
+
+  private final AttributeSet options;
+
+  // slots, in evaluation order
+  private int[] slotKind;
+  private int[] slotTermBase; // the terminals of a slot are numbered like its ends
+  private int[] slotTermEnd;
+  private BitSliceComputer[] slotComputer;
+  private boolean[][] slotConnected;
+  private int[] slotArg; // the input pin of ROOT_INPUT slots
+  private boolean[] slotPullUp; // SUB_INPUT: how the pin treats undefined bits
+  private boolean[] slotPullDown;
+  private boolean[] slotThreeState;
+
+  // terminals
+  private int[][] termNets;
+  private int[] termBitBase;
+  private long[] driveValue;
+  private long[] driveUnknown;
+  private long[] driveError;
+
+  // nets
+  private int[][] netDrivers; // terminal bits driving each net
+  private Value[] netPull;
+  private long[] netValue;
+  private long[] netUnknown;
+  private long[] netError;
+  private int[] netStamp;
+  private int stamp = 0;
+
+  private long[][] inputLanes;
+  private int[][] outputNets;
+  private int current;
+
+  private BitSliceEvaluator(CircuitState root) {
+    options = root.getProject().getOptions().getAttributeSet();
+  }
+
+  /** Sets the lanes in which the given bit of the given input pin is 1. */
+  public void setInput(int pin, int bit, long lanes) {
+    inputLanes[pin][bit] = lanes;
+  }
+
+  /** Computes the circuit for the input lanes set. */
+  public void evaluate() {
+    stamp++;
+    for (int s = 0; s < slotKind.length; s++) evaluate(s);
+  }
+
+  public long getOutputValue(int pin, int bit) {
+    int net = outputNet(pin, bit);
+    return net < 0 ? 0 : netValue[net];
+  }
+
+  public long getOutputUnknown(int pin, int bit) {
+    int net = outputNet(pin, bit);
+    return net < 0 ? -1L : netUnknown[net];
+  }
+
+  public long getOutputError(int pin, int bit) {
+    int net = outputNet(pin, bit);
+    return net < 0 ? 0 : netError[net];
+  }
+
+  private int outputNet(int pin, int bit) {
+    int[] nets = outputNets[pin];
+    if (nets == null || bit >= nets.length) return -1;
+    resolve(nets[bit]);
+    return nets[bit];
+  }
+
+  //
+  // BitSliceComputer.Lanes, for the slot being evaluated
+  //
+  public long getValue(int port, int bit) {
+    int net = portNet(port, bit);
+    return net < 0 ? 0 : netValue[net];
+  }
+
+  public long getUnknown(int port, int bit) {
+    int net = portNet(port, bit);
+    return net < 0 ? -1L : netUnknown[net];
+  }
+
+  public long getError(int port, int bit) {
+    int net = portNet(port, bit);
+    return net < 0 ? 0 : netError[net];
+  }
+
+  public void setPort(int port, int bit, long value, long unknown, long error) {
+    int term = slotTermBase[current] + port;
+    if (bit >= termNets[term].length) return;
+    int tb = termBitBase[term] + bit;
+    driveValue[tb] = value;
+    driveUnknown[tb] = unknown;
+    driveError[tb] = error;
+  }
+
+  public boolean isPortConnected(int port) {
+    return slotConnected[current][port];
+  }
+
+  public AttributeSet getProjectOptions() {
+    return options;
+  }
+
+  private int portNet(int port, int bit) {
+    int[] nets = termNets[slotTermBase[current] + port];
+    if (bit >= nets.length) return -1;
+    resolve(nets[bit]);
+    return nets[bit];
+  }
+
+  //
+  // evaluation
+  //
+  private void evaluate(int slot) {
+    int first = termBitBase[slotTermBase[slot]];
+    int last = termBitBase[slotTermEnd[slot]];
+    for (int tb = first; tb < last; tb++) {
+      driveValue[tb] = 0;
+      driveUnknown[tb] = -1L;
+      driveError[tb] = 0;
+    }
+    current = slot;
+    switch (slotKind[slot]) {
+      case COMPUTER:
+        slotComputer[slot].computeLanes(this);
+        break;
+      case ROOT_INPUT:
+        {
+          long[] lanes = inputLanes[slotArg[slot]];
+          for (int b = 0; b < lanes.length; b++) setPort(0, b, lanes[b], 0, 0);
+          break;
+        }
+      case SUB_INPUT:
+        // as Pin.setValue and Pin.propagate do for a pin inside a subcircuit
+        for (int b = 0; b < termNets[slotTermBase[slot]].length; b++) {
+          long value = getValue(1, b);
+          long unknown = getUnknown(1, b);
+          long error = getError(1, b);
+          if (slotPullUp[slot]) {
+            value |= unknown | error;
+            unknown = error = 0;
+          } else if (slotPullDown[slot]) {
+            unknown = error = 0;
+          } else if (!slotThreeState[slot]) {
+            unknown = 0;
+          }
+          setPort(0, b, value, unknown, error);
+        }
+        break;
+      case SUB_OUTPUT:
+        for (int b = 0; b < termNets[slotTermBase[slot] + 1].length; b++) {
+          setPort(1, b, getValue(0, b), getUnknown(0, b), getError(0, b));
+        }
+        break;
+      default:
+    }
+  }
+
+  /** Combines the drivers of a net as {@link Value#combine} does, then applies its pull value. */
+  private void resolve(int net) {
+    if (netStamp[net] == stamp) return;
+    netStamp[net] = stamp;
+    long value = 0;
+    long unknown = -1L;
+    long error = 0;
+    for (int tb : netDrivers[net]) {
+      long known = ~(unknown | error);
+      long dKnown = ~(driveUnknown[tb] | driveError[tb]);
+      error |= driveError[tb] | (known & dKnown & (value ^ driveValue[tb]));
+      unknown &= driveUnknown[tb];
+      value = (value | driveValue[tb]) & ~error;
+    }
+    Value pull = netPull[net];
+    if (pull == Value.TRUE) {
+      value |= unknown;
+      unknown = 0;
+    } else if (pull == Value.FALSE) {
+      unknown = 0;
+    } else if (pull != null && pull != Value.UNKNOWN) {
+      error |= unknown;
+      unknown = 0;
+    }
+    netValue[net] = value;
+    netUnknown[net] = unknown;
+    netError[net] = error;
+  }
+
+  //
+  // construction
+  //
+  private boolean build(
+      CompiledNetlist netlist, List<Instance> inputPins, List<Instance> outputPins) {
+    int slotCount = netlist.getSlotCount();
+    int[] kind = new int[slotCount];
+    BitSliceComputer[] computer = new BitSliceComputer[slotCount];
+    int[] arg = new int[slotCount];
+    ArrayList<ArrayList<Integer>> reads = new ArrayList<ArrayList<Integer>>(slotCount);
+    ArrayList<ArrayList<Integer>> drives = new ArrayList<ArrayList<Integer>>(slotCount);
+    inputLanes = new long[inputPins.size()][];
+    outputNets = new int[outputPins.size()][];
+
+    for (int s = 0; s < slotCount; s++) {
+      InstanceStateImpl state = netlist.getSlotState(s);
+      Component comp = state.getInstance().getComponent();
+      int base = netlist.getTermBase(s);
+      ArrayList<Integer> r = new ArrayList<Integer>();
+      ArrayList<Integer> d = new ArrayList<Integer>();
+      reads.add(r);
+      drives.add(d);
+      switch (netlist.getSlotKind(s)) {
+        case CompiledNetlist.SUB_INPUT_PIN:
+          kind[s] = SUB_INPUT;
+          r.add(Integer.valueOf(base + 1));
+          d.add(Integer.valueOf(base));
+          break;
+        case CompiledNetlist.SUB_OUTPUT_PIN:
+          kind[s] = SUB_OUTPUT;
+          r.add(Integer.valueOf(base));
+          d.add(Integer.valueOf(base + 1));
+          break;
+        default:
+          if (comp.getFactory() instanceof Pin) {
+            if (!state.isCircuitRoot()) return false;
+            int in = indexOf(inputPins, comp);
+            int out = indexOf(outputPins, comp);
+            if (Pin.FACTORY.isInputPin(state.getInstance())) {
+              if (in < 0) return false;
+              kind[s] = ROOT_INPUT;
+              arg[s] = in;
+              inputLanes[in] = new long[netlist.getTermNets(base).length];
+              d.add(Integer.valueOf(base));
+            } else {
+              kind[s] = PASSIVE;
+              if (out >= 0) outputNets[out] = netlist.getTermNets(base);
+            }
+            break;
+          }
+          computer[s] = (BitSliceComputer) comp.getFeature(BitSliceComputer.class);
+          if (computer[s] == null && !comp.getEnds().isEmpty()) return false;
+          if (computer[s] == null || computer[s] == BitSliceComputer.PASSIVE) {
+            kind[s] = PASSIVE;
+            break;
+          }
+          kind[s] = COMPUTER;
+          List<EndData> ends = comp.getEnds();
+          for (int i = 0; i < ends.size(); i++) {
+            if (ends.get(i).isInput()) r.add(Integer.valueOf(base + i));
+            if (ends.get(i).isOutput()) d.add(Integer.valueOf(base + i));
+          }
+      }
+    }
+    for (int i = 0; i < inputLanes.length; i++) {
+      if (inputLanes[i] == null) inputLanes[i] = new long[0];
+    }
+
+    // the slots driving each net
+    int netCount = netlist.getNetCount();
+    ArrayList<ArrayList<Integer>> netDriverSlots = new ArrayList<ArrayList<Integer>>(netCount);
+    for (int n = 0; n < netCount; n++) netDriverSlots.add(new ArrayList<Integer>(1));
+    for (int s = 0; s < slotCount; s++) {
+      for (int t : drives.get(s)) {
+        for (int n : netlist.getTermNets(t)) netDriverSlots.get(n).add(Integer.valueOf(s));
+      }
+    }
+
+    // order the slots so that drivers come before readers (Kahn's algorithm)
+    ArrayList<ArrayList<Integer>> successors = new ArrayList<ArrayList<Integer>>(slotCount);
+    int[] inDegree = new int[slotCount];
+    for (int s = 0; s < slotCount; s++) successors.add(new ArrayList<Integer>());
+    for (int s = 0; s < slotCount; s++) {
+      for (int t : reads.get(s)) {
+        for (int n : netlist.getTermNets(t)) {
+          for (int driver : netDriverSlots.get(n)) {
+            if (driver == s) return false;
+            successors.get(driver).add(Integer.valueOf(s));
+            inDegree[s]++;
+          }
+        }
+      }
+    }
+    int[] order = new int[slotCount];
+    int head = 0;
+    int tail = 0;
+    for (int s = 0; s < slotCount; s++) {
+      if (inDegree[s] == 0) order[tail++] = s;
+    }
+    while (head < tail) {
+      for (int next : successors.get(order[head++])) {
+        if (--inDegree[next] == 0) order[tail++] = next;
+      }
+    }
+    if (tail < slotCount) return false; // feedback
+
+    // the slots in evaluation order; terminals keep the numbering of the netlist
+    slotKind = new int[slotCount];
+    slotTermBase = new int[slotCount];
+    slotTermEnd = new int[slotCount];
+    slotComputer = new BitSliceComputer[slotCount];
+    slotConnected = new boolean[slotCount][];
+    slotArg = new int[slotCount];
+    slotPullUp = new boolean[slotCount];
+    slotPullDown = new boolean[slotCount];
+    slotThreeState = new boolean[slotCount];
+    for (int i = 0; i < slotCount; i++) {
+      int s = order[i];
+      InstanceStateImpl state = netlist.getSlotState(s);
+      slotKind[i] = kind[s];
+      slotComputer[i] = computer[s];
+      slotArg[i] = arg[s];
+      slotTermBase[i] = netlist.getTermBase(s);
+      slotTermEnd[i] = netlist.getTermBase(s + 1);
+      if (kind[s] == SUB_INPUT) {
+        Object pull = state.getAttributeValue(Pin.ATTR_PULL);
+        slotPullUp[i] = pull == Pin.PULL_UP;
+        slotPullDown[i] = pull == Pin.PULL_DOWN;
+        slotThreeState[i] = state.getAttributeValue(Pin.ATTR_TRISTATE).booleanValue();
+      } else if (kind[s] == COMPUTER) {
+        int count = slotTermEnd[i] - slotTermBase[i];
+        slotConnected[i] = new boolean[count];
+        for (int p = 0; p < count; p++) slotConnected[i][p] = state.isPortConnected(p);
+      }
+    }
+    int termCount = netlist.getTermBase(slotCount);
+    termNets = new int[termCount][];
+    termBitBase = new int[termCount + 1];
+    for (int t = 0; t < termCount; t++) {
+      termNets[t] = netlist.getTermNets(t);
+      termBitBase[t + 1] = termBitBase[t] + termNets[t].length;
+    }
+    int bitCount = termBitBase[termCount];
+    driveValue = new long[bitCount];
+    driveUnknown = new long[bitCount];
+    driveError = new long[bitCount];
+
+    // the terminal bits driving each net
+    ArrayList<ArrayList<Integer>> driverBits = new ArrayList<ArrayList<Integer>>(netCount);
+    for (int n = 0; n < netCount; n++) driverBits.add(new ArrayList<Integer>(1));
+    for (int s = 0; s < slotCount; s++) {
+      for (int t : drives.get(s)) {
+        for (int b = 0; b < termNets[t].length; b++) {
+          driverBits.get(termNets[t][b]).add(Integer.valueOf(termBitBase[t] + b));
+        }
+      }
+    }
+    netDrivers = new int[netCount][];
+    netPull = new Value[netCount];
+    for (int n = 0; n < netCount; n++) {
+      ArrayList<Integer> list = driverBits.get(n);
+      netDrivers[n] = new int[list.size()];
+      for (int i = 0; i < netDrivers[n].length; i++) netDrivers[n][i] = list.get(i).intValue();
+      netPull[n] = netlist.getNetPull(n);
+    }
+    netValue = new long[netCount];
+    netUnknown = new long[netCount];
+    netError = new long[netCount];
+    netStamp = new int[netCount];
+    return true;
+  }
+
+  private static int indexOf(List<Instance> pins, Component comp) {
+    for (int i = 0; i < pins.size(); i++) {
+      if (pins.get(i).getComponent() == comp) return i;
+    }
+    return -1;
+  }
+}
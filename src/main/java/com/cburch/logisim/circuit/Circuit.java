@@ -123,6 +123,7 @@ public class Circuit {
       for (EndData end : toAdd.values()) {
         wires.add(comp, end);
       }
+      connectionVersion++;
       ((CircuitMutatorImpl) mutator).markModified(Circuit.this);
     }
   }
@@ -137,7 +138,6 @@ public class Circuit {
     public void endChanged(ComponentEvent e) {
       locker.checkForWritePermission("ends changed", Circuit.this);
       Annotated = false;
-      MyNetList.clear();
       Component comp = e.getSource();
       HashMap<Location, EndData> toRemove = toMap(e.getOldData());
       HashMap<Location, EndData> toAdd = toMap(e.getData());
@@ -245,6 +245,16 @@ public class Circuit {
     return comp.getEnd(0).getType() != EndData.INPUT_ONLY;
   }
 
+  /** Returns how many wire bundle maps have been computed, in all circuits, since startup. */
+  public static long getBundleMapCount() {
+    return CircuitWires.getBundleMapCount();
+  }
+
+  /** Returns the total time spent computing wire bundle maps since startup, in nanoseconds. */
+  public static long getBundleMapNanos() {
+    return CircuitWires.getBundleMapNanos();
+  }
+
   private int maxTimeoutTestBenchSec = 60000;
   private MyComponentListener myComponentListener = new MyComponentListener();
   private CircuitAppearance appearance;
@@ -256,6 +266,10 @@ public class Circuit {
   // include
   // wires
   CircuitWires wires = new CircuitWires();
+  // bumped whenever an end is attached to or detached from a point
+  private volatile int connectionVersion;
+  // bumped by CircuitMutatorImpl for every change made to this circuit
+  private volatile int revision;
   private ArrayList<Component> clocks = new ArrayList<Component>();
   private CircuitLocker locker;
 
@@ -501,7 +515,14 @@ public class Circuit {
    * Code taken from Cornell's version of Logisim: http://www.cs.cornell.edu/courses/cs3410/2015sp/
    */
   public void doTestVector(Project project, Instance pin[], Value[] val) throws TestException {
-    CircuitState state = project.getCircuitState();
+    doTestVector(project.getCircuitState(), pin, val);
+  }
+
+  /**
+   * Resets the given state of this circuit, applies the inputs of one test vector row and checks
+   * the outputs. Test runners give each worker thread a state of its own.
+   */
+  public void doTestVector(CircuitState state, Instance pin[], Value[] val) throws TestException {
     state.reset();
 
     for (int i = 0; i < pin.length; ++i) {
@@ -782,6 +803,27 @@ public class Circuit {
     return wires.points.hasConflict(comp);
   }
 
+  /**
+   * Returns a number that changes whenever the set of component ends at some point changes, so
+   * that connectivity computed from {@link #isConnected} can be cached until it does.
+   */
+  public int getConnectionVersion() {
+    return connectionVersion;
+  }
+
+  /**
+   * Returns a number that changes whenever this circuit is modified through a {@link
+   * CircuitMutator}, so that information derived from its contents, such as its {@link
+   * Netlist}, can be kept until it does.
+   */
+  public int getRevision() {
+    return revision;
+  }
+
+  void incrementRevision() {
+    revision++;
+  }
+
   public boolean isConnected(Location loc, Component ignore) {
     for (Component o : wires.points.getComponents(loc)) {
       if (o != ignore) return true;
@@ -798,7 +840,6 @@ public class Circuit {
     locker.checkForWritePermission("add", this);
 
     Annotated = false;
-    MyNetList.clear();
     if (c instanceof Wire) {
       Wire w = (Wire) c;
       if (w.getEnd0().equals(w.getEnd1())) return;
@@ -844,6 +885,7 @@ public class Circuit {
       }
       c.addComponentListener(myComponentListener);
     }
+    connectionVersion++;
     RemoveWrongLabels(c.getFactory().getName());
     fireEvent(CircuitEvent.ACTION_ADD, c);
   }
@@ -855,7 +897,6 @@ public class Circuit {
     comps = new LinkedHashSet<Component>();
     wires = new CircuitWires();
     clocks.clear();
-    MyNetList.clear();
     Annotated = false;
     for (Component comp : oldComps) {
       socSim.removeComponent(comp);
@@ -872,6 +913,7 @@ public class Circuit {
         if (state != null) Ram.closeHexFrame((RamState)state.getData(comp));
       }
     }
+    connectionVersion++;
     fireEvent(CircuitEvent.ACTION_CLEAR, oldComps);
   }
 
@@ -881,7 +923,6 @@ public class Circuit {
     locker.checkForWritePermission("remove", this);
 
     Annotated = false;
-    MyNetList.clear();
     if (c instanceof Wire) {
       wires.remove(c);
     } else {
@@ -920,6 +961,7 @@ public class Circuit {
       }
       c.removeComponentListener(myComponentListener);
     }
+    connectionVersion++;
     fireEvent(CircuitEvent.ACTION_REMOVE, c);
   }
 
@@ -49,7 +49,7 @@ class CircuitMutatorImpl implements CircuitMutator {
   }
 
   public void add(Circuit circuit, Component comp) {
-    modified.add(circuit);
+    markModified(circuit);
     log.add(CircuitChange.add(circuit, comp));
 
     ReplacementMap repl = new ReplacementMap();
@@ -62,7 +62,7 @@ class CircuitMutatorImpl implements CircuitMutator {
   public void clear(Circuit circuit) {
     HashSet<Component> comps = new HashSet<Component>(circuit.getNonWires());
     comps.addAll(circuit.getWires());
-    if (!comps.isEmpty()) modified.add(circuit);
+    if (!comps.isEmpty()) markModified(circuit);
     log.add(CircuitChange.clear(circuit, comps));
 
     ReplacementMap repl = new ReplacementMap();
@@ -100,11 +100,12 @@ class CircuitMutatorImpl implements CircuitMutator {
 
   void markModified(Circuit circuit) {
     modified.add(circuit);
+    circuit.incrementRevision();
   }
 
   public void remove(Circuit circuit, Component comp) {
     if (circuit.contains(comp)) {
-      modified.add(circuit);
+      markModified(circuit);
       log.add(CircuitChange.remove(circuit, comp));
 
       ReplacementMap repl = new ReplacementMap();
@@ -121,7 +122,7 @@ class CircuitMutatorImpl implements CircuitMutator {
 
   public void replace(Circuit circuit, ReplacementMap repl) {
     if (!repl.isEmpty()) {
-      modified.add(circuit);
+      markModified(circuit);
       log.add(CircuitChange.replace(circuit, repl));
 
       repl.freeze();
@@ -138,7 +139,7 @@ class CircuitMutatorImpl implements CircuitMutator {
 
   public void set(Circuit circuit, Component comp, Attribute<?> attr, Object newValue) {
     if (circuit.contains(comp)) {
-      modified.add(circuit);
+      markModified(circuit);
       @SuppressWarnings("unchecked")
       Attribute<Object> a = (Attribute<Object>) attr;
       AttributeSet attrs = comp.getAttributeSet();
@@ -155,6 +156,7 @@ class CircuitMutatorImpl implements CircuitMutator {
     Object oldValue = attrs.getValue(a);
     log.add(CircuitChange.setForCircuit(circuit, attr, oldValue, newValue));
     attrs.setValue(a, newValue);
+    circuit.incrementRevision();
     if (attr == CircuitAttributes.NAME_ATTR
         || attr == CircuitAttributes.NAMED_CIRCUIT_BOX_FIXED_SIZE) {
       circuit.getAppearance().recomputeDefaultAppearance();
@@ -235,7 +235,7 @@ public class CircuitState implements InstanceData {
     }
     for (Location key : src.causes.keySet()) {
       Propagator.SetData oldValue = src.causes.get(key);
-      Propagator.SetData newValue = oldValue.cloneFor(this);
+      Propagator.SetData newValue = oldValue.cloneList();
       this.causes.put(key, newValue);
     }
     if (src.wireData != null) {
@@ -293,6 +293,11 @@ public class CircuitState implements InstanceData {
     return proj;
   }
 
+  /** Releases the resources held by the propagator of this root state once it is dropped. */
+  public void dispose() {
+    if (base != null && base.getRootState() == this) base.dispose();
+  }
+
   public Propagator getPropagator() {
     if (base == null) {
       base = new Propagator(this);
@@ -383,15 +388,18 @@ public class CircuitState implements InstanceData {
           comp.propagate(this);
           if (comp.getFactory() instanceof Pin && parentState != null) {
             // should be propagated in superstate
-            parentComp.propagate(parentState);
+            if (base != null) base.propagateSuperstate(parentState, parentComp);
+            else parentComp.propagate(parentState);
           }
         }
       }
     }
 
-    CircuitState[] subs = new CircuitState[substates.size()];
-    for (CircuitState substate : substates.toArray(subs)) {
-      substate.processDirtyComponents();
+    CircuitState[] subs = substates.toArray(new CircuitState[substates.size()]);
+    if (base != null) {
+      base.processDirtyComponents(subs);
+    } else {
+      for (CircuitState substate : subs) substate.processDirtyComponents();
     }
   }
 
@@ -424,6 +432,21 @@ public class CircuitState implements InstanceData {
     }
   }
 
+  /**
+   * Hands the event-driven propagator back a tree whose values were computed by a {@link
+   * CompiledNetlist}: the recorded causes are stale, so every component is asked to drive its
+   * outputs again. Component data and displayed values are kept.
+   */
+  void resyncPropagation() {
+    wireData = null;
+    causes.clear();
+    dirtyPoints.clear();
+    markAllComponentsDirty();
+    for (CircuitState sub : substates) {
+      sub.resyncPropagation();
+    }
+  }
+
   void reset() {
     wireData = null;
     for (Iterator<Component> it = componentData.keySet().iterator(); it.hasNext(); ) {
@@ -511,6 +534,19 @@ public class CircuitState implements InstanceData {
     }
   }
 
+  void storeValue(Location p, Value v) {
+    // for CompiledNetlist - to set value at point without marking components dirty
+    values.put(p, v);
+  }
+
+  Object[] takeDirtyComponents() {
+    // for CompiledNetlist - components marked dirty since the last propagation
+    Object[] ret = dirtyComponents.toArray();
+    dirtyComponents.clear();
+    dirtyPoints.clear();
+    return ret;
+  }
+
   void setWireData(CircuitWires.State data) {
     wireData = data;
   }
@@ -50,14 +50,16 @@ import java.awt.Stroke;
 import java.awt.geom.Ellipse2D;
 import java.awt.geom.Line2D;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
-import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.CopyOnWriteArraySet;
-import javax.swing.SwingUtilities;
+import java.util.concurrent.atomic.AtomicLong;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -70,6 +72,10 @@ class CircuitWires {
     // NOTE: It would make things more efficient if we also had
     // a set of just the first bundle in each tree.
     HashSet<WidthIncompatibilityData> incompatibilityData = null;
+    // dense numbering, filled in by index()
+    WireBundle[] bundleList = new WireBundle[0];
+    WireThread[] threadList = new WireThread[0];
+    HashMap<Location, Integer> pointIds = new HashMap<Location, Integer>();
 
     void addWidthIncompatibilityData(WidthIncompatibilityData e) {
       if (incompatibilityData == null) {
@@ -116,28 +122,147 @@ class CircuitWires {
     void setBundleAt(Location p, WireBundle b) {
       pointBundles.put(p, b);
     }
+
+    /**
+     * Numbers the bundles, threads and bundle points once the map is complete, so that the values
+     * of each circuit state can be kept in arrays.
+     */
+    void index() {
+      bundleList = bundles.toArray(new WireBundle[bundles.size()]);
+      ArrayList<WireThread> threadsFound = new ArrayList<WireThread>();
+      for (int i = 0; i < bundleList.length; i++) {
+        WireBundle b = bundleList[i];
+        b.id = i;
+        b.pointIds = new int[b.points.size()];
+        int j = 0;
+        for (Location p : b.points) {
+          Integer id = pointIds.get(p);
+          if (id == null) {
+            id = Integer.valueOf(pointIds.size());
+            pointIds.put(p, id);
+          }
+          b.pointIds[j++] = id.intValue();
+        }
+        if (j < b.pointIds.length) b.pointIds = Arrays.copyOf(b.pointIds, j);
+        if (b.isValid() && b.threads != null) {
+          for (WireThread t : b.threads) {
+            if (t.id < 0) {
+              t.id = threadsFound.size();
+              threadsFound.add(t);
+            }
+          }
+        }
+      }
+      threadList = threadsFound.toArray(new WireThread[threadsFound.size()]);
+      for (WireThread t : threadList) t.index();
+    }
+
+    int getPointId(Location p) {
+      Integer id = pointIds.get(p);
+      return id == null ? -1 : id.intValue();
+    }
   }
 
+  /**
+   * The wiring-relevant parts of a splitter's configuration. Splitters replace theirs as a whole
+   * whenever they are reconfigured, so the bundle map can be computed from it without locking the
+   * splitter.
+   */
   static class SplitterData {
-    WireBundle[] end_bundle; // PointData associated with each end
+    final Location[] end_loc; // location of each end
+    final BitWidth[] end_width; // width of each end
+    final byte[] bit_end; // which end each bit of end 0 goes to
+    final byte[] bit_thread; // how each bit maps to thread within its end
+
+    SplitterData(Location[] end_loc, BitWidth[] end_width, byte[] bit_end, byte[] bit_thread) {
+      this.end_loc = end_loc;
+      this.end_width = end_width;
+      this.bit_end = bit_end;
+      this.bit_thread = bit_thread;
+    }
+  }
+
+  /**
+   * Copy of everything {@link #computeBundleMap} reads, taken while holding the CircuitWires lock.
+   * The copy is shared until the next change to the wiring, so the bundle map can be computed on
+   * any thread while the GUI keeps editing the circuit.
+   */
+  private static class WiringSnapshot {
+    final int version;
+    final Wire[] wires;
+    final SplitterData[] splitters;
+    final Location[] tunnelLocs;
+    final String[] tunnelLabels;
+    final Location[] pullLocs;
+    final Value[] pullValues;
+    final HashMap<Location, BitWidth> widths = new HashMap<Location, BitWidth>();
+    final ArrayList<WidthIncompatibilityData> incompatibilities;
+
+    WiringSnapshot(CircuitWires src) {
+      version = src.version;
+      wires = src.wires.toArray(new Wire[src.wires.size()]);
+      for (Wire w : wires) {
+        addWidth(src, w.e0);
+        addWidth(src, w.e1);
+      }
+      splitters = new SplitterData[src.splitters.size()];
+      int i = 0;
+      for (Splitter spl : src.splitters) {
+        SplitterData data = spl.wire_data;
+        splitters[i++] = data;
+        for (Location loc : data.end_loc) addWidth(src, loc);
+      }
+      tunnelLocs = new Location[src.tunnels.size()];
+      tunnelLabels = new String[tunnelLocs.length];
+      i = 0;
+      for (Component comp : src.tunnels) {
+        tunnelLocs[i] = comp.getLocation();
+        tunnelLabels[i] = comp.getAttributeSet().getValue(StdAttr.LABEL).trim();
+        addWidth(src, tunnelLocs[i]);
+        i++;
+      }
+      pullLocs = new Location[src.pulls.size()];
+      pullValues = new Value[pullLocs.length];
+      i = 0;
+      for (Component comp : src.pulls) {
+        pullLocs[i] = comp.getEnd(0).getLocation();
+        pullValues[i] = PullResistor.getPullValue(Instance.getInstanceFor(comp));
+        addWidth(src, pullLocs[i]);
+        i++;
+      }
+      incompatibilities =
+          new ArrayList<WidthIncompatibilityData>(src.points.getWidthIncompatibilityData());
+    }
 
-    SplitterData(int fan_out) {
-      end_bundle = new WireBundle[fan_out + 1];
+    private void addWidth(CircuitWires src, Location loc) {
+      BitWidth width = src.points.getWidth(loc);
+      if (width != BitWidth.UNKNOWN) widths.put(loc, width);
+    }
+
+    BitWidth getWidth(Location loc) {
+      BitWidth ret = widths.get(loc);
+      return ret == null ? BitWidth.UNKNOWN : ret;
     }
   }
 
   static class State {
     BundleMap bundleMap;
-    HashMap<WireThread, Value> thr_values = new HashMap<WireThread, Value>();
+    Value[] thr_values; // indexed by WireThread.id
+    Value[] point_drives; // value driven by components at each bundle point, by point id
+    BitSet dirty_threads = new BitSet(); // scratch space for propagate
+    BitSet dirty_bundles = new BitSet(); // scratch space for propagate
 
     State(BundleMap bundleMap) {
       this.bundleMap = bundleMap;
+      this.thr_values = new Value[bundleMap.threadList.length];
+      this.point_drives = new Value[bundleMap.pointIds.size()];
     }
 
     @Override
     public Object clone() {
       State ret = new State(this.bundleMap);
-      ret.thr_values.putAll(this.thr_values);
+      System.arraycopy(this.thr_values, 0, ret.thr_values, 0, thr_values.length);
+      System.arraycopy(this.point_drives, 0, ret.point_drives, 0, point_drives.length);
       return ret;
     }
   }
@@ -158,7 +283,9 @@ class CircuitWires {
     public void attributeValueChanged(AttributeEvent e) {
       Attribute<?> attr = e.getAttribute();
       if (attr == StdAttr.LABEL || attr == PullResistor.ATTR_PULL_TYPE) {
-        voidBundleMap();
+        synchronized (CircuitWires.this) {
+          voidBundleMap();
+        }
       }
     }
   }
@@ -180,6 +307,19 @@ class CircuitWires {
 
   static final Logger logger = LoggerFactory.getLogger(CircuitWires.class);
 
+  private static final AtomicLong bundleMapCount = new AtomicLong();
+  private static final AtomicLong bundleMapNanos = new AtomicLong();
+
+  /** Returns how many bundle maps have been computed, in all circuits, since startup. */
+  static long getBundleMapCount() {
+    return bundleMapCount.get();
+  }
+
+  /** Returns the total time spent computing bundle maps since startup, in nanoseconds. */
+  static long getBundleMapNanos() {
+    return bundleMapNanos.get();
+  }
+
   // user-given data
   private HashSet<Wire> wires = new HashSet<Wire>();
   private HashSet<Splitter> splitters = new HashSet<Splitter>();
@@ -199,7 +339,9 @@ class CircuitWires {
   // derived data
   private Bounds bounds = Bounds.EMPTY_BOUNDS;
 
-  private BundleMap masterBundleMap = null;
+  private volatile BundleMap masterBundleMap = null;
+  private WiringSnapshot snapshot = null; // null after any change to the wiring
+  private int version = 0; // incremented on every change to the wiring
 
   CircuitWires() {}
 
@@ -208,7 +350,7 @@ class CircuitWires {
   //
   // NOTE: this could be made much more efficient in most cases to
   // avoid voiding the bundle map.
-  /*synchronized*/ boolean add(Component comp) {
+  synchronized boolean add(Component comp) {
     boolean added = true;
     if (comp instanceof Wire) {
       added = addWire((Wire) comp);
@@ -231,7 +373,7 @@ class CircuitWires {
     return added;
   }
 
-  /*synchronized*/ void add(Component comp, EndData end) {
+  synchronized void add(Component comp, EndData end) {
     points.add(comp, end);
     voidBundleMap();
   }
@@ -247,11 +389,11 @@ class CircuitWires {
   }
 
   // To be called by getBundleMap only
-  private void computeBundleMap(BundleMap ret) {
+  private static void computeBundleMap(BundleMap ret, WiringSnapshot wiring) {
     // create bundles corresponding to wires and tunnels
-    connectWires(ret);
-    connectTunnels(ret);
-    connectPullResistors(ret);
+    connectWires(ret, wiring);
+    connectTunnels(ret, wiring);
+    connectPullResistors(ret, wiring);
 
     // merge any WireBundle objects united by previous steps
     for (Iterator<WireBundle> it = ret.getBundles().iterator(); it.hasNext(); ) {
@@ -268,12 +410,11 @@ class CircuitWires {
     }
 
     // make a WireBundle object for each end of a splitter
-    for (Splitter spl : splitters) {
-      List<EndData> ends = new ArrayList<EndData>(spl.getEnds());
-      for (EndData end : ends) {
-        Location p = end.getLocation();
+    for (SplitterData spl : wiring.splitters) {
+      for (int index = 0; index < spl.end_loc.length; index++) {
+        Location p = spl.end_loc[index];
         WireBundle pb = ret.createBundleAt(p);
-        pb.setWidth(end.getWidth(), p);
+        pb.setWidth(spl.end_width[index], p);
       }
     }
 
@@ -281,53 +422,51 @@ class CircuitWires {
     // based on components
     for (Location p : ret.getBundlePoints()) {
       WireBundle pb = ret.getBundleAt(p);
-      BitWidth width = points.getWidth(p);
+      BitWidth width = wiring.getWidth(p);
       if (width != BitWidth.UNKNOWN) {
         pb.setWidth(width, p);
       }
     }
 
     // determine the bundles at the end of each splitter
-    for (Splitter spl : splitters) {
-      List<EndData> ends = new ArrayList<EndData>(spl.getEnds());
-      int index = -1;
-      for (EndData end : ends) {
-        index++;
-        Location p = end.getLocation();
+    WireBundle[][] end_bundles = new WireBundle[wiring.splitters.length][];
+    for (int s = 0; s < end_bundles.length; s++) {
+      SplitterData spl = wiring.splitters[s];
+      WireBundle[] end_bundle = new WireBundle[spl.end_loc.length];
+      for (int index = 0; index < end_bundle.length; index++) {
+        Location p = spl.end_loc[index];
         WireBundle pb = ret.getBundleAt(p);
         if (pb != null) {
-          pb.setWidth(end.getWidth(), p);
-          spl.wire_data.end_bundle[index] = pb;
+          pb.setWidth(spl.end_width[index], p);
+          end_bundle[index] = pb;
         }
       }
+      end_bundles[s] = end_bundle;
     }
 
     // unite threads going through splitters
-    for (Splitter spl : splitters) {
-      synchronized (spl) {
-        SplitterAttributes spl_attrs = (SplitterAttributes) spl.getAttributeSet();
-        byte[] bit_end = spl_attrs.bit_end;
-        SplitterData spl_data = spl.wire_data;
-        WireBundle from_bundle = spl_data.end_bundle[0];
-        if (from_bundle == null || !from_bundle.isValid()) continue;
-
-        for (int i = 0; i < bit_end.length; i++) {
-          int j = bit_end[i];
-          if (j > 0) {
-            int thr = spl.bit_thread[i];
-            WireBundle to_bundle = spl_data.end_bundle[j];
-            WireThread[] to_threads = to_bundle.threads;
-            if (to_threads != null && to_bundle.isValid()) {
-              WireThread[] from_threads = from_bundle.threads;
-              if (i >= from_threads.length) {
-                throw new ArrayIndexOutOfBoundsException(
-                    "from " + i + " of " + from_threads.length);
-              }
-              if (thr >= to_threads.length) {
-                throw new ArrayIndexOutOfBoundsException("to " + thr + " of " + to_threads.length);
-              }
-              from_threads[i].unite(to_threads[thr]);
+    for (int s = 0; s < end_bundles.length; s++) {
+      SplitterData spl = wiring.splitters[s];
+      byte[] bit_end = spl.bit_end;
+      WireBundle[] end_bundle = end_bundles[s];
+      WireBundle from_bundle = end_bundle[0];
+      if (from_bundle == null || !from_bundle.isValid()) continue;
+
+      for (int i = 0; i < bit_end.length; i++) {
+        int j = bit_end[i];
+        if (j > 0) {
+          int thr = spl.bit_thread[i];
+          WireBundle to_bundle = end_bundle[j];
+          WireThread[] to_threads = to_bundle.threads;
+          if (to_threads != null && to_bundle.isValid()) {
+            WireThread[] from_threads = from_bundle.threads;
+            if (i >= from_threads.length) {
+              throw new ArrayIndexOutOfBoundsException("from " + i + " of " + from_threads.length);
+            }
+            if (thr >= to_threads.length) {
+              throw new ArrayIndexOutOfBoundsException("to " + thr + " of " + to_threads.length);
             }
+            from_threads[i].unite(to_threads[thr]);
           }
         }
       }
@@ -346,45 +485,42 @@ class CircuitWires {
 
     // All threads are sewn together! Compute the exception set before
     // leaving
-    Collection<WidthIncompatibilityData> exceptions = points.getWidthIncompatibilityData();
-    if (exceptions != null && exceptions.size() > 0) {
-      for (WidthIncompatibilityData wid : exceptions) {
-        ret.addWidthIncompatibilityData(wid);
-      }
+    for (WidthIncompatibilityData wid : wiring.incompatibilities) {
+      ret.addWidthIncompatibilityData(wid);
     }
     for (WireBundle b : ret.getBundles()) {
       WidthIncompatibilityData e = b.getWidthIncompatibilityData();
       if (e != null) ret.addWidthIncompatibilityData(e);
     }
+
+    ret.index();
   }
 
-  private void connectPullResistors(BundleMap ret) {
-    for (Component comp : pulls) {
-      Location loc = comp.getEnd(0).getLocation();
+  private static void connectPullResistors(BundleMap ret, WiringSnapshot wiring) {
+    for (int i = 0; i < wiring.pullLocs.length; i++) {
+      Location loc = wiring.pullLocs[i];
       WireBundle b = ret.getBundleAt(loc);
       if (b == null) {
         b = ret.createBundleAt(loc);
         b.points.add(loc);
         ret.setBundleAt(loc, b);
       }
-      Instance instance = Instance.getInstanceFor(comp);
-      b.addPullValue(PullResistor.getPullValue(instance));
+      b.addPullValue(wiring.pullValues[i]);
     }
   }
 
-  private void connectTunnels(BundleMap ret) {
+  private static void connectTunnels(BundleMap ret, WiringSnapshot wiring) {
     // determine the sets of tunnels
     HashMap<String, ArrayList<Location>> tunnelSets = new HashMap<String, ArrayList<Location>>();
-    for (Component comp : tunnels) {
-      String label = comp.getAttributeSet().getValue(StdAttr.LABEL);
-      label = label.trim();
+    for (int i = 0; i < wiring.tunnelLocs.length; i++) {
+      String label = wiring.tunnelLabels[i];
       if (!label.equals("")) {
         ArrayList<Location> tunnelSet = tunnelSets.get(label);
         if (tunnelSet == null) {
           tunnelSet = new ArrayList<Location>(3);
           tunnelSets.put(label, tunnelSet);
         }
-        tunnelSet.add(comp.getLocation());
+        tunnelSet.add(wiring.tunnelLocs[i]);
       }
     }
 
@@ -418,9 +554,9 @@ class CircuitWires {
     }
   }
 
-  private void connectWires(BundleMap ret) {
+  private static void connectWires(BundleMap ret, WiringSnapshot wiring) {
     // make a WireBundle object for each tree of connected wires
-    for (Wire w : wires) {
+    for (Wire w : wiring.wires) {
       WireBundle b0 = ret.getBundleAt(w.e0);
       if (b0 == null) {
         WireBundle b1 = ret.createBundleAt(w.e1);
@@ -578,65 +714,68 @@ class CircuitWires {
   //	getBundleMap();
   // }
 
-  // There are only two threads that need to use the bundle map, I think:
-  // the AWT event thread, and the simulation worker thread.
-  // AWT does modifications to the components and wires, then voids the
-  // masterBundleMap, and eventually recomputes a new map (if needed) during
-  // painting. AWT sometimes locks a splitter, then changes components and
-  // wires.
-  // Computing a new bundle map requires both locking splitters and touching
-  // the components and wires, so to avoid deadlock, only the AWT should
-  // create the new bundle map.
-
-  /*synchronized*/ private BundleMap getBundleMap() {
-    if (SwingUtilities.isEventDispatchThread()) {
-      // AWT event thread.
+  // The bundle map is used by the AWT event thread, for painting and
+  // editing, and by the simulation thread(s). Only the AWT modifies the
+  // components and wires; it does so while holding this object's lock,
+  // and voids the masterBundleMap. Any thread needing a map then copies
+  // the wiring into a WiringSnapshot under the same lock and computes the
+  // map from that copy without holding any lock. Splitters are never
+  // locked here, since the AWT sometimes locks a splitter and then changes
+  // components and wires. The new map is published only if the wiring
+  // has not changed in the meantime.
+
+  BundleMap getBundleMap() {
+    BundleMap ret = masterBundleMap;
+    if (ret != null) return ret;
+
+    WiringSnapshot wiring;
+    synchronized (this) {
       if (masterBundleMap != null) return masterBundleMap;
-      BundleMap ret = new BundleMap();
-      try {
-        computeBundleMap(ret);
+      if (snapshot == null) snapshot = new WiringSnapshot(this);
+      wiring = snapshot;
+    }
+    long start = System.nanoTime();
+    ret = new BundleMap();
+    boolean computed = false;
+    try {
+      computeBundleMap(ret, wiring);
+      computed = true;
+    } catch (Exception t) {
+      ret.invalidate();
+      logger.error("{}", t.getLocalizedMessage());
+    }
+    long nanos = System.nanoTime() - start;
+    bundleMapCount.incrementAndGet();
+    bundleMapNanos.addAndGet(nanos);
+    if (logger.isDebugEnabled()) {
+      logger.debug("bundle map of {} wires and {} splitters computed in {} us on {}",
+          wiring.wires.length, wiring.splitters.length, nanos / 1000,
+          Thread.currentThread().getName());
+    }
+    synchronized (this) {
+      if (computed && wiring.version == version && masterBundleMap == null) {
         masterBundleMap = ret;
-      } catch (Exception t) {
-        ret.invalidate();
-        logger.error("{}", t.getLocalizedMessage());
-      }
-      return ret;
-    } else {
-      // Simulation thread.
-      try {
-        final BundleMap ret[] = new BundleMap[1];
-        SwingUtilities.invokeAndWait(
-            new Runnable() {
-              public void run() {
-                ret[0] = getBundleMap();
-              }
-            });
-        return ret[0];
-      } catch (Exception e) {
-        BundleMap ret = new BundleMap();
-        ret.invalidate();
-        return ret;
       }
     }
+    return ret;
   }
 
   Iterator<? extends Component> getComponents() {
     return IteratorUtil.createJoinedIterator(splitters.iterator(), wires.iterator());
   }
 
-  private Value getThreadValue(CircuitState state, WireThread t) {
+  private static Value getThreadValue(State s, WireThread t) {
     Value ret = Value.UNKNOWN;
-    Value pull = Value.UNKNOWN;
-    for (ThreadBundle tb : t.getBundles()) {
-      for (Location p : tb.b.points) {
-        Value val = state.getComponentOutputAt(p);
+    Value[] drives = s.point_drives;
+    for (ThreadBundle tb : t.bundleList) {
+      for (int id : tb.b.pointIds) {
+        Value val = drives[id];
         if (val != null && val != Value.NIL) {
           ret = ret.combine(val.get(tb.loc));
         }
       }
-      Value pullHere = tb.b.getPullValue();
-      if (pullHere != Value.UNKNOWN) pull = pull.combine(pullHere);
     }
+    Value pull = t.pullValue;
     if (pull != Value.UNKNOWN) {
       ret = pullValue(ret, pull);
     }
@@ -708,24 +847,21 @@ class CircuitWires {
   //
   void propagate(CircuitState circState, Set<Location> points) {
     BundleMap map = getBundleMap();
-    CopyOnWriteArraySet<WireThread> dirtyThreads =
-        new CopyOnWriteArraySet<WireThread>(); // affected
-    // threads
 
     // get state, or create a new one if current state is outdated
     State s = circState.getWireData();
+    BitSet dirtyThreads;
     if (s == null || s.bundleMap != map) {
       // if it is outdated, we need to compute for all threads
       s = new State(map);
-      for (WireBundle b : map.getBundles()) {
-        WireThread[] th = b.threads;
-        if (b.isValid() && th != null) {
-          for (WireThread t : th) {
-            dirtyThreads.add(t);
-          }
-        }
+      for (Map.Entry<Location, Integer> e : map.pointIds.entrySet()) {
+        s.point_drives[e.getValue().intValue()] = circState.getComponentOutputAt(e.getKey());
       }
+      dirtyThreads = s.dirty_threads;
+      dirtyThreads.set(0, map.threadList.length);
       circState.setWireData(s);
+    } else {
+      dirtyThreads = s.dirty_threads;
     }
 
     // determine affected threads, and set values for unwired points
@@ -746,8 +882,10 @@ class CircuitWires {
             }
           }
         } else {
+          int id = map.getPointId(p);
+          if (id >= 0) s.point_drives[id] = circState.getComponentOutputAt(p);
           for (WireThread t : th) {
-            dirtyThreads.add(t);
+            dirtyThreads.set(t.id);
           }
         }
       }
@@ -756,31 +894,34 @@ class CircuitWires {
     if (dirtyThreads.isEmpty()) return;
 
     // determine values of affected threads
-    HashSet<ThreadBundle> bundles = new HashSet<ThreadBundle>();
-    for (WireThread t : dirtyThreads) {
-      Value v = getThreadValue(circState, t);
-      s.thr_values.put(t, v);
-      bundles.addAll(t.getBundles());
+    BitSet dirtyBundles = s.dirty_bundles;
+    WireThread[] threads = map.threadList;
+    for (int i = dirtyThreads.nextSetBit(0); i >= 0; i = dirtyThreads.nextSetBit(i + 1)) {
+      WireThread t = threads[i];
+      s.thr_values[i] = getThreadValue(s, t);
+      for (ThreadBundle tb : t.bundleList) dirtyBundles.set(tb.b.id);
     }
+    dirtyThreads.clear();
 
     // now propagate values through circuit
-    for (ThreadBundle tb : bundles) {
-      WireBundle b = tb.b;
+    WireBundle[] bundles = map.bundleList;
+    for (int i = dirtyBundles.nextSetBit(0); i >= 0; i = dirtyBundles.nextSetBit(i + 1)) {
+      WireBundle b = bundles[i];
 
       Value bv = null;
       if (!b.isValid() || b.threads == null) {; // do nothing
       } else if (b.threads.length == 1) {
-        bv = s.thr_values.get(b.threads[0]);
+        bv = s.thr_values[b.threads[0].id];
       } else {
         Value[] tvs = new Value[b.threads.length];
         boolean tvs_valid = true;
-        for (int i = 0; i < tvs.length; i++) {
-          Value tv = s.thr_values.get(b.threads[i]);
+        for (int j = 0; j < tvs.length; j++) {
+          Value tv = s.thr_values[b.threads[j].id];
           if (tv == null) {
             tvs_valid = false;
             break;
           }
-          tvs[i] = tv;
+          tvs[j] = tv;
         }
         if (tvs_valid) bv = Value.create(tvs);
       }
@@ -791,6 +932,7 @@ class CircuitWires {
         }
       }
     }
+    dirtyBundles.clear();
   }
 
   private Bounds recomputeBounds() {
@@ -821,7 +963,7 @@ class CircuitWires {
     return bds;
   }
 
-  /*synchronized*/ void remove(Component comp) {
+  synchronized void remove(Component comp) {
     if (comp instanceof Wire) {
       removeWire((Wire) comp);
     } else if (comp instanceof Splitter) {
@@ -840,7 +982,7 @@ class CircuitWires {
     voidBundleMap();
   }
 
-  /*synchronized*/ void remove(Component comp, EndData end) {
+  synchronized void remove(Component comp, EndData end) {
     points.remove(comp, end);
     voidBundleMap();
   }
@@ -858,7 +1000,7 @@ class CircuitWires {
     }
   }
 
-  /*synchronized*/ void replace(Component comp, EndData oldEnd, EndData newEnd) {
+  synchronized void replace(Component comp, EndData oldEnd, EndData newEnd) {
     points.remove(comp, oldEnd);
     points.add(comp, newEnd);
     voidBundleMap();
@@ -868,9 +1010,10 @@ class CircuitWires {
   // helper methods
   //
   private void voidBundleMap() {
-    // This should really only be called by AWT thread, but main() also
-    // calls it during startup. It should not be called by the simulation
-    // thread.
+    // Called with this object's lock held, by whichever thread edits the
+    // wiring (normally the AWT thread, but main() also does during startup).
+    version++;
+    snapshot = null;
     masterBundleMap = null;
   }
 }
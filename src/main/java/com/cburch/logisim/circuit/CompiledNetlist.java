@@ -0,0 +1,744 @@
+/**
+ * This file is part of logisim-evolution.
+ *
+ * Logisim-evolution is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * Logisim-evolution is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU General Public License along 
+ * with logisim-evolution. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Original code by Carl Burch (http://www.cburch.com), 2011.
+ * Subsequent modifications by:
+ *   + College of the Holy Cross
+ *     http://www.holycross.edu
+ *   + Haute École Spécialisée Bernoise/Berner Fachhochschule
+ *     http://www.bfh.ch
+ *   + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *     http://hepia.hesge.ch/
+ *   + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *     http://www.heig-vd.ch/
+ */
+
+package com.cburch.logisim.circuit;
+
+import com.cburch.logisim.comp.Component;
+import com.cburch.logisim.comp.EndData;
+import com.cburch.logisim.data.Location;
+import com.cburch.logisim.data.Value;
+import com.cburch.logisim.instance.Instance;
+import com.cburch.logisim.instance.InstanceComponent;
+import com.cburch.logisim.instance.InstanceData;
+import com.cburch.logisim.instance.InstanceFactory;
+import com.cburch.logisim.instance.InstanceStateImpl;
+import com.cburch.logisim.std.hdl.VhdlEntityComponent;
+import com.cburch.logisim.std.wiring.Pin;
+import com.cburch.logisim.vhdl.base.VhdlEntity;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Flattened, levelized form of a {@link CircuitState} tree used by the compiled simulation mode
+ * (see {@link com.cburch.logisim.file.Options#ATTR_SIM_COMPILED}).
+ *
+ * <p>Every bit of every wire thread becomes an integer-indexed net, and every component of the
+ * hierarchy becomes a slot. Subcircuit instances are dissolved: their pins are slots that copy
+ * values across the subcircuit boundary, exactly as {@link SubcircuitFactory#propagate} does.
+ * Slots are numbered in topological order of the driver-to-reader graph, so a single forward sweep
+ * evaluates an acyclic circuit; feedback loops (such as registers feeding their own inputs) are
+ * relaxed until they settle. Components are evaluated with zero delay through their ordinary
+ * propagate methods, using an {@link InstanceStateImpl} that reads and drives the net arrays
+ * instead of scheduling events.
+ *
+ * <p>Components that keep instance data, such as flip-flops and registers, hold back what they
+ * drive until no other slot is left to evaluate. Every register clocked by one edge thus samples
+ * its inputs before any of them changes its outputs, as with the delays of the event queue, and a
+ * chain of registers shifts by one stage per edge instead of shooting through.
+ *
+ * <p>If the netlist cannot represent the circuit (for example because of width errors or
+ * components that are not instance based), {@link #isSupported()} returns false. If a propagation
+ * does not settle, {@link #propagate()} returns false and the caller falls back to the
+ * event-driven {@link Propagator}.
+ */
+class CompiledNetlist {
+  private class Listener implements CircuitListener {
+    public void circuitChanged(CircuitEvent event) {
+      if (event.getAction() != CircuitEvent.ACTION_INVALIDATE) valid = false;
+    }
+  }
+
+  /** An instance state that reads and drives the netlist arrays of one slot. */
+  private class SlotState extends InstanceStateImpl {
+    private final int slot;
+    private final boolean mayHold; // pins only pass values on, even though they keep data
+    private boolean holding = false; // true once the component has used its instance data
+
+    SlotState(CircuitState state, Component comp, int slot) {
+      super(state, comp);
+      this.slot = slot;
+      this.mayHold = !(comp.getFactory() instanceof Pin);
+    }
+
+    @Override
+    public InstanceData getData() {
+      holding = mayHold;
+      return super.getData();
+    }
+
+    @Override
+    public void setData(InstanceData value) {
+      holding = mayHold;
+      super.setData(value);
+    }
+
+    @Override
+    public Value getPortValue(int portIndex) {
+      return getGroupValue(termGroup[termBase[slot] + portIndex]);
+    }
+
+    @Override
+    public void setPort(int portIndex, Value value, int delay) {
+      if (holding) hold(termBase[slot] + portIndex, value);
+      else drive(termBase[slot] + portIndex, value);
+    }
+  }
+
+  static final int NORMAL = 0;
+  static final int SUB_INPUT_PIN = 1;
+  static final int SUB_OUTPUT_PIN = 2;
+
+  /** The number of times each slot may be evaluated on average before a propagation gives up. */
+  private static final int MAX_PASSES = 32;
+
+  private static final int[] NO_INTS = new int[0];
+
+  private final CircuitState root;
+  private final HashSet<Circuit> circuits = new HashSet<Circuit>();
+  private final HashMap<CircuitState, HashMap<Component, int[]>> slotMap =
+      new HashMap<CircuitState, HashMap<Component, int[]>>();
+  private final Listener listener = new Listener();
+  private volatile boolean valid = true;
+  private boolean supported = false;
+
+  // nets: one per bit
+  private Value[] netValue;
+  private Value[] netPull; // null if the net has no pull resistor
+  private int[][] netTerms; // (terminal << 6) | bit of the terminals touching each net
+  private int[][] netGroups; // groups containing each net
+
+  // groups: the points of one wire bundle, or one unwired location
+  private CircuitState[] groupState;
+  private Location[][] groupPoints;
+  private int[][] groupNets;
+  private Value[] groupValue; // null while stale
+  private int[] staleGroups;
+  private boolean[] groupStale;
+  private int staleCount = 0;
+
+  // terminals: one per component end, plus the outside end of subcircuit pins
+  private int[] termSlot;
+  private int[] termGroup;
+  private Value[] termDrive;
+  private Value[] termHeld; // drives of stateful slots waiting for the end of the sweep
+  private int[] heldTerms;
+  private int heldCount = 0;
+
+  // slots, in topological order
+  private SlotState[] slotState;
+  private int[] slotKind;
+  private int[] termBase;
+  private final BitSet dirty = new BitSet();
+  private int cursor = 0;
+  private int evaluating = -1;
+
+  private CompiledNetlist(CircuitState root) {
+    this.root = root;
+  }
+
+  /**
+   * Builds the netlist for the state tree rooted at the given state. The result is never null;
+   * check {@link #isSupported()} before using it.
+   */
+  static CompiledNetlist compile(CircuitState root) {
+    CompiledNetlist ret = new CompiledNetlist(root);
+    ret.supported = ret.build();
+    for (Circuit circ : ret.circuits) circ.addCircuitListener(ret.listener);
+    return ret;
+  }
+
+  /** Stops listening to the circuits of the hierarchy. */
+  void dispose() {
+    for (Circuit circ : circuits) circ.removeCircuitListener(listener);
+    valid = false;
+  }
+
+  boolean isSupported() {
+    return supported;
+  }
+
+  /** Returns false once any circuit of the hierarchy has been modified. */
+  boolean isValid() {
+    if (!valid) return false;
+    for (Circuit circ : circuits) {
+      if (circ.wires.isMapVoided()) {
+        valid = false;
+        break;
+      }
+    }
+    return valid;
+  }
+
+  /** Requests evaluation of every slot, as when the netlist takes over from the event queue. */
+  void markAllDirty() {
+    dirty.set(0, slotState.length);
+    cursor = 0;
+  }
+
+  /**
+   * Evaluates every slot affected by components marked dirty in the state tree, and copies the
+   * resulting net values back into the circuit states. Returns false if the circuit did not settle.
+   */
+  boolean propagate() {
+    collectDirty(root);
+    long budget = (long) MAX_PASSES * slotState.length + 64;
+    try {
+      do {
+        for (int s = dirty.nextSetBit(cursor); s >= 0; s = dirty.nextSetBit(cursor)) {
+          if (--budget < 0) return false;
+          dirty.clear(s);
+          cursor = s;
+          evaluating = s;
+          evaluate(s);
+        }
+        evaluating = -1;
+        cursor = slotState.length;
+      } while (releaseHeld());
+    } finally {
+      evaluating = -1;
+      for (int i = 0; i < heldCount; i++) termHeld[heldTerms[i]] = null;
+      heldCount = 0;
+      writeBack();
+    }
+    cursor = 0;
+    return true;
+  }
+
+  //
+  // structure, as used by BitSliceEvaluator
+  //
+  int getSlotCount() {
+    return slotState.length;
+  }
+
+  InstanceStateImpl getSlotState(int slot) {
+    return slotState[slot];
+  }
+
+  int getSlotKind(int slot) {
+    return slotKind[slot];
+  }
+
+  /** Returns the first terminal of a slot; the terminals of a slot are numbered like its ends. */
+  int getTermBase(int slot) {
+    return termBase[slot];
+  }
+
+  int[] getTermNets(int term) {
+    return groupNets[termGroup[term]];
+  }
+
+  int getNetCount() {
+    return netValue.length;
+  }
+
+  Value getNetPull(int net) {
+    return netPull[net];
+  }
+
+  //
+  // evaluation
+  //
+  private void collectDirty(CircuitState state) {
+    HashMap<Component, int[]> slots = slotMap.get(state);
+    for (Object comp : state.takeDirtyComponents()) {
+      int[] s = slots == null ? null : slots.get(comp);
+      if (s != null) {
+        for (int slot : s) markDirty(slot);
+      }
+    }
+    for (CircuitState sub : state.getSubstates()) collectDirty(sub);
+  }
+
+  private void markDirty(int slot) {
+    if (slot == evaluating) return;
+    dirty.set(slot);
+    if (slot < cursor) cursor = slot;
+  }
+
+  private void evaluate(int slot) {
+    SlotState state = slotState[slot];
+    switch (slotKind[slot]) {
+      case SUB_INPUT_PIN:
+        {
+          Value newVal = getGroupValue(termGroup[termBase[slot] + 1]);
+          if (!newVal.equals(Pin.FACTORY.getValue(state))) Pin.FACTORY.setValue(state, newVal);
+          Pin.FACTORY.propagate(state);
+          break;
+        }
+      case SUB_OUTPUT_PIN:
+        Pin.FACTORY.propagate(state);
+        drive(termBase[slot] + 1, state.getPortValue(0));
+        break;
+      default:
+        state.getFactory().propagate(state);
+    }
+  }
+
+  private void hold(int term, Value value) {
+    if (termHeld[term] == null) heldTerms[heldCount++] = term;
+    termHeld[term] = value;
+  }
+
+  /** Drives the held values, and returns true if this made any slot dirty. */
+  private boolean releaseHeld() {
+    for (int i = 0; i < heldCount; i++) {
+      int term = heldTerms[i];
+      Value value = termHeld[term];
+      termHeld[term] = null;
+      drive(term, value);
+    }
+    heldCount = 0;
+    return !dirty.isEmpty();
+  }
+
+  private void drive(int term, Value value) {
+    Value old = termDrive[term];
+    if (old == value || (old != null && old.equals(value))) return;
+    termDrive[term] = value;
+    int[] nets = groupNets[termGroup[term]];
+    for (int bit = 0; bit < nets.length; bit++) {
+      updateNet(nets[bit]);
+    }
+  }
+
+  private void updateNet(int net) {
+    Value ret = Value.UNKNOWN;
+    for (int tb : netTerms[net]) {
+      Value v = termDrive[tb >>> 6];
+      if (v != null && v != Value.NIL) ret = ret.combine(v.get(tb & 63));
+    }
+    Value pull = netPull[net];
+    if (pull != null && ret == Value.UNKNOWN) ret = pull;
+    if (ret == netValue[net]) return;
+
+    netValue[net] = ret;
+    for (int g : netGroups[net]) {
+      groupValue[g] = null;
+      if (!groupStale[g]) {
+        groupStale[g] = true;
+        staleGroups[staleCount++] = g;
+      }
+    }
+    for (int tb : netTerms[net]) markDirty(termSlot[tb >>> 6]);
+  }
+
+  private Value getGroupValue(int group) {
+    Value ret = groupValue[group];
+    if (ret == null) {
+      int[] nets = groupNets[group];
+      if (nets.length == 1) {
+        ret = netValue[nets[0]];
+      } else {
+        Value[] bits = new Value[nets.length];
+        for (int i = 0; i < bits.length; i++) bits[i] = netValue[nets[i]];
+        ret = Value.create(bits);
+      }
+      groupValue[group] = ret;
+    }
+    return ret;
+  }
+
+  private void writeBack() {
+    for (int i = 0; i < staleCount; i++) {
+      int g = staleGroups[i];
+      groupStale[g] = false;
+      Value v = getGroupValue(g);
+      CircuitState state = groupState[g];
+      for (Location p : groupPoints[g]) state.storeValue(p, v);
+    }
+    staleCount = 0;
+  }
+
+  //
+  // construction
+  //
+  private static class SlotInfo {
+    CircuitState state;
+    Component comp;
+    int kind = NORMAL;
+    ArrayList<Location> ends = new ArrayList<Location>();
+    ArrayList<Boolean> inputs = new ArrayList<Boolean>();
+    ArrayList<Boolean> outputs = new ArrayList<Boolean>();
+    int[] groups;
+  }
+
+  private boolean build() {
+    ArrayList<CircuitState> states = new ArrayList<CircuitState>();
+    if (!collectStates(root, states)) return false;
+
+    // groups and nets
+    ArrayList<CircuitState> gStates = new ArrayList<CircuitState>();
+    ArrayList<Location[]> gPoints = new ArrayList<Location[]>();
+    ArrayList<int[]> gNets = new ArrayList<int[]>();
+    ArrayList<Value> pulls = new ArrayList<Value>();
+    HashMap<CircuitState, HashMap<Location, Integer>> locGroups =
+        new HashMap<CircuitState, HashMap<Location, Integer>>();
+    for (CircuitState state : states) {
+      HashMap<Location, Integer> groups = new HashMap<Location, Integer>();
+      locGroups.put(state, groups);
+      CircuitWires.BundleMap map = state.getCircuit().wires.getBundleMap();
+      if (!map.isValid()) return false;
+      HashMap<WireThread, Integer> threadNets = new HashMap<WireThread, Integer>();
+      for (WireBundle b : map.getBundles()) {
+        if (!b.isValid() || b.threads == null) return false;
+        int[] nets = new int[b.threads.length];
+        for (int i = 0; i < nets.length; i++) {
+          Integer net = threadNets.get(b.threads[i]);
+          if (net == null) {
+            net = Integer.valueOf(pulls.size());
+            pulls.add(null);
+            threadNets.put(b.threads[i], net);
+          }
+          nets[i] = net.intValue();
+          Value pull = b.getPullValue();
+          if (pull != Value.UNKNOWN) {
+            Value old = pulls.get(nets[i]);
+            pulls.set(nets[i], old == null ? pull : old.combine(pull));
+          }
+        }
+        Integer group = Integer.valueOf(gNets.size());
+        Location[] points = b.points.toArray(new Location[0]);
+        gStates.add(state);
+        gPoints.add(points);
+        gNets.add(nets);
+        for (Location p : points) groups.put(p, group);
+      }
+    }
+
+    // slots
+    ArrayList<SlotInfo> infos = new ArrayList<SlotInfo>();
+    for (CircuitState state : states) {
+      HashMap<Location, Integer> groups = locGroups.get(state);
+      Circuit circ = state.getCircuit();
+      for (Component comp : circ.getNonWires()) {
+        if (comp instanceof Splitter || comp.getFactory() instanceof SubcircuitFactory) continue;
+        if (!(comp instanceof InstanceComponent)) return false;
+        // co-simulated entities are answered once per step, see VhdlSimulatorTop.flush
+        if (comp.getFactory() instanceof VhdlEntity
+            || comp.getFactory() instanceof VhdlEntityComponent) return false;
+        SlotInfo info = new SlotInfo();
+        info.state = state;
+        info.comp = comp;
+        for (EndData end : comp.getEnds()) {
+          info.ends.add(end.getLocation());
+          info.inputs.add(Boolean.valueOf(end.isInput()));
+          info.outputs.add(Boolean.valueOf(end.isOutput()));
+          Location loc = end.getLocation();
+          Integer g = groups.get(loc);
+          int width = Math.max(circ.getWidth(loc).getWidth(), end.getWidth().getWidth());
+          if (g == null) {
+            int[] nets = new int[width];
+            for (int i = 0; i < width; i++) {
+              nets[i] = pulls.size();
+              pulls.add(null);
+            }
+            g = Integer.valueOf(gNets.size());
+            gStates.add(state);
+            gPoints.add(new Location[] {loc});
+            gNets.add(nets);
+            groups.put(loc, g);
+          } else if (gNets.get(g.intValue()).length < width) {
+            return false;
+          }
+        }
+        infos.add(info);
+      }
+    }
+
+    // connect pins of subcircuits to the outside
+    for (SlotInfo info : infos) {
+      CircuitState parent = info.state.getParentState();
+      Component sub = info.state.getSubcircuit();
+      if (parent == null || sub == null || !(info.comp.getFactory() instanceof Pin)) continue;
+      Instance[] pins = ((CircuitAttributes) sub.getAttributeSet()).getPinInstances();
+      for (int i = 0; i < pins.length; i++) {
+        if (pins[i].getComponent() != info.comp) continue;
+        boolean isInput = Pin.FACTORY.isInputPin(pins[i]);
+        info.kind = isInput ? SUB_INPUT_PIN : SUB_OUTPUT_PIN;
+        Location loc = sub.getEnd(i).getLocation();
+        Integer g = locGroups.get(parent).get(loc);
+        if (g == null) {
+          int[] nets = new int[sub.getEnd(i).getWidth().getWidth()];
+          for (int j = 0; j < nets.length; j++) {
+            nets[j] = pulls.size();
+            pulls.add(null);
+          }
+          g = Integer.valueOf(gNets.size());
+          gStates.add(parent);
+          gPoints.add(new Location[] {loc});
+          gNets.add(nets);
+          locGroups.get(parent).put(loc, g);
+        }
+        info.ends.add(loc);
+        info.inputs.add(Boolean.valueOf(isInput));
+        info.outputs.add(Boolean.valueOf(!isInput));
+        break;
+      }
+    }
+    for (SlotInfo info : infos) {
+      HashMap<Location, Integer> groups = locGroups.get(info.state);
+      info.groups = new int[info.ends.size()];
+      for (int i = 0; i < info.groups.length; i++) {
+        HashMap<Location, Integer> g = i < info.comp.getEnds().size() ? groups
+            : locGroups.get(info.state.getParentState());
+        info.groups[i] = g.get(info.ends.get(i)).intValue();
+      }
+    }
+
+    int netCount = pulls.size();
+    int groupCount = gNets.size();
+    groupState = gStates.toArray(new CircuitState[groupCount]);
+    groupPoints = gPoints.toArray(new Location[groupCount][]);
+    groupNets = gNets.toArray(new int[groupCount][]);
+
+    // levelize and lay out the slots in topological order
+    int[] order = levelize(infos, netCount);
+    int slotCount = infos.size();
+    slotState = new SlotState[slotCount];
+    slotKind = new int[slotCount];
+    termBase = new int[slotCount + 1];
+    for (int s = 0; s < slotCount; s++) {
+      termBase[s + 1] = termBase[s] + infos.get(order[s]).groups.length;
+    }
+    int termCount = termBase[slotCount];
+    termSlot = new int[termCount];
+    termGroup = new int[termCount];
+    termDrive = new Value[termCount];
+    termHeld = new Value[termCount];
+    heldTerms = new int[termCount];
+    for (int s = 0; s < slotCount; s++) {
+      SlotInfo info = infos.get(order[s]);
+      slotKind[s] = info.kind;
+      for (int i = 0; i < info.groups.length; i++) {
+        termSlot[termBase[s] + i] = s;
+        termGroup[termBase[s] + i] = info.groups[i];
+      }
+      HashMap<Component, int[]> slots = slotMap.get(info.state);
+      if (slots == null) {
+        slots = new HashMap<Component, int[]>();
+        slotMap.put(info.state, slots);
+      }
+      addSlot(slots, info.comp, s);
+      if (info.kind == SUB_INPUT_PIN) {
+        // a dirty subcircuit component re-reads its inputs
+        HashMap<Component, int[]> parentSlots = slotMap.get(info.state.getParentState());
+        if (parentSlots == null) {
+          parentSlots = new HashMap<Component, int[]>();
+          slotMap.put(info.state.getParentState(), parentSlots);
+        }
+        addSlot(parentSlots, info.state.getSubcircuit(), s);
+      }
+    }
+
+    // nets
+    netValue = new Value[netCount];
+    netPull = pulls.toArray(new Value[netCount]);
+    ArrayList<ArrayList<Integer>> terms = new ArrayList<ArrayList<Integer>>(netCount);
+    ArrayList<ArrayList<Integer>> nGroups = new ArrayList<ArrayList<Integer>>(netCount);
+    for (int n = 0; n < netCount; n++) {
+      netValue[n] = netPull[n] == null ? Value.UNKNOWN : netPull[n];
+      terms.add(new ArrayList<Integer>(2));
+      nGroups.add(new ArrayList<Integer>(1));
+    }
+    for (int g = 0; g < groupCount; g++) {
+      for (int n : groupNets[g]) nGroups.get(n).add(Integer.valueOf(g));
+    }
+    for (int t = 0; t < termCount; t++) {
+      int[] nets = groupNets[termGroup[t]];
+      for (int bit = 0; bit < nets.length; bit++) {
+        terms.get(nets[bit]).add(Integer.valueOf((t << 6) | bit));
+      }
+    }
+    netTerms = toArrays(terms);
+    netGroups = toArrays(nGroups);
+    groupValue = new Value[groupCount];
+    staleGroups = new int[groupCount];
+    groupStale = new boolean[groupCount];
+    for (int g = 0; g < groupCount; g++) {
+      groupStale[g] = true;
+      staleGroups[staleCount++] = g;
+    }
+
+    for (int s = 0; s < slotCount; s++) {
+      SlotInfo info = infos.get(order[s]);
+      slotState[s] = new SlotState(info.state, info.comp, s);
+    }
+    markAllDirty();
+    return true;
+  }
+
+  private boolean collectStates(CircuitState state, List<CircuitState> states) {
+    Circuit circ = state.getCircuit();
+    Set<WidthIncompatibilityData> errors = circ.getWidthIncompatibilityData();
+    if (errors != null && !errors.isEmpty()) return false;
+    circuits.add(circ);
+    states.add(state);
+    for (Component comp : circ.getNonWires()) {
+      if (comp.getFactory() instanceof SubcircuitFactory) {
+        SubcircuitFactory factory = (SubcircuitFactory) comp.getFactory();
+        CircuitState sub = factory.getSubstate(state, comp);
+        if (!collectStates(sub, states)) return false;
+      }
+    }
+    return true;
+  }
+
+  private static void addSlot(HashMap<Component, int[]> slots, Component comp, int slot) {
+    int[] old = slots.get(comp);
+    int[] ret;
+    if (old == null) {
+      ret = new int[] {slot};
+    } else {
+      ret = new int[old.length + 1];
+      System.arraycopy(old, 0, ret, 0, old.length);
+      ret[old.length] = slot;
+    }
+    slots.put(comp, ret);
+  }
+
+  private static int[][] toArrays(ArrayList<ArrayList<Integer>> lists) {
+    int[][] ret = new int[lists.size()][];
+    for (int i = 0; i < ret.length; i++) {
+      ArrayList<Integer> list = lists.get(i);
+      if (list.isEmpty()) {
+        ret[i] = NO_INTS;
+      } else {
+        ret[i] = new int[list.size()];
+        for (int j = 0; j < ret[i].length; j++) ret[i][j] = list.get(j).intValue();
+      }
+    }
+    return ret;
+  }
+
+  /**
+   * Orders the slots so that every slot comes after the slots driving its inputs, except within
+   * feedback loops. This is Tarjan's strongly connected components algorithm, written iteratively
+   * so that long chains of gates do not overflow the stack.
+   */
+  private int[] levelize(ArrayList<SlotInfo> infos, int netCount) {
+    int n = infos.size();
+
+    // readers of each net
+    ArrayList<ArrayList<Integer>> readers = new ArrayList<ArrayList<Integer>>(netCount);
+    for (int i = 0; i < netCount; i++) readers.add(new ArrayList<Integer>(2));
+    for (int s = 0; s < n; s++) {
+      SlotInfo info = infos.get(s);
+      for (int i = 0; i < info.groups.length; i++) {
+        if (!info.inputs.get(i).booleanValue()) continue;
+        for (int net : groupNets[info.groups[i]]) readers.get(net).add(Integer.valueOf(s));
+      }
+    }
+    int[][] netReaders = toArrays(readers);
+
+    int[] index = new int[n];
+    int[] low = new int[n];
+    boolean[] onStack = new boolean[n];
+    int[] stack = new int[n];
+    int stackSize = 0;
+    int[] callSlot = new int[n];
+    int[] callEnd = new int[n];
+    int[] callNet = new int[n];
+    int[] callReader = new int[n];
+    int[] result = new int[n];
+    int resultSize = 0;
+    int counter = 1;
+
+    for (int start = 0; start < n; start++) {
+      if (index[start] != 0) continue;
+      int depth = 0;
+      callSlot[0] = start;
+      callEnd[0] = 0;
+      callNet[0] = 0;
+      callReader[0] = 0;
+      index[start] = low[start] = counter++;
+      stack[stackSize++] = start;
+      onStack[start] = true;
+      while (depth >= 0) {
+        int s = callSlot[depth];
+        SlotInfo info = infos.get(s);
+        int next = -1;
+        while (next < 0 && callEnd[depth] < info.groups.length) {
+          int e = callEnd[depth];
+          int[] nets = info.outputs.get(e).booleanValue() ? groupNets[info.groups[e]] : NO_INTS;
+          if (callNet[depth] >= nets.length) {
+            callEnd[depth]++;
+            callNet[depth] = 0;
+            callReader[depth] = 0;
+            continue;
+          }
+          int[] rs = netReaders[nets[callNet[depth]]];
+          if (callReader[depth] >= rs.length) {
+            callNet[depth]++;
+            callReader[depth] = 0;
+            continue;
+          }
+          int r = rs[callReader[depth]++];
+          if (index[r] == 0) {
+            next = r;
+          } else if (onStack[r] && index[r] < low[s]) {
+            low[s] = index[r];
+          }
+        }
+        if (next >= 0) {
+          depth++;
+          callSlot[depth] = next;
+          callEnd[depth] = 0;
+          callNet[depth] = 0;
+          callReader[depth] = 0;
+          index[next] = low[next] = counter++;
+          stack[stackSize++] = next;
+          onStack[next] = true;
+          continue;
+        }
+        if (low[s] == index[s]) {
+          int t;
+          do {
+            t = stack[--stackSize];
+            onStack[t] = false;
+            result[resultSize++] = t;
+          } while (t != s);
+        }
+        depth--;
+        if (depth >= 0) {
+          int parent = callSlot[depth];
+          if (low[s] < low[parent]) low[parent] = low[s];
+        }
+      }
+    }
+
+    // Tarjan emits readers before drivers; reverse it.
+    int[] order = new int[n];
+    for (int i = 0; i < n; i++) order[i] = result[n - 1 - i];
+    return order;
+  }
+}
@@ -0,0 +1,261 @@
+/**
+ * This file is part of logisim-evolution.
+ *
+ * Logisim-evolution is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * Logisim-evolution is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU General Public License along 
+ * with logisim-evolution. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Original code by Carl Burch (http://www.cburch.com), 2011.
+ * Subsequent modifications by:
+ *   + College of the Holy Cross
+ *     http://www.holycross.edu
+ *   + Haute École Spécialisée Bernoise/Berner Fachhochschule
+ *     http://www.bfh.ch
+ *   + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *     http://hepia.hesge.ch/
+ *   + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *     http://www.heig-vd.ch/
+ */
+
+package com.cburch.logisim.circuit;
+
+import com.cburch.logisim.comp.Component;
+import com.cburch.logisim.data.Location;
+import com.cburch.logisim.data.Value;
+import java.util.Arrays;
+
+/**
+ * Event queue used by the {@link Propagator}. Pending value changes are kept in parallel arrays
+ * (one slot per event, recycled through a free list) so that scheduling an event does not allocate
+ * anything once the arrays have grown to the working size of the circuit.
+ *
+ * <p>Events due within the next {@link #WHEEL_SIZE} time units are kept in a time wheel with one
+ * FIFO bucket per time unit; events further in the future wait in a binary heap until the wheel
+ * reaches them. Events for the same time are delivered in the order they were added, which is the
+ * same order the serial numbers of the former priority queue imposed.
+ */
+final class PropagationQueue {
+  static final int WHEEL_SIZE = 1024;
+  private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+
+  // event slots
+  private int[] time = new int[64];
+  private int[] serial = new int[64];
+  private int[] next = new int[64];
+  private CircuitState[] states = new CircuitState[64];
+  private Location[] locs = new Location[64];
+  private Component[] causes = new Component[64];
+  private Value[] vals = new Value[64];
+  private int freeList = -1;
+  private int top = 0; // slots above this index have never been used
+  private int used = 0;
+
+  // time wheel
+  private final int[] head = new int[WHEEL_SIZE];
+  private final int[] tail = new int[WHEEL_SIZE];
+  private final long[] occupied = new long[WHEEL_SIZE / 64];
+  private int wheelCount = 0;
+
+  // far-future events, ordered by time and then serial number
+  private int[] heap = new int[16];
+  private int heapSize = 0;
+
+  private int now = 0;
+  private int serialNumber = 0;
+
+  // the event most recently returned by poll()
+  CircuitState state;
+  Location loc;
+  Component cause;
+  Value val;
+
+  PropagationQueue() {
+    Arrays.fill(head, -1);
+    Arrays.fill(tail, -1);
+  }
+
+  void add(int t, CircuitState state, Location loc, Component cause, Value val) {
+    int i = allocate();
+    time[i] = t;
+    serial[i] = serialNumber++;
+    states[i] = state;
+    locs[i] = loc;
+    causes[i] = cause;
+    vals[i] = val;
+    // Yes, this subtraction may overflow. This is intentional, as it
+    // avoids potential wraparound problems as the clock increments.
+    if (t - now < WHEEL_SIZE) {
+      append(i);
+    } else {
+      heapPush(i);
+    }
+  }
+
+  /**
+   * Moves the queue to the time of the earliest pending event and returns that time. Must only be
+   * called when the queue is not empty.
+   */
+  int advance() {
+    if (wheelCount > 0) {
+      int b = now & WHEEL_MASK;
+      now += (nextOccupied(b) - b) & WHEEL_MASK;
+    } else {
+      now = time[heap[0]];
+    }
+    while (heapSize > 0 && time[heap[0]] - now < WHEEL_SIZE) {
+      append(heapPop());
+    }
+    return now;
+  }
+
+  void clear() {
+    for (int b = 0; b < WHEEL_SIZE; b++) {
+      for (int i = head[b]; i >= 0; ) {
+        int n = next[i];
+        release(i);
+        i = n;
+      }
+      head[b] = -1;
+      tail[b] = -1;
+    }
+    Arrays.fill(occupied, 0L);
+    wheelCount = 0;
+    while (heapSize > 0) release(heap[--heapSize]);
+    state = null;
+    loc = null;
+    cause = null;
+    val = null;
+  }
+
+  boolean isEmpty() {
+    return used == 0;
+  }
+
+  /**
+   * Removes the next event due at the current time and makes it available through the {@link
+   * #state}, {@link #loc}, {@link #cause} and {@link #val} fields. Returns false when no more events
+   * are due at the current time.
+   */
+  boolean poll() {
+    int b = now & WHEEL_MASK;
+    int i = head[b];
+    if (i < 0) return false;
+    head[b] = next[i];
+    if (head[b] < 0) {
+      tail[b] = -1;
+      occupied[b >>> 6] &= ~(1L << b);
+    }
+    wheelCount--;
+    state = states[i];
+    loc = locs[i];
+    cause = causes[i];
+    val = vals[i];
+    release(i);
+    return true;
+  }
+
+  int size() {
+    return used;
+  }
+
+  private int allocate() {
+    int i = freeList;
+    if (i >= 0) {
+      freeList = next[i];
+    } else {
+      i = top++;
+      if (i == time.length) grow();
+    }
+    next[i] = -1;
+    used++;
+    return i;
+  }
+
+  private void release(int i) {
+    states[i] = null;
+    locs[i] = null;
+    causes[i] = null;
+    vals[i] = null;
+    next[i] = freeList;
+    freeList = i;
+    used--;
+  }
+
+  private void grow() {
+    int n = time.length * 2;
+    time = Arrays.copyOf(time, n);
+    serial = Arrays.copyOf(serial, n);
+    next = Arrays.copyOf(next, n);
+    states = Arrays.copyOf(states, n);
+    locs = Arrays.copyOf(locs, n);
+    causes = Arrays.copyOf(causes, n);
+    vals = Arrays.copyOf(vals, n);
+  }
+
+  private void append(int i) {
+    int b = time[i] & WHEEL_MASK;
+    next[i] = -1;
+    if (tail[b] < 0) {
+      head[b] = i;
+      occupied[b >>> 6] |= 1L << b;
+    } else {
+      next[tail[b]] = i;
+    }
+    tail[b] = i;
+    wheelCount++;
+  }
+
+  private int nextOccupied(int from) {
+    int w = from >>> 6;
+    long bits = occupied[w] & (-1L << from);
+    for (int k = 0; k <= occupied.length; k++) {
+      if (bits != 0) return (w << 6) + Long.numberOfTrailingZeros(bits);
+      w = (w + 1) % occupied.length;
+      bits = occupied[w];
+    }
+    throw new IllegalStateException("time wheel is empty");
+  }
+
+  private boolean before(int a, int b) {
+    int ret = time[a] - time[b];
+    if (ret != 0) return ret < 0;
+    return serial[a] - serial[b] < 0;
+  }
+
+  private void heapPush(int i) {
+    if (heapSize == heap.length) heap = Arrays.copyOf(heap, heapSize * 2);
+    int k = heapSize++;
+    while (k > 0) {
+      int parent = (k - 1) >>> 1;
+      if (!before(i, heap[parent])) break;
+      heap[k] = heap[parent];
+      k = parent;
+    }
+    heap[k] = i;
+  }
+
+  private int heapPop() {
+    int ret = heap[0];
+    int last = heap[--heapSize];
+    int k = 0;
+    int half = heapSize >>> 1;
+    while (k < half) {
+      int child = 2 * k + 1;
+      if (child + 1 < heapSize && before(heap[child + 1], heap[child])) child++;
+      if (!before(heap[child], last)) break;
+      heap[k] = heap[child];
+      k = child;
+    }
+    if (heapSize > 0) heap[k] = last;
+    return ret;
+  }
+}
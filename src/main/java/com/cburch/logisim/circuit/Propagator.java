@@ -36,32 +36,171 @@ import com.cburch.logisim.data.AttributeListener;
 import com.cburch.logisim.data.Location;
 import com.cburch.logisim.data.Value;
 import com.cburch.logisim.file.Options;
+import com.cburch.logisim.proj.Project;
 import java.lang.ref.WeakReference;
+import java.util.Arrays;
 import java.util.HashMap;
-import java.util.HashSet;
-import java.util.PriorityQueue;
 import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class Propagator {
-  private static class ComponentPoint {
-    Component cause;
-    Location loc;
+  /**
+   * Set of (state, cause, location) triples already handled in the current clock step. Entries
+   * are stamped with the step's epoch, so starting a new step just increments the epoch instead of
+   * clearing or reallocating the table.
+   */
+  private static class HandledTable {
+    private static final int INITIAL_SIZE = 256;
+
+    private CircuitState[] states = new CircuitState[INITIAL_SIZE];
+    private Component[] causes = new Component[INITIAL_SIZE];
+    private Location[] locs = new Location[INITIAL_SIZE];
+    private int[] stamps = new int[INITIAL_SIZE];
+    private int epoch = 1;
+    private int size = 0;
+
+    private static int hash(CircuitState state, Component cause, Location loc) {
+      int h = (System.identityHashCode(state) * 31 + cause.hashCode()) * 31 + loc.hashCode();
+      return h ^ (h >>> 16);
+    }
 
-    public ComponentPoint(Component cause, Location loc) {
-      this.cause = cause;
-      this.loc = loc;
+    /** Returns false if the triple was already added during the current epoch. */
+    boolean add(CircuitState state, Component cause, Location loc) {
+      int mask = stamps.length - 1;
+      int i = hash(state, cause, loc) & mask;
+      while (stamps[i] == epoch) {
+        if (states[i] == state && causes[i].equals(cause) && locs[i].equals(loc)) return false;
+        i = (i + 1) & mask;
+      }
+      put(i, state, cause, loc);
+      if (2 * size > stamps.length) grow();
+      return true;
     }
 
-    @Override
-    public boolean equals(Object other) {
-      if (!(other instanceof ComponentPoint)) return false;
-      ComponentPoint o = (ComponentPoint) other;
-      return this.cause.equals(o.cause) && this.loc.equals(o.loc);
+    /** Forgets all triples and goes back to the initial capacity, as the table only grows. */
+    void clear() {
+      if (stamps.length > INITIAL_SIZE) {
+        states = new CircuitState[INITIAL_SIZE];
+        causes = new Component[INITIAL_SIZE];
+        locs = new Location[INITIAL_SIZE];
+        stamps = new int[INITIAL_SIZE];
+      } else {
+        Arrays.fill(states, null);
+        Arrays.fill(causes, null);
+        Arrays.fill(locs, null);
+        Arrays.fill(stamps, 0);
+      }
+      epoch = 1;
+      size = 0;
+    }
+
+    void nextEpoch() {
+      size = 0;
+      epoch++;
+      if (epoch == 0) clear();
+    }
+
+    private void put(int i, CircuitState state, Component cause, Location loc) {
+      states[i] = state;
+      causes[i] = cause;
+      locs[i] = loc;
+      stamps[i] = epoch;
+      size++;
+    }
+
+    private void grow() {
+      CircuitState[] oldStates = states;
+      Component[] oldCauses = causes;
+      Location[] oldLocs = locs;
+      int[] oldStamps = stamps;
+      int n = 2 * oldStamps.length;
+      states = new CircuitState[n];
+      causes = new Component[n];
+      locs = new Location[n];
+      stamps = new int[n];
+      size = 0;
+      for (int j = 0; j < oldStamps.length; j++) {
+        if (oldStamps[j] != epoch) continue;
+        int i = hash(oldStates[j], oldCauses[j], oldLocs[j]) & (n - 1);
+        while (stamps[i] == epoch) i = (i + 1) & (n - 1);
+        put(i, oldStates[j], oldCauses[j], oldLocs[j]);
+      }
+    }
+  }
+
+  /**
+   * Values set by the components of one substate while sibling substates are processed on other
+   * threads, along with the subcircuit components to propagate in the parent state when a pin of
+   * the substate changed. The buffers are replayed in sibling order on the propagator thread once
+   * all of them have finished, so the event queue sees exactly the sequence the serial engine
+   * would have produced and the parent state is only written by one thread.
+   */
+  private static class EventBuffer {
+    private static final ThreadLocal<EventBuffer> current = new ThreadLocal<EventBuffer>();
+
+    private CircuitState[] states = new CircuitState[16];
+    private Location[] locs = new Location[16];
+    private Value[] vals = new Value[16];
+    private Component[] causes = new Component[16];
+    private int[] delays = new int[16];
+    private int size = 0;
+
+    void add(CircuitState state, Location pt, Value val, Component cause, int delay) {
+      if (size == delays.length) {
+        int n = 2 * size;
+        states = Arrays.copyOf(states, n);
+        locs = Arrays.copyOf(locs, n);
+        vals = Arrays.copyOf(vals, n);
+        causes = Arrays.copyOf(causes, n);
+        delays = Arrays.copyOf(delays, n);
+      }
+      states[size] = state;
+      locs[size] = pt;
+      vals[size] = val;
+      causes[size] = cause;
+      delays[size] = delay;
+      size++;
+    }
+
+    // a null location marks a subcircuit component to propagate in its parent state
+    void addSuperstate(CircuitState parentState, Component parentComp) {
+      add(parentState, null, null, parentComp, 0);
+    }
+
+    void replay(Propagator prop) {
+      for (int i = 0; i < size; i++) {
+        if (locs[i] == null) {
+          prop.propagateSuperstate(states[i], causes[i]);
+        } else {
+          prop.setValue(states[i], locs[i], vals[i], causes[i], delays[i]);
+        }
+      }
+    }
+  }
+
+  private static class SubstateTask extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+
+    private final CircuitState state;
+    private final EventBuffer buffer = new EventBuffer();
+
+    SubstateTask(CircuitState state) {
+      this.state = state;
     }
 
     @Override
-    public int hashCode() {
-      return 31 * cause.hashCode() + loc.hashCode();
+    protected void compute() {
+      EventBuffer saved = EventBuffer.current.get();
+      EventBuffer.current.set(buffer);
+      try {
+        state.processDirtyComponents();
+      } finally {
+        EventBuffer.current.set(saved);
+      }
     }
   }
 
@@ -80,47 +219,37 @@ public class Propagator {
         e.getSource().removeAttributeListener(this);
       } else if (e.getAttribute().equals(Options.ATTR_SIM_RAND)) {
         p.updateRandomness();
+      } else if (e.getAttribute().equals(Options.ATTR_SIM_COMPILED)) {
+        p.updateCompiled();
+      } else if (e.getAttribute().equals(Options.ATTR_SIM_THREADS)) {
+        p.updateThreads();
       }
     }
   }
 
-  static class SetData implements Comparable<SetData> {
-    int time;
-    int serialNumber;
-    CircuitState state; // state of circuit containing component
+  /**
+   * One entry in the list of values driven onto a location, as stored in {@link
+   * CircuitState#causes}. Scheduled changes live in the {@link PropagationQueue} and only become
+   * SetData once a new cause starts driving a location.
+   */
+  static class SetData {
     Component cause; // component emitting the value
     Location loc; // the location at which value is emitted
     Value val; // value being emitted
     SetData next = null;
 
-    private SetData(
-        int time, int serialNumber, CircuitState state, Location loc, Component cause, Value val) {
-      this.time = time;
-      this.serialNumber = serialNumber;
-      this.state = state;
+    private SetData(Location loc, Component cause, Value val) {
       this.cause = cause;
       this.loc = loc;
       this.val = val;
     }
 
-    public SetData cloneFor(CircuitState newState) {
-      Propagator newProp = newState.getPropagator();
-      int dtime = newProp.clock - state.getPropagator().clock;
-      SetData ret =
-          new SetData(time + dtime, newProp.setDataSerialNumber, newState, loc, cause, val);
-      newProp.setDataSerialNumber++;
-      if (this.next != null) ret.next = this.next.cloneFor(newState);
+    public SetData cloneList() {
+      SetData ret = new SetData(loc, cause, val);
+      if (this.next != null) ret.next = this.next.cloneList();
       return ret;
     }
 
-    public int compareTo(SetData o) {
-      // Yes, these subtractions may overflow. This is intentional, as it
-      // avoids potential wraparound problems as the counters increment.
-      int ret = this.time - o.time;
-      if (ret != 0) return ret;
-      return this.serialNumber - o.serialNumber;
-    }
-
     @Override
     public String toString() {
       return loc + ":" + val + "(" + cause + ")";
@@ -151,7 +280,20 @@ public class Propagator {
    */
   private volatile int simRandomShift;
 
-  private PriorityQueue<SetData> toProcess = new PriorityQueue<SetData>();
+  /** Whether propagation should use a {@link CompiledNetlist} when the circuit allows it. */
+  private volatile boolean simCompiled;
+
+  /** Number of threads on which sibling substates process their dirty components. */
+  private volatile int simThreads = 1;
+
+  private ForkJoinPool pool = null;
+  private boolean forking = false; // true while substate tasks may be running
+
+  private CompiledNetlist compiled = null;
+  private boolean compiledActive = false; // true if the states were last updated by compiled
+
+  private PropagationQueue toProcess = new PropagationQueue();
+  private HandledTable handled = new HandledTable();
   private int clock = 0;
   private boolean isOscillating = false;
   private boolean oscAdding = false;
@@ -160,44 +302,43 @@ public class Propagator {
   private Random noiseSource = new Random();
   private int noiseCount = 0;
 
-  private int setDataSerialNumber = 0;
-  static int lastId = 0;
+  private static final AtomicInteger lastId = new AtomicInteger();
 
-  int id = lastId++;
+  int id = lastId.getAndIncrement();
 
   public Propagator(CircuitState root) {
     this.root = root;
     Listener l = new Listener(this);
     root.getProject().getOptions().getAttributeSet().addAttributeListener(l);
     updateRandomness();
+    updateCompiled();
+    updateThreads();
   }
 
-  private SetData addCause(CircuitState state, SetData head, SetData data) {
-    if (data.val == null) { // actually, it should be removed
-      return removeCause(state, head, data.loc, data.cause);
+  private SetData addCause(
+      CircuitState state, SetData head, Location loc, Component cause, Value val) {
+    if (val == null) { // actually, it should be removed
+      return removeCause(state, head, loc, cause);
     }
 
     HashMap<Location, SetData> causes = state.causes;
 
     // first check whether this is change of previous info.
-    boolean replaced = false;
     for (SetData n = head; n != null; n = n.next) {
-      if (n.cause == data.cause) {
-        n.val = data.val;
-        replaced = true;
-        break;
+      if (n.cause == cause) {
+        n.val = val;
+        return head;
       }
     }
 
     // otherwise, insert to list of causes
-    if (!replaced) {
-      if (head == null) {
-        causes.put(data.loc, data);
-        head = data;
-      } else {
-        data.next = head.next;
-        head.next = data;
-      }
+    SetData data = new SetData(loc, cause, val);
+    if (head == null) {
+      causes.put(loc, data);
+      head = data;
+    } else {
+      data.next = head.next;
+      head.next = data;
     }
 
     return head;
@@ -224,6 +365,93 @@ public class Propagator {
 
   private void clearDirtyComponents() {
     root.processDirtyComponents();
+    // co-simulated VHDL entities only queue their inputs; one exchange
+    // with the binder serves all of them
+    Project proj = root.getProject();
+    if (proj != null && proj.isVhdlSimulatorRunning()) proj.getVhdlSimulator().flush();
+  }
+
+  /**
+   * Processes the dirty components of sibling substates, on several threads if the project asks
+   * for it. Each substate only writes its own values and component data; the values it sets and
+   * the propagation of its subcircuit component in the parent state are buffered and replayed on
+   * this thread, in the order the serial loop would have done them. The parent values a substate
+   * reads do not change until the next propagation step.
+   */
+  void processDirtyComponents(CircuitState[] subs) {
+    int threads = simThreads;
+    if (threads <= 1 || subs.length < 2) {
+      for (CircuitState sub : subs) sub.processDirtyComponents();
+      return;
+    }
+
+    SubstateTask[] tasks = new SubstateTask[subs.length];
+    for (int i = 0; i < subs.length; i++) tasks[i] = new SubstateTask(subs[i]);
+    boolean outermost = !forking;
+    if (outermost) forking = true;
+    try {
+      if (ForkJoinTask.inForkJoinPool()) {
+        ForkJoinTask.invokeAll(tasks);
+      } else {
+        try {
+          getPool(threads)
+              .invoke(
+                  new RecursiveAction() {
+                    private static final long serialVersionUID = 1L;
+
+                    @Override
+                    protected void compute() {
+                      invokeAll(tasks);
+                    }
+                  });
+        } catch (RejectedExecutionException e) {
+          // the pool was shut down by a reset; none of the tasks has run
+          for (SubstateTask task : tasks) task.invoke();
+        }
+      }
+    } finally {
+      if (outermost) forking = false;
+    }
+    for (SubstateTask task : tasks) task.buffer.replay(this);
+  }
+
+  /**
+   * Propagates the subcircuit component of a substate in its parent state after one of the pins
+   * of the substate changed. On a worker thread this is left to the propagator thread.
+   */
+  void propagateSuperstate(CircuitState parentState, Component parentComp) {
+    if (forking) {
+      EventBuffer buffer = EventBuffer.current.get();
+      if (buffer != null) {
+        buffer.addSuperstate(parentState, parentComp);
+        return;
+      }
+    }
+    parentComp.propagate(parentState);
+  }
+
+  private synchronized ForkJoinPool getPool(int threads) {
+    if (pool == null || pool.getParallelism() != threads) {
+      if (pool != null) pool.shutdown();
+      pool = new ForkJoinPool(threads);
+    }
+    return pool;
+  }
+
+  private synchronized void shutDownPool() {
+    if (pool != null) {
+      pool.shutdown();
+      pool = null;
+    }
+  }
+
+  /** Releases the worker threads and the compiled netlist once the state tree is dropped. */
+  public void dispose() {
+    shutDownPool();
+    if (compiled != null) {
+      compiled.dispose();
+      compiled = null;
+    }
   }
 
   private void clearDirtyPoints() {
@@ -286,6 +514,14 @@ public class Propagator {
   }
 
   public void propagate() {
+    if (simCompiled) {
+      if (propagateCompiled()) return;
+    } else if (compiled != null) {
+      compiled.dispose();
+      compiled = null;
+    }
+    leaveCompiled();
+
     oscPoints.clear();
     clearDirtyPoints();
     clearDirtyComponents();
@@ -312,6 +548,34 @@ public class Propagator {
     oscPoints.clear();
   }
 
+  private boolean propagateCompiled() {
+    if (compiled != null && !compiled.isValid()) {
+      compiled.dispose();
+      compiled = null;
+      leaveCompiled();
+    }
+    if (compiled == null) compiled = CompiledNetlist.compile(root);
+    if (!compiled.isSupported()) return false;
+
+    if (!compiledActive) {
+      toProcess.clear();
+      compiled.markAllDirty();
+      compiledActive = true;
+    }
+    if (!compiled.propagate()) return false; // did not settle; let the event queue decide
+    isOscillating = false;
+    oscAdding = false;
+    oscPoints.clear();
+    return true;
+  }
+
+  private void leaveCompiled() {
+    if (compiledActive) {
+      compiledActive = false;
+      root.resyncPropagation();
+    }
+  }
+
   private SetData removeCause(CircuitState state, SetData head, Location loc, Component cause) {
     HashMap<Location, SetData> causes = state.causes;
     if (head == null) {;
@@ -334,8 +598,16 @@ public class Propagator {
     return head;
   }
 
-  void reset() {
+  /** Returns the state tree to its initial contents and drops the pending events. */
+  public void reset() {
     toProcess.clear();
+    handled.clear();
+    shutDownPool();
+    if (compiled != null) {
+      compiled.dispose();
+      compiled = null;
+    }
+    compiledActive = false;
     root.reset();
     isOscillating = false;
   }
@@ -345,6 +617,13 @@ public class Propagator {
   //
   void setValue(CircuitState state, Location pt, Value val, Component cause, int delay) {
     if (cause instanceof Wire || cause instanceof Splitter) return;
+    if (forking) {
+      EventBuffer buffer = EventBuffer.current.get();
+      if (buffer != null) {
+        buffer.add(state, pt, val, cause, delay);
+        return;
+      }
+    }
     if (delay <= 0) {
       delay = 1;
     }
@@ -362,16 +641,15 @@ public class Propagator {
         }
       }
     }
-    toProcess.add(new SetData(clock + delay, setDataSerialNumber, state, pt, cause, val));
+    toProcess.add(clock + delay, state, pt, cause, val);
     /*
      * DEBUGGING - comment out Simulator.log(clock + ": set " + pt + " in "
      * + state + " to " + val + " by " + cause + " after " + delay); //
      */
-
-    setDataSerialNumber++;
   }
 
   void step(PropagationPoints changedPoints) {
+    leaveCompiled();
     oscPoints.clear();
     clearDirtyPoints();
     clearDirtyComponents();
@@ -388,44 +666,36 @@ public class Propagator {
     if (toProcess.isEmpty()) return;
 
     // update clock
-    clock = toProcess.peek().time;
+    clock = toProcess.advance();
 
     // propagate all values for this clock tick
-    HashMap<CircuitState, HashSet<ComponentPoint>> visited =
-        new HashMap<CircuitState, HashSet<ComponentPoint>>();
-    while (true) {
-      SetData data = toProcess.peek();
-      if (data == null || data.time != clock) break;
-      toProcess.remove();
-      CircuitState state = data.state;
+    handled.nextEpoch();
+    PropagationQueue queue = toProcess;
+    while (queue.poll()) {
+      CircuitState state = queue.state;
+      Location loc = queue.loc;
+      Component cause = queue.cause;
 
       // if it's already handled for this clock tick, continue
-      HashSet<ComponentPoint> handled = visited.get(state);
-      if (handled != null) {
-        if (!handled.add(new ComponentPoint(data.cause, data.loc))) continue;
-      } else {
-        handled = new HashSet<ComponentPoint>();
-        visited.put(state, handled);
-        handled.add(new ComponentPoint(data.cause, data.loc));
-      }
+      if (!handled.add(state, cause, loc)) continue;
 
       /*
-       * DEBUGGING - comment out Simulator.log(data.time + ": proc " +
-       * data.loc + " in " + data.state + " to " + data.val + " by " +
-       * data.cause); //
+       * DEBUGGING - comment out Simulator.log(clock + ": proc " +
+       * loc + " in " + state + " to " + queue.val + " by " +
+       * cause); //
        */
 
-      if (changedPoints != null) changedPoints.add(state, data.loc);
+      if (changedPoints != null) changedPoints.add(state, loc);
 
       // change the information about value
-      SetData oldHead = state.causes.get(data.loc);
+      SetData oldHead = state.causes.get(loc);
       Value oldVal = computeValue(oldHead);
-      SetData newHead = addCause(state, oldHead, data);
+      SetData newHead = addCause(state, oldHead, loc, cause, queue.val);
       Value newVal = computeValue(newHead);
 
       // if the value at point has changed, propagate it
       if (!newVal.equals(oldVal)) {
-        state.markPointAsDirty(data.loc);
+        state.markPointAsDirty(loc);
       }
     }
 
@@ -443,6 +713,16 @@ public class Propagator {
     return "Prop" + id;
   }
 
+  private void updateCompiled() {
+    Options opts = root.getProject().getOptions();
+    simCompiled = opts.getAttributeSet().getValue(Options.ATTR_SIM_COMPILED).booleanValue();
+  }
+
+  private void updateThreads() {
+    Options opts = root.getProject().getOptions();
+    simThreads = Math.max(1, opts.getAttributeSet().getValue(Options.ATTR_SIM_THREADS).intValue());
+  }
+
   private void updateRandomness() {
     Options opts = root.getProject().getOptions();
     Object rand = opts.getAttributeSet().getValue(Options.ATTR_SIM_RAND);
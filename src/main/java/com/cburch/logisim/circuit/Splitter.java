@@ -79,8 +79,8 @@ public class Splitter extends ManagedComponent
   // basic data
   byte[] bit_thread; // how each bit maps to thread within end
 
-  // derived data
-  CircuitWires.SplitterData wire_data;
+  // derived data, replaced as a whole so that CircuitWires can read it without locking
+  volatile CircuitWires.SplitterData wire_data;
 
   public Splitter(Location loc, AttributeSet attrs) {
     super(loc, attrs, 3);
@@ -125,6 +125,8 @@ public class Splitter extends ManagedComponent
     int dy = parms.getEndToEndDeltaY();
 
     EndData[] ends = new EndData[fanout + 1];
+    Location[] end_loc = new Location[fanout + 1];
+    BitWidth[] end_bits = new BitWidth[fanout + 1];
     ends[0] = new EndData(origin, BitWidth.create(bit_end.length), EndData.INPUT_OUTPUT);
     for (int i = 0; i < fanout; i++) {
       ends[i + 1] =
@@ -133,7 +135,12 @@ public class Splitter extends ManagedComponent
       x += dx;
       y += dy;
     }
-    wire_data = new CircuitWires.SplitterData(fanout);
+    for (int i = 0; i <= fanout; i++) {
+      end_loc[i] = ends[i].getLocation();
+      end_bits[i] = ends[i].getWidth();
+    }
+    wire_data =
+        new CircuitWires.SplitterData(end_loc, end_bits, bit_end.clone(), bit_thread.clone());
     setEnds(ends);
     recomputeBounds();
     fireComponentInvalidated(new ComponentEvent(this));
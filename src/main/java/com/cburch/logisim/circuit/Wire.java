@@ -46,7 +46,6 @@ import com.cburch.logisim.data.Location;
 import com.cburch.logisim.fpga.designrulecheck.Netlist;
 import com.cburch.logisim.file.Options;
 import com.cburch.logisim.tools.CustomHandles;
-import com.cburch.logisim.util.Cache;
 import com.cburch.logisim.util.GraphicsUtil;
 import java.awt.BasicStroke;
 import java.awt.Color;
@@ -71,7 +70,8 @@ public final class Wire implements Component, AttributeSet, CustomHandles, Itera
   }
 
   public static Wire create(Location e0, Location e1) {
-    return (Wire) cache.get(new Wire(e0, e1));
+    // wires are not interned: their DRC highlight is mutable and belongs to one circuit
+    return new Wire(e0, e1);
   }
 
   /** Stroke width when drawing wires. */
@@ -99,8 +99,6 @@ public final class Wire implements Component, AttributeSet, CustomHandles, Itera
   private static final List<Attribute<?>> ATTRIBUTES =
       Arrays.asList(new Attribute<?>[] {dir_attr, len_attr});
 
-  private static final Cache cache = new Cache();
-
   final Location e0;
   final Location e1;
   final boolean is_x_equal;
@@ -44,6 +44,9 @@ class WireBundle {
   // bundle
   // hits
   private WidthIncompatibilityData incompatibilityData = null;
+  // filled in once the bundle map is complete
+  int id = -1;
+  int[] pointIds;
 
   WireBundle() {
     parent = this;
@@ -28,12 +28,17 @@
 
 package com.cburch.logisim.circuit;
 
+import com.cburch.logisim.data.Value;
 import java.util.concurrent.CopyOnWriteArraySet;
 
 class WireThread {
   private WireThread parent;
   private CopyOnWriteArraySet<CircuitWires.ThreadBundle> bundles =
       new CopyOnWriteArraySet<CircuitWires.ThreadBundle>();
+  // filled in once the bundle map is complete
+  int id = -1;
+  CircuitWires.ThreadBundle[] bundleList;
+  Value pullValue = Value.UNKNOWN; // combined pull of the thread's bundles
 
   WireThread() {
     parent = this;
@@ -53,6 +58,16 @@ class WireThread {
     return bundles;
   }
 
+  void index() {
+    bundleList = bundles.toArray(new CircuitWires.ThreadBundle[bundles.size()]);
+    Value pull = Value.UNKNOWN;
+    for (CircuitWires.ThreadBundle tb : bundleList) {
+      Value pullHere = tb.b.getPullValue();
+      if (pullHere != Value.UNKNOWN) pull = pull.combine(pullHere);
+    }
+    pullValue = pull;
+  }
+
   void unite(WireThread other) {
     WireThread group = this.find();
     WireThread group2 = other.find();
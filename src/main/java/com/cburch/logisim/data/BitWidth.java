@@ -37,7 +37,6 @@ public class BitWidth implements Comparable<BitWidth> {
 
     public Attribute(String name, StringGetter disp) {
       super(name, disp);
-      ensurePrefab();
       choices = prefab;
     }
 
@@ -70,7 +69,6 @@ public class BitWidth implements Comparable<BitWidth> {
   }
 
   public static BitWidth create(int width) {
-    ensurePrefab();
     if (width <= 0) {
       if (width == 0) {
         return UNKNOWN;
@@ -84,16 +82,6 @@ public class BitWidth implements Comparable<BitWidth> {
     }
   }
 
-  private static void ensurePrefab() {
-    if (prefab == null) {
-      prefab = new BitWidth[Math.min(64, Value.MAX_WIDTH)];
-      prefab[0] = ONE;
-      for (int i = 1; i < prefab.length; i++) {
-        prefab[i] = new BitWidth(i + 1);
-      }
-    }
-  }
-
   public static BitWidth parse(String str) {
     if (str == null || str.length() == 0) {
       throw new NumberFormatException("Width string cannot be null");
@@ -106,10 +94,20 @@ public class BitWidth implements Comparable<BitWidth> {
 
   public static final BitWidth ONE = new BitWidth(1);
 
-  private static BitWidth[] prefab = null;
+  // built when the class is initialized, so that every thread sees the whole table
+  private static final BitWidth[] prefab = createPrefab();
 
   final int width;
 
+  private static BitWidth[] createPrefab() {
+    BitWidth[] ret = new BitWidth[Math.min(64, Value.MAX_WIDTH)];
+    ret[0] = ONE;
+    for (int i = 1; i < ret.length; i++) {
+      ret[i] = new BitWidth(i + 1);
+    }
+    return ret;
+  }
+
   private BitWidth(int width) {
     this.width = width;
   }
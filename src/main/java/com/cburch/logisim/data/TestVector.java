@@ -31,12 +31,10 @@ package com.cburch.logisim.data;
 /**
  * Code taken from Cornell's version of Logisim: http://www.cs.cornell.edu/courses/cs3410/2015sp/
  */
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileReader;
 import java.io.IOException;
+import java.io.Reader;
 import java.util.ArrayList;
-import java.util.StringTokenizer;
 import javax.swing.filechooser.FileFilter;
 
 public class TestVector {
@@ -56,91 +54,6 @@ public class TestVector {
     }
   }
 
-  private class TestVectorReader {
-
-    private BufferedReader in;
-    private StringTokenizer curLine;
-
-    public TestVectorReader(BufferedReader in) throws IOException {
-      this.in = in;
-      curLine = findNonemptyLine();
-    }
-
-    private StringTokenizer findNonemptyLine() throws IOException {
-      String line = in.readLine();
-
-      while (line != null) {
-        int i = line.indexOf('#');
-        if (i >= 0) line = line.substring(0, i);
-        StringTokenizer ret = new StringTokenizer(line);
-        if (ret.hasMoreTokens()) return ret;
-        line = in.readLine();
-      }
-
-      return null;
-    }
-
-    public void parse() throws IOException {
-      if (curLine == null) throw new IOException("TestVector format error: empty file");
-
-      parseHeader();
-      data = new ArrayList<Value[]>();
-      curLine = findNonemptyLine();
-
-      while (curLine != null) {
-        parseData();
-        curLine = findNonemptyLine();
-      }
-    }
-
-    private void parseData() throws IOException {
-      Value vals[] = new Value[columnName.length];
-      for (int i = 0; i < columnName.length; i++) {
-        String t = curLine.nextToken();
-
-        try {
-          vals[i] = Value.fromLogString(columnWidth[i], t);
-        } catch (Exception e) {
-          throw new IOException("Test Vector data format error: " + e.getMessage());
-        }
-        if (data.isEmpty()) columnRadix[i] = Value.radixOfLogString(columnWidth[i], t);
-      }
-      if (curLine.hasMoreTokens())
-        throw new IOException("Test Vector data format error: " + curLine.nextToken());
-      data.add(vals);
-    }
-
-    private void parseHeader() throws IOException {
-      int n = curLine.countTokens();
-      columnName = new String[n];
-      columnWidth = new BitWidth[n];
-      columnRadix = new int[n];
-
-      for (int i = 0; i < n; i++) {
-        columnRadix[i] = 2;
-        String t = (String) curLine.nextElement();
-        int s = t.indexOf('[');
-
-        if (s < 0) {
-          columnName[i] = t;
-          columnWidth[i] = BitWidth.ONE;
-        } else {
-          int e = t.indexOf(']');
-
-          if (e != t.length() - 1 || s == 0 || e == s + 1)
-            throw new IOException("Test Vector header format error: bad spec: " + t);
-
-          columnName[i] = t.substring(0, s);
-          int w = new Integer(t.substring(s + 1, e)).intValue();
-
-          if (w < 1 || w > 32)
-            throw new IOException("Test Vector header format error: bad width: " + t);
-          columnWidth[i] = BitWidth.create(w);
-        }
-      }
-    }
-  }
-
   public static final FileFilter FILE_FILTER = new TestVectorFilter();
   public String[] columnName;
   public BitWidth[] columnWidth;
@@ -149,11 +62,28 @@ public class TestVector {
   public ArrayList<Value[]> data;
 
   public TestVector(File src) throws IOException {
-    BufferedReader in = new BufferedReader(new FileReader(src));
+    this(new TestVectorStream(src));
+  }
+
+  public TestVector(Reader src) throws IOException {
+    this(new TestVectorStream(src));
+  }
 
+  private TestVector(TestVectorStream in) throws IOException {
     try {
-      TestVectorReader r = new TestVectorReader(in);
-      r.parse();
+      columnName = in.getColumnNames();
+      columnWidth = in.getColumnWidths();
+      columnRadix = in.getColumnRadix();
+      data = new ArrayList<Value[]>();
+
+      int n = in.getColumnCount();
+      long[] values = new long[n];
+      long[] unknowns = new long[n];
+      while (in.readRow(values, unknowns)) {
+        Value vals[] = new Value[n];
+        for (int i = 0; i < n; i++) vals[i] = in.toValue(i, values[i], unknowns[i]);
+        data.add(vals);
+      }
     } finally {
       in.close();
     }
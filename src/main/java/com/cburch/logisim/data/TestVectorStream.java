@@ -0,0 +1,270 @@
+/**
+ * This file is part of logisim-evolution.
+ *
+ * Logisim-evolution is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * Logisim-evolution is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU General Public License along 
+ * with logisim-evolution. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Original code by Carl Burch (http://www.cburch.com), 2011.
+ * Subsequent modifications by:
+ *   + College of the Holy Cross
+ *     http://www.holycross.edu
+ *   + Haute École Spécialisée Bernoise/Berner Fachhochschule
+ *     http://www.bfh.ch
+ *   + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *     http://hepia.hesge.ch/
+ *   + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *     http://www.heig-vd.ch/
+ */
+
+package com.cburch.logisim.data;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.CharBuffer;
+
+/**
+ * Reads a test vector file one row at a time. The header is parsed when the stream is opened; rows
+ * are then parsed on demand straight out of a reusable character buffer into the caller's primitive
+ * arrays, so only the current line is ever held in memory no matter how large the file is.
+ */
+public class TestVectorStream implements Closeable {
+
+  private static final int BUFFER_SIZE = 1 << 16;
+
+  private final Reader in;
+  private char[] buf = new char[BUFFER_SIZE];
+  private CharBuffer text = CharBuffer.wrap(buf);
+  private int pos = 0;
+  private int limit = 0;
+  private boolean eof = false;
+  private boolean afterReturn = false; // the last line ended with '\r', so skip a '\n'
+  private int lineNumber = 0;
+
+  // bounds of the current line (comments stripped) and the scan position within it
+  private int lineEnd;
+  private int scan;
+
+  private final long[] cell = new long[2];
+  private boolean firstRow = true;
+
+  private String[] columnName;
+  private BitWidth[] columnWidth;
+  private int[] columnRadix;
+
+  public TestVectorStream(File src) throws IOException {
+    this(new InputStreamReader(new FileInputStream(src)));
+  }
+
+  public TestVectorStream(Reader in) throws IOException {
+    this.in = in;
+    try {
+      if (!findNonemptyLine()) throw new IOException("TestVector format error: empty file");
+      parseHeader();
+    } catch (IOException e) {
+      in.close();
+      throw e;
+    }
+  }
+
+  public void close() throws IOException {
+    in.close();
+  }
+
+  public int getColumnCount() {
+    return columnName.length;
+  }
+
+  public String[] getColumnNames() {
+    return columnName;
+  }
+
+  public BitWidth[] getColumnWidths() {
+    return columnWidth;
+  }
+
+  /** The number of the line last read, counting from 1. */
+  public int getLineNumber() {
+    return lineNumber;
+  }
+
+  /** The radix of each column, as taken from the first row once it has been read. */
+  public int[] getColumnRadix() {
+    return columnRadix;
+  }
+
+  /**
+   * Parses the next row, storing the value and unknown bits of each column into the given arrays.
+   * Returns false once the end of the file has been reached.
+   */
+  public boolean readRow(long[] values, long[] unknowns) throws IOException {
+    if (!findNonemptyLine()) return false;
+    for (int i = 0; i < columnName.length; i++) {
+      int start = nextToken();
+      if (start < 0) throw dataError("missing value for " + columnName[i]);
+      try {
+        Value.parseLogString(columnWidth[i].getWidth(), text, start, scan, cell);
+      } catch (Exception e) {
+        throw dataError(e.getMessage());
+      }
+      values[i] = cell[0];
+      unknowns[i] = cell[1];
+      if (firstRow)
+        columnRadix[i] = Value.radixOfLogString(columnWidth[i].getWidth(), text, start, scan);
+    }
+    int extra = nextToken();
+    if (extra >= 0) throw dataError(new String(buf, extra, scan - extra));
+    firstRow = false;
+    return true;
+  }
+
+  /** Creates the value of the given column from bits read by readRow. */
+  public Value toValue(int column, long value, long unknown) {
+    return Value.create(columnWidth[column].getWidth(), 0, unknown, value);
+  }
+
+  private IOException dataError(String msg) {
+    return new IOException("Test Vector data format error on line " + lineNumber + ": " + msg);
+  }
+
+  private IOException headerError(String msg) {
+    return new IOException("Test Vector header format error on line " + lineNumber + ": " + msg);
+  }
+
+  private void parseHeader() throws IOException {
+    int n = 0;
+    int lineStart = scan;
+    while (nextToken() >= 0) n++;
+    scan = lineStart;
+
+    columnName = new String[n];
+    columnWidth = new BitWidth[n];
+    columnRadix = new int[n];
+
+    for (int i = 0; i < n; i++) {
+      columnRadix[i] = 2;
+      int start = nextToken();
+      String t = new String(buf, start, scan - start);
+      int s = t.indexOf('[');
+
+      if (s < 0) {
+        columnName[i] = t;
+        columnWidth[i] = BitWidth.ONE;
+      } else {
+        int e = t.indexOf(']');
+
+        if (e != t.length() - 1 || s == 0 || e == s + 1)
+          throw headerError("bad spec: " + t);
+
+        columnName[i] = t.substring(0, s);
+        int w;
+        try {
+          w = Integer.parseInt(t.substring(s + 1, e));
+        } catch (NumberFormatException ex) {
+          throw headerError("bad width: " + t);
+        }
+
+        if (w < 1 || w > 32) throw headerError("bad width: " + t);
+        columnWidth[i] = BitWidth.create(w);
+      }
+    }
+  }
+
+  private static boolean isDelimiter(char c) {
+    return c == ' ' || c == '\t' || c == '\n' || c == '\r' || c == '\f';
+  }
+
+  /**
+   * Advances past the next token of the current line, returning its start (it ends at scan), or -1
+   * if the line has no more tokens.
+   */
+  private int nextToken() {
+    while (scan < lineEnd && isDelimiter(buf[scan])) scan++;
+    if (scan >= lineEnd) return -1;
+    int start = scan;
+    while (scan < lineEnd && !isDelimiter(buf[scan])) scan++;
+    return start;
+  }
+
+  /** Moves to the next line that still has a token once its comment is removed. */
+  private boolean findNonemptyLine() throws IOException {
+    while (nextLine()) {
+      for (int i = scan; i < lineEnd; i++) {
+        if (buf[i] == '#') {
+          lineEnd = i;
+          break;
+        }
+      }
+      int start = scan;
+      if (nextToken() >= 0) {
+        scan = start;
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private boolean nextLine() throws IOException {
+    int i = pos;
+    while (true) {
+      for (; i < limit; i++) {
+        char c = buf[i];
+        if (c == '\n' && afterReturn && i == pos) {
+          // the second half of a "\r\n" line break
+          afterReturn = false;
+          pos = i + 1;
+          continue;
+        }
+        afterReturn = c == '\r';
+        if (c == '\n' || c == '\r') {
+          scan = pos;
+          lineEnd = i;
+          pos = i + 1;
+          lineNumber++;
+          return true;
+        }
+      }
+      if (eof) {
+        if (pos == limit) return false;
+        lineNumber++;
+        scan = pos;
+        lineEnd = limit;
+        pos = limit;
+        return true;
+      }
+      i -= pos;
+      fill();
+    }
+  }
+
+  /** Moves the unread characters to the front of the buffer and reads more behind them. */
+  private void fill() throws IOException {
+    int n = limit - pos;
+    if (n == buf.length) {
+      char[] bigger = new char[2 * buf.length];
+      System.arraycopy(buf, pos, bigger, 0, n);
+      buf = bigger;
+      text = CharBuffer.wrap(buf);
+    } else {
+      System.arraycopy(buf, pos, buf, 0, n);
+    }
+    pos = 0;
+    limit = n;
+    int r = in.read(buf, limit, buf.length - limit);
+    if (r < 0) eof = true;
+    else limit += r;
+  }
+}
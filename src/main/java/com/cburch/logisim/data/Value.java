@@ -37,7 +37,7 @@ import java.util.Arrays;
 
 public class Value {
 
-  private static Value create(int width, long error, long unknown, long value) {
+  static Value create(int width, long error, long unknown, long value) {
     if (width == 0) {
       return Value.NIL;
     } else if (width == 1) {
@@ -113,21 +113,30 @@ public class Value {
    * Code taken from Cornell's version of Logisim: http://www.cs.cornell.edu/courses/cs3410/2015sp/
    */
   public static Value fromLogString(BitWidth width, String t) throws Exception {
-    int radix = radixOfLogString(width, t);
+    long[] ret = new long[2];
+    parseLogString(width.getWidth(), t, 0, t.length(), ret);
+    return create(width.getWidth(), 0, ret[1], ret[0]);
+  }
+
+  /**
+   * Parses the characters from start to end of t the same way as fromLogString, storing the value
+   * bits in ret[0] and the unknown bits in ret[1]. This lets streaming readers parse straight out of
+   * their line buffer without creating a string or a Value for every cell.
+   */
+  static void parseLogString(int w, CharSequence t, int start, int end, long[] ret)
+      throws Exception {
+    int radix = radixOfLogString(w, t, start, end);
     int offset;
 
     if (radix == 16 || radix == 8) offset = 2;
-    else if (radix == 10 && t.startsWith("-")) offset = 1;
+    else if (radix == 10 && end > start && t.charAt(start) == '-') offset = 1;
     else offset = 0;
 
-    int n = t.length();
+    if (end - start <= offset) throw new Exception("expected digits");
 
-    if (n <= offset) throw new Exception("expected digits");
-
-    int w = width.getWidth();
     long value = 0, unknown = 0;
 
-    for (int i = offset; i < n; i++) {
+    for (int i = start + offset; i < end; i++) {
       char c = t.charAt(i);
       int d;
 
@@ -137,16 +146,16 @@ public class Value {
       else if ('A' <= c && c <= 'F') d = 0xA + (c - 'A');
       else
         throw new Exception(
-            "unexpected character '" + t.substring(i, i + 1) + "' in \"" + t + "\"");
+            "unexpected character '" + c + "' in \"" + t.subSequence(start, end) + "\"");
 
       if (d >= radix)
         throw new Exception(
-            "unexpected character '" + t.substring(i, i + 1) + "' in \"" + t + "\"");
+            "unexpected character '" + c + "' in \"" + t.subSequence(start, end) + "\"");
 
       value *= radix;
       unknown *= radix;
       if ((value >> (radix == 10 ? 33 : w)) != 0 || (unknown >> 36) != 0)
-        throw new Exception("too many bits in \"" + t + "\"");
+        throw new Exception("too many bits in \"" + t.subSequence(start, end) + "\"");
 
       if (radix != 10) {
         if (d == -1) unknown |= (radix - 1);
@@ -156,26 +165,34 @@ public class Value {
         else value += d;
       }
     }
-    if (radix == 10 && t.charAt(0) == '-') value = -value;
+    if (radix == 10 && t.charAt(start) == '-') value = -value;
 
     if (w == 64) {
       if (((value & 0x7FFFFFFFFFFFFFFFL) >> (w - 1)) != 0)
-        throw new Exception("too many bits in \"" + t + "\"");
+        throw new Exception("too many bits in \"" + t.subSequence(start, end) + "\"");
     } else {
-      if ((value >> w) != 0) throw new Exception("too many bits in \"" + t + "\"");
+      if ((value >> w) != 0)
+        throw new Exception("too many bits in \"" + t.subSequence(start, end) + "\"");
     }
 
     unknown &= ((1L << w) - 1);
-    return create(w, 0, unknown, value);
+    ret[0] = value;
+    ret[1] = unknown;
   }
 
   /**
    * Code taken from Cornell's version of Logisim: http://www.cs.cornell.edu/courses/cs3410/2015sp/
    */
   public static int radixOfLogString(BitWidth width, String t) {
-    if (t.startsWith("0x")) return 16;
-    if (t.startsWith("0o")) return 8;
-    if (t.length() == width.getWidth()) return 2;
+    return radixOfLogString(width.getWidth(), t, 0, t.length());
+  }
+
+  static int radixOfLogString(int w, CharSequence t, int start, int end) {
+    if (end - start >= 2 && t.charAt(start) == '0') {
+      if (t.charAt(start + 1) == 'x') return 16;
+      if (t.charAt(start + 1) == 'o') return 8;
+    }
+    if (end - start == w) return 2;
 
     return 10;
   }
@@ -31,6 +31,8 @@ package com.cburch.logisim.file;
 import static com.cburch.logisim.file.Strings.S;
 
 import com.cburch.logisim.data.Attribute;
+import com.cburch.logisim.data.AttributeEvent;
+import com.cburch.logisim.data.AttributeListener;
 import com.cburch.logisim.data.AttributeOption;
 import com.cburch.logisim.data.AttributeSet;
 import com.cburch.logisim.data.AttributeSets;
@@ -46,6 +48,10 @@ public class Options {
       Attributes.forInteger("simlimit", S.getter("simLimitOption"));
   public static final Attribute<Integer> ATTR_SIM_RAND =
       Attributes.forInteger("simrand", S.getter("simRandomOption"));
+  public static final Attribute<Boolean> ATTR_SIM_COMPILED =
+      Attributes.forBoolean("simcompiled", S.getter("simCompiledOption"));
+  public static final Attribute<Integer> ATTR_SIM_THREADS =
+      Attributes.forInteger("simthreads", S.getter("simThreadsOption"));
   public static final Attribute<AttributeOption> ATTR_GATE_UNDEFINED =
       Attributes.forOption(
           "gateUndefined",
@@ -64,18 +70,33 @@ public class Options {
   public static final Integer sim_rand_dflt = Integer.valueOf(32);
 
   private static final Attribute<?>[] ATTRIBUTES = {ATTR_GATE_UNDEFINED, ATTR_SIM_LIMIT, ATTR_SIM_RAND,
-    ATTR_STROKE_WIDTH, ATTR_HIDE_ABUTTED_PORTS, ATTR_ENFORCE_HDL};
+    ATTR_STROKE_WIDTH, ATTR_HIDE_ABUTTED_PORTS, ATTR_ENFORCE_HDL, ATTR_SIM_COMPILED, ATTR_SIM_THREADS};
   private static final Object[] DEFAULTS = {GATE_UNDEFINED_IGNORE, Integer.valueOf(1000), Integer.valueOf(0),
-    1, true, false};
+    1, true, false, false, Integer.valueOf(1)};
 
   private AttributeSet attrs;
   private MouseMappings mmappings;
   private ToolbarData toolbar;
+  // copy of ATTR_GATE_UNDEFINED that components can read on every propagation
+  private volatile boolean gateUndefinedError;
 
   public Options() {
     attrs = AttributeSets.fixedSet(ATTRIBUTES, DEFAULTS);
     mmappings = new MouseMappings();
     toolbar = new ToolbarData();
+    attrs.addAttributeListener(
+        new AttributeListener() {
+          public void attributeListChanged(AttributeEvent e) {}
+
+          public void attributeValueChanged(AttributeEvent e) {
+            if (e.getAttribute() == ATTR_GATE_UNDEFINED) updateSimulationOptions();
+          }
+        });
+    updateSimulationOptions();
+  }
+
+  private void updateSimulationOptions() {
+    gateUndefinedError = attrs.getValue(ATTR_GATE_UNDEFINED).equals(GATE_UNDEFINED_ERROR);
   }
 
   public void copyFrom(Options other, LogisimFile dest) {
@@ -96,6 +117,11 @@ public class Options {
     return toolbar;
   }
 
+  /** Returns whether gates with an undefined input should produce an error value. */
+  public boolean isGateUndefinedError() {
+    return gateUndefinedError;
+  }
+
   public boolean enforcingHdlSyntax() {
     boolean result = attrs.getValue(ATTR_ENFORCE_HDL);
     return result;
@@ -43,6 +43,7 @@ import com.cburch.logisim.comp.ComponentFactory;
 import com.cburch.logisim.comp.EndData;
 import com.cburch.logisim.data.AttributeSet;
 import com.cburch.logisim.data.Location;
+import com.cburch.logisim.fpga.fpgagui.BufferedReport;
 import com.cburch.logisim.fpga.fpgagui.FPGAReport;
 import com.cburch.logisim.fpga.gui.FPGACliGuiFabric;
 import com.cburch.logisim.fpga.gui.IFPGAFrame;
@@ -164,6 +165,9 @@ public class Netlist implements CircuitListener {
 
   private String CircuitName;
   private ArrayList<Net> MyNets = new ArrayList<Net>();
+  /* Filled in by NumberNets() once the list of nets is final */
+  private Map<Net, Integer> NetIds = null;
+  private Map<Location, Net> NetAtPoint = null;
   private Map<Circuit, Integer> MySubCircuitMap = new HashMap<Circuit, Integer>();
   private ArrayList<NetlistComponent> MySubCircuits = new ArrayList<NetlistComponent>();
   private ArrayList<NetlistComponent> MyComponents = new ArrayList<NetlistComponent>();
@@ -178,6 +182,14 @@ public class Netlist implements CircuitListener {
   private ClockTreeFactory MyClockInformation = new ClockTreeFactory();
   private Circuit MyCircuit;
   private int DRCStatus;
+  /* The circuit revision and HDL this netlist was built for, and how often it has been built */
+  private int BuiltRevision;
+  private String BuiltHDLIdentifier;
+  /* The messages of building it, reported again when it is reused */
+  private BufferedReport BuiltWarnings;
+  private int Generation = 0;
+  /* The generations of the sub-circuit netlists at the time this netlist was built */
+  private Map<Circuit, Integer> SubGenerations = new HashMap<Circuit, Integer>();
   private Set<Wire> wires = new HashSet<Wire>();
   private ArrayList<String> CurrentHierarchyLevel;
   public static final int DRC_REQUIRED = 4;
@@ -206,12 +218,12 @@ public class Netlist implements CircuitListener {
   }
 
   public void clear() {
-    for (NetlistComponent subcirc : MySubCircuits) {
-      SubcircuitFactory SubFact = (SubcircuitFactory) subcirc.GetComponent().getFactory();
-      SubFact.getSubcircuit().getNetList().clear();
-    }
     DRCStatus = DRC_REQUIRED;
+    BuiltRevision = -1;
+    BuiltWarnings = null;
     MyNets.clear();
+    NetIds = null;
+    NetAtPoint = null;
     MySubCircuits.clear();
     MyComponents.clear();
     MyClockGenerators.clear();
@@ -340,6 +352,24 @@ public class Netlist implements CircuitListener {
     }
   }
 
+  /* Collects the time taken by each phase of the design rule check */
+  private static class PhaseTimer {
+    private long Start = System.nanoTime();
+    private StringBuilder Times = new StringBuilder();
+
+    void Lap(String Phase) {
+      long Now = System.nanoTime();
+      if (Times.length() > 0) Times.append(", ");
+      Times.append(S.fmt("DRCPhaseTime", Phase, (Now - Start) / 1000000));
+      Start = Now;
+    }
+
+    @Override
+    public String toString() {
+      return Times.toString();
+    }
+  }
+
   public int DesignRuleCheckResult(
       FPGAReport Reporter, String HDLIdentifier, boolean IsTopLevel, ArrayList<String> Sheetnames) {
     ArrayList<String> CompName = new ArrayList<String>();
@@ -352,7 +382,23 @@ public class Netlist implements CircuitListener {
           circ.getNetList().DesignRuleCheckResult(Reporter, HDLIdentifier, false, Sheetnames);
     }
     /* Check if we are okay */
-    if (DRCStatus == DRC_PASSED) {
+    if (IsUpToDate(HDLIdentifier)) {
+      if (Sheetnames.contains(MyCircuit.getName())) {
+        /* Already checked and reported as another instance in this DRC */
+        return CommonDRCStatus;
+      }
+      Sheetnames.add(MyCircuit.getName());
+      BuiltWarnings.ReplayTo(Reporter);
+      if (IsTopLevel && CommonDRCStatus == DRC_PASSED) {
+        /* The clock tree and bubbles depend on the top level, so they are always rebuilt */
+        DRCStatus = CheckHierarchy(Reporter, new PhaseTimer());
+        if (DRCStatus != DRC_PASSED) {
+          return DRCStatus;
+        }
+      }
+      Reporter.AddInfo(
+          S.fmt("CircuitInfoString", MyCircuit.getName(), NumberOfNets(), NumberOfBusses()));
+      Reporter.AddInfo(S.fmt("DRCPassesString", MyCircuit.getName()));
       return CommonDRCStatus;
     } else {
       /* There are changes, so we clean up the old information */
@@ -362,6 +408,8 @@ public class Netlist implements CircuitListener {
 			 * occurs the status is changed
 			 */
     }
+    int Revision = MyCircuit.getRevision();
+    PhaseTimer Timer = new PhaseTimer();
     /*
      * Check for duplicated sheet names, this is bad as we will have
      * multiple "different" components with the same name
@@ -498,6 +546,7 @@ public class Netlist implements CircuitListener {
     for (int i = 0; i < drc.size(); i++)
       if (drc.get(i).DRCInfoPresent()) Reporter.AddError(drc.get(i));
     drc.clear();
+    Timer.Lap(S.get("DRCPhaseLabels"));
     /* Here we have to quit as the netlist generation needs a clean tree */
     if ((DRCStatus | CommonDRCStatus) != DRC_PASSED) {
       return DRCStatus | CommonDRCStatus;
@@ -507,7 +556,10 @@ public class Netlist implements CircuitListener {
      * the net list
      */
     Reporter.AddInfo(S.fmt("BuildingNetlistFor", MyCircuit.getName()));
-    if (!this.GenerateNetlist(Reporter, HDLIdentifier)) {
+    /* The messages of the netlist checks are kept, to be reported again when it is reused */
+    BufferedReport Warnings = new BufferedReport();
+    if (!this.GenerateNetlist(Warnings, HDLIdentifier)) {
+      Warnings.ReplayTo(Reporter);
       this.clear();
       DRCStatus = DRC_ERROR;
       /*
@@ -516,13 +568,16 @@ public class Netlist implements CircuitListener {
        */
       return DRCStatus | CommonDRCStatus;
     }
-    if (NetlistHasShortCircuits(Reporter)) {
+    Timer.Lap(S.get("DRCPhaseNetlist"));
+    if (NetlistHasShortCircuits(Warnings)) {
+      Warnings.ReplayTo(Reporter);
       clear();
       DRCStatus = DRC_ERROR;
       return DRCStatus | CommonDRCStatus;
     }
     /* Check for connections without a source */
-    NetlistHasSinksWithoutSource(Reporter);
+    NetlistHasSinksWithoutSource(Warnings);
+    Timer.Lap(S.get("DRCPhaseDrivers"));
     /* Check for unconnected input pins on components and generate warnings */
     for (NetlistComponent comp : MyComponents) {
       boolean openInputs = false;
@@ -537,7 +592,7 @@ public class Netlist implements CircuitListener {
                 SimpleDRCContainer.LEVEL_NORMAL,
                 SimpleDRCContainer.MARK_INSTANCE);
         warn.AddMarkComponent(comp.GetComponent());
-        Reporter.AddWarning(warn);
+        Warnings.AddWarning(warn);
       }
     }
     /* Check for unconnected input pins on subcircuits and generate warnings */
@@ -554,32 +609,16 @@ public class Netlist implements CircuitListener {
                 SimpleDRCContainer.LEVEL_SEVERE,
                 SimpleDRCContainer.MARK_INSTANCE);
         warn.AddMarkComponent(comp.GetComponent());
-        Reporter.AddWarning(warn);
+        Warnings.AddWarning(warn);
       }
     }
+    Timer.Lap(S.get("DRCPhaseOpenInputs"));
+    Warnings.ReplayTo(Reporter);
 
     /* Only if we are on the top-level we are going to build the clock-tree */
     if (IsTopLevel) {
-      if (!DetectClockTree(Reporter)) {
-        DRCStatus = DRC_ERROR;
-        return DRCStatus | CommonDRCStatus;
-      }
-      ConstructHierarchyTree(
-          null, new ArrayList<String>(), new Integer(0), new Integer(0), new Integer(0));
-      int ports =
-          NumberOfInputPorts()
-              + NumberOfOutputPorts()
-              + LocalNrOfInportBubles
-              + LocalNrOfOutportBubles
-              + LocalNrOfInOutBubles;
-      if (ports == 0) {
-        Reporter.AddFatalError(S.fmt("TopLevelNoIO", MyCircuit.getName()));
-        DRCStatus = DRC_ERROR;
-        return DRCStatus | CommonDRCStatus;
-      }
-      /* Check for gated clocks */
-      if (!DetectGatedClocks(Reporter)) {
-        DRCStatus = DRC_ERROR;
+      DRCStatus = CheckHierarchy(Reporter, Timer);
+      if (DRCStatus != DRC_PASSED) {
         return DRCStatus | CommonDRCStatus;
       }
     }
@@ -587,10 +626,68 @@ public class Netlist implements CircuitListener {
     Reporter.AddInfo(
         S.fmt("CircuitInfoString", MyCircuit.getName(), NumberOfNets(), NumberOfBusses()));
     Reporter.AddInfo(S.fmt("DRCPassesString", MyCircuit.getName()));
+    Reporter.AddInfo(S.fmt("DRCPhaseTimes", MyCircuit.getName(), Timer.toString()));
     DRCStatus = DRC_PASSED;
+    BuiltRevision = Revision;
+    BuiltHDLIdentifier = HDLIdentifier;
+    BuiltWarnings = Warnings;
+    Generation++;
+    SubGenerations.clear();
+    for (Circuit circ : MySubCircuitMap.keySet()) {
+      SubGenerations.put(circ, circ.getNetList().Generation);
+    }
     return DRCStatus | CommonDRCStatus;
   }
 
+  /*
+   * A netlist that passed the DRC stays valid until its circuit is modified, one of its
+   * sub-circuits is rebuilt or another HDL is checked for, so unchanged parts of a design
+   * are not checked again.
+   */
+  private boolean IsUpToDate(String HDLIdentifier) {
+    if (DRCStatus != DRC_PASSED || BuiltRevision != MyCircuit.getRevision()) {
+      return false;
+    }
+    if (!HDLIdentifier.equals(BuiltHDLIdentifier)) {
+      return false;
+    }
+    if (SubGenerations.size() != MySubCircuitMap.size()) {
+      return false;
+    }
+    for (Circuit circ : MySubCircuitMap.keySet()) {
+      Integer Built = SubGenerations.get(circ);
+      if (Built == null || Built != circ.getNetList().Generation) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private int CheckHierarchy(FPGAReport Reporter, PhaseTimer Timer) {
+    if (!DetectClockTree(Reporter)) {
+      return DRC_ERROR;
+    }
+    ConstructHierarchyTree(
+        null, new ArrayList<String>(), new Integer(0), new Integer(0), new Integer(0));
+    int ports =
+        NumberOfInputPorts()
+            + NumberOfOutputPorts()
+            + LocalNrOfInportBubles
+            + LocalNrOfOutportBubles
+            + LocalNrOfInOutBubles;
+    if (ports == 0) {
+      Reporter.AddFatalError(S.fmt("TopLevelNoIO", MyCircuit.getName()));
+      return DRC_ERROR;
+    }
+    Timer.Lap(S.get("DRCPhaseClockTree"));
+    /* Check for gated clocks */
+    if (!DetectGatedClocks(Reporter)) {
+      return DRC_ERROR;
+    }
+    Timer.Lap(S.get("DRCPhaseGatedClocks"));
+    return DRC_PASSED;
+  }
+
   private boolean DetectClockTree(FPGAReport Reporter) {
     /*
      * First pass, we remove all information of previously detected
@@ -646,6 +743,7 @@ public class Netlist implements CircuitListener {
   }
 
   private Net FindConnectedNet(Location loc) {
+    if (NetAtPoint != null) return NetAtPoint.get(loc);
     for (Net Current : MyNets) {
       if (Current.contains(loc)) {
         return Current;
@@ -687,14 +785,36 @@ public class Netlist implements CircuitListener {
     /*
      * FIRST PASS: In this pass we take all wire segments and see if they
      * are connected to other segments. If they are connected we build a
-     * net.
+     * net. The segments are grouped with a union-find over their end
+     * points, and the nets are numbered in the order of their first
+     * segment.
      */
-    while (wires.size() != 0) {
-      Net NewNet = new Net();
-      GetNet(null, NewNet);
-      if (!NewNet.isEmpty()) {
-        MyNets.add(NewNet);
+    ArrayList<Wire> WireList = new ArrayList<Wire>(wires);
+    wires.clear();
+    int[] Parent = new int[WireList.size()];
+    Map<Location, Integer> FirstWireAt = new HashMap<Location, Integer>();
+    for (int i = 0; i < WireList.size(); i++) {
+      Parent[i] = i;
+      Wire ThisWire = WireList.get(i);
+      for (Location loc : new Location[] {ThisWire.getEnd0(), ThisWire.getEnd1()}) {
+        Integer Other = FirstWireAt.putIfAbsent(loc, i);
+        if (Other != null) {
+          Parent[FindRootWire(Parent, i)] = FindRootWire(Parent, Other);
+        }
+      }
+    }
+    Net[] NetOfRoot = new Net[WireList.size()];
+    for (int i = 0; i < WireList.size(); i++) {
+      int Root = FindRootWire(Parent, i);
+      if (NetOfRoot[Root] == null) {
+        NetOfRoot[Root] = new Net();
+        MyNets.add(NetOfRoot[Root]);
       }
+      NetOfRoot[Root].add(WireList.get(i));
+    }
+    Map<Location, Net> WireNetAt = new HashMap<Location, Net>();
+    for (Map.Entry<Location, Integer> entry : FirstWireAt.entrySet()) {
+      WireNetAt.put(entry.getKey(), NetOfRoot[FindRootWire(Parent, entry.getValue())]);
     }
     /*
      * Here we start to detect direct input-output component connections,
@@ -771,12 +891,9 @@ public class Netlist implements CircuitListener {
         int width = end.getWidth().getWidth();
         Location loc = end.getLocation();
         // Collection<Component> component_verify = MyCircuit.getAllContaining(loc);
-        for (Net ThisNet : MyNets) {
-          if (ThisNet.contains(loc)) {
-            if (!ThisNet.setWidth(width)) {
-              drc.get(1).AddMarkComponents(ThisNet.getWires());
-            }
-          }
+        Net ThisNet = WireNetAt.get(loc);
+        if (ThisNet != null && !ThisNet.setWidth(width)) {
+          drc.get(1).AddMarkComponents(ThisNet.getWires());
         }
       }
     }
@@ -1050,6 +1167,7 @@ public class Netlist implements CircuitListener {
       }
     }
 
+    NumberNets();
     progres.setValue(4);
     ProgRect = progres.getBounds();
     ProgRect.x = 0;
@@ -1072,13 +1190,8 @@ public class Netlist implements CircuitListener {
        */
       List<EndData> ends = com.getEnds();
       EndData CombinedEnd = ends.get(0);
-      int RootNet = -1;
       /* We search for the root net in the list of nets */
-      for (int i = 0; i < MyNets.size() && RootNet < 0; i++) {
-        if (MyNets.get(i).contains(CombinedEnd.getLocation())) {
-          RootNet = i;
-        }
-      }
+      int RootNet = GetNetId(NetAtPoint.get(CombinedEnd.getLocation()));
       if (RootNet < 0) {
         Reporter.AddFatalError(
             "BUG: Splitter without a bus connection\n ==> "
@@ -1199,13 +1312,8 @@ public class Netlist implements CircuitListener {
              */
             List<EndData> ends = comp.getEnds();
             EndData CombinedEnd = ends.get(0);
-            int ConnectedBus = -1;
             /* We search for the root net in the list of nets */
-            for (int i = 0; i < MyNets.size() && ConnectedBus < 0; i++) {
-              if (MyNets.get(i).contains(CombinedEnd.getLocation())) {
-                ConnectedBus = i;
-              }
-            }
+            int ConnectedBus = GetNetId(NetAtPoint.get(CombinedEnd.getLocation()));
             if (ConnectedBus < 0) {
               /*
                * This should never happen as we already checked in
@@ -1341,7 +1449,7 @@ public class Netlist implements CircuitListener {
      * to prevent deadlock situations we check if we already looked at this
      * net
      */
-    String NetId = Integer.toString(MyNets.indexOf(thisNet)) + "-" + Byte.toString(bitIndex);
+    String NetId = Integer.toString(GetNetId(thisNet)) + "-" + Byte.toString(bitIndex);
     if (HandledNets.contains(NetId)) {
       return result;
     } else {
@@ -1451,7 +1559,7 @@ public class Netlist implements CircuitListener {
      * to prevent deadlock situations we check if we already looked at this
      * net
      */
-    String NetId = Integer.toString(MyNets.indexOf(thisNet)) + "-" + Byte.toString(bitIndex);
+    String NetId = Integer.toString(GetNetId(thisNet)) + "-" + Byte.toString(bitIndex);
     if (HandledNets.contains(NetId)) {
       return result;
     } else {
@@ -1631,28 +1739,33 @@ public class Netlist implements CircuitListener {
     return Components;
   }
 
-  private void GetNet(Wire wire, Net ThisNet) {
-    Iterator<Wire> MyIterator = wires.iterator();
-    ArrayList<Wire> MatchedWires = new ArrayList<Wire>();
-    Wire CompWire = wire;
-    while (MyIterator.hasNext()) {
-      Wire ThisWire = MyIterator.next();
-      if (CompWire == null) {
-        CompWire = ThisWire;
-        ThisNet.add(ThisWire);
-        MyIterator.remove();
-      } else if (ThisWire.sharesEnd(CompWire)) {
-        MatchedWires.add(ThisWire);
-        ThisNet.add(ThisWire);
-        MyIterator.remove();
-      }
+  private static int FindRootWire(int[] Parent, int i) {
+    while (Parent[i] != i) {
+      Parent[i] = Parent[Parent[i]];
+      i = Parent[i];
     }
-    for (Wire matched : MatchedWires) GetNet(matched, ThisNet);
-    MatchedWires.clear();
+    return i;
   }
 
   public Integer GetNetId(Net selectedNet) {
-    return MyNets.indexOf(selectedNet);
+    if (NetIds == null) return MyNets.indexOf(selectedNet);
+    Integer Id = NetIds.get(selectedNet);
+    return Id == null ? -1 : Id;
+  }
+
+  /*
+   * Assigns every net its id, being its position in the list of nets, and
+   * records which net each point belongs to. This is done once the list is
+   * final, so that the lookups need not search it.
+   */
+  private void NumberNets() {
+    NetIds = new HashMap<Net, Integer>();
+    NetAtPoint = new HashMap<Location, Net>();
+    for (int i = 0; i < MyNets.size(); i++) {
+      Net ThisNet = MyNets.get(i);
+      NetIds.put(ThisNet, i);
+      for (Location loc : ThisNet.getPoints()) NetAtPoint.putIfAbsent(loc, ThisNet);
+    }
   }
 
   public ConnectionPoint GetNetlistConnectionForSubCircuit(
@@ -1800,7 +1913,7 @@ public class Netlist implements CircuitListener {
      * to prevent deadlock situations we check if we already looked at this
      * net
      */
-    String NetId = Integer.toString(MyNets.indexOf(thisNet)) + "-" + Byte.toString(bitIndex);
+    String NetId = Integer.toString(GetNetId(thisNet)) + "-" + Byte.toString(bitIndex);
     if (HandledNets.contains(NetId)) {
       return null;
     } else {
@@ -1928,7 +2041,7 @@ public class Netlist implements CircuitListener {
      * to prevent deadlock situations we check if we already looked at this
      * net
      */
-    String NetId = Integer.toString(MyNets.indexOf(thisNet)) + "-" + Byte.toString(bitIndex);
+    String NetId = Integer.toString(GetNetId(thisNet)) + "-" + Byte.toString(bitIndex);
     if (HandledNets.contains(NetId)) {
       return false;
     } else {
@@ -0,0 +1,95 @@
+/**
+ * This file is part of logisim-evolution.
+ *
+ * Logisim-evolution is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * Logisim-evolution is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU General Public License along 
+ * with logisim-evolution. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Original code by Carl Burch (http://www.cburch.com), 2011.
+ * Subsequent modifications by:
+ *   + College of the Holy Cross
+ *     http://www.holycross.edu
+ *   + Haute École Spécialisée Bernoise/Berner Fachhochschule
+ *     http://www.bfh.ch
+ *   + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *     http://hepia.hesge.ch/
+ *   + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *     http://www.heig-vd.ch/
+ */
+
+package com.cburch.logisim.fpga.fpgagui;
+
+import java.util.ArrayList;
+import java.util.function.Consumer;
+
+/* Collects messages so they can be handed to a real reporter later, for instance in
+ * generation order from jobs that run on worker threads, or again on a later DRC. */
+public class BufferedReport extends FPGAReport {
+
+  private final ArrayList<Consumer<FPGAReport>> Messages = new ArrayList<Consumer<FPGAReport>>();
+
+  @Override
+  public void AddErrorIncrement(String Message) {
+    Messages.add(r -> r.AddErrorIncrement(Message));
+  }
+
+  @Override
+  public void AddError(Object Message) {
+    Messages.add(r -> r.AddError(Message));
+  }
+
+  @Override
+  public void AddFatalError(String Message) {
+    Messages.add(r -> r.AddFatalError(Message));
+  }
+
+  @Override
+  public void AddSevereError(String Message) {
+    Messages.add(r -> r.AddSevereError(Message));
+  }
+
+  @Override
+  public void AddInfo(String Message) {
+    Messages.add(r -> r.AddInfo(Message));
+  }
+
+  @Override
+  public void AddSevereWarning(String Message) {
+    Messages.add(r -> r.AddSevereWarning(Message));
+  }
+
+  @Override
+  public void AddWarningIncrement(String Message) {
+    Messages.add(r -> r.AddWarningIncrement(Message));
+  }
+
+  @Override
+  public void AddWarning(Object Message) {
+    Messages.add(r -> r.AddWarning(Message));
+  }
+
+  @Override
+  public void ClsScr() {
+    Messages.add(r -> r.ClsScr());
+  }
+
+  @Override
+  public void print(String Message) {
+    Messages.add(r -> r.print(Message));
+  }
+
+  public void ReplayTo(FPGAReport Reporter) {
+    for (Consumer<FPGAReport> Message : Messages) {
+      Message.accept(Reporter);
+    }
+  }
+}
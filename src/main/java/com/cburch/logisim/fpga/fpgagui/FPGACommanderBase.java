@@ -124,7 +124,6 @@ public abstract class FPGACommanderBase {
     if (root == null) {
       DRCResult |= Netlist.DRC_ERROR;
     } else {
-      root.getNetList().clear();
       DRCResult = root.getNetList().DesignRuleCheckResult(MyReporter, HDLType, true, SheetNames);
     }
     return (DRCResult == Netlist.DRC_PASSED);
@@ -155,7 +154,7 @@ public abstract class FPGACommanderBase {
     }
     String ProjectDir = GetProjDir(selectedCircuit);
     Circuit RootSheet = MyProject.getLogisimFile().getCircuit(selectedCircuit);
-    if (!CleanDirectory(ProjectDir)) {
+    if (!CleanProjectDirectory(ProjectDir)) {
       MyReporter.AddFatalError(
           "Unable to cleanup old project files in directory: \"" + ProjectDir + "\"");
       return false;
@@ -331,6 +330,32 @@ public abstract class FPGACommanderBase {
     return Base + HDLPaths[Identifier] + File.separator;
   }
 
+  /* Removes the results of the previous run, except for the HDL sources and their
+   * hashes; the HDL generation decides itself which of those it can reuse. */
+  private boolean CleanProjectDirectory(String dir) {
+    File thisDir = new File(dir);
+    if (!thisDir.exists()) {
+      return true;
+    }
+    Set<String> Keep = new HashSet<String>();
+    Keep.add(HDLPaths[VerilogSourcePath]);
+    Keep.add(HDLPaths[VHDLSourcePath]);
+    Keep.add(FileWriter.HashFileName);
+    for (File theFiles : thisDir.listFiles()) {
+      if (Keep.contains(theFiles.getName())) {
+        continue;
+      }
+      if (theFiles.isDirectory()) {
+        if (!CleanDirectory(theFiles.getPath())) {
+          return false;
+        }
+      } else if (!theFiles.delete()) {
+        return false;
+      }
+    }
+    return true;
+  }
+
   private boolean CleanDirectory(String dir) {
     try {
       File thisDir = new File(dir);
@@ -82,7 +82,26 @@ public class CircuitHDLGeneratorFactory extends AbstractHDLGeneratorFactory {
     if (!WorkPath.endsWith(File.separator)) {
       WorkPath += File.separator;
     }
-    MyNetList.SetCurrentHierarchyLevel(Hierarchy);
+    HDLGenerationPlan Plan = new HDLGenerationPlan(WorkPath, MyNetList, Reporter, HDLType);
+    if (!PlanHDLDescriptions(Plan, HandledComponents, Hierarchy, Reporter, HDLType)) {
+      return false;
+    }
+    return Plan.Execute();
+  }
+
+  /* Walks the hierarchy below this circuit in generation order and adds the entities
+   * that still have to be written to the plan; nothing is generated here. */
+  private boolean PlanHDLDescriptions(
+      HDLGenerationPlan Plan,
+      Set<String> HandledComponents,
+      ArrayList<String> Hierarchy,
+      FPGAReport Reporter,
+      String HDLType) {
+    Netlist MyNetList = MyCircuit.getNetList();
+    if (MyNetList == null) {
+      return false;
+    }
+    Plan.Visit(MyNetList, Hierarchy);
     /* First we handle the normal components */
     for (NetlistComponent ThisComponent : MyNetList.GetNormalComponents()) {
       String ComponentName =
@@ -101,32 +120,11 @@ public class CircuitHDLGeneratorFactory extends AbstractHDLGeneratorFactory {
           return false;
         }
         if (!Worker.IsOnlyInlined(HDLType)) {
-          if (!WriteEntity(
-              WorkPath + Worker.GetRelativeDirectory(HDLType),
-              Worker.GetEntity(
-                  MyNetList,
-                  ThisComponent.GetComponent().getAttributeSet(),
-                  ComponentName,
-                  Reporter,
-                  HDLType),
+          Plan.AddComponent(
               ComponentName,
-              Reporter,
-              HDLType)) {
-            return false;
-          }
-          if (!WriteArchitecture(
-              WorkPath + Worker.GetRelativeDirectory(HDLType),
-              Worker.GetArchitecture(
-                  MyNetList,
-                  ThisComponent.GetComponent().getAttributeSet(),
-                  ComponentName,
-                  Reporter,
-                  HDLType),
-              ComponentName,
-              Reporter,
-              HDLType)) {
-            return false;
-          }
+              Worker,
+              MyNetList,
+              ThisComponent.GetComponent().getAttributeSet());
         }
         HandledComponents.add(ComponentName);
       }
@@ -137,7 +135,7 @@ public class CircuitHDLGeneratorFactory extends AbstractHDLGeneratorFactory {
           ThisCircuit.GetComponent()
               .getFactory()
               .getHDLGenerator(HDLType, ThisCircuit.GetComponent().getAttributeSet());
-      if (Worker == null) {
+      if (!(Worker instanceof CircuitHDLGeneratorFactory)) {
         Reporter.AddFatalError(
             "INTERNAL ERROR: Unable to get a subcircuit VHDL generator for '"
                 + ThisCircuit.GetComponent().getFactory().getName()
@@ -147,8 +145,8 @@ public class CircuitHDLGeneratorFactory extends AbstractHDLGeneratorFactory {
       Hierarchy.add(
           CorrectLabel.getCorrectLabel(
               ThisCircuit.GetComponent().getAttributeSet().getValue(StdAttr.LABEL)));
-      if (!Worker.GenerateAllHDLDescriptions(
-          HandledComponents, WorkingDir, Hierarchy, Reporter, HDLType)) {
+      if (!((CircuitHDLGeneratorFactory) Worker)
+          .PlanHDLDescriptions(Plan, HandledComponents, Hierarchy, Reporter, HDLType)) {
         return false;
       }
       Hierarchy.remove(Hierarchy.size() - 1);
@@ -156,34 +154,10 @@ public class CircuitHDLGeneratorFactory extends AbstractHDLGeneratorFactory {
     /* I also have to generate myself */
     String ComponentName = CorrectLabel.getCorrectLabel(MyCircuit.getName());
     if (!HandledComponents.contains(ComponentName)) {
-      if (!WriteEntity(
-          WorkPath + GetRelativeDirectory(HDLType),
-          GetEntity(MyNetList, null, ComponentName, Reporter, HDLType),
-          ComponentName,
-          Reporter,
-          HDLType)) {
-        return false;
-      }
-
       // is the current circuit an 'empty vhdl box' ?
       String ArchName =
           MyCircuit.getStaticAttributes().getValue(CircuitAttributes.CIRCUIT_VHDL_PATH);
-
-      if (!ArchName.isEmpty()) {
-        if (!FileWriter.CopyArchitecture(
-            ArchName, WorkPath + GetRelativeDirectory(HDLType), ComponentName, Reporter, HDLType)) {
-          return false;
-        }
-      } else {
-        if (!WriteArchitecture(
-            WorkPath + GetRelativeDirectory(HDLType),
-            GetArchitecture(MyNetList, null, ComponentName, Reporter, HDLType),
-            ComponentName,
-            Reporter,
-            HDLType)) {
-          return false;
-        }
-      }
+      Plan.AddCircuit(ComponentName, this, MyNetList, ArchName.isEmpty() ? null : ArchName);
       HandledComponents.add(ComponentName);
     }
     return true;
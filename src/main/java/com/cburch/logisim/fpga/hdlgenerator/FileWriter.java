@@ -238,4 +238,6 @@ public class FileWriter {
   public static final String EntityExtension = "_entity";
 
   public static final String ArchitectureExtension = "_behavior";
+
+  public static final String HashFileName = "hdl_hashes.txt";
 }
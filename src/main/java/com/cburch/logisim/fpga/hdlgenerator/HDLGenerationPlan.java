@@ -0,0 +1,459 @@
+/**
+ * This file is part of logisim-evolution.
+ *
+ * Logisim-evolution is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * Logisim-evolution is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU General Public License along 
+ * with logisim-evolution. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Original code by Carl Burch (http://www.cburch.com), 2011.
+ * Subsequent modifications by:
+ *   + College of the Holy Cross
+ *     http://www.holycross.edu
+ *   + Haute École Spécialisée Bernoise/Berner Fachhochschule
+ *     http://www.bfh.ch
+ *   + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *     http://hepia.hesge.ch/
+ *   + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *     http://www.heig-vd.ch/
+ */
+
+package com.cburch.logisim.fpga.hdlgenerator;
+
+import com.cburch.logisim.Main;
+import com.cburch.logisim.circuit.Circuit;
+import com.cburch.logisim.circuit.SubcircuitFactory;
+import com.cburch.logisim.circuit.Wire;
+import com.cburch.logisim.comp.Component;
+import com.cburch.logisim.data.Attribute;
+import com.cburch.logisim.data.AttributeSet;
+import com.cburch.logisim.data.Location;
+import com.cburch.logisim.fpga.designrulecheck.CorrectLabel;
+import com.cburch.logisim.fpga.designrulecheck.Net;
+import com.cburch.logisim.fpga.designrulecheck.Netlist;
+import com.cburch.logisim.fpga.designrulecheck.NetlistComponent;
+import com.cburch.logisim.fpga.fpgagui.BufferedReport;
+import com.cburch.logisim.fpga.fpgagui.FPGAReport;
+import com.cburch.logisim.std.wiring.Pin;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/*
+ * The HDL files of one download. The circuit hierarchy is walked once, in the same order
+ * as before, to collect one unit per entity name; the units are then generated on a
+ * thread pool and written in walk order.
+ *
+ * Each unit carries a key that covers everything its files are generated from: the
+ * structure and attributes of its circuit, the interfaces of the subcircuits it
+ * instantiates, the clock trees its nets belong to, the clock sources of the design,
+ * the project name, the HDL type and the version of the generator. The keys of the last
+ * successful run are kept in the project directory; a unit whose key did not change and
+ * whose files are still there is not generated again, so editing one leaf circuit only
+ * rewrites the files of that circuit.
+ */
+class HDLGenerationPlan {
+
+  /*
+   * Mixed into every key, so that files written by another release are generated again.
+   * Bump the revision when the generated HDL changes without a new release.
+   */
+  private static final String GENERATOR_VERSION =
+      "hdl-1 " + Main.VERSION_NAME + " " + Main.VERSION_NAME_CAD;
+
+  private static class Unit {
+    String Name;
+    HDLGeneratorFactory Worker;
+    Netlist TheNetlist;
+    AttributeSet Attrs;
+    String Directory;
+    String CopySource;
+    String Key;
+    boolean Reused;
+  }
+
+  private static class Generated {
+    ArrayList<String> Entity;
+    ArrayList<String> Architecture;
+    BufferedReport Report = new BufferedReport();
+  }
+
+  private final String WorkPath;
+  private final FPGAReport Reporter;
+  private final String HDLType;
+  private final String GlobalKey;
+  private final ArrayList<Unit> Units = new ArrayList<Unit>();
+  private final Map<Netlist, ArrayList<String>> FirstLevels =
+      new HashMap<Netlist, ArrayList<String>>();
+  private final Map<Circuit, String> Digests = new HashMap<Circuit, String>();
+
+  public HDLGenerationPlan(String WorkPath, Netlist RootNetlist, FPGAReport Reporter, String HDLType) {
+    this.WorkPath = WorkPath;
+    this.Reporter = Reporter;
+    this.HDLType = HDLType;
+    StringBuilder Global = new StringBuilder();
+    Global.append(HDLType).append('\n').append(RootNetlist.projName()).append('\n');
+    Global.append(RootNetlist.NumberOfClockTrees()).append('\n');
+    Global.append(RootNetlist.RequiresGlobalClockConnection()).append('\n');
+    for (Component Source : RootNetlist.GetAllClockSources()) {
+      AppendComponent(Global, Source);
+    }
+    GlobalKey = Hash(Global.toString());
+  }
+
+  /* Remembers the hierarchy level a netlist is first visited at; that is the level
+   * its entities are generated for, as they were when generation was serial. */
+  public void Visit(Netlist TheNetlist, ArrayList<String> Hierarchy) {
+    if (!FirstLevels.containsKey(TheNetlist)) {
+      FirstLevels.put(TheNetlist, new ArrayList<String>(Hierarchy));
+    }
+    TheNetlist.SetCurrentHierarchyLevel(Hierarchy);
+  }
+
+  public void AddComponent(
+      String Name,
+      HDLGeneratorFactory Worker,
+      Netlist TheNetlist,
+      AttributeSet Attrs) {
+    /* some generators look at the circuit the component is placed in */
+    StringBuilder Key = new StringBuilder();
+    Key.append(GlobalKey).append('\n').append(CircuitDigest(TheNetlist.getCircuit())).append('\n');
+    Key.append(Name).append('\n').append(Worker.getClass().getName()).append('\n');
+    AppendAttributes(Key, Attrs);
+    Add(Name, Worker, TheNetlist, Attrs, null, Hash(Key.toString()));
+  }
+
+  public void AddCircuit(
+      String Name, CircuitHDLGeneratorFactory Worker, Netlist TheNetlist, String CopySource) {
+    StringBuilder Key = new StringBuilder();
+    Key.append(GlobalKey).append('\n').append(CircuitDigest(TheNetlist.getCircuit())).append('\n');
+    Key.append(Name).append('\n');
+    ArrayList<String> Parts = new ArrayList<String>();
+    for (NetlistComponent Sub : TheNetlist.GetSubCircuits()) {
+      SubcircuitFactory SubFactory = (SubcircuitFactory) Sub.GetComponent().getFactory();
+      Parts.add(InterfaceDigest(SubFactory.getSubcircuit()));
+    }
+    /* The clock trees a circuit connects to are decided by the circuits above it;
+     * the nets are named by a point as their numbers change between runs. */
+    ArrayList<String> Level = FirstLevels.get(TheNetlist);
+    for (Net ThisNet : TheNetlist.GetAllNets()) {
+      Location Point = Collections.min(ThisNet.getPoints());
+      for (int Bit = 0; Bit < ThisNet.BitWidth(); Bit++) {
+        int Id = TheNetlist.GetClockSourceId(Level, ThisNet, (byte) Bit);
+        if (Id >= 0) {
+          Parts.add("net " + Point + "." + Bit + "=" + Id);
+        }
+      }
+    }
+    for (NetlistComponent Clock : TheNetlist.GetClockSources()) {
+      Component Comp = Clock.GetComponent();
+      Parts.add("clock " + Comp.getLocation() + "=" + TheNetlist.GetClockSourceId(Comp));
+    }
+    Collections.sort(Parts);
+    for (String Part : Parts) {
+      Key.append(Part).append('\n');
+    }
+    if (CopySource != null) {
+      File Source = new File(CopySource);
+      Key.append(CopySource).append(' ').append(Source.lastModified());
+      Key.append(' ').append(Source.length()).append('\n');
+    }
+    Add(Name, Worker, TheNetlist, null, CopySource, Hash(Key.toString()));
+  }
+
+  private void Add(
+      String Name,
+      HDLGeneratorFactory Worker,
+      Netlist TheNetlist,
+      AttributeSet Attrs,
+      String CopySource,
+      String Key) {
+    Unit NewUnit = new Unit();
+    NewUnit.Name = Name;
+    NewUnit.Worker = Worker;
+    NewUnit.TheNetlist = TheNetlist;
+    NewUnit.Attrs = Attrs;
+    NewUnit.Directory = WorkPath + Worker.GetRelativeDirectory(HDLType);
+    NewUnit.CopySource = CopySource;
+    NewUnit.Key = Key;
+    Units.add(NewUnit);
+  }
+
+  public boolean Execute() {
+    File KeyFile = new File(WorkPath + FileWriter.HashFileName);
+    Map<String, String> OldKeys = ReadKeys(KeyFile);
+    /* the keys are only written back once every file has been written */
+    if (KeyFile.exists() && !KeyFile.delete()) {
+      Reporter.AddFatalError("Unable to remove \"" + KeyFile.getPath() + "\"");
+      return false;
+    }
+    Set<String> KeepFiles = new HashSet<String>();
+    ArrayList<Unit> Pending = new ArrayList<Unit>();
+    for (Unit ThisUnit : Units) {
+      List<File> Files = FilesOf(ThisUnit);
+      boolean Present = true;
+      for (File ThisFile : Files) {
+        Present &= ThisFile.isFile();
+      }
+      ThisUnit.Reused = Present && ThisUnit.Key.equals(OldKeys.get(ThisUnit.Name));
+      if (ThisUnit.Reused) {
+        for (File ThisFile : Files) {
+          KeepFiles.add(ThisFile.getAbsolutePath());
+        }
+      } else {
+        Pending.add(ThisUnit);
+      }
+    }
+    if (!Sweep(new File(WorkPath + HDLGeneratorFactory.VHDL.toLowerCase()), KeepFiles)
+        || !Sweep(new File(WorkPath + HDLGeneratorFactory.VERILOG.toLowerCase()), KeepFiles)) {
+      return false;
+    }
+    for (Map.Entry<Netlist, ArrayList<String>> Level : FirstLevels.entrySet()) {
+      Level.getKey().SetCurrentHierarchyLevel(Level.getValue());
+    }
+    ArrayList<Future<Generated>> Results = new ArrayList<Future<Generated>>();
+    int Threads = Math.min(Pending.size(), Runtime.getRuntime().availableProcessors());
+    ExecutorService Pool = Executors.newFixedThreadPool(Math.max(1, Threads));
+    try {
+      for (Unit ThisUnit : Pending) {
+        Results.add(Pool.submit(Generate(ThisUnit)));
+      }
+      for (int i = 0; i < Pending.size(); i++) {
+        Unit ThisUnit = Pending.get(i);
+        Generated Result;
+        try {
+          Result = Results.get(i).get();
+        } catch (ExecutionException e) {
+          Reporter.AddFatalError(
+              "INTERNAL ERROR: HDL generation of '" + ThisUnit.Name + "' failed: " + e.getCause());
+          return false;
+        } catch (InterruptedException e) {
+          Reporter.AddFatalError("HDL generation interrupted");
+          return false;
+        }
+        Result.Report.ReplayTo(Reporter);
+        if (!Write(ThisUnit, Result)) {
+          return false;
+        }
+      }
+    } finally {
+      Pool.shutdownNow();
+    }
+    if (Pending.size() < Units.size()) {
+      Reporter.AddInfo(
+          "Reused the HDL files of "
+              + (Units.size() - Pending.size())
+              + " of "
+              + Units.size()
+              + " unchanged entities");
+    }
+    return WriteKeys(KeyFile);
+  }
+
+  private Callable<Generated> Generate(Unit ThisUnit) {
+    return () -> {
+      Generated Result = new Generated();
+      Result.Entity =
+          ThisUnit.Worker.GetEntity(
+              ThisUnit.TheNetlist, ThisUnit.Attrs, ThisUnit.Name, Result.Report, HDLType);
+      if (ThisUnit.CopySource == null) {
+        Result.Architecture =
+            ThisUnit.Worker.GetArchitecture(
+                ThisUnit.TheNetlist, ThisUnit.Attrs, ThisUnit.Name, Result.Report, HDLType);
+      }
+      return Result;
+    };
+  }
+
+  private boolean Write(Unit ThisUnit, Generated Result) {
+    if (!AbstractHDLGeneratorFactory.WriteEntity(
+        ThisUnit.Directory, Result.Entity, ThisUnit.Name, Reporter, HDLType)) {
+      return false;
+    }
+    if (ThisUnit.CopySource != null) {
+      return FileWriter.CopyArchitecture(
+          ThisUnit.CopySource, ThisUnit.Directory, ThisUnit.Name, Reporter, HDLType);
+    }
+    return AbstractHDLGeneratorFactory.WriteArchitecture(
+        ThisUnit.Directory, Result.Architecture, ThisUnit.Name, Reporter, HDLType);
+  }
+
+  private List<File> FilesOf(Unit ThisUnit) {
+    ArrayList<File> Files = new ArrayList<File>();
+    String Base = ThisUnit.Directory;
+    if (!Base.endsWith(File.separator)) {
+      Base += File.separator;
+    }
+    Base += ThisUnit.Name;
+    if (HDLType.equals(HDLGeneratorFactory.VHDL)) {
+      Files.add(new File(Base + FileWriter.EntityExtension + ".vhd"));
+      Files.add(new File(Base + FileWriter.ArchitectureExtension + ".vhd"));
+    } else {
+      Files.add(new File(Base + ".v"));
+    }
+    return Files;
+  }
+
+  /* Removes every HDL file that does not belong to a reused unit, which also takes care
+   * of entities that are no longer part of the design. */
+  private boolean Sweep(File Dir, Set<String> KeepFiles) {
+    File[] Files = Dir.listFiles();
+    if (Files == null) {
+      return true;
+    }
+    for (File ThisFile : Files) {
+      if (ThisFile.isDirectory()) {
+        if (!Sweep(ThisFile, KeepFiles)) {
+          return false;
+        }
+      } else if (!KeepFiles.contains(ThisFile.getAbsolutePath()) && !ThisFile.delete()) {
+        Reporter.AddFatalError("Unable to remove old HDL file \"" + ThisFile.getPath() + "\"");
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private Map<String, String> ReadKeys(File KeyFile) {
+    Map<String, String> Keys = new HashMap<String, String>();
+    if (!KeyFile.isFile()) {
+      return Keys;
+    }
+    try (BufferedReader Reader =
+        Files.newBufferedReader(KeyFile.toPath(), StandardCharsets.UTF_8)) {
+      String Line;
+      while ((Line = Reader.readLine()) != null) {
+        int Split = Line.indexOf(' ');
+        if (Split > 0) {
+          Keys.put(Line.substring(Split + 1), Line.substring(0, Split));
+        }
+      }
+    } catch (IOException e) {
+      Keys.clear();
+    }
+    return Keys;
+  }
+
+  private boolean WriteKeys(File KeyFile) {
+    try (PrintWriter Writer =
+        new PrintWriter(Files.newBufferedWriter(KeyFile.toPath(), StandardCharsets.UTF_8))) {
+      for (Unit ThisUnit : Units) {
+        Writer.print(ThisUnit.Key + " " + ThisUnit.Name + "\n");
+      }
+      return !Writer.checkError();
+    } catch (IOException e) {
+      Reporter.AddFatalError("Could not write to file \"" + KeyFile.getAbsolutePath() + "\"");
+      return false;
+    }
+  }
+
+  private String CircuitDigest(Circuit TheCircuit) {
+    String Digest = Digests.get(TheCircuit);
+    if (Digest == null) {
+      ArrayList<String> Parts = new ArrayList<String>();
+      for (Component Comp : TheCircuit.getNonWires()) {
+        StringBuilder Part = new StringBuilder();
+        AppendComponent(Part, Comp);
+        Parts.add(Part.toString());
+      }
+      for (Wire ThisWire : TheCircuit.getWires()) {
+        Parts.add(ThisWire.getEnd0() + "-" + ThisWire.getEnd1());
+      }
+      /* the component sets are not ordered, their contents are */
+      Collections.sort(Parts);
+      StringBuilder All = new StringBuilder();
+      AppendAttributes(All, TheCircuit.getStaticAttributes());
+      for (String Part : Parts) {
+        All.append(Part).append('\n');
+      }
+      Digest = Hash(All.toString());
+      Digests.put(TheCircuit, Digest);
+    }
+    return Digest;
+  }
+
+  /* What a parent needs of a subcircuit to instantiate it: its pins and bubbles. */
+  private String InterfaceDigest(Circuit TheCircuit) {
+    ArrayList<String> Parts = new ArrayList<String>();
+    for (Component Comp : TheCircuit.getNonWires()) {
+      if (Comp.getFactory() instanceof Pin) {
+        StringBuilder Part = new StringBuilder();
+        AppendComponent(Part, Comp);
+        Parts.add(Part.toString());
+      }
+    }
+    Collections.sort(Parts);
+    Netlist SubNetlist = TheCircuit.getNetList();
+    StringBuilder All = new StringBuilder();
+    All.append(CorrectLabel.getCorrectLabel(TheCircuit.getName())).append('\n');
+    All.append(SubNetlist.NumberOfInputBubbles()).append(' ');
+    All.append(SubNetlist.NumberOfOutputBubbles()).append(' ');
+    All.append(SubNetlist.NumberOfInOutBubbles()).append('\n');
+    for (String Part : Parts) {
+      All.append(Part).append('\n');
+    }
+    return Hash(All.toString());
+  }
+
+  private static void AppendComponent(StringBuilder Target, Component Comp) {
+    Target.append(Comp.getFactory().getName()).append(' ').append(Comp.getLocation()).append(' ');
+    AppendAttributes(Target, Comp.getAttributeSet());
+  }
+
+  @SuppressWarnings("unchecked")
+  private static void AppendAttributes(StringBuilder Target, AttributeSet Attrs) {
+    if (Attrs == null) {
+      return;
+    }
+    for (Attribute<?> Attr : Attrs.getAttributes()) {
+      Object Value = Attrs.getValue(Attr);
+      Target.append(Attr.getName()).append('=');
+      if (Value != null) {
+        Target.append(((Attribute<Object>) Attr).toStandardString(Value));
+      }
+      Target.append(';');
+    }
+  }
+
+  private static String Hash(String Contents) {
+    try {
+      MessageDigest Digest = MessageDigest.getInstance("SHA-256");
+      Digest.update(GENERATOR_VERSION.getBytes(StandardCharsets.UTF_8));
+      Digest.update((byte) '\n');
+      byte[] Bytes = Digest.digest(Contents.getBytes(StandardCharsets.UTF_8));
+      StringBuilder Hex = new StringBuilder();
+      for (byte b : Bytes) {
+        Hex.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+      }
+      return Hex.toString();
+    } catch (NoSuchAlgorithmException e) {
+      /* every Java platform provides SHA-256 */
+      throw new IllegalStateException(e);
+    }
+  }
+}
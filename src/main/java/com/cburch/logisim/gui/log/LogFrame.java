@@ -50,6 +50,7 @@ import java.awt.event.KeyListener;
 import java.awt.event.KeyEvent;
 import java.awt.Container;
 import java.awt.Dimension;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
 import javax.swing.JFrame;
@@ -181,6 +182,14 @@ public class LogFrame extends LFrame implements KeyListener{
     return curModel;
   }
 
+  /** Drops the models of the circuit states, which the project no longer simulates. */
+  public void disposeModels(Collection<CircuitState> states) {
+    for (CircuitState state : states) {
+      Model model = modelMap.remove(state);
+      if (model != null) model.dispose();
+    }
+  }
+
   LogPanel[] getPrefPanels() {
     return panels;
   }
@@ -40,6 +40,8 @@ public class Model {
   private EventSourceWeakSupport<ModelListener> listeners;
   private Selection selection;
   private HashMap<SelectionItem, ValueLog> log;
+  private ValueLogFile logFile = new ValueLogFile();
+  private Value[] current = new Value[0];
   private boolean fileEnabled = false;
   private File file = null;
   private boolean fileHeader = true;
@@ -69,10 +71,12 @@ public class Model {
   }
 
   void fireSelectionChanged(ModelEvent e) {
-    for (Iterator<SelectionItem> it = log.keySet().iterator(); it.hasNext(); ) {
-      SelectionItem i = it.next();
-      if (selection.indexOf(i) < 0) {
-        it.remove();
+    synchronized (log) {
+      for (Iterator<SelectionItem> it = log.keySet().iterator(); it.hasNext(); ) {
+        SelectionItem i = it.next();
+        if (selection.indexOf(i) < 0) {
+          it.remove();
+        }
       }
     }
 
@@ -97,15 +101,31 @@ public class Model {
     return selection;
   }
 
-  public ValueLog getValueLog(SelectionItem item) {
-    ValueLog ret = log.get(item);
-    if (ret == null && selection.indexOf(item) >= 0) {
-      ret = new ValueLog();
-      log.put(item, ret);
+  /** Returns the number of bytes the logged values take in memory. */
+  public long getLogMemoryUsage() {
+    long ret = 0;
+    synchronized (log) {
+      for (ValueLog l : log.values()) ret += l.getMemoryUsage();
     }
     return ret;
   }
 
+  /** Returns the number of bytes of old logged values written to disk. */
+  public long getLogFileUsage() {
+    return logFile.getLength();
+  }
+
+  public ValueLog getValueLog(SelectionItem item) {
+    synchronized (log) {
+      ValueLog ret = log.get(item);
+      if (ret == null && selection.indexOf(item) >= 0) {
+        ret = new ValueLog(logFile);
+        log.put(item, ret);
+      }
+      return ret;
+    }
+  }
+
   public boolean isFileEnabled() {
     return fileEnabled;
   }
@@ -116,7 +136,10 @@ public class Model {
 
   public void propagationCompleted() {
     CircuitState circuitState = getCircuitState();
-    Value[] vals = new Value[selection.size()];
+    // the values are fetched into a reused array, which is only copied
+    // when they differ from the last entry
+    if (current.length != selection.size()) current = new Value[selection.size()];
+    Value[] vals = current;
     boolean changed = false;
     for (int i = selection.size() - 1; i >= 0; i--) {
       SelectionItem item = selection.get(i);
@@ -131,10 +154,17 @@ public class Model {
         SelectionItem item = selection.get(i);
         getValueLog(item).append(vals[i]);
       }
-      fireEntryAdded(new ModelEvent(), vals);
+      fireEntryAdded(new ModelEvent(), vals.clone());
     }
   }
 
+  /** Stops logging and releases the log file, once the circuit state is dropped. */
+  public void dispose() {
+    if (logger != null) logger.cancel();
+    logger = null;
+    logFile.close();
+  }
+
   public void removeModelListener(ModelListener l) {
     listeners.remove(l);
   }
@@ -28,12 +28,29 @@
 
 package com.cburch.logisim.gui.log;
 
+import static com.cburch.logisim.gui.Strings.S;
+
 import java.awt.BorderLayout;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import javax.swing.JLabel;
 import javax.swing.JScrollPane;
+import javax.swing.Timer;
 
 class ScrollPanel extends LogPanel {
+  private class Updater implements ActionListener {
+    public void actionPerformed(ActionEvent event) {
+      table.updateRows();
+      updateUsage();
+    }
+  }
+
   private static final long serialVersionUID = 1L;
+  private static final int UPDATE_PERIOD = 1000;
+
   private TablePanel table;
+  private JLabel usage = new JLabel();
+  private Timer updateTimer = new Timer(UPDATE_PERIOD, new Updater());
 
   public ScrollPanel(LogFrame frame) {
     super(frame);
@@ -46,6 +63,31 @@ class ScrollPanel extends LogPanel {
     pane.setVerticalScrollBar(table.getVerticalScrollBar());
     setLayout(new BorderLayout());
     add(pane);
+    add(usage, BorderLayout.SOUTH);
+    updateUsage();
+  }
+
+  @Override
+  public void addNotify() {
+    super.addNotify();
+    updateTimer.start();
+  }
+
+  @Override
+  public void removeNotify() {
+    updateTimer.stop();
+    super.removeNotify();
+  }
+
+  private void updateUsage() {
+    Model model = getModel();
+    if (model == null) return;
+    String text =
+        S.fmt(
+            "tableMemoryUsage",
+            Long.toString((model.getLogMemoryUsage() + 1023) / 1024),
+            Long.toString((model.getLogFileUsage() + 1023) / 1024));
+    if (!text.equals(usage.getText())) usage.setText(text);
   }
 
   @Override
@@ -61,10 +103,12 @@ class ScrollPanel extends LogPanel {
   @Override
   public void localeChanged() {
     table.localeChanged();
+    updateUsage();
   }
 
   @Override
   public void modelChanged(Model oldModel, Model newModel) {
     table.modelChanged(oldModel, newModel);
+    updateUsage();
   }
 }
@@ -63,16 +63,8 @@ class TablePanel extends LogPanel {
     }
 
     public void entryAdded(ModelEvent event, Value[] values) {
-      int oldCount = rowCount;
-      computeRowCount();
-      if (oldCount == rowCount) {
-        int value = vsb.getValue();
-        if (value > vsb.getMinimum() && value < vsb.getMaximum() - vsb.getVisibleAmount()) {
-          vsb.setValue(vsb.getValue() - vsb.getUnitIncrement(-1));
-        } else {
-          repaint();
-        }
-      }
+      // the table catches up in updateRows, as entries come at every propagation
+      entriesAdded = true;
     }
 
     public void filePropertyChanged(ModelEvent event) {}
@@ -141,6 +133,7 @@ class TablePanel extends LogPanel {
   private int cellWidth = 25; // reasonable start values
   private int cellHeight = 15;
   private int rowCount = 0;
+  private volatile boolean entriesAdded = false;
   private int tableWidth;
   private int tableHeight;
   private VerticalScrollBar vsb;
@@ -181,6 +174,17 @@ class TablePanel extends LogPanel {
     repaint();
   }
 
+  /**
+   * Grows the table by the entries added since the last call. A table that
+   * showed its last row keeps showing it, as the scroll bar follows a growing
+   * maximum when it was at the end.
+   */
+  void updateRows() {
+    if (!entriesAdded || getModel() == null) return;
+    entriesAdded = false;
+    myListener.computeRowCount();
+  }
+
   public int getColumn(MouseEvent event) {
     int x = event.getX() - (getWidth() - tableWidth) / 2;
     if (x < 0) return -1;
@@ -273,9 +277,11 @@ class TablePanel extends LogPanel {
       y = y0 + Math.max(offs, firstRow) * cellHeight;
       for (int row = Math.max(offs, firstRow); row < lastRow; row++) {
         Value val = log.get(row - offs);
-        String label = val.toDisplayString(radix);
-        int width = bodyMetric.stringWidth(label);
-        g.drawString(label, x + (cellWidth - width) / 2, y + bodyMetric.getAscent());
+        if (val != null) {
+          String label = val.toDisplayString(radix);
+          int width = bodyMetric.stringWidth(label);
+          g.drawString(label, x + (cellWidth - width) / 2, y + bodyMetric.getAscent());
+        }
         y += cellHeight;
       }
       x += cellWidth + COLUMN_SEP;
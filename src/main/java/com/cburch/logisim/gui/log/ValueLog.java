@@ -28,45 +28,268 @@
 
 package com.cburch.logisim.gui.log;
 
+import com.cburch.logisim.data.BitWidth;
 import com.cburch.logisim.data.Value;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Objects;
 
+/**
+ * The history of one logged signal. The entries are split into chunks of
+ * CHUNK_SIZE entries, and each chunk stores runs of equal values as columns of
+ * primitive words, so an entry is found through its chunk and a binary search
+ * over the runs. When more than MEMORY_CHUNKS full chunks are in memory, the
+ * oldest ones are written delta encoded to the model's temporary file and read
+ * back when they are looked at.
+ */
 class ValueLog {
-  private static final int LOG_SIZE = 400;
+  private static class Chunk {
+    private static final int INITIAL_RUNS = 16;
+
+    private int runs = 0;
+    private int[] starts; // index in the chunk of the first entry of each run
+    private byte[] widths;
+    private long[] values;
+    private long[] unknowns;
+    private long[] errors;
+    private long offset = -1; // location in the file, once spilled
+    private int length;
+
+    Chunk(int capacity) {
+      starts = new int[capacity];
+      widths = new byte[capacity];
+      values = new long[capacity];
+      unknowns = new long[capacity];
+      errors = new long[capacity];
+    }
 
-  private Value[] log;
-  private short curSize;
-  private short firstIndex;
+    void add(int start, Value val) {
+      if (runs == starts.length) resize(2 * runs);
+      starts[runs] = start;
+      if (val == null) {
+        widths[runs] = NULL_WIDTH;
+      } else {
+        int width = val.getWidth();
+        long value = 0;
+        long unknown = 0;
+        long error = 0;
+        if (val.isFullyDefined()) {
+          value = val.toLongValue();
+        } else if (val.isUnknown()) {
+          unknown = width == 64 ? -1L : ~(-1L << width);
+        } else {
+          for (int i = 0; i < width; i++) {
+            Value bit = val.get(i);
+            if (bit == Value.TRUE) value |= 1L << i;
+            else if (bit == Value.UNKNOWN) unknown |= 1L << i;
+            else if (bit == Value.ERROR) error |= 1L << i;
+          }
+        }
+        widths[runs] = (byte) width;
+        values[runs] = value;
+        unknowns[runs] = unknown;
+        errors[runs] = error;
+      }
+      runs++;
+    }
+
+    void resize(int capacity) {
+      starts = Arrays.copyOf(starts, capacity);
+      widths = Arrays.copyOf(widths, capacity);
+      values = Arrays.copyOf(values, capacity);
+      unknowns = Arrays.copyOf(unknowns, capacity);
+      errors = Arrays.copyOf(errors, capacity);
+    }
+
+    Value get(int index) {
+      int lo = 0;
+      int hi = runs - 1;
+      while (lo < hi) {
+        int mid = (lo + hi + 1) >>> 1;
+        if (starts[mid] <= index) lo = mid;
+        else hi = mid - 1;
+      }
+      return toValue(widths[lo], values[lo], unknowns[lo], errors[lo]);
+    }
 
-  public ValueLog() {
-    log = new Value[LOG_SIZE];
-    curSize = 0;
-    firstIndex = 0;
+    boolean isLoaded() {
+      return starts != null;
+    }
+
+    long getMemoryUsage() {
+      return starts == null ? 0 : starts.length * (4L + 1L + 3 * 8L);
+    }
+
+    byte[] encode() {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      DataOutputStream out = new DataOutputStream(bytes);
+      try {
+        writeVarLong(out, runs);
+        long value = 0;
+        long unknown = 0;
+        long error = 0;
+        int start = 0;
+        for (int i = 0; i < runs; i++) {
+          writeVarLong(out, starts[i] - start);
+          out.writeByte(widths[i]);
+          writeVarLong(out, values[i] ^ value);
+          writeVarLong(out, unknowns[i] ^ unknown);
+          writeVarLong(out, errors[i] ^ error);
+          start = starts[i];
+          value = values[i];
+          unknown = unknowns[i];
+          error = errors[i];
+        }
+      } catch (IOException e) {
+        // cannot happen when writing to memory
+      }
+      return bytes.toByteArray();
+    }
+
+    static Chunk decode(byte[] data) throws IOException {
+      DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+      int runs = (int) readVarLong(in);
+      Chunk ret = new Chunk(runs);
+      long value = 0;
+      long unknown = 0;
+      long error = 0;
+      int start = 0;
+      for (int i = 0; i < runs; i++) {
+        start += (int) readVarLong(in);
+        ret.starts[i] = start;
+        ret.widths[i] = in.readByte();
+        ret.values[i] = value ^= readVarLong(in);
+        ret.unknowns[i] = unknown ^= readVarLong(in);
+        ret.errors[i] = error ^= readVarLong(in);
+      }
+      ret.runs = runs;
+      return ret;
+    }
   }
 
-  public void append(Value val) {
-    if (curSize < LOG_SIZE) {
-      log[curSize] = val;
-      curSize++;
+  static final int CHUNK_SIZE = 4096;
+  static final int MEMORY_CHUNKS = 8;
+  private static final byte NULL_WIDTH = -1;
+
+  private static Value toValue(byte width, long value, long unknown, long error) {
+    if (width == NULL_WIDTH) return null;
+    if (error == 0 && unknown == 0) return Value.createKnown(width, value);
+    long mask = width == 64 ? -1L : ~(-1L << width);
+    if (error == 0 && unknown == mask) return Value.createUnknown(BitWidth.create(width));
+    if (error == mask) return Value.createError(BitWidth.create(width));
+    Value[] bits = new Value[width];
+    for (int i = 0; i < width; i++) {
+      long bit = 1L << i;
+      if ((error & bit) != 0) bits[i] = Value.ERROR;
+      else if ((unknown & bit) != 0) bits[i] = Value.UNKNOWN;
+      else bits[i] = (value & bit) != 0 ? Value.TRUE : Value.FALSE;
+    }
+    return Value.create(bits);
+  }
+
+  private static void writeVarLong(DataOutputStream out, long v) throws IOException {
+    while ((v & ~0x7fL) != 0) {
+      out.writeByte((int) (v & 0x7f) | 0x80);
+      v >>>= 7;
+    }
+    out.writeByte((int) v);
+  }
+
+  private static long readVarLong(DataInputStream in) throws IOException {
+    long ret = 0;
+    for (int shift = 0; ; shift += 7) {
+      int b = in.readUnsignedByte();
+      ret |= (long) (b & 0x7f) << shift;
+      if ((b & 0x80) == 0) return ret;
+    }
+  }
+
+  private final ValueLogFile file;
+  private final ArrayList<Chunk> chunks = new ArrayList<Chunk>();
+  private int size = 0;
+  private int firstLoaded = 0; // the oldest full chunk not yet spilled
+  private Value last = null;
+  private Chunk cached = null; // the spilled chunk read back last
+  private int cachedIndex = -1;
+
+  public ValueLog(ValueLogFile file) {
+    this.file = file;
+  }
+
+  public synchronized void append(Value val) {
+    int pos = size % CHUNK_SIZE;
+    Chunk cur;
+    if (pos == 0) {
+      if (size > 0) seal(chunks.get(chunks.size() - 1));
+      cur = new Chunk(Chunk.INITIAL_RUNS);
+      chunks.add(cur);
     } else {
-      log[firstIndex] = val;
-      firstIndex++;
-      if (firstIndex >= LOG_SIZE) firstIndex = 0;
+      cur = chunks.get(chunks.size() - 1);
     }
+    if (pos == 0 || !Objects.equals(val, last)) cur.add(pos, val);
+    last = val;
+    size++;
   }
 
-  public Value get(int index) {
-    int i = firstIndex + index;
-    if (i >= LOG_SIZE) i -= LOG_SIZE;
-    return log[i];
+  private void seal(Chunk chunk) {
+    if (chunk.runs < chunk.starts.length) chunk.resize(chunk.runs);
+    if (file == null) return;
+    while (chunks.size() - firstLoaded > MEMORY_CHUNKS) {
+      Chunk old = chunks.get(firstLoaded);
+      byte[] data = old.encode();
+      long offset = file.write(data, data.length);
+      if (offset < 0) return;
+      old.offset = offset;
+      old.length = data.length;
+      old.starts = null;
+      old.widths = null;
+      old.values = null;
+      old.unknowns = null;
+      old.errors = null;
+      firstLoaded++;
+    }
   }
 
-  public Value getLast() {
-    return curSize < LOG_SIZE
-        ? (curSize == 0 ? null : log[curSize - 1])
-        : (firstIndex == 0 ? log[curSize - 1] : log[firstIndex - 1]);
+  /**
+   * Returns the entry at the given index, counted from the first entry, or
+   * null if it was spilled and cannot be read back.
+   */
+  public synchronized Value get(int index) {
+    int which = index / CHUNK_SIZE;
+    Chunk chunk = chunks.get(which);
+    if (!chunk.isLoaded()) {
+      if (cachedIndex != which) {
+        try {
+          cached = Chunk.decode(file.read(chunk.offset, chunk.length));
+          cachedIndex = which;
+        } catch (IOException e) {
+          return null;
+        }
+      }
+      chunk = cached;
+    }
+    return chunk.get(index % CHUNK_SIZE);
+  }
+
+  public synchronized Value getLast() {
+    return last;
+  }
+
+  /** Returns the number of bytes taken by the entries kept in memory. */
+  public synchronized long getMemoryUsage() {
+    long ret = cachedIndex < 0 ? 0 : cached.getMemoryUsage();
+    for (int i = firstLoaded; i < chunks.size(); i++) {
+      ret += chunks.get(i).getMemoryUsage();
+    }
+    return ret;
   }
 
-  public int size() {
-    return curSize;
+  public synchronized int size() {
+    return size;
   }
 }
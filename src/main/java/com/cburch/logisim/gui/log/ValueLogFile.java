@@ -0,0 +1,98 @@
+/**
+ * This file is part of logisim-evolution.
+ *
+ * Logisim-evolution is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * Logisim-evolution is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU General Public License along 
+ * with logisim-evolution. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Original code by Carl Burch (http://www.cburch.com), 2011.
+ * Subsequent modifications by:
+ *   + College of the Holy Cross
+ *     http://www.holycross.edu
+ *   + Haute École Spécialisée Bernoise/Berner Fachhochschule
+ *     http://www.bfh.ch
+ *   + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *     http://hepia.hesge.ch/
+ *   + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *     http://www.heig-vd.ch/
+ */
+
+package com.cburch.logisim.gui.log;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+/**
+ * Temporary file holding the old chunks of the value logs of one model. It is
+ * only created once the first chunk is spilled, and chunks of logs that are
+ * dropped stay in the file until it is closed.
+ */
+class ValueLogFile {
+  private File tmp = null;
+  private RandomAccessFile file = null;
+  private long length = 0;
+  private boolean failed = false;
+
+  /**
+   * Appends the bytes to the file and returns their offset, or -1 if the file
+   * cannot be used, in which case the caller keeps the data in memory.
+   */
+  public synchronized long write(byte[] data, int len) {
+    if (failed) return -1;
+    try {
+      if (file == null) {
+        tmp = File.createTempFile("logisim-log", ".bin");
+        tmp.deleteOnExit();
+        file = new RandomAccessFile(tmp, "rw");
+      }
+      long offset = length;
+      file.seek(offset);
+      file.write(data, 0, len);
+      length += len;
+      return offset;
+    } catch (IOException e) {
+      failed = true;
+      return -1;
+    }
+  }
+
+  public synchronized byte[] read(long offset, int len) throws IOException {
+    if (file == null) throw new IOException("log file closed");
+    byte[] ret = new byte[len];
+    file.seek(offset);
+    file.readFully(ret);
+    return ret;
+  }
+
+  public synchronized long getLength() {
+    return length;
+  }
+
+  /**
+   * Closes and deletes the file. The logs using it keep what is in memory,
+   * and later chunks stay in memory too.
+   */
+  public synchronized void close() {
+    failed = true;
+    length = 0;
+    if (file == null) return;
+    try {
+      file.close();
+    } catch (IOException e) {
+      // the file is deleted anyway
+    }
+    file = null;
+    tmp.delete();
+    tmp = null;
+  }
+}
@@ -40,14 +40,18 @@ import com.cburch.logisim.prefs.AppPreferences;
 import com.cburch.logisim.util.TableLayout;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.awt.event.FocusEvent;
+import java.awt.event.FocusListener;
+import java.util.ArrayList;
 import javax.swing.ComboBoxModel;
 import javax.swing.JCheckBox;
 import javax.swing.JComboBox;
 import javax.swing.JLabel;
 import javax.swing.JPanel;
+import javax.swing.JTextField;
 
 class SimulateOptions extends OptionsPanel {
-  private class MyListener implements ActionListener, AttributeListener {
+  private class MyListener implements ActionListener, AttributeListener, FocusListener {
     public void actionPerformed(ActionEvent event) {
       Object source = event.getSource();
       if (source == simLimit) {
@@ -56,10 +60,20 @@ class SimulateOptions extends OptionsPanel {
           AttributeSet attrs = getOptions().getAttributeSet();
           getProject().doAction(OptionsActions.setAttribute(attrs, Options.ATTR_SIM_LIMIT, opt));
         }
+      } else if (source == simThreads) {
+        Integer opt = (Integer) simThreads.getSelectedItem();
+        if (opt != null) {
+          AttributeSet attrs = getOptions().getAttributeSet();
+          getProject().doAction(OptionsActions.setAttribute(attrs, Options.ATTR_SIM_THREADS, opt));
+        }
       } else if (source == simRandomness) {
         AttributeSet attrs = getOptions().getAttributeSet();
         Object val = simRandomness.isSelected() ? Options.sim_rand_dflt : Integer.valueOf(0);
         getProject().doAction(OptionsActions.setAttribute(attrs, Options.ATTR_SIM_RAND, val));
+      } else if (source == simCompiled) {
+        AttributeSet attrs = getOptions().getAttributeSet();
+        Boolean val = Boolean.valueOf(simCompiled.isSelected());
+        getProject().doAction(OptionsActions.setAttribute(attrs, Options.ATTR_SIM_COMPILED, val));
       } else if (source == gateUndefined) {
         ComboOption opt = (ComboOption) gateUndefined.getSelectedItem();
         if (opt != null) {
@@ -69,11 +83,38 @@ class SimulateOptions extends OptionsPanel {
         }
       } else if (source == MemUnknown) {
         AppPreferences.Memory_Startup_Unknown.set(MemUnknown.isSelected());
+        MemSeed.setEnabled(MemUnknown.isSelected());
         Simulator sim = getProject().getSimulator();
         if (sim != null) sim.requestReset();
+      } else if (source == MemSeed) {
+        storeMemSeed();
       }
     }
 
+    public void focusGained(FocusEvent e) {}
+
+    public void focusLost(FocusEvent e) {
+      storeMemSeed();
+    }
+
+    private void storeMemSeed() {
+      int seed;
+      try {
+        seed = Integer.parseInt(MemSeed.getText().trim());
+      } catch (NumberFormatException e) {
+        loadMemSeed();
+        return;
+      }
+      if (seed == AppPreferences.Memory_Startup_Seed.get()) return;
+      AppPreferences.Memory_Startup_Seed.set(seed);
+      Simulator sim = getProject().getSimulator();
+      if (sim != null) sim.requestReset();
+    }
+
+    private void loadMemSeed() {
+      MemSeed.setText(Integer.toString(AppPreferences.Memory_Startup_Seed.get()));
+    }
+
     public void attributeListChanged(AttributeEvent e) {}
 
     public void attributeValueChanged(AttributeEvent e) {
@@ -83,6 +124,10 @@ class SimulateOptions extends OptionsPanel {
         loadSimLimit((Integer) val);
       } else if (attr == Options.ATTR_SIM_RAND) {
         loadSimRandomness((Integer) val);
+      } else if (attr == Options.ATTR_SIM_COMPILED) {
+        loadSimCompiled((Boolean) val);
+      } else if (attr == Options.ATTR_SIM_THREADS) {
+        loadSimThreads((Integer) val);
       } else if (attr == Options.ATTR_GATE_UNDEFINED) {
         loadGateUndefined(val);
       }
@@ -104,9 +149,25 @@ class SimulateOptions extends OptionsPanel {
       }
     }
 
+    @SuppressWarnings("rawtypes")
+    private void loadSimThreads(Integer val) {
+      int value = val.intValue();
+      ComboBoxModel model = simThreads.getModel();
+      for (int i = 0; i < model.getSize(); i++) {
+        Integer opt = (Integer) model.getElementAt(i);
+        if (opt.intValue() == value) {
+          simThreads.setSelectedItem(opt);
+        }
+      }
+    }
+
     private void loadSimRandomness(Integer val) {
       simRandomness.setSelected(val.intValue() > 0);
     }
+
+    private void loadSimCompiled(Boolean val) {
+      simCompiled.setSelected(val.booleanValue());
+    }
   }
 
   private static final long serialVersionUID = 1L;
@@ -129,8 +190,16 @@ class SimulateOptions extends OptionsPanel {
             Integer.valueOf(50000),
           });
 
+  private JLabel simThreadsLabel = new JLabel();
+
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  private JComboBox simThreads = new JComboBox(threadChoices());
+
   private JCheckBox simRandomness = new JCheckBox();
+  private JCheckBox simCompiled = new JCheckBox();
   private JCheckBox MemUnknown = new JCheckBox();
+  private JLabel MemSeedLabel = new JLabel();
+  private JTextField MemSeed = new JTextField(10);
   private JLabel gateUndefinedLabel = new JLabel();
 
   @SuppressWarnings({"rawtypes", "unchecked"})
@@ -150,27 +219,55 @@ class SimulateOptions extends OptionsPanel {
     simLimitPanel.add(simLimit);
     simLimit.addActionListener(myListener);
 
+    JPanel simThreadsPanel = new JPanel();
+    simThreadsPanel.add(simThreadsLabel);
+    simThreadsPanel.add(simThreads);
+    simThreads.addActionListener(myListener);
+
     JPanel gateUndefinedPanel = new JPanel();
     gateUndefinedPanel.add(gateUndefinedLabel);
     gateUndefinedPanel.add(gateUndefined);
     gateUndefined.addActionListener(myListener);
 
     simRandomness.addActionListener(myListener);
+    simCompiled.addActionListener(myListener);
 
     MemUnknown.addActionListener(myListener);
     MemUnknown.setSelected(AppPreferences.Memory_Startup_Unknown.get());
 
+    JPanel MemSeedPanel = new JPanel();
+    MemSeedPanel.add(MemSeedLabel);
+    MemSeedPanel.add(MemSeed);
+    MemSeed.addActionListener(myListener);
+    MemSeed.addFocusListener(myListener);
+    MemSeed.setEnabled(MemUnknown.isSelected());
+    myListener.loadMemSeed();
+
     setLayout(new TableLayout(1));
     add(MemUnknown);
+    add(MemSeedPanel);
     add(simLimitPanel);
     add(gateUndefinedPanel);
     add(simRandomness);
+    add(simCompiled);
+    add(simThreadsPanel);
 
     window.getOptions().getAttributeSet().addAttributeListener(myListener);
     AttributeSet attrs = getOptions().getAttributeSet();
     myListener.loadSimLimit(attrs.getValue(Options.ATTR_SIM_LIMIT));
     myListener.loadGateUndefined(attrs.getValue(Options.ATTR_GATE_UNDEFINED));
     myListener.loadSimRandomness(attrs.getValue(Options.ATTR_SIM_RAND));
+    myListener.loadSimCompiled(attrs.getValue(Options.ATTR_SIM_COMPILED));
+    myListener.loadSimThreads(attrs.getValue(Options.ATTR_SIM_THREADS));
+  }
+
+  private static Integer[] threadChoices() {
+    // powers of two up to the number of available cores, plus the core count itself
+    int cores = Runtime.getRuntime().availableProcessors();
+    ArrayList<Integer> ret = new ArrayList<Integer>();
+    for (int n = 1; n < cores; n *= 2) ret.add(Integer.valueOf(n));
+    ret.add(Integer.valueOf(cores));
+    return ret.toArray(new Integer[ret.size()]);
   }
 
   @Override
@@ -188,6 +285,9 @@ class SimulateOptions extends OptionsPanel {
     simLimitLabel.setText(S.get("simulateLimit"));
     gateUndefinedLabel.setText(S.get("gateUndefined"));
     simRandomness.setText(S.get("simulateRandomness"));
+    simCompiled.setText(S.get("simulateCompiled"));
+    simThreadsLabel.setText(S.get("simulateThreads"));
     MemUnknown.setText(S.get("MemoriesStartupUnknown"));
+    MemSeedLabel.setText(S.get("MemoriesStartupSeed"));
   }
 }
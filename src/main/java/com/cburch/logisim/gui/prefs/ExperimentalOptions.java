@@ -33,15 +33,36 @@ import static com.cburch.logisim.gui.Strings.S;
 import com.cburch.logisim.prefs.AppPreferences;
 import java.awt.BorderLayout;
 import java.awt.Font;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
 import javax.swing.Box;
 import javax.swing.BoxLayout;
+import javax.swing.JComboBox;
 import javax.swing.JLabel;
 import javax.swing.JPanel;
 
 class ExperimentalOptions extends OptionsPanel {
+  private class MyListener implements ActionListener, PropertyChangeListener {
+    public void actionPerformed(ActionEvent event) {
+      Integer opt = (Integer) minimizeExact.getSelectedItem();
+      if (opt != null) AppPreferences.MINIMIZE_EXACT_INPUTS.set(opt);
+    }
+
+    public void propertyChange(PropertyChangeEvent event) {
+      if (AppPreferences.MINIMIZE_EXACT_INPUTS.isSource(event)) loadMinimizeExact();
+    }
+  }
+
   private static final long serialVersionUID = 1L;
+  private static final Integer[] MINIMIZE_EXACT_CHOICES = {4, 6, 8, 10, 12, 14, 16};
+
+  private MyListener myListener = new MyListener();
   private JLabel accelRestart = new JLabel();
   private PrefOptionList accel;
+  private JLabel minimizeExactLabel = new JLabel();
+  private JComboBox<Integer> minimizeExact = new JComboBox<Integer>(MINIMIZE_EXACT_CHOICES);
 
   public ExperimentalOptions(PreferencesFrame window) {
     super(window);
@@ -65,12 +86,27 @@ class ExperimentalOptions extends OptionsPanel {
     JPanel accelPanel2 = new JPanel();
     accelPanel2.add(accelPanel);
 
+    JPanel minimizePanel = new JPanel();
+    minimizePanel.add(minimizeExactLabel);
+    minimizePanel.add(minimizeExact);
+    loadMinimizeExact();
+    minimizeExact.addActionListener(myListener);
+    AppPreferences.MINIMIZE_EXACT_INPUTS.addPropertyChangeListener(myListener);
+
     setLayout(new BoxLayout(this, BoxLayout.PAGE_AXIS));
     add(Box.createGlue());
     add(accelPanel2);
+    add(minimizePanel);
     add(Box.createGlue());
   }
 
+  private void loadMinimizeExact() {
+    int value = AppPreferences.MINIMIZE_EXACT_INPUTS.get();
+    for (Integer opt : MINIMIZE_EXACT_CHOICES) {
+      if (opt.intValue() == value) minimizeExact.setSelectedItem(opt);
+    }
+  }
+
   @Override
   public String getHelpText() {
     return S.get("experimentHelp");
@@ -85,5 +121,6 @@ class ExperimentalOptions extends OptionsPanel {
   public void localeChanged() {
     accel.localeChanged();
     accelRestart.setText(S.get("accelRestartLabel"));
+    minimizeExactLabel.setText(S.get("minimizeExactLabel"));
   }
 }
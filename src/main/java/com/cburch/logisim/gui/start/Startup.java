@@ -407,6 +407,18 @@ public class Startup implements AWTEventListener {
         i++;
         if (i >= args.length) printUsage();
         ret.circuitToTest = args[i];
+      } else if (arg.equals("-threads")) {
+        i++;
+        if (i >= args.length) printUsage();
+        try {
+          ret.threads = Integer.parseInt(args[i]);
+        } catch (NumberFormatException e) {
+          ret.threads = 0;
+        }
+        if (ret.threads <= 0) {
+          logger.error("{}", S.get("argThreadsOptionError"));
+          System.exit(-1);
+        }
       } else if (arg.equals("-clearprefs") || arg.equals("-clearprops")) {
         // already handled above
       } else if (arg.equals("-analyze")) {
@@ -461,6 +473,7 @@ public class Startup implements AWTEventListener {
     System.err.println("   " + S.get("argEmptyOption")); // OK
     System.err.println("   " + S.get("argAnalyzeOption")); // OK
     System.err.println("   " + S.get("argTestOption")); // OK
+    System.err.println("   " + S.get("argThreadsOption")); // OK
     System.err.println("   " + S.get("argGatesOption")); // OK
     System.err.println("   " + S.get("argHelpOption")); // OK
     System.err.println("   " + S.get("argLoadOption")); // OK
@@ -517,6 +530,7 @@ public class Startup implements AWTEventListener {
   private File loadFile;
   private HashMap<File, File> substitutions = new HashMap<File, File>();
   private int ttyFormat = 0;
+  private int threads = 0;
   // from other sources
   private boolean initialized = false;
   private SplashScreen monitor = null;
@@ -817,6 +831,10 @@ public class Startup implements AWTEventListener {
     return ttyFormat;
   }
 
+  int getThreads() {
+    return threads;
+  }
+
   private void loadTemplate(Loader loader, File templFile, boolean templEmpty) {
     if (showSplash) {
       monitor.setProgress(SplashScreen.TEMPLATE_OPEN);
@@ -944,7 +962,7 @@ public class Startup implements AWTEventListener {
         try {
           if (testVector != null) {
             proj = ProjectActions.doOpenNoWindow(monitor, fileToOpen);
-            proj.doTestVector(testVector, circuitToTest);
+            proj.doTestVector(testVector, circuitToTest, threads);
           } else if (testCircPathInput != null && testCircPathOutput != null) {
             /* This part of the function will create a new circuit file (
              * XML) which will be open and saved again using the  */
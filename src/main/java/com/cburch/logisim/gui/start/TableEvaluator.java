@@ -0,0 +1,299 @@
+/**
+ * This file is part of logisim-evolution.
+ *
+ * Logisim-evolution is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * Logisim-evolution is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU General Public License along 
+ * with logisim-evolution. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Original code by Carl Burch (http://www.cburch.com), 2011.
+ * Subsequent modifications by:
+ *   + College of the Holy Cross
+ *     http://www.holycross.edu
+ *   + Haute École Spécialisée Bernoise/Berner Fachhochschule
+ *     http://www.bfh.ch
+ *   + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *     http://hepia.hesge.ch/
+ *   + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *     http://www.heig-vd.ch/
+ */
+
+package com.cburch.logisim.gui.start;
+
+import com.cburch.logisim.circuit.BitSliceEvaluator;
+import com.cburch.logisim.circuit.Circuit;
+import com.cburch.logisim.circuit.CircuitState;
+import com.cburch.logisim.circuit.Propagator;
+import com.cburch.logisim.circuit.SubcircuitFactory;
+import com.cburch.logisim.comp.Component;
+import com.cburch.logisim.data.BitWidth;
+import com.cburch.logisim.data.Value;
+import com.cburch.logisim.instance.Instance;
+import com.cburch.logisim.instance.InstanceState;
+import com.cburch.logisim.instance.StdAttr;
+import com.cburch.logisim.proj.Project;
+import com.cburch.logisim.std.wiring.Pin;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Evaluates a circuit for every combination of its input pins, as needed by "-tty table".
+ *
+ * <p>The rows are split into blocks that are handed to a pool of worker threads. Each worker keeps
+ * one circuit state for all the blocks it evaluates, and walks a block in Gray-code order, so that
+ * consecutive rows differ in a single input bit and only the pin holding that bit is driven again
+ * before propagating. Finished blocks are handed back to the caller in row order. The states are
+ * built on the calling thread, as creating a propagator registers a listener on the options of the
+ * project. If the circuit keeps state, in flip-flops or memories for instance, a worker resets its
+ * state before each row, so that every row starts from the initial state as a fresh one would.
+ *
+ * <p>When the circuit is combinational and built from components that support it, workers instead
+ * use a {@link BitSliceEvaluator} to compute 64 rows with each pass over the circuit.
+ */
+class TableEvaluator {
+  interface RowHandler {
+    /** Receives the input values followed by the output values of one row. */
+    void row(Value[] values);
+  }
+
+  private static final int BLOCK_BITS = 10;
+
+  private class Worker {
+    private CircuitState state;
+    private Propagator prop;
+    private Value[] driven = new Value[inputs.length];
+    private BitSliceEvaluator lanes;
+
+    /** Builds the state of the worker; this must run on the thread calling the evaluator. */
+    Worker() {
+      if (sliced) {
+        lanes = spareLanes != null ? spareLanes : createLanes();
+        spareLanes = null;
+        return;
+      }
+      state = new CircuitState(proj, circuit);
+      prop = state.getPropagator();
+      prop.propagate();
+      if (holdsState == null) holdsState = Boolean.valueOf(holdsState(state));
+    }
+
+    /** Returns the state to its initial contents, dropping leftover events too. */
+    void reset() {
+      prop.reset();
+      Arrays.fill(driven, null);
+    }
+
+    void drive(int row) {
+      int col = 0;
+      for (int j = 0; j < inputs.length; j++) {
+        int width = inputWidths[j];
+        Value[] v = new Value[width];
+        for (int b = width - 1; b >= 0; b--) {
+          int bit = inputCount - (col++) - 1;
+          v[b] = ((row >> bit) & 1) != 0 ? Value.TRUE : Value.FALSE;
+        }
+        Value val = Value.create(v);
+        if (!val.equals(driven[j])) {
+          InstanceState pinState = state.getInstanceState(inputs[j]);
+          Pin.FACTORY.setValue(pinState, val);
+          state.markComponentAsDirty(inputs[j].getComponent());
+          driven[j] = val;
+        }
+      }
+    }
+
+    Value[][] evaluate(int block) {
+      if (sliced) return evaluateLanes(block);
+      int size = 1 << blockBits;
+      int first = block << blockBits;
+      Value[][] rows = new Value[size][];
+      for (int j = 0; j < size; j++) {
+        int offset = j ^ (j >>> 1);
+        if (holdsState.booleanValue()) reset();
+        drive(first + offset);
+        prop.propagate();
+
+        Value[] row = new Value[inputs.length + outputs.length];
+        System.arraycopy(driven, 0, row, 0, inputs.length);
+        boolean oscillating = prop.isOscillating();
+        for (int k = 0; k < outputs.length; k++) {
+          Instance pin = outputs[k];
+          if (oscillating) {
+            BitWidth width = pin.getAttributeValue(StdAttr.WIDTH);
+            row[inputs.length + k] = Value.createError(width);
+          } else {
+            InstanceState pinState = state.getInstanceState(pin);
+            row[inputs.length + k] = Pin.FACTORY.getValue(pinState);
+          }
+        }
+        // an oscillating state carries leftover events: start the next row afresh
+        if (oscillating) reset();
+        rows[offset] = row;
+      }
+      return rows;
+    }
+
+    Value[][] evaluateLanes(int block) {
+      int size = 1 << blockBits;
+      int first = block << blockBits;
+      Value[][] rows = new Value[size][];
+      for (int base = 0; base < size; base += 64) {
+        int col = 0;
+        for (int j = 0; j < inputs.length; j++) {
+          for (int b = inputWidths[j] - 1; b >= 0; b--) {
+            int bit = inputCount - (col++) - 1;
+            lanes.setInput(j, b, BitSliceEvaluator.getRowLanes(first + base, bit));
+          }
+        }
+        lanes.evaluate();
+
+        int count = Math.min(64, size - base);
+        for (int k = 0; k < count; k++) rows[base + k] = new Value[inputs.length + outputs.length];
+        for (int j = 0; j < inputs.length; j++) {
+          for (int k = 0; k < count; k++) {
+            rows[base + k][j] = Value.createKnown(inputWidths[j], inputValue(first + base + k, j));
+          }
+        }
+        for (int j = 0; j < outputs.length; j++) {
+          int width = outputs[j].getAttributeValue(StdAttr.WIDTH).getWidth();
+          Value[][] bits = new Value[count][width];
+          for (int b = 0; b < width; b++) {
+            long value = lanes.getOutputValue(j, b);
+            long unknown = lanes.getOutputUnknown(j, b);
+            long error = lanes.getOutputError(j, b);
+            for (int k = 0; k < count; k++) {
+              Value v;
+              if (((error >>> k) & 1) != 0) v = Value.ERROR;
+              else if (((unknown >>> k) & 1) != 0) v = Value.UNKNOWN;
+              else if (((value >>> k) & 1) != 0) v = Value.TRUE;
+              else v = Value.FALSE;
+              bits[k][b] = v;
+            }
+          }
+          for (int k = 0; k < count; k++) {
+            rows[base + k][inputs.length + j] = Value.create(bits[k]);
+          }
+        }
+      }
+      return rows;
+    }
+  }
+
+  private final Project proj;
+  private final Circuit circuit;
+  private final Instance[] inputs;
+  private final int[] inputWidths;
+  private final Instance[] outputs;
+  private final int inputCount;
+  private final int blockBits;
+  private final int threads;
+  private final boolean sliced;
+  private BitSliceEvaluator spareLanes; // built to find out whether the circuit can be sliced
+  private Boolean holdsState = null; // set by the first worker
+
+  TableEvaluator(
+      Project proj, Circuit circuit, List<Instance> inputs, List<Instance> outputs, int threads) {
+    this.proj = proj;
+    this.circuit = circuit;
+    this.inputs = inputs.toArray(new Instance[inputs.size()]);
+    this.outputs = outputs.toArray(new Instance[outputs.size()]);
+    this.inputWidths = new int[this.inputs.length];
+    int count = 0;
+    for (int j = 0; j < this.inputs.length; j++) {
+      inputWidths[j] = this.inputs[j].getAttributeValue(StdAttr.WIDTH).getWidth();
+      count += inputWidths[j];
+    }
+    this.inputCount = count;
+    this.blockBits = Math.min(count, BLOCK_BITS);
+    this.threads = Math.max(1, threads);
+    this.spareLanes = BitSliceEvaluator.create(new CircuitState(proj, circuit), inputs, outputs);
+    this.sliced = spareLanes != null;
+  }
+
+  private BitSliceEvaluator createLanes() {
+    return BitSliceEvaluator.create(
+        new CircuitState(proj, circuit), Arrays.asList(inputs), Arrays.asList(outputs));
+  }
+
+  /** Returns true if a component of the state tree other than a pin keeps data of its own. */
+  private static boolean holdsState(CircuitState state) {
+    for (Component comp : state.getCircuit().getNonWires()) {
+      if (comp.getFactory() instanceof Pin || comp.getFactory() instanceof SubcircuitFactory) continue;
+      if (state.getData(comp) != null) return true;
+    }
+    for (CircuitState sub : state.getSubstates()) {
+      if (holdsState(sub)) return true;
+    }
+    return false;
+  }
+
+  /** Returns the value of input pin <code>j</code> in the given row. */
+  private long inputValue(int row, int j) {
+    int shift = inputCount;
+    for (int i = 0; i <= j; i++) shift -= inputWidths[i];
+    return (row >>> shift) & ((1L << inputWidths[j]) - 1);
+  }
+
+  /** Evaluates all rows, passing them to the handler in row order on the calling thread. */
+  void run(RowHandler handler) {
+    int blockCount = 1 << (inputCount - blockBits);
+    if (threads == 1) {
+      Worker worker = new Worker();
+      for (int block = 0; block < blockCount; block++) {
+        for (Value[] row : worker.evaluate(block)) handler.row(row);
+      }
+      return;
+    }
+
+    final ArrayBlockingQueue<Worker> idle = new ArrayBlockingQueue<Worker>(threads);
+    for (int i = 0; i < threads; i++) idle.add(new Worker());
+    ExecutorService pool = Executors.newFixedThreadPool(threads);
+    try {
+      // keep a few blocks in flight per thread; memory stays bounded however many rows there are
+      ArrayDeque<Future<Value[][]>> pending = new ArrayDeque<Future<Value[][]>>();
+      int next = 0;
+      while (next < blockCount || !pending.isEmpty()) {
+        while (next < blockCount && pending.size() < 2 * threads) {
+          final int block = next++;
+          pending.add(
+              pool.submit(
+                  new Callable<Value[][]>() {
+                    public Value[][] call() throws InterruptedException {
+                      // no more blocks run than there are workers, so one is always idle
+                      Worker worker = idle.take();
+                      try {
+                        return worker.evaluate(block);
+                      } finally {
+                        idle.add(worker);
+                      }
+                    }
+                  }));
+        }
+        for (Value[] row : pending.remove().get()) handler.row(row);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+      throw new RuntimeException(cause);
+    } finally {
+      pool.shutdownNow();
+    }
+  }
+}
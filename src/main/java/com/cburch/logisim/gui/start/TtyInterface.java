@@ -30,19 +30,18 @@ package com.cburch.logisim.gui.start;
 
 import static com.cburch.logisim.gui.Strings.S;
 
-import com.cburch.logisim.analyze.model.TruthTable;
 import com.cburch.logisim.analyze.model.Var;
 import com.cburch.logisim.circuit.Analyze;
 import com.cburch.logisim.circuit.Circuit;
 import com.cburch.logisim.circuit.CircuitState;
 import com.cburch.logisim.circuit.Propagator;
 import com.cburch.logisim.comp.Component;
-import com.cburch.logisim.data.BitWidth;
 import com.cburch.logisim.data.Value;
 import com.cburch.logisim.file.FileStatistics;
 import com.cburch.logisim.file.LoadFailedException;
 import com.cburch.logisim.file.Loader;
 import com.cburch.logisim.file.LogisimFile;
+import com.cburch.logisim.file.Options;
 import com.cburch.logisim.gui.hex.HexFile;
 import com.cburch.logisim.instance.Instance;
 import com.cburch.logisim.instance.InstanceState;
@@ -60,7 +59,7 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.Map;
 import org.slf4j.Logger;
@@ -132,6 +131,12 @@ public class TtyInterface {
     String hertzStr = hertz == (int) hertz ? "" + (int) hertz : "" + hertz;
     Object[] paramArray = {StringUtil.format(S.get("ttySpeedMsg")), hertzStr, tickCount, elapse};
     logger.info("{}", paramArray);
+    logger.info(
+        "{}",
+        S.fmt(
+            "ttyBundleMapMsg",
+            Circuit.getBundleMapCount(),
+            Circuit.getBundleMapNanos() / 1000000));
   }
 
   private static void displayStatistics(LogisimFile file) {
@@ -335,6 +340,12 @@ public class TtyInterface {
       System.exit(0);
     }
 
+    if (args.getThreads() > 0 && (format & FORMAT_TABLE) == 0) {
+      // overrides the project's option, e.g. to measure how "-tty speed" scales with cores
+      file.getOptions()
+          .getAttributeSet()
+          .setValue(Options.ATTR_SIM_THREADS, Integer.valueOf(args.getThreads()));
+    }
     Project proj = new Project(file);
     Circuit circuit;
     String circuitToTest = args.getCircuitToTest();
@@ -360,7 +371,7 @@ public class TtyInterface {
       }
     }
     if (haltPin == null && (format & FORMAT_TABLE) != 0) {
-      doTableAnalysis(proj, circuit, pinNames, format);
+      doTableAnalysis(proj, circuit, pinNames, format, args.getThreads());
       return;
     }
 
@@ -386,7 +397,11 @@ public class TtyInterface {
   }
 
   private static int doTableAnalysis(
-      Project proj, Circuit circuit, Map<Instance, String> pinLabels, int format) {
+      Project proj,
+      Circuit circuit,
+      Map<Instance, String> pinLabels,
+      int format,
+      int threads) {
 
     ArrayList<Instance> inputPins = new ArrayList<Instance>();
     ArrayList<Var> inputVars = new ArrayList<Var>();
@@ -411,14 +426,12 @@ public class TtyInterface {
     }
 
     ArrayList<String> headers = new ArrayList<>();
-    ArrayList<Instance> pinList = new ArrayList<>();
     /* input pins first */
     for (Map.Entry<Instance, String> entry : pinLabels.entrySet()) {
       Instance pin = entry.getKey();
       String pinName = entry.getValue();
       if (Pin.FACTORY.isInputPin(pin)) {
         headers.add(pinName);
-        pinList.add(pin);
       }
     }
     /* output pins last */
@@ -427,59 +440,20 @@ public class TtyInterface {
       String pinName = entry.getValue();
       if (!Pin.FACTORY.isInputPin(pin)) {
         headers.add(pinName);
-        pinList.add(pin);
       }
     }
 
-    int inputCount = inputNames.size();
-    int rowCount = 1 << inputCount;
-
-    boolean needTableHeader = true;
-    HashMap<Instance, Value> valueMap = new HashMap<>();
-    for (int i = 0; i < rowCount; i++) {
-      valueMap.clear();
-      CircuitState circuitState = new CircuitState(proj, circuit);
-      int incol = 0;
-      for (int j = 0; j < inputPins.size(); j++) {
-        Instance pin = inputPins.get(j);
-        int width = pin.getAttributeValue(StdAttr.WIDTH).getWidth();
-        Value v[] = new Value[width];
-        for (int b = width - 1; b >= 0; b--) {
-          boolean value = TruthTable.isInputSet(i, incol++, inputCount);
-          v[b] = value ? Value.TRUE : Value.FALSE;
-        }
-        InstanceState pinState = circuitState.getInstanceState(pin);
-        Pin.FACTORY.setValue(pinState, Value.create(v));
-        valueMap.put(pin, Value.create(v));
-      }
+    TableEvaluator table = new TableEvaluator(proj, circuit, inputPins, outputPins, threads);
+    table.run(
+        new TableEvaluator.RowHandler() {
+          boolean needTableHeader = true;
 
-      Propagator prop = circuitState.getPropagator();
-      prop.propagate();
-      /*
-       * TODO for the SimulatorPrototype class do { prop.step(); } while
-       * (prop.isPending());
-       */
-      // TODO: Search for circuit state
-
-      for (int j = 0; j < outputPins.size(); j++) {
-        Instance pin = outputPins.get(j);
-        if (prop.isOscillating()) {
-          BitWidth width = pin.getAttributeValue(StdAttr.WIDTH);
-          valueMap.put(pin, Value.createError(width));
-        } else {
-          int width = pin.getAttributeValue(StdAttr.WIDTH).getWidth();
-          InstanceState pinState = circuitState.getInstanceState(pin);
-          Value outValue = Pin.FACTORY.getValue(pinState);
-          valueMap.put(pin, outValue);
-        }
-      }
-      ArrayList<Value> currValues = new ArrayList<>();
-      for (Instance pin : pinList) {
-        currValues.add(valueMap.get(pin));
-      }
-      displayTableRow(needTableHeader, null, currValues, headers, formats, format);
-      needTableHeader = false;
-    }
+          public void row(Value[] values) {
+            ArrayList<Value> currValues = new ArrayList<Value>(Arrays.asList(values));
+            displayTableRow(needTableHeader, null, currValues, headers, formats, format);
+            needTableHeader = false;
+          }
+        });
 
     return 0;
   }
@@ -51,6 +51,7 @@ class Model {
   private Circuit circuit;
   private boolean running, paused;
   private TestThread tester;
+  private volatile TestRunner runner;
   private int numPass = 0, numFail = 0;
   private TestVector vec = null;
 
@@ -79,6 +80,7 @@ class Model {
       numPass = numFail = 0;
       failed.clear();
       passed.clear();
+      runner = null;
     }
     fireTestResultsChanged();
   }
@@ -113,6 +115,12 @@ class Model {
     return numPass;
   }
 
+  /** Returns the number of vectors tested per second by the latest run, or 0 before any run. */
+  public double getVectorsPerSecond() {
+    TestRunner r = runner;
+    return r == null ? 0 : r.getVectorsPerSecond();
+  }
+
   public Project getProject() {
     return project;
   }
@@ -164,6 +172,10 @@ class Model {
     return true;
   }
 
+  void setRunner(TestRunner runner) {
+    this.runner = runner;
+  }
+
   public void setSelected(boolean value) {
     if (selected == value) return;
     selected = value;
@@ -179,6 +191,7 @@ class Model {
       numPass = numFail = 0;
       failed.clear();
       passed.clear();
+      runner = null;
     }
     fireVectorChanged();
   }
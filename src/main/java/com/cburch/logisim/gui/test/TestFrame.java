@@ -167,6 +167,11 @@ public class TestFrame extends LFrame {
     public void testResultsChanged(int numPass, int numFail) {
       pass.setText(StringUtil.format(S.get("passMessage"), Integer.toString(numPass)));
       fail.setText(StringUtil.format(S.get("failMessage"), Integer.toString(numFail)));
+      double rate = getModel().getVectorsPerSecond();
+      speed.setText(
+          rate > 0
+              ? StringUtil.format(S.get("testThroughput"), String.format("%.0f", rate))
+              : "");
       finished = numPass + numFail;
     }
 
@@ -224,6 +229,7 @@ public class TestFrame extends LFrame {
   private JLabel pass = new JLabel();
 
   private JLabel fail = new JLabel();
+  private JLabel speed = new JLabel();
 
   public TestFrame(Project project) {
     super(false,project);
@@ -241,6 +247,7 @@ public class TestFrame extends LFrame {
     JPanel statusPanel = new JPanel();
     statusPanel.add(pass);
     statusPanel.add(fail);
+    statusPanel.add(speed);
 
     JPanel buttonPanel = new JPanel();
     buttonPanel.add(load);
@@ -0,0 +1,243 @@
+/**
+ * This file is part of logisim-evolution.
+ *
+ * Logisim-evolution is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * Logisim-evolution is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU General Public License along 
+ * with logisim-evolution. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Original code by Carl Burch (http://www.cburch.com), 2011.
+ * Subsequent modifications by:
+ *   + College of the Holy Cross
+ *     http://www.holycross.edu
+ *   + Haute École Spécialisée Bernoise/Berner Fachhochschule
+ *     http://www.bfh.ch
+ *   + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *     http://hepia.hesge.ch/
+ *   + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *     http://www.heig-vd.ch/
+ */
+
+package com.cburch.logisim.gui.test;
+
+import com.cburch.logisim.circuit.Circuit;
+import com.cburch.logisim.circuit.CircuitState;
+import com.cburch.logisim.data.TestException;
+import com.cburch.logisim.data.TestVector;
+import com.cburch.logisim.data.TestVectorStream;
+import com.cburch.logisim.data.Value;
+import com.cburch.logisim.instance.Instance;
+import com.cburch.logisim.proj.Project;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Runs the rows of a test vector on a pool of worker threads.
+ *
+ * <p>Every row starts from a reset circuit state, so rows are independent of each other. They are
+ * split into blocks that are handed to the workers, each of which tests its rows on a circuit
+ * state of its own. Results are handed back to the caller in row order. The states are built and
+ * propagated once on the calling thread: a new propagator registers a listener on the options of
+ * the project, and the first propagation creates the substates, which listen to their circuits.
+ *
+ * <p>Rows come either from a test vector held in memory or from a stream that is read on the
+ * calling thread as blocks are needed. In the latter case only the blocks in flight are held in
+ * memory, and their row buffers are recycled, so files larger than the heap can be tested.
+ */
+class TestRunner {
+  interface ResultHandler {
+    /**
+     * Receives the result of one row: null if it passed, or the reason it failed. Returns false to
+     * stop the run.
+     */
+    boolean result(int row, TestException err);
+  }
+
+  private static final int BLOCK_SIZE = 256;
+
+  private static class Block {
+    int first;
+    int count;
+    // bits of the rows read from a stream, indexed by row within the block and then column
+    long[][] values;
+    long[][] unknowns;
+  }
+
+  private final Project project;
+  private final Circuit circuit;
+  private final Instance[] pins;
+  private final TestVector vector;
+  private final TestVectorStream stream;
+  private final int threads;
+  private final ArrayDeque<Block> spare = new ArrayDeque<Block>();
+  private long startTime;
+  private int finished;
+
+  /** Creates a runner; a thread count of 0 or less means one thread per available core. */
+  TestRunner(Project project, Circuit circuit, Instance[] pins, TestVector vector, int threads) {
+    this(project, circuit, pins, vector, null, threads);
+  }
+
+  /** Creates a runner that tests the rows of the stream as they are read. */
+  TestRunner(
+      Project project, Circuit circuit, Instance[] pins, TestVectorStream stream, int threads) {
+    this(project, circuit, pins, null, stream, threads);
+  }
+
+  private TestRunner(
+      Project project,
+      Circuit circuit,
+      Instance[] pins,
+      TestVector vector,
+      TestVectorStream stream,
+      int threads) {
+    this.project = project;
+    this.circuit = circuit;
+    this.pins = pins;
+    this.vector = vector;
+    this.stream = stream;
+    this.threads = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+  }
+
+  /** Returns the number of rows tested per second so far. */
+  double getVectorsPerSecond() {
+    long elapsed = System.nanoTime() - startTime;
+    return elapsed <= 0 ? 0 : finished * 1e9 / elapsed;
+  }
+
+  /**
+   * Tests all rows, passing the results to the handler in row order on the calling thread. An
+   * IOException means a row of the stream could not be read; the rows before it have been
+   * reported.
+   */
+  void run(ResultHandler handler) throws IOException {
+    startTime = System.nanoTime();
+    finished = 0;
+    int next = 0;
+    if (threads == 1) {
+      CircuitState state = createState();
+      Block block;
+      while ((block = read(next)) != null) {
+        next += block.count;
+        if (!report(block, test(block, state), handler)) return;
+      }
+      return;
+    }
+
+    final ArrayBlockingQueue<CircuitState> idle = new ArrayBlockingQueue<CircuitState>(threads);
+    for (int i = 0; i < threads; i++) idle.add(createState());
+    ExecutorService pool = Executors.newFixedThreadPool(threads);
+    try {
+      // keep a few blocks in flight per thread; memory stays bounded however many rows there are
+      ArrayDeque<Block> blocks = new ArrayDeque<Block>();
+      ArrayDeque<Future<TestException[]>> pending = new ArrayDeque<Future<TestException[]>>();
+      boolean more = true;
+      while (true) {
+        while (more && pending.size() < 2 * threads) {
+          final Block block = read(next);
+          if (block == null) {
+            more = false;
+            break;
+          }
+          next += block.count;
+          blocks.add(block);
+          pending.add(
+              pool.submit(
+                  new Callable<TestException[]>() {
+                    public TestException[] call() throws InterruptedException {
+                      // no more blocks run than there are states, so one is always idle
+                      CircuitState state = idle.take();
+                      try {
+                        return test(block, state);
+                      } finally {
+                        idle.add(state);
+                      }
+                    }
+                  }));
+        }
+        if (pending.isEmpty()) break;
+        Block block = blocks.remove();
+        if (!report(block, pending.remove().get(), handler)) return;
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+      throw new RuntimeException(cause);
+    } finally {
+      pool.shutdownNow();
+    }
+  }
+
+  private CircuitState createState() {
+    CircuitState ret = new CircuitState(project, circuit);
+    ret.getPropagator().propagate();
+    return ret;
+  }
+
+  /** Fills a block with the rows starting at first, or returns null if there are none left. */
+  private Block read(int first) throws IOException {
+    Block block = spare.isEmpty() ? new Block() : spare.remove();
+    block.first = first;
+    if (stream == null) {
+      block.count = Math.min(BLOCK_SIZE, vector.data.size() - first);
+    } else {
+      if (block.values == null) {
+        block.values = new long[BLOCK_SIZE][pins.length];
+        block.unknowns = new long[BLOCK_SIZE][pins.length];
+      }
+      int count = 0;
+      while (count < BLOCK_SIZE && stream.readRow(block.values[count], block.unknowns[count]))
+        count++;
+      block.count = count;
+    }
+    if (block.count > 0) return block;
+    spare.add(block);
+    return null;
+  }
+
+  private boolean report(Block block, TestException[] results, ResultHandler handler) {
+    spare.add(block);
+    for (int i = 0; i < results.length; i++) {
+      finished++;
+      if (!handler.result(block.first + i, results[i])) return false;
+    }
+    return true;
+  }
+
+  private TestException[] test(Block block, CircuitState state) {
+    Value[] row = new Value[pins.length];
+    TestException[] ret = new TestException[block.count];
+    for (int i = 0; i < block.count; i++) {
+      Value[] vals;
+      if (stream == null) {
+        vals = vector.data.get(block.first + i);
+      } else {
+        for (int j = 0; j < row.length; j++)
+          row[j] = stream.toValue(j, block.values[i][j], block.unknowns[i][j]);
+        vals = row;
+      }
+      try {
+        circuit.doTestVector(state, pins, vals);
+      } catch (TestException e) {
+        ret[i] = e;
+      }
+    }
+    return ret;
+  }
+}
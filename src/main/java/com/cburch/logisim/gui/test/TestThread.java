@@ -35,9 +35,11 @@ import com.cburch.logisim.circuit.CircuitEvent;
 import com.cburch.logisim.circuit.CircuitListener;
 import com.cburch.logisim.circuit.CircuitState;
 import com.cburch.logisim.comp.Component;
+import com.cburch.logisim.data.BitWidth;
 import com.cburch.logisim.data.FailException;
 import com.cburch.logisim.data.TestException;
 import com.cburch.logisim.data.TestVector;
+import com.cburch.logisim.data.TestVectorStream;
 import com.cburch.logisim.instance.Instance;
 import com.cburch.logisim.instance.InstanceState;
 import com.cburch.logisim.instance.StdAttr;
@@ -45,15 +47,18 @@ import com.cburch.logisim.proj.Project;
 import com.cburch.logisim.std.wiring.Pin;
 import com.cburch.logisim.util.StringUtil;
 import com.cburch.logisim.util.UniquelyNamedThread;
+import java.io.File;
+import java.io.IOException;
 
 public class TestThread extends UniquelyNamedThread implements CircuitListener {
 
   // used only for automated testing via command line arguments
-  public static int doTestVector(Project proj, Circuit circuit, String vectorname) {
-    System.out.println(StringUtil.format(S.get("testLoadingVector"), vectorname));
-    TestVector vec;
+  public static int doTestVector(Project proj, Circuit circuit, String vectorname, int threads) {
+    // rows are streamed rather than loaded, so files of any size can be tested
+    System.out.println(StringUtil.format(S.get("testStreamingVector"), vectorname));
+    final TestVectorStream vec;
     try {
-      vec = new TestVector(vectorname);
+      vec = new TestVectorStream(new File(vectorname));
     } catch (Exception e) {
       System.err.println(StringUtil.format(S.get("testLoadingFailed"), e.getMessage()));
       return -1;
@@ -61,41 +66,66 @@ public class TestThread extends UniquelyNamedThread implements CircuitListener {
 
     TestThread tester;
     try {
-      tester = new TestThread(proj, circuit, vec);
+      tester = new TestThread(proj, circuit, vec.getColumnNames(), vec.getColumnWidths());
     } catch (TestException e) {
       System.err.println(StringUtil.format(S.get("testSetupFailed"), e.getMessage()));
+      close(vec);
       return -1;
     }
 
-    System.out.println(StringUtil.format(S.get("testRunning"), Integer.toString(vec.data.size())));
-
-    int numPass = 0, numFail = 0;
-    for (int i = 0; i < vec.data.size(); i++) {
-      try {
-        System.out.print((i + 1) + " \r");
-        tester.test(i);
-        numPass++;
-      } catch (FailException e) {
-        System.out.println();
-        System.err.println(StringUtil.format(S.get("testFailed"), Integer.toString(i + 1)));
-        for (FailException e1 : e.getAll()) System.out.println("  " + e1.getMessage());
-        numFail++;
-        continue;
-      } catch (TestException e) {
-        System.out.println();
-        System.err.println(
-            StringUtil.format(S.get("testFailed"), Integer.toString(i + 1) + " " + e.getMessage()));
-        numFail++;
-        continue;
-      }
+    final int[] counts = new int[2]; // passed, failed
+    TestRunner runner = new TestRunner(proj, circuit, tester.pin, vec, threads);
+    IOException readError = null;
+    try {
+      runner.run(
+          new TestRunner.ResultHandler() {
+            public boolean result(int row, TestException err) {
+              System.out.print((row + 1) + " \r");
+              if (err == null) {
+                counts[0]++;
+              } else if (err instanceof FailException) {
+                System.out.println();
+                System.err.println(StringUtil.format(S.get("testFailed"), Integer.toString(row + 1)));
+                for (FailException e1 : ((FailException) err).getAll()) {
+                  System.out.println("  " + e1.getMessage());
+                }
+                counts[1]++;
+              } else {
+                System.out.println();
+                System.err.println(
+                    StringUtil.format(
+                        S.get("testFailed"), Integer.toString(row + 1) + " " + err.getMessage()));
+                counts[1]++;
+              }
+              return true;
+            }
+          });
+    } catch (IOException e) {
+      readError = e;
+    } finally {
+      close(vec);
     }
     System.out.println();
     System.out.println(
         StringUtil.format(
-            S.get("testResults"), Integer.toString(numPass), Integer.toString(numFail)));
+            S.get("testResults"), Integer.toString(counts[0]), Integer.toString(counts[1])));
+    System.out.println(
+        StringUtil.format(
+            S.get("testThroughput"), String.format("%.0f", runner.getVectorsPerSecond())));
+    if (readError != null) {
+      System.err.println(StringUtil.format(S.get("testLoadingFailed"), readError.getMessage()));
+      return -1;
+    }
     return 0;
   }
 
+  private static void close(TestVectorStream vec) {
+    try {
+      vec.close();
+    } catch (IOException e) {
+    }
+  }
+
   private Instance[] pin;
   private Project project;
   private Circuit circuit;
@@ -103,7 +133,7 @@ public class TestThread extends UniquelyNamedThread implements CircuitListener {
   private TestVector vector;
   private Model model;
 
-  private boolean canceled = false, paused = false;
+  private volatile boolean canceled = false, paused = false;
 
   public TestThread(Model model) throws TestException {
     super("TestThread-Model");
@@ -113,19 +143,19 @@ public class TestThread extends UniquelyNamedThread implements CircuitListener {
     this.circuit = model.getCircuit();
     this.vector = model.getVector();
 
-    matchPins();
+    matchPins(vector.columnName, vector.columnWidth);
 
     model.getCircuit().addCircuitListener(this);
   }
 
   // used only for automated testing via command line arguments
-  private TestThread(Project proj, Circuit circuit, TestVector vec) throws TestException {
+  private TestThread(Project proj, Circuit circuit, String[] columnName, BitWidth[] columnWidth)
+      throws TestException {
     super("TestThread-Project");
     this.project = proj;
     this.circuit = circuit;
-    this.vector = vec;
 
-    matchPins();
+    matchPins(columnName, columnWidth);
   }
 
   public void cancel() {
@@ -138,25 +168,25 @@ public class TestThread extends UniquelyNamedThread implements CircuitListener {
     else model.clearResults();
   }
 
-  void matchPins() throws TestException {
-    int n = vector.columnName.length;
+  void matchPins(String[] columnNames, BitWidth[] columnWidth) throws TestException {
+    int n = columnNames.length;
     pin = new Instance[n];
     CircuitState state = new CircuitState(this.project, this.circuit);
 
     for (int i = 0; i < n; i++) {
-      String columnName = vector.columnName[i];
+      String columnName = columnNames[i];
       for (Component comp : circuit.getNonWires()) {
         if (!(comp.getFactory() instanceof Pin)) continue;
         Instance inst = Instance.getInstanceFor(comp);
         InstanceState pinState = state.getInstanceState(comp);
         String label = pinState.getAttributeValue(StdAttr.LABEL);
         if (label == null || !label.equals(columnName)) continue;
-        if (Pin.FACTORY.getWidth(inst).getWidth() != vector.columnWidth[i].getWidth())
+        if (Pin.FACTORY.getWidth(inst).getWidth() != columnWidth[i].getWidth())
           throw new TestException(
               "test vector column '"
                   + columnName
                   + "' has width "
-                  + vector.columnWidth[i]
+                  + columnWidth[i]
                   + ", but pin has width "
                   + Pin.FACTORY.getWidth(inst));
         pin[i] = inst;
@@ -169,22 +199,24 @@ public class TestThread extends UniquelyNamedThread implements CircuitListener {
 
   public void run() {
     try {
-      for (int i = 0; i < vector.data.size() && !canceled; i++) {
-        while (paused) {
-          if (canceled) return;
-          try {
-            Thread.sleep(1000);
-          } catch (InterruptedException e) {
-          }
-        }
-        try {
-          test(i);
-          canceled = canceled || !model.setResult(vector, i, null);
-        } catch (TestException e) {
-          canceled = canceled || !model.setResult(vector, i, e);
-        }
-        Thread.yield();
-      }
+      TestRunner runner = new TestRunner(project, circuit, pin, vector, 0);
+      model.setRunner(runner);
+      runner.run(
+          new TestRunner.ResultHandler() {
+            public boolean result(int row, TestException err) {
+              while (paused) {
+                if (canceled) return false;
+                try {
+                  Thread.sleep(1000);
+                } catch (InterruptedException e) {
+                }
+              }
+              canceled = canceled || !model.setResult(vector, row, err);
+              return !canceled;
+            }
+          });
+    } catch (IOException e) {
+      // rows held in memory are never read from a file
     } finally {
       model.stop();
     }
@@ -193,8 +225,4 @@ public class TestThread extends UniquelyNamedThread implements CircuitListener {
   public void setPaused(boolean paused) {
     this.paused = paused;
   }
-
-  private void test(int idx) throws TestException {
-    circuit.doTestVector(project, pin, vector.data.get(idx));
-  }
 }
@@ -30,6 +30,7 @@ package com.cburch.logisim.instance;
 
 import static com.cburch.logisim.std.Strings.S;
 
+import com.cburch.logisim.circuit.Circuit;
 import com.cburch.logisim.circuit.CircuitState;
 import com.cburch.logisim.comp.Component;
 import com.cburch.logisim.comp.ComponentDrawContext;
@@ -64,6 +65,19 @@ import java.util.List;
 import javax.swing.JOptionPane;
 
 public class InstanceComponent implements Component, AttributeListener, ToolTipMaker {
+  // which ports have something else attached, as of one version of a circuit's connections
+  private static class PortConnections {
+    final Circuit circuit;
+    final int version;
+    final boolean[] connected;
+
+    PortConnections(Circuit circuit, int version, boolean[] connected) {
+      this.circuit = circuit;
+      this.version = version;
+      this.connected = connected;
+    }
+  }
+
   private EventSourceWeakSupport<ComponentListener> listeners;
   private InstanceFactory factory;
   private Instance instance;
@@ -72,6 +86,7 @@ public class InstanceComponent implements Component, AttributeListener, ToolTipM
   private List<Port> portList;
   private EndData[] endArray;
   private List<EndData> endList;
+  private volatile PortConnections portConnections;
   private boolean hasToolTips;
   private HashSet<Attribute<BitWidth>> widthAttrs;
   private AttributeSet attrs;
@@ -247,6 +262,7 @@ public class InstanceComponent implements Component, AttributeListener, ToolTipM
     if (es != esOld) {
       endArray = es;
       endList = new UnmodifiableList<EndData>(es);
+      portConnections = null;
     }
     widthAttrs = wattrs;
     hasToolTips = toolTipFound;
@@ -442,6 +458,26 @@ public class InstanceComponent implements Component, AttributeListener, ToolTipM
     return defaultTip == null ? null : defaultTip.toString();
   }
 
+  /**
+   * Returns whether any other component is attached to the given port within circ. The answer is
+   * kept for all ports until the circuit's connections change, so simulating the component does
+   * not search the circuit's points on every propagation.
+   */
+  public boolean isPortConnected(Circuit circ, int index) {
+    PortConnections conns = portConnections;
+    int version = circ.getConnectionVersion();
+    if (conns == null || conns.circuit != circ || conns.version != version) {
+      EndData[] ends = endArray;
+      boolean[] connected = new boolean[ends.length];
+      for (int i = 0; i < ends.length; i++) {
+        connected[i] = circ.isConnected(ends[i].getLocation(), this);
+      }
+      conns = new PortConnections(circ, version, connected);
+      portConnections = conns;
+    }
+    return conns.connected[index];
+  }
+
   public void propagate(CircuitState state) {
     factory.propagate(state.getInstanceState(this));
   }
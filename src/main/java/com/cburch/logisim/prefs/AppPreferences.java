@@ -543,6 +543,9 @@ public class AppPreferences {
       create(new PrefMonitorBoolean("namedBoxesFixed", true));
   public static final PrefMonitor<Boolean> KMAP_LINED_STYLE =
       create(new PrefMonitorBoolean("KmapLinedStyle", false));
+  // number of inputs above which the analyzer minimizes heuristically
+  public static final PrefMonitor<Integer> MINIMIZE_EXACT_INPUTS =
+      create(new PrefMonitorInt("minimizeExactInputs", 12));
   public static final PrefMonitor<Boolean> ANIMATED_ICONS =
       create(new PrefMonitorBoolean("AnimatedIcons",false));
   public static final PrefMonitor<String> DefaultAppearance =
@@ -614,6 +617,9 @@ public class AppPreferences {
 
   public static final PrefMonitor<Boolean> Memory_Startup_Unknown =
       create(new PrefMonitorBoolean("MemStartUnknown", false));
+  // seed of the random memory contents, 0 for a new seed at every reset
+  public static final PrefMonitor<Integer> Memory_Startup_Seed =
+      create(new PrefMonitorInt("MemStartSeed", 0));
 
   // Experimental preferences
   public static final String ACCEL_DEFAULT = "default";
@@ -230,14 +230,14 @@ public class Project {
     fireEvent(new ProjectEvent(ProjectEvent.ACTION_COMPLETE, this, act));
   }
 
-  public int doTestVector(String vectorname, String name) {
+  public int doTestVector(String vectorname, String name, int threads) {
     Circuit circuit = (name == null ? file.getMainCircuit() : file.getCircuit(name));
     if (circuit == null) {
       System.err.println("Circuit '" + name + "' not found.");
       return -1;
     }
     setCurrentCircuit(circuit);
-    return TestThread.doTestVector(this, circuit, vectorname);
+    return TestThread.doTestVector(this, circuit, vectorname, threads);
   }
 
   private void fireEvent(int action, Object data) {
@@ -276,6 +276,11 @@ public class Project {
     return chronoFrame;
   }
 
+  void disposeRootStates() {
+    if (logFrame != null) logFrame.disposeModels(allRootStates);
+    for (CircuitState state : allRootStates) state.dispose();
+  }
+
   public List<CircuitState> getRootCircuitStates() {
     return allRootStates;
   }
@@ -408,6 +413,11 @@ public class Project {
     return VhdlSimulator;
   }
 
+  /** Tells whether VHDL entities are being co-simulated, without creating the simulator. */
+  public boolean isVhdlSimulatorRunning() {
+    return VhdlSimulator != null && VhdlSimulator.isRunning();
+  }
+
   public boolean isFileDirty() {
     return (undoMods > 0);
   }
@@ -556,6 +566,7 @@ public class Project {
       }
     }
     file = value;
+    disposeRootStates();
     recentRootState.clear();
     allRootStates.clear();
     depends = new Dependencies(file);
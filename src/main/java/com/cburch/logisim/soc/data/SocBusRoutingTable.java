@@ -0,0 +1,85 @@
+/**
+ * This file is part of logisim-evolution.
+ *
+ * Logisim-evolution is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * Logisim-evolution is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU General Public License along 
+ * with logisim-evolution. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Original code by Carl Burch (http://www.cburch.com), 2011.
+ * Subsequent modifications by:
+ *   + College of the Holy Cross
+ *     http://www.holycross.edu
+ *   + Haute École Spécialisée Bernoise/Berner Fachhochschule
+ *     http://www.bfh.ch
+ *   + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *     http://hepia.hesge.ch/
+ *   + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *     http://www.heig-vd.ch/
+ */
+
+package com.cburch.logisim.soc.data;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.TreeSet;
+
+/* Address decoder of a bus. The address space is cut at every start and end address of
+ * the slaves into segments, and each segment records the slaves responding in it. A
+ * transaction is routed by a binary search on the segment boundaries, and overlapping
+ * slaves are found once when the table is built instead of for every transaction. */
+class SocBusRoutingTable {
+
+  private long[] bounds;
+  private int[] nrOfResponders;
+  private SocBusSlaveInterface[] responders;
+
+  public SocBusRoutingTable(ArrayList<SocBusSlaveInterface> slaves) {
+    TreeSet<Long> cuts = new TreeSet<Long>();
+    cuts.add(0L);
+    for (SocBusSlaveInterface s : slaves) {
+      long start = SocSupport.convUnsignedInt(s.getStartAddress());
+      cuts.add(start);
+      cuts.add(start+SocSupport.convUnsignedInt(s.getMemorySize()));
+    }
+    bounds = new long[cuts.size()];
+    int nr = 0;
+    for (long cut : cuts)
+      bounds[nr++] = cut;
+    nrOfResponders = new int[nr];
+    responders = new SocBusSlaveInterface[nr];
+    for (SocBusSlaveInterface s : slaves) {
+      long start = SocSupport.convUnsignedInt(s.getStartAddress());
+      long end = start+SocSupport.convUnsignedInt(s.getMemorySize());
+      for (int i = Arrays.binarySearch(bounds, start) ; i < nr && bounds[i] < end ; i++) {
+        nrOfResponders[i]++;
+        responders[i] = s;
+      }
+    }
+  }
+
+  public int getSegment(int address) {
+    int index = Arrays.binarySearch(bounds, SocSupport.convUnsignedInt(address));
+    return index >= 0 ? index : -index-2;
+  }
+
+  public long getSegmentEnd(int segment) {
+    return segment+1 < bounds.length ? bounds[segment+1] : 1L << 32;
+  }
+
+  public int getNrOfResponders(int segment) {
+    return nrOfResponders[segment];
+  }
+
+  public SocBusSlaveInterface getResponder(int segment) {
+    return responders[segment];
+  }
+}
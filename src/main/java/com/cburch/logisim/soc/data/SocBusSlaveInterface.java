@@ -36,6 +36,10 @@ public interface SocBusSlaveInterface {
   
   public void handleTransaction(SocBusTransaction trans);
   
+  /* copies nrOfWords consecutive words starting at address into data, without generating bus
+   * transactions; slaves that cannot do this return false and are read word by word instead */
+  public default boolean readBlock(int address, int[] data, int offset, int nrOfWords) { return false; }
+  
   public Integer getStartAddress();
   public Integer getMemorySize();
   public String getName();
@@ -267,26 +267,21 @@ public class SocBusStateInfo extends JDialog implements ActionListener,LocaleLis
   }
   
   public void initializeTransaction(SocBusTransaction trans, String busId) {
-    int nrOfReponders = 0;
-    int reponder = -1;
     ArrayList<SocBusSlaveInterface> slaves = memMap.getSlaves();
     if (slaves.isEmpty())
       trans.setError(SocBusTransaction.NoSlavesError);
     else if (trans.isReadTransaction()&&trans.isWriteTransaction()&&!trans.isAtomicTransaction())
       trans.setError(SocBusTransaction.NoneAtomicReadWriteError);
     else {
-      for (int i = 0 ; i < slaves.size() ; i++) {
-        if (slaves.get(i).canHandleTransaction(trans)) {
-          nrOfReponders++;
-          reponder = i;
-        }
-      }
+      SocBusRoutingTable routing = memMap.getRoutingTable();
+      int segment = routing.getSegment(trans.getAddress());
+      int nrOfReponders = routing.getNrOfResponders(segment);
       if (nrOfReponders == 0)
         trans.setError(SocBusTransaction.NoResponsError);
       else if (nrOfReponders != 1)
         trans.setError(SocBusTransaction.MultipleSlavesError);
       else
-        slaves.get(reponder).handleTransaction(trans);
+        routing.getResponder(segment).handleTransaction(trans);
     }
     if (!trans.hasError()&&!trans.isHidden()) {
       for (SocBusSnifferInterface sniffer : sniffers)
@@ -302,6 +297,15 @@ public class SocBusStateInfo extends JDialog implements ActionListener,LocaleLis
     }
   }
   
+  public boolean readBlock(int address, int[] data, int offset, int nrOfWords) {
+    SocBusRoutingTable routing = memMap.getRoutingTable();
+    int segment = routing.getSegment(address);
+    if (routing.getNrOfResponders(segment) != 1 ||
+        SocSupport.convUnsignedInt(address)+4L*nrOfWords > routing.getSegmentEnd(segment))
+      return false;
+    return routing.getResponder(segment).readBlock(address, data, offset, nrOfWords);
+  }
+  
   public void paint(int x , int y , Graphics2D g2, Instance inst, boolean visible,InstanceData info) {
     Graphics2D g = (Graphics2D) g2.create();
     g.translate(x+5, y+25);
@@ -220,6 +220,7 @@ public class SocMemMapModel extends AbstractTableModel implements SocBusSlaveLis
   private SlaveInfoRenderer slaveRenderer;
   private memMapHeaderRenderer headRenderer;
   private InstanceComponent marked;
+  private volatile SocBusRoutingTable routing;
   
   public SocMemMapModel() {
     super();
@@ -248,6 +249,10 @@ public class SocMemMapModel extends AbstractTableModel implements SocBusSlaveLis
     }
   }
   
+  SocBusRoutingTable getRoutingTable() {
+    return routing;
+  }
+
   public ArrayList<SocBusSlaveInterface> getSlaves() {
     return slaves;
   }
@@ -296,6 +301,7 @@ public class SocMemMapModel extends AbstractTableModel implements SocBusSlaveLis
   public void memoryMapChanged() { rebuild(); }
 
   private void rebuild() {
+    routing = new SocBusRoutingTable(slaves);
     slaveMap.clear();
     if (slaves.isEmpty())
       slaveMap.add(new SlaveInfo(0,-1));
@@ -317,4 +317,12 @@ public class SocSimulationManager implements SocBusMasterInterface {
 	info.initializeTransaction(trans, busId);
   }
   
+  public boolean readBlock(String busId, int address, int[] data, int offset, int nrOfWords, CircuitState cState) {
+    state = cState;
+    SocBusStateInfo info = socBusses.get(busId);
+    if (info == null || info.getComponent() == null || !toBeChecked.isEmpty())
+      return false;
+    return info.readBlock(address, data, offset, nrOfWords);
+  }
+  
 }
@@ -29,7 +29,6 @@
 package com.cburch.logisim.soc.data;
 
 import java.awt.event.WindowListener;
-import java.util.LinkedList;
 
 import javax.swing.JPanel;
 
@@ -41,7 +40,7 @@ public interface SocUpStateInterface {
   public String getRegisterAbiName(int index);
   public String getRegisterNormalName(int index);
   public int getProgramCounter();
-  public LinkedList<TraceInfo> getTraces();
+  public TraceBuffer getTraces();
   public void SimButtonPressed();
   public SocUpSimulationState getSimState();
   public boolean programLoaded();
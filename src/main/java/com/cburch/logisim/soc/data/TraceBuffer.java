@@ -0,0 +1,96 @@
+/**
+ * This file is part of logisim-evolution.
+ *
+ * Logisim-evolution is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * Logisim-evolution is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU General Public License along 
+ * with logisim-evolution. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Original code by Carl Burch (http://www.cburch.com), 2011.
+ * Subsequent modifications by:
+ *   + College of the Holy Cross
+ *     http://www.holycross.edu
+ *   + Haute École Spécialisée Bernoise/Berner Fachhochschule
+ *     http://www.bfh.ch
+ *   + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *     http://hepia.hesge.ch/
+ *   + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *     http://www.heig-vd.ch/
+ */
+
+package com.cburch.logisim.soc.data;
+
+import com.cburch.logisim.soc.util.AssemblerInterface;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/* Ring buffer holding the last executed instructions of a processor. The trace entries are
+ * allocated once and reused, iteration starts with the most recent one. Only the program counter
+ * and the instruction word are stored, the assembler disassembles them when the trace is painted. */
+public class TraceBuffer implements Iterable<TraceInfo> {
+
+  private TraceInfo[] traces;
+  private int first;
+  private int size;
+
+  public TraceBuffer(int capacity, AssemblerInterface assembler) {
+    traces = new TraceInfo[capacity];
+    for (int i = 0 ; i < capacity ; i++)
+      traces[i] = new TraceInfo(0,0,"",false,assembler);
+    clear();
+  }
+
+  public TraceInfo add(int pc, int instruction, boolean error) {
+    return add(pc, instruction, null, error);
+  }
+
+  /* adds an entry showing the given text instead of the disassembled instruction */
+  public TraceInfo add(int pc, int instruction, String asm, boolean error) {
+    first = first == 0 ? traces.length-1 : first-1;
+    if (size < traces.length)
+      size++;
+    TraceInfo trace = traces[first];
+    trace.set(pc, instruction, asm, error);
+    return trace;
+  }
+
+  public void clear() {
+    first = 0;
+    size = 0;
+  }
+
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  @Override
+  public Iterator<TraceInfo> iterator() {
+    return new Iterator<TraceInfo>() {
+      private int index = 0;
+
+      @Override
+      public boolean hasNext() {
+        return index < size;
+      }
+
+      @Override
+      public TraceInfo next() {
+        if (index >= size)
+          throw new NoSuchElementException();
+        return traces[(first+index++)%traces.length];
+      }
+    };
+  }
+}
@@ -35,15 +35,26 @@ import java.awt.Graphics2D;
 import com.cburch.logisim.data.Bounds;
 import com.cburch.logisim.prefs.AppPreferences;
 import com.cburch.logisim.soc.gui.CpuDrawSupport;
+import com.cburch.logisim.soc.util.AssemblerExecutionInterface;
+import com.cburch.logisim.soc.util.AssemblerInterface;
 import com.cburch.logisim.util.GraphicsUtil;
 
 public class TraceInfo {
     private int pc;
     private int instruction;
-    private String asm;
+    private String asm; /* null if the instruction is disassembled when painted */
     private boolean error;
+    private AssemblerInterface assembler;
     
-    public TraceInfo(int pc , int instruction, String asm, boolean error) {
+    public TraceInfo(int pc , int instruction, String asm, boolean error, AssemblerInterface assembler) {
+      this.pc = pc;
+      this.instruction = instruction;
+      this.asm = asm;
+      this.error = error;
+      this.assembler = assembler;
+    }
+    
+    void set(int pc , int instruction, String asm, boolean error) {
       this.pc = pc;
       this.instruction = instruction;
       this.asm = asm;
@@ -54,6 +65,17 @@ public class TraceInfo {
       error = true;
     }
     
+    /* The execution units of an assembler are shared and keep the decoded instruction, hence they
+     * are only used under its lock */
+    private String getAsm() {
+      if (asm != null)
+        return asm;
+      synchronized (assembler) {
+        AssemblerExecutionInterface exe = assembler.decode(instruction);
+        return exe == null ? "?" : exe.getAsmInstruction();
+      }
+    }
+    
     public void paint(Graphics2D g , int yOffset , boolean scale) {
       int blockWidth = CpuDrawSupport.getBlockWidth(g,scale);
       if (scale)
@@ -69,7 +91,7 @@ public class TraceInfo {
                             new Font( "Monospaced", Font.PLAIN, 12 ).deriveFont(Font.BOLD);
       g.setFont(myFont);
       Bounds bds = CpuDrawSupport.getBounds(xOff,yOffset+15,0,0,scale);
-      g.drawString(asm, bds.getX(), bds.getY());
+      g.drawString(getAsm(), bds.getX(), bds.getY());
       g.setFont(f);
     }
     
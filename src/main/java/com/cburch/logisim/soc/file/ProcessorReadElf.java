@@ -188,10 +188,24 @@ public class ProcessorReadElf {
         return false;
       }
       long startAddr = ElfHeader.getLongValue(h.getValue(ElfProgramHeader.P_PADDR));
-      for (int j = 0 ; j < memSize ; j++) {
-        int data = (j<buffer.length) ? buffer[j] : 0;
+      int j = 0;
+      while (j < memSize) {
         int addr = ElfHeader.getIntValue(ElfHeader.returnCorrectValue(startAddr+(long)j,true));
-        SocBusTransaction trans = new SocBusTransaction(SocBusTransaction.WRITETransaction,addr,data,SocBusTransaction.ByteAccess,"elf"); 
+        int data;
+        int access;
+        /* aligned words are written in one (little endian) word transaction, the rest byte by byte */
+        if ((addr&3) == 0 && j+4 <= memSize) {
+          data = 0;
+          for (int b = 3 ; b >= 0 ; b--)
+            data = (data << 8) | ((j+b < buffer.length) ? buffer[j+b]&0xFF : 0);
+          access = SocBusTransaction.WordAccess;
+          j += 4;
+        } else {
+          data = (j<buffer.length) ? buffer[j] : 0;
+          access = SocBusTransaction.ByteAccess;
+          j++;
+        }
+        SocBusTransaction trans = new SocBusTransaction(SocBusTransaction.WRITETransaction,addr,data,access,"elf"); 
         cpu.insertTransaction(trans,true,cState);
         if (trans.hasError()) {
            start = startAddr;
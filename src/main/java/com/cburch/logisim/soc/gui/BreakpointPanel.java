@@ -71,6 +71,8 @@ public class BreakpointPanel extends JPanel implements CaretListener,LocaleListe
   private JButton removeBreakPoint;
   private int currentLine;
   private int maxLines;
+  private HashMap<Integer,Integer> breakPoints;
+  private int[] breakPointOffsets;
 
   public BreakpointPanel(String highLiter) {
     asmWindow = new RSyntaxTextArea(20,60);
@@ -107,6 +109,7 @@ public class BreakpointPanel extends JPanel implements CaretListener,LocaleListe
   public void loadProgram(CircuitState state, SocProcessorInterface pIf,
 		  ElfProgramHeader progInfo,ElfSectionHeader sectInfo, AssemblerInterface assembler) {
       debugLines.clear();
+      breakPointOffsets = null;
       debugScrollPane.getGutter().removeAllTrackingIcons();
       asmWindow.setText(assembler.getProgram(state, pIf, progInfo, sectInfo, debugLines));
       asmWindow.setCaretPosition(0);
@@ -120,8 +123,19 @@ public class BreakpointPanel extends JPanel implements CaretListener,LocaleListe
   }
   
   public HashMap<Integer,Integer> getBreakPoints() {
-    HashMap<Integer,Integer> breakPoints = new HashMap<Integer,Integer>();
-    for (int i : getBreakpointLines()) breakPoints.put(debugLines.get(i),i);
+    /* the processor asks for each instruction, so the map is only rebuilt when the bookmarks changed */
+    GutterIconInfo[] bookmarks = debugScrollPane.getGutter().getBookmarks();
+    boolean changed = breakPointOffsets == null || breakPointOffsets.length != bookmarks.length;
+    for (int i = 0 ; i < bookmarks.length && !changed ; i++)
+      changed = breakPointOffsets[i] != bookmarks[i].getMarkedOffset();
+    if (changed) {
+      breakPoints = new HashMap<Integer,Integer>();
+      for (int i : getBreakpointLines()) breakPoints.put(debugLines.get(i),i);
+      bookmarks = debugScrollPane.getGutter().getBookmarks();
+      breakPointOffsets = new int[bookmarks.length];
+      for (int i = 0 ; i < bookmarks.length ; i++)
+        breakPointOffsets[i] = bookmarks[i].getMarkedOffset();
+    }
     return breakPoints;
   }
 
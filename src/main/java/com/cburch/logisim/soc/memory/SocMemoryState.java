@@ -29,7 +29,6 @@
 package com.cburch.logisim.soc.memory;
 
 import java.util.ArrayList;
-import java.util.LinkedList;
 import java.util.Random;
 
 import com.cburch.logisim.data.BitWidth;
@@ -44,73 +43,28 @@ import com.cburch.logisim.soc.data.SocSupport;
 
 public class SocMemoryState implements SocBusSlaveInterface {
 
-  public class SocMemoryInfo implements InstanceData,Cloneable {
-    private class SocMemoryInfoBlock {
-      private LinkedList<Integer> contents = new LinkedList<Integer>();
-      private int startAddress;
-      private Random rand = new Random();
-    
-      public SocMemoryInfoBlock(int address, int data) {
-        startAddress = (address>>2)<<2;
-        contents.add(data);
-      }
-    
-      public boolean canAddBefore( int address ) {
-        int previousAddress = getStartAddress()-4;
-        return (address >= previousAddress) && (address < getStartAddress());
-      }
-    
-      public boolean canAddAfter( int address ) {
-        return (address >= getEndAddress())&&(address < getEndAddress()+4);
-      }
-    
-      public boolean contains( int address ) {
-        return (address >= getStartAddress()) && (address < getEndAddress());
-      }
-    
-      public boolean canAdd(int address) {
-        return canAddBefore(address) || canAddAfter(address);
-      }
-    
-      public boolean addInfo(int address, int data) {
-        if (canAddBefore(address)) {
-          contents.addFirst(data);
-          startAddress -= 4;
-          return true;
-        }
-        if (canAddAfter(address)) {
-          contents.add(data);
-          return true;
-        }
-        if (contains(address)) {
-          int index = (address-startAddress)>>2;
-          contents.set(index, data);
-          return true;
-        }
-        return false;
-      }
-    
-      public int getValue(int address) {
-        int index = (address-startAddress)>>2;
-        if (index >= contents.size()) {
-          return rand.nextInt();
-        }
-        return contents.get(index);
-      }
-    
-      public int getStartAddress() {
-        return startAddress;
-      }
-    
-      public int getEndAddress() {
-        return startAddress+contents.size()*4;
-      }
+  /* The memory contents are kept in pages of PAGE_WORDS words, allocated on the first write
+   * into them. A two level directory indexed by the word address finds a page in constant time. */
+  private static final int PAGE_BITS = 10;
+  private static final int PAGE_WORDS = 1 << PAGE_BITS;
+  private static final int DIR_BITS = 10;
+  private static final int DIR_SIZE = 1 << DIR_BITS;
+  private static final int TOP_SIZE = 1 << (30 - PAGE_BITS - DIR_BITS);
+
+  private static class SocMemoryPage {
+    private int[] words = new int[PAGE_WORDS];
+    private long[] written = new long[PAGE_WORDS / 64];
+
+    private boolean isWritten(int index) {
+      return (written[index >>> 6] & (1L << index)) != 0;
     }
+  }
 
-    private ArrayList<SocMemoryInfoBlock> memInfo;
+  public class SocMemoryInfo implements InstanceData,Cloneable {
+    private SocMemoryPage[][] pages;
     
     public SocMemoryInfo() {
-      memInfo = new ArrayList<SocMemoryInfoBlock>();
+      pages = new SocMemoryPage[TOP_SIZE][];
     }
 
     public SocMemoryInfo clone() {
@@ -121,50 +75,41 @@ public class SocMemoryState implements SocBusSlaveInterface {
       }
     }
       
+    private SocMemoryPage getPage(int word, boolean create) {
+      int top = word >>> (PAGE_BITS + DIR_BITS);
+      SocMemoryPage[] dir = pages[top];
+      if (dir == null) {
+        if (!create)
+          return null;
+        dir = pages[top] = new SocMemoryPage[DIR_SIZE];
+      }
+      int index = (word >>> PAGE_BITS) & (DIR_SIZE - 1);
+      SocMemoryPage page = dir[index];
+      if (page == null && create)
+        page = dir[index] = new SocMemoryPage();
+      return page;
+    }
+
     public int getWord(int address) {
-      for (SocMemoryInfoBlock info : memInfo)
-        if (info.contains(address))
-          return info.getValue(address);
-      return rand.nextInt();
+      int word = address >>> 2;
+      SocMemoryPage page = getPage(word, false);
+      int index = word & (PAGE_WORDS - 1);
+      if (page == null || !page.isWritten(index))
+        return rand.nextInt(); /* uninitialized memory reads as random data */
+      return page.words[index];
+    }
+
+    public void readWords(int address, int[] data, int offset, int nrOfWords) {
+      for (int i = 0 ; i < nrOfWords ; i++)
+        data[offset+i] = getWord(address+(i<<2));
     }
 
     public void writeWord(int address, int wdata) {
-      ArrayList<SocMemoryInfoBlock> adders = new ArrayList<SocMemoryInfoBlock>();
-      for (SocMemoryInfoBlock info : memInfo) {
-        if (info.contains(address)) {
-          info.addInfo(address, wdata);
-          return;
-        }
-        if (info.canAdd(address))
-          adders.add(info);
-      }
-      if (adders.isEmpty()) {
-        /* we have to create a new set */
-        memInfo.add(new SocMemoryInfoBlock(address,wdata));
-        return;
-      }
-      if (adders.size() == 1) {
-        /* easy case we can add in front or at the end of an existing one */
-        adders.get(0).addInfo(address, wdata);
-        return;
-      }
-      if (adders.size() > 2) {
-        System.out.println("BUG! Memory management does not function corectly for the SocMemory component!");
-        return;
-      }
-      SocMemoryInfoBlock addbefore = adders.get(0).canAddBefore(address) ? adders.get(0) :
-          adders.get(1).canAddBefore(address) ? adders.get(1) : null;
-      SocMemoryInfoBlock addAfter = adders.get(0).canAddAfter(address) ? adders.get(0) :
-          adders.get(1).canAddAfter(address) ? adders.get(1) : null;
-      if (addbefore == null || addAfter == null) {
-        System.out.println("BUG! Memory management does not function corectly for the SocMemory component!");
-        return;
-      }
-      addAfter.addInfo(address, wdata);
-      for (int i = addbefore.getStartAddress() ; i < addbefore.getEndAddress() ; i += 4) {
-        addAfter.addInfo(i, addbefore.getValue(i));
-      }
-      memInfo.remove(addbefore);
+      int word = address >>> 2;
+      SocMemoryPage page = getPage(word, true);
+      int index = word & (PAGE_WORDS - 1);
+      page.words[index] = wdata;
+      page.written[index >>> 6] |= 1L << index;
     }
   }
   
@@ -284,6 +229,15 @@ public class SocMemoryState implements SocBusSlaveInterface {
 	trans.setTransactionResponder(attachedBus.getComponent());
   }
   
+  @Override
+  public boolean readBlock(int address, int[] data, int offset, int nrOfWords) {
+    SocMemoryInfo info = getRegPropagateState();
+    if (info == null)
+      return false;
+    info.readWords(address, data, offset, nrOfWords);
+    return true;
+  }
+  
   private SocMemoryInfo getRegPropagateState() {
     return (SocMemoryInfo) attachedBus.getSocSimulationManager().getdata(attachedBus.getComponent());
   }
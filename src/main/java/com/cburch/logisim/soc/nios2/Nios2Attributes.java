@@ -55,6 +55,7 @@ public class Nios2Attributes extends AbstractAttributeSet {
   
   public static final Attribute<Nios2State> NIOS2_STATE = new Nios2StateAttribute();
   public static final Attribute<BitWidth> NR_OF_IRQS = Attributes.forBitWidth("irqWidth", S.getter("rv32imIrqWidth"),0,32);
+  public static final Attribute<Integer> INSTR_PER_CLOCK = Attributes.forIntegerRange("instrPerClock", S.getter("rv32InstrPerClock"),1,4096);
   public static final Attribute<Integer> RESET_VECTOR = Attributes.forHexInteger("resetVector", S.getter("rv32ResetVector"));
   public static final Attribute<Integer> EXCEPTION_VECTOR  = Attributes.forHexInteger("exceptionVector", S.getter("rv32ExceptionVector"));
   public static final Attribute<Integer> BREAK_VECTOR  = Attributes.forHexInteger("breakVector", S.getter("nios2BreakVector"));
@@ -72,6 +73,7 @@ public class Nios2Attributes extends AbstractAttributeSet {
               EXCEPTION_VECTOR,
               BREAK_VECTOR,
               NR_OF_IRQS,
+              INSTR_PER_CLOCK,
               NIOS_STATE_VISIBLE,
               StdAttr.LABEL,
               StdAttr.LABEL_FONT,
@@ -102,6 +104,7 @@ public class Nios2Attributes extends AbstractAttributeSet {
     if (attr == EXCEPTION_VECTOR) return (V) upState.getExceptionVector();
     if (attr == BREAK_VECTOR) return (V) upState.getBreakVector();
     if (attr == NR_OF_IRQS) return (V) BitWidth.create(upState.getNrOfIrqs());
+    if (attr == INSTR_PER_CLOCK) return (V) upState.getInstrPerClock();
     if (attr == StdAttr.LABEL) return (V) upState.getLabel();
     if (attr == StdAttr.LABEL_FONT) return (V) labelFont;
     if (attr == StdAttr.LABEL_VISIBILITY) return (V) labelVisable;
@@ -139,6 +142,11 @@ public class Nios2Attributes extends AbstractAttributeSet {
         fireAttributeValueChanged(attr, value, oldValue);
       return;
     }
+    if (attr == INSTR_PER_CLOCK) {
+      if (upState.setInstrPerClock((int) value))
+        fireAttributeValueChanged(attr, value, oldValue);
+      return;
+    }
     if (attr == NR_OF_IRQS) {
       if (upState.setNrOfIrqs(((BitWidth)value).getWidth()))
         fireAttributeValueChanged(attr, value, oldValue);
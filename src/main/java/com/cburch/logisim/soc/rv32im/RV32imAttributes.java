@@ -55,6 +55,7 @@ public class RV32imAttributes extends AbstractAttributeSet {
   
   public static final Attribute<RV32im_state> RV32IM_STATE = new Rv32imStateAttribute();
   public static final Attribute<BitWidth> NR_OF_IRQS = Attributes.forBitWidth("irqWidth", S.getter("rv32imIrqWidth"),0,32);
+  public static final Attribute<Integer> INSTR_PER_CLOCK = Attributes.forIntegerRange("instrPerClock", S.getter("rv32InstrPerClock"),1,4096);
   public static final Attribute<Integer> RESET_VECTOR = Attributes.forHexInteger("resetVector", S.getter("rv32ResetVector"));
   public static final Attribute<Integer> EXCEPTION_VECTOR  = Attributes.forHexInteger("exceptionVector", S.getter("rv32ExceptionVector"));
   public static final Attribute<Boolean> RV32IM_STATE_VISABLE = Attributes.forBoolean("stateVisable", S.getter("rv32StateVisable"));
@@ -70,6 +71,7 @@ public class RV32imAttributes extends AbstractAttributeSet {
               RESET_VECTOR,
               EXCEPTION_VECTOR,
               NR_OF_IRQS,
+              INSTR_PER_CLOCK,
               RV32IM_STATE_VISABLE,
               StdAttr.LABEL,
               StdAttr.LABEL_FONT,
@@ -99,6 +101,7 @@ public class RV32imAttributes extends AbstractAttributeSet {
     if (attr == RESET_VECTOR) return (V) upState.getResetVector();
     if (attr == EXCEPTION_VECTOR) return (V) upState.getExceptionVector();
     if (attr == NR_OF_IRQS) return (V) BitWidth.create(upState.getNrOfIrqs());
+    if (attr == INSTR_PER_CLOCK) return (V) upState.getInstrPerClock();
     if (attr == StdAttr.LABEL) return (V) upState.getLabel();
     if (attr == StdAttr.LABEL_FONT) return (V) labelFont;
     if (attr == StdAttr.LABEL_VISIBILITY) return (V) labelVisable;
@@ -131,6 +134,11 @@ public class RV32imAttributes extends AbstractAttributeSet {
         fireAttributeValueChanged(attr, value, oldValue);
       return;
     }
+    if (attr == INSTR_PER_CLOCK) {
+      if (upState.setInstrPerClock((int) value))
+        fireAttributeValueChanged(attr, value, oldValue);
+      return;
+    }
     if (attr == NR_OF_IRQS) {
       if (upState.setNrOfIrqs(((BitWidth)value).getWidth()))
         fireAttributeValueChanged(attr, value, oldValue);
@@ -36,7 +36,6 @@ import java.awt.Graphics2D;
 import java.awt.event.WindowEvent;
 import java.awt.event.WindowListener;
 import java.util.HashMap;
-import java.util.LinkedList;
 
 import javax.swing.JOptionPane;
 import javax.swing.JPanel;
@@ -63,6 +62,7 @@ import com.cburch.logisim.soc.data.SocUpMenuProvider;
 import com.cburch.logisim.soc.data.SocUpSimulationState;
 import com.cburch.logisim.soc.data.SocUpSimulationStateListener;
 import com.cburch.logisim.soc.data.SocUpStateInterface;
+import com.cburch.logisim.soc.data.TraceBuffer;
 import com.cburch.logisim.soc.data.TraceInfo;
 import com.cburch.logisim.soc.file.ElfHeader;
 import com.cburch.logisim.soc.file.ElfProgramHeader;
@@ -82,7 +82,7 @@ public class RV32im_state implements SocUpSimulationStateListener,SocProcessorIn
     private Boolean[] registers_valid;
     private int pc;
     private int lastRegisterWritten = -1;
-    private LinkedList<TraceInfo> instrTrace;
+    private TraceBuffer instrTrace;
     private Value lastClock;
     private SocUpSimulationState simState;
     private Instance myInstance;
@@ -94,7 +94,7 @@ public class RV32im_state implements SocUpSimulationStateListener,SocProcessorIn
     public ProcessorState(Instance inst) {
       registers = new int[32];
       registers_valid = new Boolean[32];
-      instrTrace = new LinkedList<TraceInfo>();
+      instrTrace = new TraceBuffer(CpuDrawSupport.NrOfTraces,ASSEMBLER);
       lastClock = Value.createUnknown(BitWidth.ONE);
       simState = new SocUpSimulationState();
       myInstance = inst;
@@ -137,8 +137,11 @@ public class RV32im_state implements SocUpSimulationStateListener,SocProcessorIn
     public JPanel getAsmWindow() { return bPanel; }
     
     public void setClock(Value clock, CircuitState cState) {
-      if (lastClock == Value.FALSE && clock == Value.TRUE)
-        execute(cState);
+      if (lastClock == Value.FALSE && clock == Value.TRUE) {
+        /* in turbo mode several instructions are executed on one clock edge */
+        int nrOfInstructions = instrPerClock;
+        while (nrOfInstructions-- > 0 && execute(cState));
+      }
       lastClock = clock;
     }
 
@@ -197,17 +200,18 @@ public class RV32im_state implements SocUpSimulationStateListener,SocProcessorIn
       return attachedBus.getComponent();
     }
     
-    public void execute(CircuitState cState) {
+    /* returns true if an instruction was executed and the processor can continue with the next one */
+    public boolean execute(CircuitState cState) {
       /* check the simulation state */
       if (!simState.canExecute())
-        return;
+        return false;
       HashMap<Integer,Integer> breakPoints = bPanel.getBreakPoints();
       if (breakPoints.containsKey(pc)) {
         if (simState.breakPointReached()) {
           bPanel.gotoLine(breakPoints.get(pc)-1);
           JOptionPane.showMessageDialog(null,S.get("RV32imBreakPointReached"),
                   SocSupport.getMasterName(cState,RV32im_state.this.getName()),JOptionPane.INFORMATION_MESSAGE);
-          return;
+          return false;
         }
       }
       /* TODO: check interrupts */
@@ -219,44 +223,53 @@ public class RV32im_state implements SocUpSimulationStateListener,SocProcessorIn
         JOptionPane.showMessageDialog(null,trans.getErrorMessage(),
               SocSupport.getMasterName(cState,RV32im_state.this.getName())+S.get("RV32imFetchTransaction"),JOptionPane.ERROR_MESSAGE);
         simState.errorInExecution();
-        return;
+        return false;
       }
       /* decode instruction */
       int instruction = trans.getReadData(); 
-      ASSEMBLER.decode(instruction);
-      /* execute instruction */
-      AssemblerExecutionInterface exe = ASSEMBLER.getExeUnit();
+      /* execute instruction; the execution units are shared by all processors and keep the
+       * decoded instruction, hence they are only used under the lock of the assembler */
+      AssemblerExecutionInterface exe;
+      TraceInfo trace = null;
+      boolean executed = false;
+      boolean jumped = false;
+      String errorMessage = null;
       lastRegisterWritten = -1;
-      while (instrTrace.size() >= CpuDrawSupport.NrOfTraces)
-        instrTrace.removeLast();
+      synchronized (ASSEMBLER) {
+        exe = ASSEMBLER.decode(instruction);
+        if (exe != null) {
+          trace = instrTrace.add(pc,instruction,false);
+          executed = exe.execute(this,cState);
+          errorMessage = exe.getErrorMessage();
+          jumped = exe.performedJump();
+        }
+      }
       if (exe == null) {
         JOptionPane.showMessageDialog(null,S.get("RV32imFetchInvalidInstruction"),
               SocSupport.getMasterName(cState,RV32im_state.this.getName())+S.get("RV32imFetchTransaction"),JOptionPane.ERROR_MESSAGE);
         simState.errorInExecution();
-        instrTrace.addFirst(new TraceInfo(pc,instruction,S.get("RV32imFetchInvInstrAsm"),true));
+        instrTrace.add(pc,instruction,S.get("RV32imFetchInvInstrAsm"),true);
         pc = pc + 4;
         if (visible) repaint();
-        return;
+        return false;
       }
-      TraceInfo trace = new TraceInfo(pc,instruction,exe.getAsmInstruction(),false);
-      if (!exe.execute(this,cState)) {
+      if (!executed) {
         StringBuffer s = new StringBuffer();
         s.append(S.get("RV32imFetchExecutionError"));
-        if (exe.getErrorMessage() != null)
-          s.append("\n"+exe.getErrorMessage());
+        if (errorMessage != null)
+          s.append("\n"+errorMessage);
         JOptionPane.showMessageDialog(null,s.toString(),
               SocSupport.getMasterName(cState,RV32im_state.this.getName())+S.get("RV32imFetchTransaction"),JOptionPane.ERROR_MESSAGE);
         simState.errorInExecution();
         trace.setError();
-        instrTrace.addFirst(trace);
         if (visible) repaint();
-        return;
+        return false;
       }
-      instrTrace.addFirst(trace);
       /* all done increment pc */
-      if (!exe.performedJump())
+      if (!jumped)
         pc = pc+4;
       if (visible) repaint();
+      return simState.canExecute();
     }
       
     public ProcessorState clone() {
@@ -290,7 +303,7 @@ public class RV32im_state implements SocUpSimulationStateListener,SocProcessorIn
     public int getLastRegisterWritten() { return lastRegisterWritten; }
     public String getRegisterAbiName(int index) { return registerABINames[index]; }
     public String getRegisterNormalName(int index) { return "x"+index; }
-    public LinkedList<TraceInfo> getTraces() { return instrTrace; }
+    public TraceBuffer getTraces() { return instrTrace; }
 	public WindowListener getWindowListener() { return this; }
     public JPanel getStatePanel() { return this; }
 	public AssemblerInterface getAssembler() { return ASSEMBLER; }
@@ -302,6 +315,7 @@ public class RV32im_state implements SocUpSimulationStateListener,SocProcessorIn
   private int resetVector;
   private int exceptionVector;
   private int nrOfIrqs;
+  private int instrPerClock;
   private String label;
   private SocBusInfo attachedBus;
   
@@ -328,6 +342,7 @@ public class RV32im_state implements SocUpSimulationStateListener,SocProcessorIn
     resetVector = 0;
     exceptionVector = 0x14;
     nrOfIrqs = 0;
+    instrPerClock = 1;
     label = "";
     attachedBus = new SocBusInfo("");
   }
@@ -336,6 +351,7 @@ public class RV32im_state implements SocUpSimulationStateListener,SocProcessorIn
     dest.resetVector = resetVector;
     dest.exceptionVector = exceptionVector;
     dest.nrOfIrqs = nrOfIrqs;
+    dest.instrPerClock = instrPerClock;
     dest.label = label;
     dest.attachedBus.setBusId(attachedBus.getBusId());
   }
@@ -382,6 +398,17 @@ public class RV32im_state implements SocUpSimulationStateListener,SocProcessorIn
     return nrOfIrqs;
   }
   
+  public boolean setInstrPerClock(int value) {
+    if (instrPerClock == value)
+      return false;
+    instrPerClock = value;
+    return true;
+  }
+  
+  public Integer getInstrPerClock() {
+    return instrPerClock;
+  }
+  
   public boolean setLabel(String value) {
     if (label.equals(value))
       return false;
@@ -33,6 +33,7 @@ import static com.cburch.logisim.soc.Strings.S;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.concurrent.ConcurrentHashMap;
 
 import com.cburch.logisim.circuit.CircuitState;
 import com.cburch.logisim.soc.data.SocBusTransaction;
@@ -47,7 +48,9 @@ import com.cburch.logisim.soc.file.SymbolTable;
 public abstract class AbstractAssembler implements AssemblerInterface {
 
   private static final int NR_OF_BYTES_PER_LINE = 16;
+  private static final int MAX_DECODE_CACHE_SIZE = 1 << 16;
   private ArrayList<AssemblerExecutionInterface> exeUnits = new ArrayList<AssemblerExecutionInterface>();
+  private ConcurrentHashMap<Integer,AssemblerExecutionInterface> decodeCache = new ConcurrentHashMap<Integer,AssemblerExecutionInterface>();
   private HashSet<Integer> acceptedParameterTypes;
   
   public AbstractAssembler() {
@@ -66,19 +69,58 @@ public abstract class AbstractAssembler implements AssemblerInterface {
   public void AddAcceptedParameterType(int type) { acceptedParameterTypes.add(type); }
   public HashSet<Integer> getAcceptedParameterTypes() { return acceptedParameterTypes; }
   
-  public void addAssemblerExecutionUnit( AssemblerExecutionInterface exe ) { exeUnits.add(exe); }
+  public void addAssemblerExecutionUnit( AssemblerExecutionInterface exe ) {
+    exeUnits.add(exe);
+    decodeCache.clear();
+  }
 
-  public void decode(int instruction) {
+  public AssemblerExecutionInterface decode(int instruction) {
+    /* the execution unit handling an instruction only depends on the instruction itself, hence
+     * after the first decode of an instruction only this unit has to decode it again */
+    AssemblerExecutionInterface decoded = decodeCache.get(instruction);
+    if (decoded != null) {
+      decoded.setBinInstruction(instruction);
+      return decoded;
+    }
     for (AssemblerExecutionInterface exe : exeUnits)
       exe.setBinInstruction(instruction);
-  }
-  
-  public AssemblerExecutionInterface getExeUnit() {
     for (AssemblerExecutionInterface exe : exeUnits)
-      if (exe.isValid())
-        return exe;
+      if (exe.isValid()) {
+        decoded = exe;
+        break;
+      }
+    if (decoded == null)
+      return null;
+    if (decodeCache.size() >= MAX_DECODE_CACHE_SIZE)
+      decodeCache.clear();
+    decodeCache.put(instruction, decoded);
+    return decoded;
+  }
+
+  /* The execution units keep the instruction they decoded, hence the disassembly on the event
+   * thread decodes and uses them under the lock of the assembler, like the processors do. */
+  private synchronized Integer getLabelTarget(int instruction, long addr) {
+    AssemblerExecutionInterface exe = decode(instruction);
+    if (exe instanceof AbstractExecutionUnitWithLabelSupport) {
+      AbstractExecutionUnitWithLabelSupport jump = (AbstractExecutionUnitWithLabelSupport) exe;
+      if (jump.isLabelSupported())
+        return SocSupport.convUnsignedLong(jump.getLabelAddress(addr));
+    }
     return null;
   }
+
+  private synchronized String disassemble(int instruction, long addr, HashMap<Integer,String> labels) {
+    AssemblerExecutionInterface exe = decode(instruction);
+    if (exe == null) return null;
+    if (labels != null && exe instanceof AbstractExecutionUnitWithLabelSupport) {
+      AbstractExecutionUnitWithLabelSupport jump = (AbstractExecutionUnitWithLabelSupport) exe;
+      if (jump.isLabelSupported()) {
+        Integer target = SocSupport.convUnsignedLong(jump.getLabelAddress(addr));
+        if (labels.containsKey(target)) return jump.getAsmInstruction(labels.get(target));
+      }
+    }
+    return exe.getAsmInstruction();
+  }
   
   public ArrayList<String> getOpcodes() {
     ArrayList<String> opcodes = new ArrayList<String>();
@@ -302,28 +344,19 @@ public abstract class AbstractAssembler implements AssemblerInterface {
           /* first pass, we are going to insert labels where we can find them */
           ArrayList<Integer> newLabels = new ArrayList<Integer>();
           for (int pc = 0 ; pc < (size>>2) ; pc++) {
-            decode(contents[pc]);
-            AssemblerExecutionInterface exe = getExeUnit();
-            if (exe instanceof AbstractExecutionUnitWithLabelSupport) {
-              AbstractExecutionUnitWithLabelSupport jump = (AbstractExecutionUnitWithLabelSupport) exe;
-              if (jump.isLabelSupported()) {
-                long addr = startAddress+((long)pc<<2);
-                long target = jump.getLabelAddress(addr);
-                Integer labelLoc = SocSupport.convUnsignedLong(target);
-                if (!labels.containsKey(labelLoc) && !newLabels.contains(labelLoc)) {
-                  if (newLabels.isEmpty()) newLabels.add(labelLoc);
-                  else {
-                    boolean inserted = false;
-                    for (int j = 0 ; j < newLabels.size() ; j++) {
-                      if (newLabels.get(j)>labelLoc) {
-                        newLabels.add(j, labelLoc);
-                        inserted = true;
-                        break;
-                      }
-                    }
-                    if (!inserted) newLabels.add(labelLoc);
+            Integer labelLoc = getLabelTarget(contents[pc], startAddress+((long)pc<<2));
+            if (labelLoc != null && !labels.containsKey(labelLoc) && !newLabels.contains(labelLoc)) {
+              if (newLabels.isEmpty()) newLabels.add(labelLoc);
+              else {
+                boolean inserted = false;
+                for (int j = 0 ; j < newLabels.size() ; j++) {
+                  if (newLabels.get(j)>labelLoc) {
+                    newLabels.add(j, labelLoc);
+                    inserted = true;
+                    break;
                   }
                 }
+                if (!inserted) newLabels.add(labelLoc);
               }
             }
           }
@@ -357,18 +390,8 @@ public abstract class AbstractAssembler implements AssemblerInterface {
             if (labels.containsKey(SocSupport.convUnsignedLong(addr))) label.append(labels.get(SocSupport.convUnsignedLong(addr))+":");
             while (label.length() <= maxLabelSize) label.append(" ");
             line.append(label.toString()+" ");
-            decode(contents[pc]);
-            AssemblerExecutionInterface exe = getExeUnit();
-            if (exe != null && exe instanceof AbstractExecutionUnitWithLabelSupport) {
-              AbstractExecutionUnitWithLabelSupport jump = (AbstractExecutionUnitWithLabelSupport) exe;
-              if (jump.isLabelSupported()) {
-                long target = jump.getLabelAddress(addr);
-                if (labels.containsKey(SocSupport.convUnsignedLong(target))) 
-                  line.append(jump.getAsmInstruction(labels.get(SocSupport.convUnsignedLong(target))));
-                else
-                  line.append(jump.getAsmInstruction());
-              } else line.append(exe.getAsmInstruction());
-            } else if (exe != null) line.append(exe.getAsmInstruction());
+            String asm = disassemble(contents[pc], addr, labels);
+            if (asm != null) line.append(asm);
             else line.append(S.get("UnknownInstruction"));
             while (line.length() < remarkOffset) line.append(" ");
             line.append("# "+String.format("0x%08X", SocSupport.convUnsignedLong(startAddress+((long)pc<<2))));
@@ -398,9 +421,9 @@ public abstract class AbstractAssembler implements AssemblerInterface {
                lineNum = addLine(lines,"_start: ",lineNum,false);
               else
                 lineNum = addLine(lines,"       ",lineNum,false);
-              decode(instr);
-              if (getExeUnit()!= null) {
-                lineNum = addLine(lines,getExeUnit().getAsmInstruction(),lineNum,false);
+              String asm = disassemble(instr, addr, null);
+              if (asm != null) {
+                lineNum = addLine(lines,asm,lineNum,false);
                 validDebugLines.put(lineNum, SocSupport.convUnsignedLong(addr));
               } else lineNum = addLine(lines,"????",lineNum,false);
               lineNum = addLine(lines,"\n",lineNum,true);
@@ -39,9 +39,10 @@ import com.cburch.logisim.soc.file.ElfProgramHeader;
 import com.cburch.logisim.soc.file.ElfSectionHeader;
 
 public interface AssemblerInterface {
-  public void decode(int instruction);
+  /* returns the execution unit that decoded the instruction, or null if it is invalid; the unit
+   * keeps the decoded instruction, so it has to be used under the lock of the assembler */
+  public AssemblerExecutionInterface decode(int instruction);
   public boolean assemble(AssemblerAsmInstruction instruction);
-  public AssemblerExecutionInterface getExeUnit();
   public ArrayList<String> getOpcodes();
   public int getInstructionSize(String opcode);
   public boolean usesRoundedBrackets();
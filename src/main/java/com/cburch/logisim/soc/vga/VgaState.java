@@ -30,7 +30,9 @@ package com.cburch.logisim.soc.vga;
 
 import java.awt.Graphics;
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
 import java.util.ArrayList;
+import java.util.BitSet;
 
 import com.cburch.logisim.circuit.CircuitState;
 import com.cburch.logisim.data.AttributeOption;
@@ -45,6 +47,7 @@ import com.cburch.logisim.soc.data.SocBusSlaveInterface;
 import com.cburch.logisim.soc.data.SocBusSlaveListener;
 import com.cburch.logisim.soc.data.SocBusSnifferInterface;
 import com.cburch.logisim.soc.data.SocBusTransaction;
+import com.cburch.logisim.soc.data.SocSimulationManager;
 import com.cburch.logisim.soc.data.SocSupport;
 
 public class VgaState implements SocBusSlaveInterface, SocBusSnifferInterface,SocBusMasterInterface {
@@ -55,6 +58,7 @@ public class VgaState implements SocBusSlaveInterface, SocBusSnifferInterface,So
     private boolean modeSetBySoftware = false;
     private BufferedImage myImage;
     private boolean reload = true;
+    private BitSet dirtyLines = new BitSet();
     
     public VgaDisplayState() {
       mode = displayMode;
@@ -114,7 +118,7 @@ public class VgaState implements SocBusSlaveInterface, SocBusSnifferInterface,So
         return myImage.getHeight()*myImage.getWidth();
     }
     
-    public void clear() {
+    public synchronized void clear() {
       reload = true;
     }
 
@@ -126,19 +130,46 @@ public class VgaState implements SocBusSlaveInterface, SocBusSnifferInterface,So
       }
     }
     
-    private void loadImage(CircuitState cState) {
+    public synchronized void markDirty(int line) {
+      dirtyLines.set(line);
+    }
+    
+    private synchronized BitSet takeDirtyLines() {
+      BitSet lines = dirtyLines;
+      dirtyLines = new BitSet();
       if (reload) {
-        for (int line = 0 ; line < nrOfLines ; line++)
-          for (int pixel = 0 ; pixel < lineSize ; pixel++) {
-            int index = line*lineSize+pixel;
-          SocBusTransaction trans = new SocBusTransaction(SocBusTransaction.READTransaction,
-        vgaBufferAddress+index*4,0,SocBusTransaction.WordAccess,"vgadma");
+        lines.set(0, nrOfLines);
+        reload = false;
+      }
+      return lines;
+    }
+    
+    private void loadImage(CircuitState cState) {
+      BitSet lines = takeDirtyLines();
+      if (lines.isEmpty())
+        return;
+      int[] pixels = ((DataBufferInt) myImage.getRaster().getDataBuffer()).getData();
+      int first = lines.nextSetBit(0);
+      while (first >= 0 && first < nrOfLines) {
+        int last = Math.min(lines.nextClearBit(first), nrOfLines);
+        loadLines(first, last-first, pixels, cState);
+        first = lines.nextSetBit(last);
+      }
+    }
+    
+    private void loadLines(int firstLine, int nrOfLinesToLoad, int[] pixels, CircuitState cState) {
+      int first = firstLine*lineSize;
+      int nrOfPixels = nrOfLinesToLoad*lineSize;
+      SocSimulationManager socManager = attachedBus.getSocSimulationManager();
+      if (socManager != null && socManager.readBlock(attachedBus.getBusId(),vgaBufferAddress+first*4,
+          pixels,first,nrOfPixels,cState))
+        return;
+      for (int index = first ; index < first+nrOfPixels ; index++) {
+        SocBusTransaction trans = new SocBusTransaction(SocBusTransaction.READTransaction,
+            vgaBufferAddress+index*4,0,SocBusTransaction.WordAccess,"vgadma");
         trans.setAsHiddenTransaction();
         initializeTransaction(trans,attachedBus.getBusId(),cState);
-        int data = trans.hasError() ? 0 : trans.getReadData();
-        myImage.setRGB(pixel, line, data);
-          }
-        reload = false;
+        pixels[index] = trans.hasError() ? 0 : trans.getReadData();
       }
     }
     
@@ -327,7 +358,7 @@ public class VgaState implements SocBusSlaveInterface, SocBusSnifferInterface,So
     long addr = SocSupport.convUnsignedInt(trans.getAddress()); 
     if (addr >= start && addr < end) {
       int index = SocSupport.convUnsignedLong(addr-start)>>2;
-      state.myImage.setRGB(index%state.lineSize, index/state.lineSize, trans.getWriteData());
+      state.markDirty(index/state.lineSize);
     }
   }
 
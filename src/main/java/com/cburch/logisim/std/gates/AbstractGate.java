@@ -31,6 +31,7 @@ package com.cburch.logisim.std.gates;
 import com.cburch.logisim.LogisimVersion;
 import com.cburch.logisim.analyze.model.Expression;
 import com.cburch.logisim.analyze.model.Expressions;
+import com.cburch.logisim.circuit.BitSliceComputer;
 import com.cburch.logisim.circuit.ExpressionComputer;
 import com.cburch.logisim.comp.TextField;
 import com.cburch.logisim.data.Attribute;
@@ -82,6 +83,27 @@ abstract class AbstractGate extends InstanceFactory {
     }
   }
 
+  /**
+   * Sets one bit of output port 0 from its lanes, after applying {@link #pullOutput} to the lanes
+   * in <code>pulled</code>.
+   */
+  static void setOutputLanes(
+      BitSliceComputer.Lanes lanes,
+      int bit,
+      long value,
+      long unknown,
+      long error,
+      Object outType,
+      long pulled) {
+    if (outType == GateAttributes.OUTPUT_0Z) {
+      unknown |= value & pulled;
+      value &= ~pulled;
+    } else if (outType == GateAttributes.OUTPUT_Z1) {
+      unknown |= ~value & ~unknown & ~error & pulled;
+    }
+    lanes.setPort(0, bit, value, unknown, error);
+  }
+
   private int bonusWidth = 0;
   private boolean negateOutput = false;
   private boolean isXor = false;
@@ -137,6 +159,20 @@ abstract class AbstractGate extends InstanceFactory {
 
   protected abstract Value computeOutput(Value[] inputs, int numInputs, InstanceState state);
 
+  /**
+   * Computes one bit of the output as {@link #computeOutput} does, for 64 lanes at once. Element
+   * <code>i</code> of <code>values</code>, <code>unknowns</code> and <code>errors</code> holds the
+   * lanes in which input <code>i</code> is 1, unknown and an error respectively. The same three
+   * masks of the output are stored into <code>out</code>.
+   */
+  protected abstract void computeOutputLanes(
+      long[] values,
+      long[] unknowns,
+      long[] errors,
+      int numInputs,
+      AttributeSet attrs,
+      long[] out);
+
   void computePorts(Instance instance) {
     GateAttributes attrs = (GateAttributes) instance.getAttributeSet();
     int inputs = attrs.inputs;
@@ -332,6 +368,56 @@ abstract class AbstractGate extends InstanceFactory {
         }
       };
     }
+    if (key == BitSliceComputer.class) {
+      return new BitSliceComputer() {
+        public void computeLanes(BitSliceComputer.Lanes lanes) {
+          GateAttributes attrs = (GateAttributes) instance.getAttributeSet();
+          int inputCount = attrs.inputs;
+          long negated = attrs.negated;
+          int width = attrs.width.getWidth();
+          boolean errorIfUndefined =
+              lanes
+                  .getProjectOptions()
+                  .getValue(Options.ATTR_GATE_UNDEFINED)
+                  .equals(Options.GATE_UNDEFINED_ERROR);
+
+          boolean error = false;
+          int[] ports = new int[inputCount];
+          int numInputs = 0;
+          for (int i = 1; i <= inputCount; i++) {
+            if (lanes.isPortConnected(i)) {
+              ports[numInputs++] = i;
+            } else if (errorIfUndefined) {
+              error = true;
+            }
+          }
+          long[] values = new long[numInputs];
+          long[] unknowns = new long[numInputs];
+          long[] errors = new long[numInputs];
+          long[] out = new long[3];
+          for (int b = 0; b < width; b++) {
+            if (numInputs == 0 || error) {
+              lanes.setPort(0, b, 0, 0, -1L);
+              continue;
+            }
+            for (int i = 0; i < numInputs; i++) {
+              int port = ports[i];
+              values[i] = lanes.getValue(port, b);
+              unknowns[i] = lanes.getUnknown(port, b);
+              errors[i] = lanes.getError(port, b);
+              if (((negated >> (port - 1)) & 1) != 0) {
+                // as Value.not
+                errors[i] |= unknowns[i];
+                unknowns[i] = 0;
+                values[i] = ~values[i] & ~errors[i];
+              }
+            }
+            computeOutputLanes(values, unknowns, errors, numInputs, attrs, out);
+            setOutputLanes(lanes, b, out[0], out[1], out[2], attrs.out, -1L);
+          }
+        }
+      };
+    }
     return super.getInstanceFeature(instance, key);
   }
 
@@ -562,16 +648,23 @@ abstract class AbstractGate extends InstanceFactory {
 
   protected abstract void paintShape(InstancePainter painter, int width, int height);
 
+  // input values of the gate being propagated; reused because propagation runs for every event
+  private static final ThreadLocal<Value[]> INPUTS =
+      new ThreadLocal<Value[]>() {
+        @Override
+        protected Value[] initialValue() {
+          return new Value[GateAttributes.MAX_INPUTS];
+        }
+      };
+
   @Override
   public void propagate(InstanceState state) {
     GateAttributes attrs = (GateAttributes) state.getAttributeSet();
     int inputCount = attrs.inputs;
     long negated = attrs.negated;
-    AttributeSet opts = state.getProject().getOptions().getAttributeSet();
-    boolean errorIfUndefined =
-        opts.getValue(Options.ATTR_GATE_UNDEFINED).equals(Options.GATE_UNDEFINED_ERROR);
+    boolean errorIfUndefined = state.getProject().getOptions().isGateUndefinedError();
 
-    Value[] inputs = new Value[inputCount];
+    Value[] inputs = INPUTS.get();
     int numInputs = 0;
     boolean error = false;
     for (int i = 1; i <= inputCount; i++) {
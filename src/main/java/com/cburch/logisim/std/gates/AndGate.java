@@ -100,6 +100,17 @@ class AndGate extends AbstractGate {
     return GateFunctions.computeAnd(inputs, numInputs);
   }
 
+  @Override
+  protected void computeOutputLanes(
+      long[] values,
+      long[] unknowns,
+      long[] errors,
+      int numInputs,
+      AttributeSet attrs,
+      long[] out) {
+    GateFunctions.computeAndLanes(values, unknowns, errors, numInputs, out);
+  }
+
   @Override
   protected Value getIdentity() {
     return Value.TRUE;
@@ -31,6 +31,7 @@ package com.cburch.logisim.std.gates;
 import static com.cburch.logisim.std.Strings.S;
 
 import com.cburch.logisim.analyze.model.Expression;
+import com.cburch.logisim.circuit.BitSliceComputer;
 import com.cburch.logisim.circuit.ExpressionComputer;
 import com.cburch.logisim.data.Attribute;
 import com.cburch.logisim.data.AttributeSet;
@@ -74,9 +75,7 @@ class Buffer extends InstanceFactory {
   // static methods - shared with other classes
   //
   static Value repair(InstanceState state, Value v) {
-    AttributeSet opts = state.getProject().getOptions().getAttributeSet();
-    Object onUndefined = opts.getValue(Options.ATTR_GATE_UNDEFINED);
-    boolean errorIfUndefined = onUndefined.equals(Options.GATE_UNDEFINED_ERROR);
+    boolean errorIfUndefined = state.getProject().getOptions().isGateUndefinedError();
     Value repaired;
     if (errorIfUndefined) {
       int vw = v.getWidth();
@@ -97,6 +96,26 @@ class Buffer extends InstanceFactory {
     return AbstractGate.pullOutput(repaired, outType);
   }
 
+  /** Sets output port 0 from the lanes of its bits, after applying {@link #repair}. */
+  static void repairLanes(
+      BitSliceComputer.Lanes lanes, long[] value, long[] unknown, long[] error, Instance inst) {
+    Object onUndefined = lanes.getProjectOptions().getValue(Options.ATTR_GATE_UNDEFINED);
+    long pulled = -1L;
+    if (onUndefined.equals(Options.GATE_UNDEFINED_ERROR)) {
+      // repair returns fully defined values as they are, without pulling them
+      pulled = 0;
+      for (int b = 0; b < value.length; b++) {
+        pulled |= unknown[b] | error[b];
+        error[b] |= unknown[b];
+        unknown[b] = 0;
+      }
+    }
+    Object outType = inst.getAttributeValue(GateAttributes.ATTR_OUTPUT);
+    for (int b = 0; b < value.length; b++) {
+      AbstractGate.setOutputLanes(lanes, b, value[b], unknown[b], error[b], outType, pulled);
+    }
+  }
+
   public static InstanceFactory FACTORY = new Buffer();
 
   private Buffer() {
@@ -165,6 +184,22 @@ class Buffer extends InstanceFactory {
         }
       };
     }
+    if (key == BitSliceComputer.class) {
+      return new BitSliceComputer() {
+        public void computeLanes(BitSliceComputer.Lanes lanes) {
+          int width = instance.getAttributeValue(StdAttr.WIDTH).getWidth();
+          long[] value = new long[width];
+          long[] unknown = new long[width];
+          long[] error = new long[width];
+          for (int b = 0; b < width; b++) {
+            value[b] = lanes.getValue(1, b);
+            unknown[b] = lanes.getUnknown(1, b);
+            error[b] = lanes.getError(1, b);
+          }
+          repairLanes(lanes, value, unknown, error, instance);
+        }
+      };
+    }
     return super.getInstanceFeature(instance, key);
   }
 
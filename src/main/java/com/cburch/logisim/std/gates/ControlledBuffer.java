@@ -30,6 +30,7 @@ package com.cburch.logisim.std.gates;
 
 import static com.cburch.logisim.std.Strings.S;
 
+import com.cburch.logisim.circuit.BitSliceComputer;
 import com.cburch.logisim.comp.ComponentFactory;
 import com.cburch.logisim.data.Attribute;
 import com.cburch.logisim.data.AttributeOption;
@@ -40,7 +41,6 @@ import com.cburch.logisim.data.Bounds;
 import com.cburch.logisim.data.Direction;
 import com.cburch.logisim.data.Location;
 import com.cburch.logisim.data.Value;
-import com.cburch.logisim.file.Options;
 import com.cburch.logisim.instance.Instance;
 import com.cburch.logisim.instance.InstanceFactory;
 import com.cburch.logisim.instance.InstancePainter;
@@ -150,6 +150,32 @@ class ControlledBuffer extends InstanceFactory {
         }
       };
     }
+    if (key == BitSliceComputer.class) {
+      return new BitSliceComputer() {
+        public void computeLanes(BitSliceComputer.Lanes lanes) {
+          int width = instance.getAttributeValue(StdAttr.WIDTH).getWidth();
+          long enabled = lanes.getValue(2, 0);
+          long undefined = lanes.getUnknown(2, 0) | lanes.getError(2, 0);
+          long disabled = ~enabled & ~undefined;
+          for (int b = 0; b < width; b++) {
+            long value = lanes.getValue(1, b);
+            long unknown = lanes.getUnknown(1, b);
+            long error = lanes.getError(1, b);
+            if (isInverter) {
+              error |= unknown;
+              unknown = 0;
+              value = ~value & ~error;
+            }
+            lanes.setPort(
+                0,
+                b,
+                value & enabled,
+                (unknown & enabled) | disabled,
+                (error & enabled) | undefined);
+          }
+        }
+      };
+    }
     return super.getInstanceFeature(instance, key);
   }
 
@@ -275,8 +301,7 @@ class ControlledBuffer extends InstanceFactory {
     } else {
       Value out;
       if (control == Value.UNKNOWN || control == Value.NIL) {
-        AttributeSet opts = state.getProject().getOptions().getAttributeSet();
-        if (opts.getValue(Options.ATTR_GATE_UNDEFINED).equals(Options.GATE_UNDEFINED_ERROR)) {
+        if (state.getProject().getOptions().isGateUndefinedError()) {
           out = Value.createError(width);
         } else {
           out = Value.createUnknown(width);
@@ -74,6 +74,18 @@ class EvenParityGate extends AbstractGate {
     return GateFunctions.computeOddParity(inputs, numInputs).not();
   }
 
+  @Override
+  protected void computeOutputLanes(
+      long[] values,
+      long[] unknowns,
+      long[] errors,
+      int numInputs,
+      AttributeSet attrs,
+      long[] out) {
+    GateFunctions.computeOddParityLanes(values, unknowns, errors, numInputs, out);
+    GateFunctions.notLanes(out);
+  }
+
   @Override
   protected Value getIdentity() {
     return Value.FALSE;
@@ -81,5 +81,85 @@ class GateFunctions {
     return ret;
   }
 
+  //
+  // the same functions for 64 lanes of one bit, as used by AbstractGate.computeOutputLanes; out
+  // receives the value, unknown and error lanes of the result
+  //
+  static void computeAndLanes(
+      long[] values, long[] unknowns, long[] errors, int numInputs, long[] out) {
+    if (copyLanes(values, unknowns, errors, numInputs, out)) return;
+    long ret = -1L;
+    long falses = 0;
+    long bad = 0;
+    for (int i = 0; i < numInputs; i++) {
+      ret &= values[i];
+      falses |= ~values[i] & ~unknowns[i] & ~errors[i];
+      bad |= unknowns[i] | errors[i];
+    }
+    out[2] = bad & ~falses;
+    out[1] = 0;
+    out[0] = ret & ~out[2];
+  }
+
+  static void computeExactlyOneLanes(
+      long[] values, long[] unknowns, long[] errors, int numInputs, long[] out) {
+    long one = 0;
+    long many = 0;
+    long bad = 0;
+    for (int i = 0; i < numInputs; i++) {
+      many |= one & values[i];
+      one |= values[i];
+      bad |= unknowns[i] | errors[i];
+    }
+    out[2] = bad;
+    out[1] = 0;
+    out[0] = one & ~many & ~bad;
+  }
+
+  static void computeOddParityLanes(
+      long[] values, long[] unknowns, long[] errors, int numInputs, long[] out) {
+    if (copyLanes(values, unknowns, errors, numInputs, out)) return;
+    long ret = 0;
+    long bad = 0;
+    for (int i = 0; i < numInputs; i++) {
+      ret ^= values[i];
+      bad |= unknowns[i] | errors[i];
+    }
+    out[2] = bad;
+    out[1] = 0;
+    out[0] = ret & ~bad;
+  }
+
+  static void computeOrLanes(
+      long[] values, long[] unknowns, long[] errors, int numInputs, long[] out) {
+    if (copyLanes(values, unknowns, errors, numInputs, out)) return;
+    long trues = 0;
+    long bad = 0;
+    for (int i = 0; i < numInputs; i++) {
+      trues |= values[i];
+      bad |= unknowns[i] | errors[i];
+    }
+    out[2] = bad & ~trues;
+    out[1] = 0;
+    out[0] = trues;
+  }
+
+  /** Negates lanes computed by one of the functions above, as {@link Value#not} does. */
+  static void notLanes(long[] out) {
+    out[2] |= out[1];
+    out[1] = 0;
+    out[0] = ~out[0] & ~out[2];
+  }
+
+  // a single input is passed on unchanged, as computeAnd, computeOr and computeOddParity do
+  private static boolean copyLanes(
+      long[] values, long[] unknowns, long[] errors, int numInputs, long[] out) {
+    if (numInputs != 1) return false;
+    out[0] = values[0];
+    out[1] = unknowns[0];
+    out[2] = errors[0];
+    return true;
+  }
+
   private GateFunctions() {}
 }
@@ -102,6 +102,18 @@ class NandGate extends AbstractGate {
     return GateFunctions.computeAnd(inputs, numInputs).not();
   }
 
+  @Override
+  protected void computeOutputLanes(
+      long[] values,
+      long[] unknowns,
+      long[] errors,
+      int numInputs,
+      AttributeSet attrs,
+      long[] out) {
+    GateFunctions.computeAndLanes(values, unknowns, errors, numInputs, out);
+    GateFunctions.notLanes(out);
+  }
+
   @Override
   protected Value getIdentity() {
     return Value.TRUE;
@@ -99,6 +99,18 @@ class NorGate extends AbstractGate {
     return GateFunctions.computeOr(inputs, numInputs).not();
   }
 
+  @Override
+  protected void computeOutputLanes(
+      long[] values,
+      long[] unknowns,
+      long[] errors,
+      int numInputs,
+      AttributeSet attrs,
+      long[] out) {
+    GateFunctions.computeOrLanes(values, unknowns, errors, numInputs, out);
+    GateFunctions.notLanes(out);
+  }
+
   @Override
   protected Value getIdentity() {
     return Value.FALSE;
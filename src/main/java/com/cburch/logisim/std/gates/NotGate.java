@@ -32,6 +32,7 @@ import static com.cburch.logisim.std.Strings.S;
 
 import com.cburch.logisim.analyze.model.Expression;
 import com.cburch.logisim.analyze.model.Expressions;
+import com.cburch.logisim.circuit.BitSliceComputer;
 import com.cburch.logisim.circuit.ExpressionComputer;
 import com.cburch.logisim.comp.TextField;
 import com.cburch.logisim.data.Attribute;
@@ -180,6 +181,20 @@ class NotGate extends InstanceFactory {
         }
       };
     }
+    if (key == BitSliceComputer.class) {
+      return new BitSliceComputer() {
+        public void computeLanes(BitSliceComputer.Lanes lanes) {
+          int width = instance.getAttributeValue(StdAttr.WIDTH).getWidth();
+          long[] value = new long[width];
+          long[] error = new long[width];
+          for (int b = 0; b < width; b++) {
+            error[b] = lanes.getUnknown(1, b) | lanes.getError(1, b);
+            value[b] = ~lanes.getValue(1, b) & ~error[b];
+          }
+          Buffer.repairLanes(lanes, value, new long[width], error, instance);
+        }
+      };
+    }
     return super.getInstanceFeature(instance, key);
   }
 
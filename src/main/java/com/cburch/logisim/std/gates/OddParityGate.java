@@ -74,6 +74,17 @@ class OddParityGate extends AbstractGate {
     return GateFunctions.computeOddParity(inputs, numInputs);
   }
 
+  @Override
+  protected void computeOutputLanes(
+      long[] values,
+      long[] unknowns,
+      long[] errors,
+      int numInputs,
+      AttributeSet attrs,
+      long[] out) {
+    GateFunctions.computeOddParityLanes(values, unknowns, errors, numInputs, out);
+  }
+
   @Override
   protected Value getIdentity() {
     return Value.FALSE;
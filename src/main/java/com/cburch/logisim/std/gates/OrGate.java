@@ -98,6 +98,17 @@ class OrGate extends AbstractGate {
     return GateFunctions.computeOr(inputs, numInputs);
   }
 
+  @Override
+  protected void computeOutputLanes(
+      long[] values,
+      long[] unknowns,
+      long[] errors,
+      int numInputs,
+      AttributeSet attrs,
+      long[] out) {
+    GateFunctions.computeOrLanes(values, unknowns, errors, numInputs, out);
+  }
+
   @Override
   protected Value getIdentity() {
     return Value.FALSE;
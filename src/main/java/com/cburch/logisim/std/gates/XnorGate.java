@@ -82,6 +82,22 @@ class XnorGate extends AbstractGate {
     }
   }
 
+  @Override
+  protected void computeOutputLanes(
+      long[] values,
+      long[] unknowns,
+      long[] errors,
+      int numInputs,
+      AttributeSet attrs,
+      long[] out) {
+    if (attrs.getValue(GateAttributes.ATTR_XOR) == GateAttributes.XOR_ODD) {
+      GateFunctions.computeOddParityLanes(values, unknowns, errors, numInputs, out);
+    } else {
+      GateFunctions.computeExactlyOneLanes(values, unknowns, errors, numInputs, out);
+    }
+    GateFunctions.notLanes(out);
+  }
+
   @Override
   protected Value getIdentity() {
     return Value.FALSE;
@@ -93,6 +93,21 @@ class XorGate extends AbstractGate {
     }
   }
 
+  @Override
+  protected void computeOutputLanes(
+      long[] values,
+      long[] unknowns,
+      long[] errors,
+      int numInputs,
+      AttributeSet attrs,
+      long[] out) {
+    if (attrs.getValue(GateAttributes.ATTR_XOR) == GateAttributes.XOR_ODD) {
+      GateFunctions.computeOddParityLanes(values, unknowns, errors, numInputs, out);
+    } else {
+      GateFunctions.computeExactlyOneLanes(values, unknowns, errors, numInputs, out);
+    }
+  }
+
   @Override
   protected Value getIdentity() {
     return Value.FALSE;
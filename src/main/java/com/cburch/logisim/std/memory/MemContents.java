@@ -33,8 +33,19 @@ import com.cburch.hex.HexModelListener;
 import com.cburch.logisim.prefs.AppPreferences;
 import com.cburch.logisim.util.EventSourceWeakSupport;
 import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.swing.SwingUtilities;
 
+/**
+ * The contents of a RAM or ROM. Changes are not passed on to the listeners as they happen: the
+ * changed addresses are gathered into a few ranges, which the listeners get later on the event
+ * thread, without old values. Only a {@link SynchronousListener} is told of every change as it
+ * happens, with the old values.
+ */
 public class MemContents implements Cloneable, HexModel {
+  /** A listener that needs the old values of each change, such as an undo log. */
+  public interface SynchronousListener extends HexModelListener {}
+
   public static MemContents create(int addrBits, int width) {
     return new MemContents(addrBits, width, false);
   }
@@ -44,12 +55,21 @@ public class MemContents implements Cloneable, HexModel {
 
   private static final int PAGE_MASK = PAGE_SIZE - 1;
 
+  /* Source of seeds for the random contents when no seed is set */
+  private static final java.util.Random seedSource = new java.util.Random();
+
   private EventSourceWeakSupport<HexModelListener> listeners = null;
+  private EventSourceWeakSupport<HexModelListener> syncListeners = null;
+  private DirtyRanges dirty = new DirtyRanges();
+  private Runnable flusher = this::fireDirtyRanges;
   private int width;
   private int addrBits;
   private long mask;
   //private boolean isRom;
   private Page[] pages;
+  /* Whether the addresses without a page hold random values rather than zero */
+  private boolean random = false;
+  private long seed;
 
   private MemContents(int addrBits, int width, boolean IsRom) {
     listeners = null;
@@ -60,11 +80,21 @@ public class MemContents implements Cloneable, HexModel {
   // HexModel methods
   //
   public void addHexModelListener(HexModelListener l) {
-    if (listeners == null) listeners = new EventSourceWeakSupport<HexModelListener>();
-    listeners.add(l);
+    if (l instanceof SynchronousListener) {
+      if (syncListeners == null) syncListeners = new EventSourceWeakSupport<HexModelListener>();
+      syncListeners.add(l);
+    } else {
+      if (listeners == null) listeners = new EventSourceWeakSupport<HexModelListener>();
+      listeners.add(l);
+    }
   }
 
   public void clear() {
+    if (random) {
+      random = false;
+      dropPages();
+      return;
+    }
     for (int i = 0; i < pages.length; i++) {
       if (pages[i] != null) {
         if (pages[i] != null) clearPage(i);
@@ -74,16 +104,52 @@ public class MemContents implements Cloneable, HexModel {
   
   public void condClear() {
     if (!AppPreferences.Memory_Startup_Unknown.getBoolean()) clear();
-    else {
-      for (int i = 0 ; i < pages.length ; i++) {
-        long[] oldValues = pages[i] != null ? pages[i].get(0, pages[i].getLength()) : null;;
-        pages[i] = MemContentsSub.createPage(PAGE_SIZE, width);
-        if (oldValues != null)
-          fireBytesChanged(i << PAGE_SIZE_BITS, oldValues.length, oldValues);
-        else
-          fireBytesChanged(i << PAGE_SIZE_BITS, pages[i].getLength(), pages[i].get(0, pages[i].getLength()));
-      }
+    else fillRandom();
+  }
+
+  private void fillRandom() {
+    int seedPref = AppPreferences.Memory_Startup_Seed.get();
+    fillRandom(seedPref != 0 ? seedPref : seedSource.nextLong());
+  }
+
+  /**
+   * Makes every address hold a random value. The values are not stored: an address without a
+   * page computes its value from the seed, so that this takes no time whatever the size of the
+   * memory, and a page gets the values of its addresses when it is first written.
+   */
+  void fillRandom(long seed) {
+    random = true;
+    this.seed = seed;
+    dropPages();
+  }
+
+  /* Removes all pages, telling the listeners the whole memory changed */
+  private void dropPages() {
+    for (int i = 0; i < pages.length; i++) releasePage(i);
+    fireBytesChanged(0, getLastOffset() + 1, null);
+  }
+
+  private long randomValue(long addr) {
+    // SplitMix64 finalizer over the seed, the address and the shape of the memory
+    long z = seed + (addr + 1) * 0x9e3779b97f4a7c15L + ((long) addrBits << 56) + width;
+    z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+    z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+    return (z ^ (z >>> 31)) & mask;
+  }
+
+  /* Tells whether a page can be dropped, holding what an address without a page holds */
+  private boolean isDefault(Page page) {
+    return !random && page.isClear();
+  }
+
+  private Page createPage(int index) {
+    int length = addrBits < PAGE_SIZE_BITS ? 1 << addrBits : PAGE_SIZE;
+    Page page = MemContentsSub.createPage(length, width);
+    if (random) {
+      long base = (long) index << PAGE_SIZE_BITS;
+      for (int i = 0; i < length; i++) page.set(i, randomValue(base + i));
     }
+    return page;
   }
 
   private void clearPage(int index) {
@@ -96,7 +162,7 @@ public class MemContents implements Cloneable, HexModel {
       if (val != 0) changed = true;
     }
     if (changed) {
-      pages[index] = null;
+      releasePage(index);
       fireBytesChanged(index << PAGE_SIZE_BITS, oldValues.length, oldValues);
     }
   }
@@ -109,10 +175,13 @@ public class MemContents implements Cloneable, HexModel {
     try {
       MemContents ret = (MemContents) super.clone();
       ret.listeners = null;
+      ret.syncListeners = null;
+      ret.dirty = new DirtyRanges();
+      ret.flusher = ret::fireDirtyRanges;
       ret.pages = new Page[this.pages.length];
       for (int i = 0; i < ret.pages.length; i++) {
         if (this.pages[i] != null) {
-          ret.pages[i] = this.pages[i].clone();
+          ret.pages[i] = this.pages[i].share();
         }
       }
       return ret;
@@ -123,7 +192,29 @@ public class MemContents implements Cloneable, HexModel {
 
   private void ensurePage(int index) {
     if (pages[index] == null) {
-      pages[index] = MemContentsSub.createPage(PAGE_SIZE, width);
+      pages[index] = createPage(index);
+    }
+  }
+
+  /** Returns a page that can be changed, copying it first if a clone shares it. */
+  private Page writablePage(int index) {
+    Page page = pages[index];
+    if (page == null) {
+      page = createPage(index);
+      pages[index] = page;
+    } else if (page.isShared()) {
+      Page copy = page.clone();
+      page.release();
+      page = copy;
+      pages[index] = page;
+    }
+    return page;
+  }
+
+  private void releasePage(int index) {
+    if (pages[index] != null) {
+      pages[index].release();
+      pages[index] = null;
     }
   }
 
@@ -143,15 +234,16 @@ public class MemContents implements Cloneable, HexModel {
       Page page = pages[pageStart];
       if (!page.matches(vals, startOffs, mask)) {
         long[] oldValues = page.get(startOffs, (int) len);
+        page = writablePage(pageStart);
         page.load(startOffs, vals, mask);
-        if (value == 0 && page.isClear()) pages[pageStart] = null;
+        if (value == 0 && isDefault(page)) pages[pageStart] = null;
         fireBytesChanged(start, len, oldValues);
       }
     } else {
       if (startOffs == 0) {
         pageStart--;
       } else {
-        if (value == 0 && pages[pageStart] == null) {
+        if (value == 0 && !random && pages[pageStart] == null) {
           // nothing to do
         } else {
           ensurePage(pageStart);
@@ -160,13 +252,14 @@ public class MemContents implements Cloneable, HexModel {
           Page page = pages[pageStart];
           if (!page.matches(vals, startOffs, mask)) {
             long[] oldValues = page.get(startOffs, vals.length);
+            page = writablePage(pageStart);
             page.load(startOffs, vals, mask);
-            if (value == 0 && page.isClear()) pages[pageStart] = null;
-            fireBytesChanged(start, PAGE_SIZE - pageStart, oldValues);
+            if (value == 0 && isDefault(page)) pages[pageStart] = null;
+            fireBytesChanged(start, vals.length, oldValues);
           }
         }
       }
-      if (value == 0) {
+      if (value == 0 && !random) {
         for (int i = pageStart + 1; i < pageEnd; i++) {
           if (pages[i] != null) clearPage(i);
         }
@@ -178,23 +271,25 @@ public class MemContents implements Cloneable, HexModel {
           Page page = pages[i];
           if (!page.matches(vals, 0, mask)) {
             long[] oldValues = page.get(0, PAGE_SIZE);
+            page = writablePage(i);
             page.load(0, vals, mask);
             fireBytesChanged(i << PAGE_SIZE_BITS, PAGE_SIZE, oldValues);
           }
         }
       }
       if (endOffs >= 0) {
-        Page page = pages[pageEnd];
-        if (value == 0 && page == null) {
+        if (value == 0 && !random && pages[pageEnd] == null) {
           // nothing to do
         } else {
           ensurePage(pageEnd);
+          Page page = pages[pageEnd];
           long[] vals = new long[endOffs + 1];
           Arrays.fill(vals, value);
           if (!page.matches(vals, 0, mask)) {
             long[] oldValues = page.get(0, endOffs + 1);
+            page = writablePage(pageEnd);
             page.load(0, vals, mask);
-            if (value == 0 && page.isClear()) pages[pageEnd] = null;
+            if (value == 0 && isDefault(page)) pages[pageEnd] = null;
             fireBytesChanged(pageEnd << PAGE_SIZE_BITS, endOffs + 1, oldValues);
           }
         }
@@ -202,12 +297,35 @@ public class MemContents implements Cloneable, HexModel {
     }
   }
 
+  /** Tells whether a change has to pass on its old values. */
+  private boolean needsOldValues() {
+    return syncListeners != null;
+  }
+
   private void fireBytesChanged(long start, long numBytes, long[] oldValues) {
+    if (syncListeners != null) {
+      boolean found = false;
+      for (HexModelListener l : syncListeners) {
+        found = true;
+        l.bytesChanged(this, start, numBytes, oldValues);
+      }
+      if (!found) syncListeners = null;
+    }
+    if (listeners != null && dirty.add(start, start + numBytes)) {
+      SwingUtilities.invokeLater(flusher);
+    }
+  }
+
+  /** Passes the ranges changed since the last call on to the listeners. */
+  private void fireDirtyRanges() {
+    long[] ranges = dirty.take();
     if (listeners == null) return;
     boolean found = false;
     for (HexModelListener l : listeners) {
       found = true;
-      l.bytesChanged(this, start, numBytes, oldValues);
+      for (int i = 0; i < ranges.length; i += 2) {
+        l.bytesChanged(this, ranges[i], ranges[i + 1] - ranges[i], null);
+      }
     }
     if (!found) listeners = null;
   }
@@ -225,7 +343,8 @@ public class MemContents implements Cloneable, HexModel {
   public long get(long addr) {
     int page = (int)(addr >>> PAGE_SIZE_BITS);
     long offs = (addr & PAGE_MASK);
-    if (page < 0 || page >= pages.length || pages[page] == null) return 0;
+    if (page < 0 || page >= pages.length) return 0;
+    if (pages[page] == null) return random ? randomValue(addr) : 0;
     return pages[page].get(offs) & mask;
   }
 
@@ -252,7 +371,9 @@ public class MemContents implements Cloneable, HexModel {
   public boolean isClear() {
     for (int i = 0; i < pages.length; i++) {
       Page page = pages[i];
-      if (page != null) {
+      if (page == null) {
+        if (random) return false;
+      } else {
         for (int j = page.getLength() - 1; j >= 0; j--) {
           if (page.get(j) != 0) return false;
         }
@@ -262,23 +383,26 @@ public class MemContents implements Cloneable, HexModel {
   }
 
   public void removeHexModelListener(HexModelListener l) {
-    if (listeners == null) return;
-    listeners.add(l);
-    if (listeners.isEmpty()) listeners = null;
+    if (l instanceof SynchronousListener) {
+      if (syncListeners == null) return;
+      syncListeners.remove(l);
+      if (syncListeners.isEmpty()) syncListeners = null;
+    } else {
+      if (listeners == null) return;
+      listeners.remove(l);
+      if (listeners.isEmpty()) listeners = null;
+    }
   }
 
   public void set(long addr, long value) {
     int page = (int) (addr >>> PAGE_SIZE_BITS);
     long offs = (addr & PAGE_MASK);
     if (page < 0 || page >= pages.length) return;
-    long old = pages[page] == null ? 0 : pages[page].get(offs) & mask;
+    long old = get(addr);
     long val = value & mask;
     if (old != val) {
-      if (pages[page] == null) {
-        pages[page] = MemContentsSub.createPage(PAGE_SIZE, width);
-      }
-      pages[page].set(offs, val);
-      fireBytesChanged(addr, 1, new long[] {old});
+      writablePage(page).set(offs, val);
+      fireBytesChanged(addr, 1, needsOldValues() ? new long[] {old} : null);
     }
   }
 
@@ -295,8 +419,9 @@ public class MemContents implements Cloneable, HexModel {
       Page page = pages[pageStart];
       if (!page.matches(values, startOffs, mask)) {
         long[] oldValues = page.get(startOffs, values.length);
+        page = writablePage(pageStart);
         page.load(startOffs, values, mask);
-        if (page.isClear()) pages[pageStart] = null;
+        if (isDefault(page)) pages[pageStart] = null;
         fireBytesChanged(start, values.length, oldValues);
       }
     } else {
@@ -311,9 +436,10 @@ public class MemContents implements Cloneable, HexModel {
         Page page = pages[pageStart];
         if (!page.matches(vals, startOffs, mask)) {
           long[] oldValues = page.get(startOffs, vals.length);
+          page = writablePage(pageStart);
           page.load(startOffs, vals, mask);
-          if (page.isClear()) pages[pageStart] = null;
-          fireBytesChanged(start, PAGE_SIZE - pageStart, oldValues);
+          if (isDefault(page)) pages[pageStart] = null;
+          fireBytesChanged(start, vals.length, oldValues);
         }
         nextOffs = vals.length;
       }
@@ -322,24 +448,20 @@ public class MemContents implements Cloneable, HexModel {
       for (int i = pageStart + 1; i < pageEnd; i++, offs += PAGE_SIZE) {
         Page page = pages[i];
         if (page == null) {
-          boolean allZeroes = true;
-          for (int j = 0; j < PAGE_SIZE; j++) {
-            if ((values[offs + j] & mask) != 0) {
-              allZeroes = false;
-              break;
-            }
-          }
-          if (!allZeroes) {
-            page = MemContentsSub.createPage(PAGE_SIZE, width);
-            pages[i] = page;
+          // without a page the addresses hold random values, or zeroes that need no page
+          boolean allZeroes = !random;
+          for (int j = 0; allZeroes && j < PAGE_SIZE; j++) {
+            if ((values[offs + j] & mask) != 0) allZeroes = false;
           }
+          if (!allZeroes) page = writablePage(i);
         }
         if (page != null) {
           System.arraycopy(values, offs, vals, 0, PAGE_SIZE);
-          if (!page.matches(vals, startOffs, mask)) {
+          if (!page.matches(vals, 0, mask)) {
             long[] oldValues = page.get(0, PAGE_SIZE);
+            page = writablePage(i);
             page.load(0, vals, mask);
-            if (page.isClear()) pages[i] = null;
+            if (isDefault(page)) pages[i] = null;
             fireBytesChanged(i << PAGE_SIZE_BITS, PAGE_SIZE, oldValues);
           }
         }
@@ -349,10 +471,11 @@ public class MemContents implements Cloneable, HexModel {
         vals = new long[endOffs + 1];
         System.arraycopy(values, offs, vals, 0, endOffs + 1);
         Page page = pages[pageEnd];
-        if (!page.matches(vals, startOffs, mask)) {
+        if (!page.matches(vals, 0, mask)) {
           long[] oldValues = page.get(0, endOffs + 1);
+          page = writablePage(pageEnd);
           page.load(0, vals, mask);
-          if (page.isClear()) pages[pageEnd] = null;
+          if (isDefault(page)) pages[pageEnd] = null;
           fireBytesChanged(pageEnd << PAGE_SIZE_BITS, endOffs + 1, oldValues);
         }
       }
@@ -387,17 +510,22 @@ public class MemContents implements Cloneable, HexModel {
       Page dstPage = pages[dp];
       Page srcPage = src.pages[sp];
       int n = Math.min(count, Math.min(PAGE_SIZE - si, PAGE_SIZE - di));
-      if (dstPage == null && srcPage == null) {
+      if (dstPage == null && srcPage == null && !random && !src.random) {
         // both already all zeros, so do nothing
-      } else if (srcPage == null) {
+      } else if (srcPage == null && !src.random) {
         // clearing locations di..di+n on this page
         fill(dp*PAGE_SIZE+di, n, 0);
+      } else if (srcPage != null && n == PAGE_SIZE && dstPage != srcPage) {
+        // a whole page: share it until one side changes it
+        releasePage(dp);
+        pages[dp] = srcPage.share();
       } else {
-        if (dstPage == null)
-          dstPage = pages[dp] = MemContentsSub.createPage(PAGE_SIZE, width);
         // copy locations di..di+n on this page
-        long[] vals = srcPage.get(si, n);
-        dstPage.set(di, vals);
+        long[] vals = new long[n];
+        for (int i = 0; i < n; i++) {
+          vals[i] = srcPage != null ? srcPage.get(si + i) : src.randomValue(sp * (long) PAGE_SIZE + si + i);
+        }
+        writablePage(dp).set(di, vals);
       }
       count -= n;
       di += n;
@@ -435,44 +563,61 @@ public class MemContents implements Cloneable, HexModel {
       int n = Math.min(oldPages.length, pages.length);
       for (int i = 0; i < n; i++) {
         if (oldPages[i] != null) {
-          pages[i] = MemContentsSub.createPage(pageLength, width);
+          pages[i] = createPage(i);
           int m = Math.min(oldPages[i].getLength(), pageLength);
           for (int j = 0; j < m; j++) {
             pages[i].set(j, oldPages[i].get(j));
           }
         }
       }
+      for (Page page : oldPages) {
+        if (page != null) page.release();
+      }
     }
     if (pageCount == 0 && pages[0] == null) {
-      pages[0] = MemContentsSub.createPage(pageLength, width);
+      pages[0] = createPage(0);
     }
 
     fireMetainfoChanged();
   }
   
   public void condFillRandom() {
-    if (AppPreferences.Memory_Startup_Unknown.get()) {
-      int pageLength;
-      if (addrBits < PAGE_SIZE_BITS) {
-        pageLength = 1 << addrBits;
-      } else {
-        pageLength = PAGE_SIZE;
-      }
-      for (int i = 0 ; i < pages.length ; i++)
-        if (pages[i] == null) pages[i] = MemContentsSub.createPage(pageLength, width);
-    }
+    if (AppPreferences.Memory_Startup_Unknown.get()) fillRandom();
   }
   
+  /**
+   * A page of memory. Clones of a MemContents share their pages, which count their holders; a
+   * holder copies a shared page before changing it. A holder that is dropped without releasing
+   * its pages only costs one needless copy to the others.
+   */
   static abstract class Page implements Cloneable {
+    private AtomicInteger holders = new AtomicInteger(1);
+
+    /** Returns a copy of the page, held by nobody else. */
     @Override
     public Page clone() {
       try {
-        return (Page) super.clone();
+        Page ret = (Page) super.clone();
+        ret.holders = new AtomicInteger(1);
+        return ret;
       } catch (CloneNotSupportedException e) {
         return this;
       }
     }
 
+    Page share() {
+      holders.incrementAndGet();
+      return this;
+    }
+
+    void release() {
+      holders.decrementAndGet();
+    }
+
+    boolean isShared() {
+      return holders.get() > 1;
+    }
+
     abstract long get(long addr);
 
     long[] get(long start, int len) {
@@ -510,5 +655,70 @@ public class MemContents implements Cloneable, HexModel {
     abstract void set(long addr, long value);
   }
 
+  /**
+   * The address ranges changed since the listeners were last told, kept sorted and disjoint. When
+   * there are too many, the two closest ones are merged, so the listeners may be told of a few
+   * unchanged addresses in between.
+   */
+  private static final class DirtyRanges {
+    private static final int MAX_RANGES = 16;
+
+    private final long[] starts = new long[MAX_RANGES + 1];
+    private final long[] ends = new long[MAX_RANGES + 1];
+    private int count = 0;
+
+    /**
+     * Adds the addresses start to end - 1. Returns true if there were none before, that is when a
+     * flush has to be scheduled.
+     */
+    synchronized boolean add(long start, long end) {
+      boolean wasEmpty = count == 0;
+      // find the first range ending at or after start
+      int i = count;
+      while (i > 0 && ends[i - 1] >= start) i--;
+      if (i < count && starts[i] <= end) {
+        // merge with range i and any following ones it reaches
+        int j = i + 1;
+        while (j < count && starts[j] <= end) j++;
+        starts[i] = Math.min(starts[i], start);
+        ends[i] = Math.max(ends[j - 1], end);
+        remove(i + 1, j - i - 1);
+      } else {
+        System.arraycopy(starts, i, starts, i + 1, count - i);
+        System.arraycopy(ends, i, ends, i + 1, count - i);
+        starts[i] = start;
+        ends[i] = end;
+        count++;
+        if (count > MAX_RANGES) mergeClosest();
+      }
+      return wasEmpty;
+    }
+
+    /** Returns the ranges as start, end pairs and forgets them. */
+    synchronized long[] take() {
+      long[] ret = new long[2 * count];
+      for (int i = 0; i < count; i++) {
+        ret[2 * i] = starts[i];
+        ret[2 * i + 1] = ends[i];
+      }
+      count = 0;
+      return ret;
+    }
 
+    private void mergeClosest() {
+      int best = 0;
+      for (int i = 1; i + 1 < count; i++) {
+        if (starts[i + 1] - ends[i] < starts[best + 1] - ends[best]) best = i;
+      }
+      ends[best] = ends[best + 1];
+      remove(best + 1, 1);
+    }
+
+    private void remove(int index, int n) {
+      if (n == 0) return;
+      System.arraycopy(starts, index + n, starts, index, count - index - n);
+      System.arraycopy(ends, index + n, ends, index, count - index - n);
+      count -= n;
+    }
+  }
 }
@@ -28,8 +28,6 @@
 
 package com.cburch.logisim.std.memory;
 
-import com.cburch.logisim.prefs.AppPreferences;
-
 class MemContentsSub {
   private static class BytePage extends MemContents.Page {
     private byte[] data;
@@ -38,12 +36,6 @@ class MemContentsSub {
     public BytePage(int size, long mask) {
       this.mask = mask;
       data = new byte[size];
-      if (AppPreferences.Memory_Startup_Unknown.get()) {
-        java.util.Random generator = new java.util.Random();
-        for (int i = 0; i < size; i++) {
-          data[i] = (byte) (generator.nextInt(256) & mask);
-        }
-      }
     }
 
     @Override
@@ -93,10 +85,6 @@ class MemContentsSub {
     public IntPage(int size, long mask) {
       this.mask = mask;
       data = new int[size];
-      if (AppPreferences.Memory_Startup_Unknown.get()) {
-        java.util.Random generator = new java.util.Random();
-        for (int i = 0; i < size; i++) data[i] = (int) (generator.nextInt() & mask);
-      }
     }
 
     @Override
@@ -146,10 +134,6 @@ class MemContentsSub {
     public ShortPage(int size, long mask) {
       data = new short[size];
       this.mask = mask;
-      if (AppPreferences.Memory_Startup_Unknown.get()) {
-        java.util.Random generator = new java.util.Random();
-        for (int i = 0; i < size; i++) data[i] = (short) (generator.nextInt(1 << 16) & mask);
-      }
     }
 
     @Override
@@ -180,7 +164,7 @@ class MemContentsSub {
        * Bugfix in memory writing (by Roy77)
        * https://github.com/roy77
        */
-      for (int i = (int)start; i < n; i++) {
+      for (int i = 0; i < n; i++) {
         data[(int)start + i] = (short) (values[i] & mask);
       }
     }
@@ -203,10 +187,6 @@ class MemContentsSub {
     public LongPage(int size, long mask) {
       this.mask = mask;
       data = new long[size];
-      if (AppPreferences.Memory_Startup_Unknown.get()) {
-        java.util.Random generator = new java.util.Random();
-        for (int i = 0; i < size; i++) data[i] = (int) generator.nextLong() & mask;
-      }
     }
 
     @Override
@@ -322,12 +322,14 @@ class MemState implements InstanceData, Cloneable, HexModelListener {
     if (RecalculateParameters) return;
     if (isValidAddr(addr)) {
       int NrOfDataItemsDisplayed = NrOfLines * NrDataSymbolsEachLine;
-      while (addr < curScroll) {
-        curScroll -= NrDataSymbolsEachLine;
-        if (curScroll < 0) curScroll = 0;
+      /* Move by whole lines, computed at once rather than a line at a time */
+      if (addr < curScroll) {
+        long lines = (curScroll - addr + NrDataSymbolsEachLine - 1) / NrDataSymbolsEachLine;
+        curScroll = Math.max(0, curScroll - lines * NrDataSymbolsEachLine);
       }
-      while (addr >= (curScroll + NrOfDataItemsDisplayed)) {
-        curScroll += NrDataSymbolsEachLine;
+      if (addr >= (curScroll + NrOfDataItemsDisplayed)) {
+        long lines = (addr - curScroll - NrOfDataItemsDisplayed) / NrDataSymbolsEachLine + 1;
+        curScroll += lines * NrDataSymbolsEachLine;
       }
     }
   }
@@ -31,11 +31,10 @@ package com.cburch.logisim.std.memory;
 import static com.cburch.logisim.std.Strings.S;
 
 import com.cburch.hex.HexModel;
-import com.cburch.hex.HexModelListener;
 import com.cburch.logisim.proj.Action;
 import com.cburch.logisim.proj.Project;
 
-class RomContentsListener implements HexModelListener {
+class RomContentsListener implements MemContents.SynchronousListener {
   private static class Change extends Action {
     private RomContentsListener source;
     private MemContents contents;
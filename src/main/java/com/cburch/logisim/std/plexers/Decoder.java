@@ -31,6 +31,7 @@ package com.cburch.logisim.std.plexers;
 import static com.cburch.logisim.std.Strings.S;
 
 import com.cburch.logisim.LogisimVersion;
+import com.cburch.logisim.circuit.BitSliceComputer;
 import com.cburch.logisim.data.Attribute;
 import com.cburch.logisim.data.AttributeSet;
 import com.cburch.logisim.data.BitWidth;
@@ -107,6 +108,30 @@ public class Decoder extends InstanceFactory {
     return CompleteName.toString();
   }
 
+  @Override
+  protected Object getInstanceFeature(final Instance instance, Object key) {
+    if (key == BitSliceComputer.class) {
+      return new BitSliceComputer() {
+        public void computeLanes(BitSliceComputer.Lanes lanes) {
+          boolean threeState = instance.getAttributeValue(Plexers.ATTR_TRISTATE).booleanValue();
+          boolean enable = instance.getAttributeValue(Plexers.ATTR_ENABLE).booleanValue();
+          long[] select = new long[instance.getAttributeValue(Plexers.ATTR_SELECT).getWidth()];
+          int outputs = 1 << select.length;
+          long[] control =
+              Plexers.getControlLanes(lanes, outputs, enable ? outputs + 1 : -1, select);
+          Object disabled = instance.getAttributeValue(Plexers.ATTR_DISABLED);
+          long unknown = control[2] | (disabled == Plexers.DISABLED_ZERO ? 0 : control[0]);
+          for (int i = 0; i < outputs; i++) {
+            long selected = Plexers.getSelectLanes(select, i) & control[3];
+            long others = threeState ? control[3] & ~selected : 0;
+            lanes.setPort(i, 0, selected, others | unknown, control[1]);
+          }
+        }
+      };
+    }
+    return super.getInstanceFeature(instance, key);
+  }
+
   @Override
   public Bounds getOffsetBounds(AttributeSet attrs) {
     Direction facing = attrs.getValue(StdAttr.FACING);
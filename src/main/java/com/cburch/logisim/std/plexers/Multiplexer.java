@@ -31,6 +31,7 @@ package com.cburch.logisim.std.plexers;
 import static com.cburch.logisim.std.Strings.S;
 
 import com.cburch.logisim.LogisimVersion;
+import com.cburch.logisim.circuit.BitSliceComputer;
 import com.cburch.logisim.data.Attribute;
 import com.cburch.logisim.data.AttributeSet;
 import com.cburch.logisim.data.BitWidth;
@@ -129,6 +130,40 @@ public class Multiplexer extends InstanceFactory {
     return CompleteName.toString();
   }
 
+  @Override
+  protected Object getInstanceFeature(final Instance instance, Object key) {
+    if (key == BitSliceComputer.class) {
+      return new BitSliceComputer() {
+        public void computeLanes(BitSliceComputer.Lanes lanes) {
+          int width = instance.getAttributeValue(StdAttr.WIDTH).getWidth();
+          boolean enable = instance.getAttributeValue(Plexers.ATTR_ENABLE).booleanValue();
+          long[] select = new long[instance.getAttributeValue(Plexers.ATTR_SELECT).getWidth()];
+          int inputs = 1 << select.length;
+          long[] control =
+              Plexers.getControlLanes(lanes, inputs, enable ? inputs + 1 : -1, select);
+          Object disabled = instance.getAttributeValue(Plexers.ATTR_DISABLED);
+          long unknown = control[2] | (disabled == Plexers.DISABLED_ZERO ? 0 : control[0]);
+          long[] selected = new long[inputs];
+          for (int i = 0; i < inputs; i++) {
+            selected[i] = Plexers.getSelectLanes(select, i) & control[3];
+          }
+          for (int b = 0; b < width; b++) {
+            long v = 0;
+            long u = unknown;
+            long e = control[1];
+            for (int i = 0; i < inputs; i++) {
+              v |= selected[i] & lanes.getValue(i, b);
+              u |= selected[i] & lanes.getUnknown(i, b);
+              e |= selected[i] & lanes.getError(i, b);
+            }
+            lanes.setPort(inputs + (enable ? 2 : 1), b, v, u, e);
+          }
+        }
+      };
+    }
+    return super.getInstanceFeature(instance, key);
+  }
+
   @Override
   public Bounds getOffsetBounds(AttributeSet attrs) {
     Object size = attrs.getValue(Plexers.ATTR_SIZE);
@@ -30,6 +30,7 @@ package com.cburch.logisim.std.plexers;
 
 import static com.cburch.logisim.std.Strings.S;
 
+import com.cburch.logisim.circuit.BitSliceComputer;
 import com.cburch.logisim.data.Attribute;
 import com.cburch.logisim.data.AttributeOption;
 import com.cburch.logisim.data.Attributes;
@@ -79,6 +80,47 @@ public class Plexers extends Library {
     }
   }
 
+  /**
+   * Classifies 64 lanes as the propagate methods do with the enable and select inputs. Returns the
+   * disabled lanes, those giving an error, those giving an unknown value and those that select an
+   * output, in this order; the select input itself is stored into <code>select</code>, one mask per
+   * bit. <code>enablePort</code> is negative for plexers without an enable input.
+   */
+  static long[] getControlLanes(
+      BitSliceComputer.Lanes lanes, int selectPort, int enablePort, long[] select) {
+    long disabled = 0;
+    long error = 0;
+    if (enablePort >= 0) {
+      long en = lanes.getValue(enablePort, 0);
+      long enError = lanes.getError(enablePort, 0);
+      disabled = ~en & ~enError & ~lanes.getUnknown(enablePort, 0);
+      if (lanes.isPortConnected(enablePort)) error = enError;
+    }
+    long defined = -1L;
+    long selError = 0;
+    for (int i = 0; i < select.length; i++) {
+      select[i] = lanes.getValue(selectPort, i);
+      selError |= lanes.getError(selectPort, i);
+      defined &= ~(lanes.getUnknown(selectPort, i) | lanes.getError(selectPort, i));
+    }
+    long active = ~disabled & ~error;
+    return new long[] {
+      disabled,
+      error | (active & ~defined & selError),
+      active & ~defined & ~selError,
+      active & defined
+    };
+  }
+
+  /** Returns the lanes in which the select input stored by {@link #getControlLanes} is index. */
+  static long getSelectLanes(long[] select, int index) {
+    long ret = -1L;
+    for (int i = 0; i < select.length; i++) {
+      ret &= ((index >> i) & 1) != 0 ? select[i] : ~select[i];
+    }
+    return ret;
+  }
+
   static void drawTrapezoid(Graphics g, Bounds bds, Direction facing, int facingLean) {
     int wid = bds.getWidth();
     int ht = bds.getHeight();
@@ -31,6 +31,7 @@ package com.cburch.logisim.std.wiring;
 import static com.cburch.logisim.std.Strings.S;
 
 import com.cburch.logisim.analyze.model.Expressions;
+import com.cburch.logisim.circuit.BitSliceComputer;
 import com.cburch.logisim.circuit.ExpressionComputer;
 import com.cburch.logisim.data.AbstractAttributeSet;
 import com.cburch.logisim.data.Attribute;
@@ -157,8 +158,19 @@ public class Constant extends InstanceFactory {
   }
 
   @Override
-  protected Object getInstanceFeature(Instance instance, Object key) {
+  protected Object getInstanceFeature(final Instance instance, Object key) {
     if (key == ExpressionComputer.class) return new ConstantExpression(instance);
+    if (key == BitSliceComputer.class) {
+      return new BitSliceComputer() {
+        public void computeLanes(BitSliceComputer.Lanes lanes) {
+          int width = instance.getAttributeValue(StdAttr.WIDTH).getWidth();
+          long value = instance.getAttributeValue(ATTR_VALUE).longValue();
+          for (int b = 0; b < width; b++) {
+            lanes.setPort(0, b, ((value >>> b) & 1) != 0 ? -1L : 0, 0, 0);
+          }
+        }
+      };
+    }
     return super.getInstanceFeature(instance, key);
   }
 
@@ -30,6 +30,7 @@ package com.cburch.logisim.std.wiring;
 
 import static com.cburch.logisim.std.Strings.S;
 
+import com.cburch.logisim.circuit.BitSliceComputer;
 import com.cburch.logisim.circuit.Wire;
 import com.cburch.logisim.data.Attribute;
 import com.cburch.logisim.data.AttributeSet;
@@ -93,6 +94,19 @@ public class Ground extends InstanceFactory {
     g.dispose();
   }
 
+  @Override
+  protected Object getInstanceFeature(final Instance instance, Object key) {
+    if (key == BitSliceComputer.class) {
+      return new BitSliceComputer() {
+        public void computeLanes(BitSliceComputer.Lanes lanes) {
+          int width = instance.getAttributeValue(StdAttr.WIDTH).getWidth();
+          for (int b = 0; b < width; b++) lanes.setPort(0, b, 0, 0, 0);
+        }
+      };
+    }
+    return super.getInstanceFeature(instance, key);
+  }
+
   @Override
   public Bounds getOffsetBounds(AttributeSet attrs) {
     return Bounds.create(0, -8, 14, 16)
@@ -31,6 +31,7 @@ package com.cburch.logisim.std.wiring;
 import static com.cburch.logisim.std.Strings.S;
 
 import com.cburch.logisim.LogisimVersion;
+import com.cburch.logisim.circuit.BitSliceComputer;
 import com.cburch.logisim.circuit.RadixOption;
 import com.cburch.logisim.data.Attribute;
 import com.cburch.logisim.data.AttributeSet;
@@ -302,6 +303,12 @@ public class Probe extends InstanceFactory {
     return attrs;
   }
 
+  @Override
+  protected Object getInstanceFeature(Instance instance, Object key) {
+    if (key == BitSliceComputer.class) return BitSliceComputer.PASSIVE;
+    return super.getInstanceFeature(instance, key);
+  }
+
   @Override
   public Bounds getOffsetBounds(AttributeSet attrsBase) {
     ProbeAttributes attrs = (ProbeAttributes) attrsBase;
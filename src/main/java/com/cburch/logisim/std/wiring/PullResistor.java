@@ -30,6 +30,7 @@ package com.cburch.logisim.std.wiring;
 
 import static com.cburch.logisim.std.Strings.S;
 
+import com.cburch.logisim.circuit.BitSliceComputer;
 import com.cburch.logisim.data.Attribute;
 import com.cburch.logisim.data.AttributeOption;
 import com.cburch.logisim.data.AttributeSet;
@@ -95,6 +96,12 @@ public class PullResistor extends InstanceFactory {
     instance.setPorts(new Port[] {new Port(0, 0, Port.INOUT, BitWidth.UNKNOWN)});
   }
 
+  @Override
+  protected Object getInstanceFeature(Instance instance, Object key) {
+    if (key == BitSliceComputer.class) return BitSliceComputer.PASSIVE;
+    return super.getInstanceFeature(instance, key);
+  }
+
   @Override
   public Bounds getOffsetBounds(AttributeSet attrs) {
     Direction facing = attrs.getValue(StdAttr.FACING);
@@ -30,6 +30,7 @@ package com.cburch.logisim.std.wiring;
 
 import static com.cburch.logisim.std.Strings.S;
 
+import com.cburch.logisim.circuit.BitSliceComputer;
 import com.cburch.logisim.comp.TextField;
 import com.cburch.logisim.data.Attribute;
 import com.cburch.logisim.data.AttributeSet;
@@ -135,6 +136,12 @@ public class Tunnel extends InstanceFactory {
     return new TunnelAttributes();
   }
 
+  @Override
+  protected Object getInstanceFeature(Instance instance, Object key) {
+    if (key == BitSliceComputer.class) return BitSliceComputer.PASSIVE;
+    return super.getInstanceFeature(instance, key);
+  }
+
   @Override
   public Bounds getOffsetBounds(AttributeSet attrsBase) {
     TunnelAttributes attrs = (TunnelAttributes) attrsBase;
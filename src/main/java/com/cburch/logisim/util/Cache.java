@@ -28,13 +28,31 @@
 
 package com.cburch.logisim.util;
 
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
 /**
  * Allows immutable objects to be cached in memory in order to reduce the creation of duplicate
  * objects.
+ *
+ * <p>The cache is lossy: each slot holds the last object stored under its hash code, and callers
+ * check that the object found is the one they want before using it. It needs no locking, so the
+ * simulator, the painting code and the event thread may all use it at once, as long as the cached
+ * objects are immutable with final fields: a racing reader then finds either the old object or a
+ * fully built new one. Mutable objects must not be cached, as everyone asking for an equal object
+ * would share their state. While more than a quarter of lookups miss, the table doubles (up to 2^16
+ * slots), so designs with many distinct values, such as wide buses, stop evicting their working
+ * set.
  */
 public class Cache {
-  private int mask;
-  private Object[] data;
+  private static final int MAX_LOG_SIZE = 16;
+
+  private volatile Object[] data;
+  private final LongAdder lookups = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  // misses since the table last grew or was found to be large enough, and lookups.sum() then
+  private final AtomicInteger recentMisses = new AtomicInteger();
+  private long recentStart;
 
   public Cache() {
     this(8);
@@ -44,28 +62,71 @@ public class Cache {
     if (logSize > 12) logSize = 12;
 
     data = new Object[1 << logSize];
-    mask = data.length - 1;
+  }
+
+  private static int index(int hashCode, Object[] data) {
+    return (hashCode ^ (hashCode >>> 16)) & (data.length - 1);
   }
 
   public Object get(int hashCode) {
-    return data[hashCode & mask];
+    lookups.increment();
+    Object[] d = data;
+    return d[index(hashCode, d)];
   }
 
   public Object get(Object value) {
     if (value == null) return null;
-    int code = value.hashCode() & mask;
-    Object ret = data[code];
+    lookups.increment();
+    Object[] d = data;
+    int code = index(value.hashCode(), d);
+    Object ret = d[code];
     if (ret != null && ret.equals(value)) {
       return ret;
     } else {
-      data[code] = value;
+      store(d, code, value);
       return value;
     }
   }
 
+  /** Stores an object after a lookup by hash code did not find it. */
   public void put(int hashCode, Object value) {
     if (value != null) {
-      data[hashCode & mask] = value;
+      Object[] d = data;
+      store(d, index(hashCode, d), value);
     }
   }
+
+  private void store(Object[] d, int code, Object value) {
+    d[code] = value;
+    misses.increment();
+    if (recentMisses.incrementAndGet() >= 2 * d.length) grow(d);
+  }
+
+  /** Doubles the table if more than a quarter of the lookups since the last check have missed. */
+  private synchronized void grow(Object[] d) {
+    if (data != d) return;
+    long total = lookups.sum();
+    long recent = total - recentStart;
+    int missed = recentMisses.getAndSet(0);
+    recentStart = total;
+    if (4L * missed < recent || d.length >= 1 << MAX_LOG_SIZE) return;
+
+    // an object in slot i belongs in slot i or i + d.length; keep it as a candidate in both
+    Object[] bigger = new Object[2 * d.length];
+    System.arraycopy(d, 0, bigger, 0, d.length);
+    System.arraycopy(d, 0, bigger, d.length, d.length);
+    data = bigger;
+  }
+
+  public long getHits() {
+    return lookups.sum() - misses.sum();
+  }
+
+  public long getMisses() {
+    return misses.sum();
+  }
+
+  public int getSize() {
+    return data.length;
+  }
 }
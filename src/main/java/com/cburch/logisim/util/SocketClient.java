@@ -28,8 +28,12 @@
 
 package com.cburch.logisim.util;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.OutputStreamWriter;
@@ -40,7 +44,9 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
- * Socket client to talk to the binder.
+ * Socket client to talk to the binder. A connection carries either text lines ({@link
+ * #send(String)} and {@link #receive()}) or length-prefixed binary frames ({@link
+ * #sendFrame(byte[], int)} and {@link #receiveFrame()}), never both.
  *
  * @author christian.mueller@heig-vd.ch
  */
@@ -56,6 +62,8 @@ public class SocketClient {
 
   private BufferedReader socket_reader;
   private PrintWriter socket_writer;
+  private DataInputStream socket_input;
+  private DataOutputStream socket_output;
 
   public SocketClient() {
 
@@ -96,6 +104,23 @@ public class SocketClient {
     }
   }
 
+  /**
+   * Reads one frame: a big-endian 32-bit length followed by that many bytes.
+   *
+   * @return the frame content, or null if the connection failed
+   */
+  public byte[] receiveFrame() {
+
+    try {
+      byte[] frame = new byte[socket_input.readInt()];
+      socket_input.readFully(frame);
+      return frame;
+    } catch (Exception e) {
+      logger.error("Cannot read from socket : {}", e.getMessage());
+      return null;
+    }
+  }
+
   public void send(String message) {
 
     try {
@@ -105,6 +130,20 @@ public class SocketClient {
     }
   }
 
+  /** Writes the first length bytes of frame as one frame and flushes it. */
+  public boolean sendFrame(byte[] frame, int length) {
+
+    try {
+      socket_output.writeInt(length);
+      socket_output.write(frame, 0, length);
+      socket_output.flush();
+      return true;
+    } catch (Exception e) {
+      logger.error("Cannot write frame to socket {}", e.getMessage());
+      return false;
+    }
+  }
+
   public void start() {
 
     try {
@@ -116,6 +155,9 @@ public class SocketClient {
           new PrintWriter(
               new BufferedWriter(new OutputStreamWriter(socket.getOutputStream())), true);
 
+      socket_input = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+      socket_output = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+
       connected = true;
       return;
 
@@ -218,65 +218,9 @@ public class VhdlEntity extends InstanceFactory implements HdlModelListener {
     if (state.getProject().getVhdlSimulator().isEnabled()
         && state.getProject().getVhdlSimulator().isRunning()) {
 
+      /* Sent to the binder with the other entities at the end of the step */
       VhdlSimulatorTop vhdlSimulator = state.getProject().getVhdlSimulator();
-
-      for (Port p : state.getInstance().getPorts()) {
-        int index = state.getPortIndex(p);
-        Value val = state.getPortValue(index);
-
-        String vhdlEntityName = GetSimName(state.getAttributeSet());
-
-        String message =
-            p.getType()
-                + ":"
-                + vhdlEntityName
-                + "_"
-                + p.getToolTip()
-                + ":"
-                + val.toBinaryString()
-                + ":"
-                + index;
-
-        vhdlSimulator.send(message);
-      }
-
-      vhdlSimulator.send("sync");
-
-      /* Get response from tcl server */
-      String server_response;
-      while ((server_response = vhdlSimulator.receive()) != null
-          && server_response.length() > 0
-          && !server_response.equals("sync")) {
-
-        String[] parameters = server_response.split("\\:");
-
-        String busValue = parameters[1];
-
-        Value vector_values[] = new Value[busValue.length()];
-
-        int k = busValue.length() - 1;
-        for (char bit : busValue.toCharArray()) {
-
-          try {
-            switch (Character.getNumericValue(bit)) {
-              case 0:
-                vector_values[k] = Value.FALSE;
-                break;
-              case 1:
-                vector_values[k] = Value.TRUE;
-                break;
-              default:
-                vector_values[k] = Value.UNKNOWN;
-                break;
-            }
-          } catch (NumberFormatException e) {
-            vector_values[k] = Value.UNKNOWN;
-          }
-          k--;
-        }
-
-        state.setPort(Integer.parseInt(parameters[2]), Value.create(vector_values), 1);
-      }
+      vhdlSimulator.queue(state, GetSimName(state.getAttributeSet()));
 
       /* VhdlSimulation stopped/disabled */
     } else {
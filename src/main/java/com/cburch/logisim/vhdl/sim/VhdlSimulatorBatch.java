@@ -0,0 +1,226 @@
+/**
+ * This file is part of logisim-evolution.
+ *
+ * Logisim-evolution is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * Logisim-evolution is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU General Public License along 
+ * with logisim-evolution. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Original code by Carl Burch (http://www.cburch.com), 2011.
+ * Subsequent modifications by:
+ *   + College of the Holy Cross
+ *     http://www.holycross.edu
+ *   + Haute École Spécialisée Bernoise/Berner Fachhochschule
+ *     http://www.bfh.ch
+ *   + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *     http://hepia.hesge.ch/
+ *   + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *     http://www.heig-vd.ch/
+ */
+
+package com.cburch.logisim.vhdl.sim;
+
+import com.cburch.logisim.data.Value;
+import com.cburch.logisim.util.SocketClient;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+
+/**
+ * Port values of the VHDL entities evaluated during one propagation step, exchanged with the
+ * binder as a single binary frame. Each port is given a numeric id, declared to the binder with
+ * its signal name the first time it is used; afterwards only ids travel. Inputs whose value is
+ * the one last sent are left out, and the binder answers only with outputs that changed since it
+ * last reported them, so the last value of every output is kept here.
+ *
+ * <p>A step frame is the byte {@link #STEP} followed by the declarations (id, port type, name),
+ * the inputs (id, width, value bits, unknown bits) and the ids of the outputs to read back; each
+ * list is preceded by its length. The reply is {@link #STEP} followed by the changed outputs, in
+ * the same form as the inputs. All numbers are big-endian, as written by {@link DataOutputStream}.
+ */
+class VhdlSimulatorBatch {
+
+  static final byte STEP = 'S';
+  static final byte RESTART = 'R';
+  static final byte END = 'E';
+
+  private final HashMap<String, Integer> ids = new HashMap<String, Integer>();
+  private final ArrayList<String> names = new ArrayList<String>();
+  private final ArrayList<Integer> types = new ArrayList<Integer>();
+  private final ArrayList<Value> sent = new ArrayList<Value>();
+  private final ArrayList<Value> received = new ArrayList<Value>();
+  private int declared = 0;
+
+  private final HashMap<Integer, Value> inputs = new HashMap<Integer, Value>();
+  private final ArrayList<Integer> inputOrder = new ArrayList<Integer>();
+  private final BitSet outputs = new BitSet();
+
+  private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+  private final DataOutputStream out = new DataOutputStream(bytes);
+
+  /** Returns the id of a simulation signal, assigning one if it is new. */
+  int getPortId(String name, int type) {
+    Integer id = ids.get(name);
+    if (id != null) return id.intValue();
+    int ret = names.size();
+    ids.put(name, Integer.valueOf(ret));
+    names.add(name);
+    types.add(Integer.valueOf(type));
+    sent.add(null);
+    received.add(null);
+    return ret;
+  }
+
+  /** Queues an input value, unless the binder already has it. */
+  void setInput(int id, Value value) {
+    Integer key = Integer.valueOf(id);
+    if (value.equals(sent.get(id))) {
+      if (inputs.remove(key) != null) inputOrder.remove(key);
+      return;
+    }
+    if (inputs.put(key, value) == null) inputOrder.add(key);
+  }
+
+  /** Asks for an output to be read back at the end of the step. */
+  void requestOutput(int id) {
+    outputs.set(id);
+  }
+
+  /** Returns the last value the binder reported for an output, or null if none yet. */
+  Value getOutput(int id) {
+    return received.get(id);
+  }
+
+  boolean isEmpty() {
+    return inputs.isEmpty() && outputs.isEmpty();
+  }
+
+  int getInputCount() {
+    return inputs.size();
+  }
+
+  /**
+   * Forgets what the binder was sent and has reported, as after a restart; every port is sent
+   * again at its next use. The ids and declarations stay valid.
+   */
+  void reset() {
+    for (int i = 0; i < sent.size(); i++) {
+      sent.set(i, null);
+      received.set(i, null);
+    }
+    clearStep();
+  }
+
+  /** Forgets the ports queued for the current step. */
+  void clearStep() {
+    inputs.clear();
+    inputOrder.clear();
+    outputs.clear();
+  }
+
+  /**
+   * Sends the ports queued for the step to the binder, which runs the simulation, and records the
+   * outputs of its reply.
+   *
+   * @return false if the connection failed, in which case the step is dropped
+   */
+  boolean exchange(SocketClient client) throws IOException {
+    byte[] frame = buildStep();
+    byte[] reply = client.sendFrame(frame, frame.length) ? client.receiveFrame() : null;
+    if (reply == null) {
+      clearStep();
+      return false;
+    }
+    applyReply(reply);
+    return true;
+  }
+
+  private byte[] buildStep() throws IOException {
+    bytes.reset();
+    out.writeByte(STEP);
+    out.writeInt(names.size() - declared);
+    for (int id = declared; id < names.size(); id++) {
+      byte[] name = names.get(id).getBytes(StandardCharsets.US_ASCII);
+      out.writeInt(id);
+      out.writeByte(types.get(id).intValue());
+      out.writeShort(name.length);
+      out.write(name);
+    }
+    out.writeInt(inputOrder.size());
+    for (Integer key : inputOrder) writeValue(key.intValue(), inputs.get(key));
+    out.writeInt(outputs.cardinality());
+    for (int id = outputs.nextSetBit(0); id >= 0; id = outputs.nextSetBit(id + 1)) {
+      out.writeInt(id);
+    }
+    out.flush();
+    return bytes.toByteArray();
+  }
+
+  private void applyReply(byte[] frame) throws IOException {
+    declared = names.size();
+    for (Integer key : inputOrder) sent.set(key.intValue(), inputs.get(key));
+
+    DataInputStream in = new DataInputStream(new ByteArrayInputStream(frame));
+    if (in.readByte() != STEP) throw new IOException("unexpected reply from binder");
+    int count = in.readInt();
+    for (int i = 0; i < count; i++) {
+      int id = in.readInt();
+      int width = in.readShort();
+      long value = in.readLong();
+      long unknown = in.readLong();
+      if (id < 0 || id >= received.size()) throw new IOException("unknown port " + id);
+      received.set(id, toValue(width, value, unknown));
+    }
+    clearStep();
+  }
+
+  /** Writes a restart or end frame. */
+  byte[] buildCommand(byte command) {
+    bytes.reset();
+    bytes.write(command);
+    return bytes.toByteArray();
+  }
+
+  private void writeValue(int id, Value val) throws IOException {
+    int width = val.getWidth();
+    long value = 0;
+    long unknown = 0;
+    if (val.isFullyDefined()) {
+      value = val.toLongValue();
+    } else {
+      for (int i = 0; i < width; i++) {
+        Value bit = val.get(i);
+        if (bit == Value.TRUE) value |= 1L << i;
+        else if (bit != Value.FALSE) unknown |= 1L << i;
+      }
+    }
+    out.writeInt(id);
+    out.writeShort(width);
+    out.writeLong(value);
+    out.writeLong(unknown);
+  }
+
+  static Value toValue(int width, long value, long unknown) {
+    if (unknown == 0) return Value.createKnown(width, value);
+    Value[] bits = new Value[width];
+    for (int i = 0; i < width; i++) {
+      if (((unknown >>> i) & 1) != 0) bits[i] = Value.UNKNOWN;
+      else bits[i] = ((value >>> i) & 1) != 0 ? Value.TRUE : Value.FALSE;
+    }
+    return Value.create(bits);
+  }
+}
@@ -184,7 +184,7 @@ public class VhdlSimulatorTclBinder {
     if (!running) return;
 
     /* We ask the binder to end itself */
-    if (vsim.getSocketClient() != null) vsim.getSocketClient().send("end");
+    if (vsim.getSocketClient() != null) vsim.sendEnd();
 
     /* Wait for the process to end */
     /*
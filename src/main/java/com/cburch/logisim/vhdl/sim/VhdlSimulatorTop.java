@@ -33,6 +33,9 @@ import com.cburch.logisim.circuit.CircuitListener;
 import com.cburch.logisim.circuit.CircuitState;
 import com.cburch.logisim.comp.Component;
 import com.cburch.logisim.comp.ComponentFactory;
+import com.cburch.logisim.data.Value;
+import com.cburch.logisim.instance.InstanceState;
+import com.cburch.logisim.instance.Port;
 import com.cburch.logisim.proj.Project;
 import com.cburch.logisim.std.hdl.VhdlEntityComponent;
 import com.cburch.logisim.util.SocketClient;
@@ -58,11 +61,33 @@ import javax.help.UnsupportedOperationException;
  */
 public class VhdlSimulatorTop implements CircuitListener {
 
+  private static class PendingOutput {
+    private final InstanceState state;
+    private final int index;
+    private final int id;
+
+    private PendingOutput(InstanceState state, int index, int id) {
+      this.state = state;
+      this.index = index;
+      this.id = id;
+    }
+  }
+
   private VhdlSimulatorVhdlTop vhdlTop = new VhdlSimulatorVhdlTop(this);
   private VhdlSimulatorTclComp tclRun = new VhdlSimulatorTclComp(this);
   private VhdlSimulatorTclBinder tclBinder;
   private SocketClient socketClient = new SocketClient();
 
+  /* Ports of the entities evaluated in the current propagation step */
+  private VhdlSimulatorBatch batch = new VhdlSimulatorBatch();
+  private ArrayList<PendingOutput> pendingOutputs = new ArrayList<PendingOutput>();
+
+  /* Round trip statistics since the binder was started */
+  private long roundTrips = 0;
+  private long roundTripNanos = 0;
+  private long maxRoundTripNanos = 0;
+  private long inputsSent = 0;
+
   private Project project;
 
   private static ArrayList<VhdlSimulatorListener> listeners =
@@ -170,6 +195,80 @@ public class VhdlSimulatorTop implements CircuitListener {
     start();
   }
 
+  /**
+   * Queues the ports of a VHDL entity for the current propagation step. The entity's inputs go to
+   * the binder, and its outputs are set, when the step is flushed.
+   *
+   * @param state the state of the entity being propagated
+   * @param simName the simulation name of the entity
+   */
+  public synchronized void queue(InstanceState state, String simName) {
+    List<Port> ports = state.getInstance().getPorts();
+    for (int index = 0; index < ports.size(); index++) {
+      Port p = ports.get(index);
+      int id = batch.getPortId(simName + "_" + p.getToolTip(), p.getType());
+      if (p.getType() != 2) batch.setInput(id, state.getPortValue(index));
+      if (p.getType() != 1) {
+        batch.requestOutput(id);
+        pendingOutputs.add(new PendingOutput(state, index, id));
+      }
+    }
+  }
+
+  /**
+   * Sends the inputs queued during a propagation step to the binder in one frame, runs the
+   * simulation and sets the outputs of the queued entities from its reply.
+   */
+  public synchronized void flush() {
+    if (batch.isEmpty() && pendingOutputs.isEmpty()) return;
+    if (!isRunning()) {
+      batch.clearStep();
+      pendingOutputs.clear();
+      return;
+    }
+
+    try {
+      int inputs = batch.getInputCount();
+      long start = System.nanoTime();
+      if (!batch.exchange(socketClient)) return;
+      long nanos = System.nanoTime() - start;
+      roundTrips++;
+      roundTripNanos += nanos;
+      maxRoundTripNanos = Math.max(maxRoundTripNanos, nanos);
+      inputsSent += inputs;
+
+      for (PendingOutput out : pendingOutputs) {
+        Value val = batch.getOutput(out.id);
+        if (val != null) out.state.setPort(out.index, val, 1);
+      }
+    } catch (IOException e) {
+      VhdlSimConstants.logger.error("Cannot exchange signals with the binder: {}", e.getMessage());
+      batch.clearStep();
+    } finally {
+      pendingOutputs.clear();
+    }
+  }
+
+  /** Returns the number of propagation steps exchanged with the binder since it started. */
+  public long getRoundTripCount() {
+    return roundTrips;
+  }
+
+  /** Returns the total time spent waiting for the binder, in nanoseconds. */
+  public long getRoundTripNanos() {
+    return roundTripNanos;
+  }
+
+  /** Returns the longest single exchange with the binder, in nanoseconds. */
+  public long getMaxRoundTripNanos() {
+    return maxRoundTripNanos;
+  }
+
+  /** Returns the number of input values sent to the binder since it started. */
+  public long getInputsSent() {
+    return inputsSent;
+  }
+
   /* At least one of the VHDL entity changed */
   public void fireInvalidated() {
 
@@ -284,23 +383,22 @@ public class VhdlSimulatorTop implements CircuitListener {
     return state == State.RUNNING;
   }
 
-  /**
-   * Receive a message from the VHDL simulator
-   *
-   * @return
-   */
-  public String receive() {
-    if (!isRunning()) throw new UnsupportedOperationException();
-
-    return socketClient.receive();
-  }
-
   public void removeVhdlSimStateListener(VhdlSimulatorListener l) {
     listeners.remove(l);
   }
 
-  public void reset() {
-    if (isEnabled()) socketClient.send("restart");
+  public synchronized void reset() {
+    if (!isRunning()) return;
+    byte[] frame = batch.buildCommand(VhdlSimulatorBatch.RESTART);
+    socketClient.sendFrame(frame, frame.length);
+    batch.reset();
+    pendingOutputs.clear();
+  }
+
+  /* Ask the binder to end itself */
+  synchronized void sendEnd() {
+    byte[] frame = batch.buildCommand(VhdlSimulatorBatch.END);
+    socketClient.sendFrame(frame, frame.length);
   }
 
   /** Stop and restart. If not running, just start */
@@ -323,17 +421,6 @@ public class VhdlSimulatorTop implements CircuitListener {
     }
   }
 
-  /**
-   * Send a message to the VHDL simulator
-   *
-   * @param message
-   */
-  public void send(String message) {
-    if (!isRunning()) throw new UnsupportedOperationException();
-
-    socketClient.send(message);
-  }
-
   public void setEnabled(Boolean enable) {
     if (enable) enable();
     else disable();
@@ -392,11 +479,28 @@ public class VhdlSimulatorTop implements CircuitListener {
     tclBinder.stop();
     socketClient.stop();
 
+    if (roundTrips > 0) {
+      VhdlSimConstants.logger.debug(
+          "VHDL simulation: {} steps, {} inputs sent, {} us average and {} us maximum round trip",
+          roundTrips,
+          inputsSent,
+          roundTripNanos / roundTrips / 1000,
+          maxRoundTripNanos / 1000);
+    }
+
     setState(State.ENABLED);
   }
 
   public void tclStartCallback() {
     socketClient.start();
+    synchronized (this) {
+      batch = new VhdlSimulatorBatch();
+      pendingOutputs.clear();
+      roundTrips = 0;
+      roundTripNanos = 0;
+      maxRoundTripNanos = 0;
+      inputsSent = 0;
+    }
     setState(State.RUNNING);
   }
 }
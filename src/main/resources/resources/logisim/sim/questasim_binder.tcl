@@ -19,102 +19,173 @@
 # Version   Author Date               Description
 # v1.1      CMR    25.06.14           - Exit if socket fails
 # v1.2      CMR    23.07.14           - Better error handling, add reset option
+# v2.0                                - Binary frames, one per propagation step
 #-------------------------------------------------------------------------------
-set Version 1.2
+#
+# Every message is a frame: a 32 bits big-endian length and that many bytes.
+# The first byte tells the kind of frame:
+#   E  end the simulation
+#   R  restart the simulation
+#   S  simulation step, made of three lists, each preceded by its length:
+#        - new ports: id (32 bits), type (8 bits, 1 in, 2 out, 3 inout),
+#          name length (16 bits) and name
+#        - changed inputs: id (32 bits), width (16 bits), value bits and
+#          unknown bits (64 bits each)
+#        - outputs to read back: id (32 bits)
+#      The reply is a frame S with the list of outputs whose value changed
+#      since they were last sent, in the same form as the inputs.
+#-------------------------------------------------------------------------------
+set Version 2.0
 
-set msgs {}
 set channel 0
 
-proc MessageReceived {channel} {
-	global msgs ;
-
-	if {[eof $channel] || [catch {gets $channel msg}]} {
-		end_binder $channel
-  } else {
+# Port names and types by id, and the output values last sent to Logisim
+array set names {}
+array set types {}
+array set reported {}
 
-		# If end of communication is asked
-		if {$msg == "end"} {
+proc ReadFrame {channel} {
+	set header [read $channel 4]
+	if {[string length $header] != 4} {
+		error "connection closed"
+	}
+	binary scan $header I length
+	set frame [read $channel $length]
+	if {[string length $frame] != $length} {
+		error "connection closed"
+	}
+	return $frame
+}
 
-			# Sim end procedure
-			end_binder $channel
+proc WriteFrame {channel frame} {
+	puts -nonewline $channel [binary format I [string length $frame]]$frame
+	flush $channel
+}
 
-		# When restart is requested
-		} elseif {$msg == "restart"} {
-			puts "Restart simulation"
-			if {[catch {restart -f} errmsg]} {
-				puts "Error at simulation reset: $errmsg"
-			}
-			set msgs {}
-
-		# When a sync is received
-		} elseif {$msg == "sync"} {
-
-			# Drive input signals in simulation
-			foreach msg $msgs {
-
-				# Get parameters from message
-				set signal [split $msg :]
-				set type [lindex $signal 0]
-				set name [lindex $signal 1]
-				set value [lindex $signal 2]
-				set id [lindex $signal 3]
-
-				# If signal is "in"
-				if {$type == 1} {
-					# Drive simulation signal (force signal, no internal logic changes possible)
-					if {[catch {force -freeze sim:/top_sim/$name $value} errmsg]} {
-						puts "Error forcing simulation signal: $errmsg"
-					}
-
-				# If signal is "inout"
-				} elseif {$type == 3} {
-
-					# Use deposit so value can be changed by internal logic
-					if {[catch {force -deposit sim:/top_sim/$name $value} errmsg]} {
-						puts "Error forcing simulation signal: $errmsg"
-					}
-				}
+# Turns the value and unknown bits of a Logisim value into a VHDL literal
+proc ToLiteral {width value unknown} {
+	binary scan [binary format W $value] B64 bits
+	set bits [string range $bits [expr {64 - $width}] end]
+	if {$unknown != 0} {
+		binary scan [binary format W $unknown] B64 mask
+		set mask [string range $mask [expr {64 - $width}] end]
+		set literal ""
+		foreach bit [split $bits ""] m [split $mask ""] {
+			if {$m} {
+				append literal X
+			} else {
+				append literal $bit
 			}
+		}
+		set bits $literal
+	}
+	return $bits
+}
+
+# Turns a value examined in the simulation into width, value bits and
+# unknown bits; anything else than 0 and 1 is unknown
+proc FromLiteral {literal} {
+	set width [string length $literal]
+	set pad [string repeat 0 [expr {64 - $width}]]
+	regsub -all {[^1]} $literal 0 bits
+	regsub -all {[01]} $literal 0 mask
+	regsub -all {[^0]} $mask 1 mask
+	binary scan [binary format B64 $pad$bits] W value
+	binary scan [binary format B64 $pad$mask] W unknown
+	return [binary format SWW $width $value $unknown]
+}
+
+proc Step {channel frame} {
+	global names types reported
+
+	# Declare new ports
+	binary scan $frame @1I count
+	set off 5
+	for {set i 0} {$i < $count} {incr i} {
+		binary scan $frame @${off}IcS id type length
+		incr off 7
+		set names($id) [string range $frame $off [expr {$off + $length - 1}]]
+		set types($id) $type
+		incr off $length
+	}
 
-			# Run the simulation
-			if {[catch {run 100} errmsg]} {
-				puts "Error running simulation: $errmsg"
+	# Drive input signals in simulation
+	binary scan $frame @${off}I count
+	incr off 4
+	for {set i 0} {$i < $count} {incr i} {
+		binary scan $frame @${off}ISWW id width value unknown
+		incr off 22
+		set value [ToLiteral $width $value $unknown]
+
+		# If signal is "in"
+		if {$types($id) == 1} {
+			# Drive simulation signal (force signal, no internal logic changes possible)
+			if {[catch {force -freeze sim:/top_sim/$names($id) $value} errmsg]} {
+				puts "Error forcing simulation signal: $errmsg"
 			}
 
-			# Read output signals from simulation
-			foreach msg $msgs {
-				# Get signal and value from message
-				set signal [split $msg :]
-				set type [lindex $signal 0]
-				set name [lindex $signal 1]
-				set value [lindex $signal 2]
-				set id [lindex $signal 3]
-
-				# If signal is "out" or "inout"
-				if {$type == 2 || $type == 3} {
-
-					# Read in sim
-					if {[catch {set value [examine sim:/top_sim/$name]} errmsg]} {
-						puts "Error examining simulation signal: $errmsg"
-					} else {
-						# Send to logisim
-						puts $channel [concat $name:$value:$id]
-					}
-				}
+		# If signal is "inout"
+		} elseif {$types($id) == 3} {
+
+			# Use deposit so value can be changed by internal logic
+			if {[catch {force -deposit sim:/top_sim/$names($id) $value} errmsg]} {
+				puts "Error forcing simulation signal: $errmsg"
 			}
+		}
+	}
 
-			# Send sync to alert logisim of end of step
-			puts $channel "sync"
-			#puts "sent : sync"
-			flush $channel
+	# Run the simulation
+	if {[catch {run 100} errmsg]} {
+		puts "Error running simulation: $errmsg"
+	}
+
+	# Read output signals from simulation, keep those that changed
+	binary scan $frame @${off}I count
+	incr off 4
+	set changed 0
+	set reply ""
+	for {set i 0} {$i < $count} {incr i} {
+		binary scan $frame @${off}I id
+		incr off 4
+		if {[catch {set value [examine sim:/top_sim/$names($id)]} errmsg]} {
+			puts "Error examining simulation signal: $errmsg"
+		} elseif {![info exists reported($id)] || $reported($id) ne $value} {
+			set reported($id) $value
+			append reply [binary format I $id][FromLiteral $value]
+			incr changed
+		}
+	}
+
+	# Send them to logisim, this ends the step
+	WriteFrame $channel [binary format a1I S $changed]$reply
+}
+
+proc MessageReceived {channel} {
+	global reported
 
-			set msgs {}
+	if {[eof $channel] || [catch {ReadFrame $channel} frame]} {
+		end_binder $channel
+		return
+	}
 
-		# If it's a signal, add to list
-		} else {
-			lappend msgs $msg ;
+	switch -- [string index $frame 0] {
+		E {
+			# Sim end procedure
+			end_binder $channel
 		}
-  }
+		R {
+			puts "Restart simulation"
+			if {[catch {restart -f} errmsg]} {
+				puts "Error at simulation reset: $errmsg"
+			}
+			# Logisim sends every port again after a restart
+			array unset reported
+			array set reported {}
+		}
+		S {
+			Step $channel $frame
+		}
+	}
 }
 
 proc {main} {port} {
@@ -128,6 +199,7 @@ proc {main} {port} {
 		puts "Error : $errmsg"
 		exit
 	} else {
+		fconfigure $channel -translation binary -blocking 1
 		puts "TCL_BINDER_CONNECTED"
 		puts "TCL_BINDER_RUNNING"
 
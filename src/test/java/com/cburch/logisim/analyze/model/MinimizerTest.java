@@ -0,0 +1,181 @@
+/*******************************************************************************
+ * This file is part of logisim-evolution.
+ *
+ *   logisim-evolution is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   logisim-evolution is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with logisim-evolution.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *   Original code by Carl Burch (http://www.cburch.com), 2011.
+ *   Subsequent modifications by :
+ *     + Haute École Spécialisée Bernoise
+ *       http://www.bfh.ch
+ *     + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *       http://hepia.hesge.ch/
+ *     + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *       http://www.heig-vd.ch/
+ *   The project is currently maintained by :
+ *     + REDS Institute - HEIG-VD
+ *       Yverdon-les-Bains, Switzerland
+ *       http://reds.heig-vd.ch
+ *******************************************************************************/
+
+package com.cburch.logisim.analyze.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+
+public class MinimizerTest {
+
+	private static final int SOP = AnalyzerModel.FORMAT_SUM_OF_PRODUCTS;
+	private static final int POS = AnalyzerModel.FORMAT_PRODUCT_OF_SUMS;
+
+	private static PackedColumn randomColumn(Random rand, int inputs, int dontCarePercent) {
+		PackedColumn ret = new PackedColumn(1 << inputs, Entry.ZERO);
+		for (int i = 0; i < ret.size(); i++) {
+			int r = rand.nextInt(100);
+			if (r < dontCarePercent)
+				ret.set(i, Entry.DONT_CARE);
+			else if (rand.nextBoolean())
+				ret.set(i, Entry.ONE);
+		}
+		return ret;
+	}
+
+	private static boolean covers(Implicant imp, int row) {
+		return (row & ~imp.unknowns) == (imp.values & ~imp.unknowns);
+	}
+
+	private static boolean touches(int unknowns, int values, PackedColumn column, Entry entry) {
+		for (int row = 0; row < column.size(); row++) {
+			if ((row & ~unknowns) == (values & ~unknowns) && column.get(row) == entry)
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Checks that the implicants cover every desired row and no undesired
+	 * one, that none of them can be grown by dropping a literal and that
+	 * none of them can be left out.
+	 */
+	private static void checkCover(String what, int format, PackedColumn column,
+			int inputs, List<Implicant> cover) {
+		Entry desired = format == SOP ? Entry.ONE : Entry.ZERO;
+		Entry undesired = format == SOP ? Entry.ZERO : Entry.ONE;
+		assertNotNull(what, cover);
+		boolean[] needed = new boolean[cover.size()];
+		for (int row = 0; row < column.size(); row++) {
+			int count = 0;
+			int last = -1;
+			for (int i = 0; i < cover.size(); i++) {
+				if (covers(cover.get(i), row)) {
+					count++;
+					last = i;
+				}
+			}
+			boolean covered = count > 0;
+			if (column.get(row) == desired) {
+				assertTrue(what + ": row " + row + " is not covered", covered);
+				if (count == 1)
+					needed[last] = true;
+			}
+			else if (column.get(row) == undesired)
+				assertFalse(what + ": row " + row + " is covered", covered);
+		}
+		for (int i = 0; i < cover.size(); i++)
+			assertTrue(what + ": implicant " + i + " is redundant", needed[i]);
+		for (Implicant imp : cover) {
+			assertEquals(what, 0, imp.unknowns >>> inputs);
+			assertEquals(what, 0, imp.values >>> inputs);
+			for (int b = 0; b < inputs; b++) {
+				int bit = 1 << b;
+				if ((imp.unknowns & bit) != 0)
+					continue;
+				assertTrue(what + ": " + Integer.toBinaryString(imp.values) + "/"
+						+ Integer.toBinaryString(imp.unknowns) + " is not prime",
+						touches(imp.unknowns | bit, imp.values & ~bit, column, undesired));
+			}
+		}
+	}
+
+	private static void checkRandom(long seed, int inputs, int exactInputs, int functions) {
+		Random rand = new Random(seed);
+		for (int k = 0; k < functions; k++) {
+			PackedColumn column = randomColumn(rand, inputs, rand.nextInt(50));
+			for (int format : new int[] {SOP, POS}) {
+				String what = inputs + " inputs, function " + k + ", format " + format;
+				List<Implicant> cover = Implicant.computeMinimal(format, column, inputs, exactInputs);
+				if (column.isAllUndefined())
+					assertNull(what, cover);
+				else
+					checkCover(what, format, column, inputs, cover);
+			}
+		}
+	}
+
+	@Test
+	public final void testExactCovers() {
+		for (int inputs = 1; inputs <= 8; inputs++)
+			checkRandom(inputs, inputs, 12, 40);
+	}
+
+	@Test
+	public final void testHeuristicCovers() {
+		for (int inputs = 1; inputs <= 8; inputs++)
+			checkRandom(100 + inputs, inputs, 0, 40);
+	}
+
+	@Test
+	public final void testBothSidesOfThreshold() {
+		// the default threshold is 12 inputs
+		checkRandom(12, 12, 12, 2);
+		checkRandom(13, 13, 12, 2);
+	}
+
+	@Test
+	public final void testKnownFunctions() {
+		// majority of three
+		PackedColumn column = new PackedColumn(new Entry[] {
+				Entry.ZERO, Entry.ZERO, Entry.ZERO, Entry.ONE,
+				Entry.ZERO, Entry.ONE, Entry.ONE, Entry.ONE});
+		for (int exact : new int[] {0, 12}) {
+			List<Implicant> cover = Implicant.computeMinimal(SOP, column, 3, exact);
+			checkCover("majority", SOP, column, 3, cover);
+			assertEquals(3, cover.size());
+		}
+		// parity cannot be merged at all
+		column = new PackedColumn(16, Entry.ZERO);
+		for (int row = 0; row < 16; row++) {
+			if (Integer.bitCount(row) % 2 == 1)
+				column.set(row, Entry.ONE);
+		}
+		for (int exact : new int[] {0, 12})
+			assertEquals(8, Implicant.computeMinimal(SOP, column, 4, exact).size());
+		// a constant one is a single implicant without literals
+		column = new PackedColumn(8, Entry.ONE);
+		column.set(2, Entry.DONT_CARE);
+		for (int exact : new int[] {0, 12}) {
+			List<Implicant> cover = Implicant.computeMinimal(SOP, column, 3, exact);
+			assertEquals(1, cover.size());
+			assertEquals(7, cover.get(0).unknowns);
+		}
+		// nothing known at all
+		assertNull(Implicant.computeMinimal(SOP, new PackedColumn(8, Entry.DONT_CARE), 3, 12));
+	}
+}
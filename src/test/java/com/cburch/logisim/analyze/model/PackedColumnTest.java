@@ -0,0 +1,162 @@
+/*******************************************************************************
+ * This file is part of logisim-evolution.
+ *
+ *   logisim-evolution is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   logisim-evolution is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with logisim-evolution.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *   Original code by Carl Burch (http://www.cburch.com), 2011.
+ *   Subsequent modifications by :
+ *     + Haute École Spécialisée Bernoise
+ *       http://www.bfh.ch
+ *     + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *       http://hepia.hesge.ch/
+ *     + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *       http://www.heig-vd.ch/
+ *   The project is currently maintained by :
+ *     + REDS Institute - HEIG-VD
+ *       Yverdon-les-Bains, Switzerland
+ *       http://reds.heig-vd.ch
+ *******************************************************************************/
+
+package com.cburch.logisim.analyze.model;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+import org.junit.Test;
+
+public class PackedColumnTest {
+
+	private static final Entry[] ENTRIES = {Entry.ZERO, Entry.ONE, Entry.DONT_CARE,
+			Entry.BUS_ERROR, Entry.OSCILLATE_ERROR};
+
+	private static boolean defined(Entry entry) {
+		return entry == Entry.ZERO || entry == Entry.ONE;
+	}
+
+	private static Entry[] randomEntries(Random rand, int size) {
+		Entry[] ret = new Entry[size];
+		for (int i = 0; i < size; i++)
+			ret[i] = ENTRIES[rand.nextInt(ENTRIES.length)];
+		return ret;
+	}
+
+	@Test
+	public final void testGetSet() {
+		Random rand = new Random(1);
+		for (int size : new int[] {1, 31, 32, 33, 64, 100}) {
+			Entry[] entries = randomEntries(rand, size);
+			PackedColumn column = new PackedColumn(entries);
+			assertArrayEquals(entries, column.toArray());
+			PackedColumn copy = column.copy();
+			column.set(0, entries[0] == Entry.ONE ? Entry.ZERO : Entry.ONE);
+			assertEquals(entries[0], copy.get(0));
+			for (Entry value : ENTRIES) {
+				column.fill(value);
+				for (int i = 0; i < size; i++)
+					assertEquals(value, column.get(i));
+			}
+		}
+	}
+
+	@Test
+	public final void testSetRowsOfMask() {
+		Random rand = new Random(2);
+		int[][] cases = {
+				{0, 0}, {5, 0}, {0, 0b1010}, {0x40, 0x3f}, {0, 0x1f}, {0, 0x7f}, {0x80, 0x1f},
+				{1, 0x7e}};
+		for (int[] c : cases) {
+			int base = c[0];
+			int dcMask = c[1];
+			for (Entry value : ENTRIES) {
+				Entry[] entries = randomEntries(rand, 256);
+				PackedColumn column = new PackedColumn(entries);
+				boolean changed = false;
+				int t = 0;
+				do {
+					changed |= entries[base | t] != value;
+					entries[base | t] = value;
+					t = (t - dcMask) & dcMask;
+				} while (t != 0);
+				String what = base + "/" + dcMask + " " + value;
+				assertEquals(what, changed, column.set(base, dcMask, value));
+				assertArrayEquals(what, entries, column.toArray());
+				assertFalse(what, column.set(base, dcMask, value));
+			}
+		}
+	}
+
+	@Test
+	public final void testSetBits() {
+		PackedColumn column = new PackedColumn(100, Entry.OSCILLATE_ERROR);
+		column.setBits(20, 64, 0b0101L, 0b0011L, 0b1001L);
+		assertEquals(Entry.BUS_ERROR, column.get(20));
+		assertEquals(Entry.DONT_CARE, column.get(21));
+		assertEquals(Entry.ONE, column.get(22));
+		assertEquals(Entry.BUS_ERROR, column.get(23));
+		for (int i = 24; i < 84; i++)
+			assertEquals(Entry.ZERO, column.get(i));
+		assertEquals(Entry.OSCILLATE_ERROR, column.get(19));
+		assertEquals(Entry.OSCILLATE_ERROR, column.get(84));
+	}
+
+	@Test
+	public final void testMatches() {
+		Random rand = new Random(3);
+		for (int size : new int[] {1, 31, 32, 33, 64, 100}) {
+			for (int k = 0; k < 50; k++) {
+				Entry[] a = randomEntries(rand, size);
+				Entry[] b = randomEntries(rand, size);
+				if (k % 2 == 0) {
+					// make them agree where both are defined, mostly
+					for (int i = 0; i < size; i++) {
+						if (defined(a[i]) && defined(b[i]))
+							b[i] = a[i];
+					}
+				}
+				boolean expected = true;
+				for (int i = 0; i < size; i++) {
+					if (defined(a[i]) && defined(b[i]) && a[i] != b[i])
+						expected = false;
+				}
+				String what = size + " rows, case " + k;
+				assertEquals(what, expected,
+						new PackedColumn(a).matches(new PackedColumn(b)));
+				assertEquals(what, expected,
+						new PackedColumn(b).matches(new PackedColumn(a)));
+			}
+		}
+		assertFalse(new PackedColumn(8, Entry.ZERO).matches(new PackedColumn(9, Entry.ZERO)));
+	}
+
+	@Test
+	public final void testIsAllUndefined() {
+		for (int size : new int[] {1, 31, 32, 33, 64, 100}) {
+			for (Entry fill : new Entry[] {Entry.DONT_CARE, Entry.BUS_ERROR,
+					Entry.OSCILLATE_ERROR}) {
+				PackedColumn column = new PackedColumn(size, fill);
+				assertTrue(column.isAllUndefined());
+				column.set(size - 1, Entry.ZERO);
+				assertFalse(column.isAllUndefined());
+				column.set(size - 1, Entry.DONT_CARE);
+				assertTrue(column.isAllUndefined());
+				column.set(size / 2, Entry.ONE);
+				assertFalse(column.isAllUndefined());
+			}
+			assertFalse(new PackedColumn(size, Entry.ZERO).isAllUndefined());
+		}
+	}
+}
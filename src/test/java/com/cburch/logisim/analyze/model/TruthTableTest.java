@@ -0,0 +1,195 @@
+/*******************************************************************************
+ * This file is part of logisim-evolution.
+ *
+ *   logisim-evolution is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   logisim-evolution is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with logisim-evolution.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *   Original code by Carl Burch (http://www.cburch.com), 2011.
+ *   Subsequent modifications by :
+ *     + Haute École Spécialisée Bernoise
+ *       http://www.bfh.ch
+ *     + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *       http://hepia.hesge.ch/
+ *     + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *       http://www.heig-vd.ch/
+ *   The project is currently maintained by :
+ *     + REDS Institute - HEIG-VD
+ *       Yverdon-les-Bains, Switzerland
+ *       http://reds.heig-vd.ch
+ *******************************************************************************/
+
+package com.cburch.logisim.analyze.model;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+
+public class TruthTableTest {
+
+	private static final int INPUTS = 4;
+	private static final int OUTPUTS = 2;
+
+	private static AnalyzerModel model(List<Var> inputs) {
+		AnalyzerModel ret = new AnalyzerModel();
+		ret.setVariables(inputs, Arrays.asList(new Var("y", 1), new Var("z", 1)));
+		return ret;
+	}
+
+	private static List<Var> inputs() {
+		return Arrays.asList(new Var("a", 1), new Var("b", 1), new Var("c", 1), new Var("d", 1));
+	}
+
+	/** Checks that the visible rows partition the table and agree with the outputs. */
+	private static void checkRows(TruthTable table) {
+		boolean[] seen = new boolean[table.getRowCount()];
+		for (int row = 0; row < table.getVisibleRowCount(); row++) {
+			for (int idx : table.getVisibleRowIndexes(row)) {
+				assertFalse("row " + idx + " is shown twice", seen[idx]);
+				seen[idx] = true;
+				for (int col = 0; col < table.getOutputColumnCount(); col++) {
+					assertEquals("row " + idx + " output " + col,
+							table.getVisibleOutputEntry(row, col), table.getOutputEntry(idx, col));
+				}
+			}
+		}
+		for (int idx = 0; idx < seen.length; idx++)
+			assertTrue("row " + idx + " is not shown", seen[idx]);
+	}
+
+	private static void checkSameOutputs(TruthTable expected, TruthTable actual) {
+		assertEquals(expected.getRowCount(), actual.getRowCount());
+		for (int col = 0; col < expected.getOutputColumnCount(); col++)
+			assertArrayEquals("output " + col, expected.getOutputColumn(col),
+					actual.getOutputColumn(col));
+	}
+
+	/**
+	 * Builds two models with the same outputs, one showing every row on its
+	 * own and one with some rows merged by don't care inputs, so that the
+	 * changes to the inputs take the fast and the general path respectively.
+	 */
+	private static AnalyzerModel[] pair(long seed) {
+		Random rand = new Random(seed);
+		List<Var> vars = inputs();
+		AnalyzerModel merged = model(vars);
+		TruthTable table = merged.getTruthTable();
+		for (int col = 0; col < OUTPUTS; col++) {
+			Entry[] values = new Entry[table.getRowCount()];
+			for (int i = 0; i < values.length; i++)
+				values[i] = rand.nextBoolean() ? Entry.ONE : Entry.ZERO;
+			table.setOutputColumn(col, values);
+		}
+		for (int k = 0; k < 3; k++) {
+			int row = rand.nextInt(table.getVisibleRowCount());
+			table.setVisibleInputEntry(row, rand.nextInt(INPUTS), Entry.DONT_CARE, true);
+		}
+		assertTrue(table.getVisibleRowCount() < table.getRowCount());
+		AnalyzerModel expanded = model(vars);
+		for (int col = 0; col < OUTPUTS; col++)
+			expanded.getTruthTable().setOutputColumn(col, table.getOutputColumn(col));
+		assertEquals(16, expanded.getTruthTable().getVisibleRowCount());
+		return new AnalyzerModel[] {expanded, merged};
+	}
+
+	private static void checkPair(AnalyzerModel[] pair) {
+		TruthTable expanded = pair[0].getTruthTable();
+		TruthTable merged = pair[1].getTruthTable();
+		assertEquals(expanded.getRowCount(), expanded.getVisibleRowCount());
+		for (int row = 0; row < expanded.getVisibleRowCount(); row++)
+			assertEquals(row, expanded.getVisibleRowIndex(row));
+		checkRows(expanded);
+		checkRows(merged);
+		checkSameOutputs(merged, expanded);
+	}
+
+	@Test
+	public final void testAddInput() {
+		for (int pos = 0; pos <= INPUTS; pos++) {
+			AnalyzerModel[] pair = pair(pos);
+			for (AnalyzerModel model : pair) {
+				model.getInputs().add(new Var("e", 1));
+				for (int k = INPUTS; k > pos; k--)
+					model.getInputs().move(model.getInputs().vars.get(INPUTS), -1);
+			}
+			checkPair(pair);
+		}
+	}
+
+	@Test
+	public final void testRemoveInput() {
+		for (int pos = 0; pos < INPUTS; pos++) {
+			AnalyzerModel[] pair = pair(10 + pos);
+			for (AnalyzerModel model : pair)
+				model.getInputs().remove(model.getInputs().vars.get(pos));
+			checkPair(pair);
+		}
+	}
+
+	@Test
+	public final void testMoveInput() {
+		for (int pos = 0; pos < INPUTS; pos++) {
+			for (int delta = -pos; delta < INPUTS - pos; delta++) {
+				if (delta == 0)
+					continue;
+				AnalyzerModel[] pair = pair(20 + 4 * pos + delta);
+				for (AnalyzerModel model : pair)
+					model.getInputs().move(model.getInputs().vars.get(pos), delta);
+				checkPair(pair);
+			}
+		}
+	}
+
+	@Test
+	public final void testSetOutputEntrySplitsRecursively() {
+		AnalyzerModel model = model(inputs());
+		TruthTable table = model.getTruthTable();
+		Entry[] ones = new Entry[table.getRowCount()];
+		Arrays.fill(ones, Entry.ONE);
+		table.setOutputColumn(0, ones);
+		// merge all rows into one, then change a single row of it
+		for (int col = 0; col < INPUTS; col++)
+			table.setVisibleInputEntry(0, col, Entry.DONT_CARE, false);
+		assertEquals(1, table.getVisibleRowCount());
+		table.setOutputEntry(0b0110, 0, Entry.ZERO);
+		checkRows(table);
+		// splitting at the two differing bits leaves x00x, x01x and x10x
+		// alone; x11x is split again into x111 and the rows 0110 and 1110
+		assertEquals(6, table.getVisibleRowCount());
+		for (int idx = 0; idx < table.getRowCount(); idx++)
+			assertEquals(idx == 0b0110 ? Entry.ZERO : Entry.ONE, table.getOutputEntry(idx, 0));
+		int row = table.findVisibleRowContaining(0b0110);
+		assertEquals(0, table.getVisibleRowDcMask(row));
+	}
+
+	@Test
+	public final void testSetOutputColumnSplitsRecursively() {
+		AnalyzerModel model = model(inputs());
+		TruthTable table = model.getTruthTable();
+		for (int col = 0; col < INPUTS; col++)
+			table.setVisibleInputEntry(0, col, Entry.DONT_CARE, false);
+		assertEquals(1, table.getVisibleRowCount());
+		Random rand = new Random(5);
+		Entry[] values = new Entry[table.getRowCount()];
+		for (int i = 0; i < values.length; i++)
+			values[i] = rand.nextInt(4) == 0 ? Entry.ONE : Entry.ZERO;
+		table.setOutputColumn(1, values);
+		checkRows(table);
+		assertArrayEquals(values, table.getOutputColumn(1));
+	}
+}
@@ -0,0 +1,239 @@
+/*******************************************************************************
+ * This file is part of logisim-evolution.
+ *
+ *   logisim-evolution is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   logisim-evolution is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with logisim-evolution.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *   Original code by Carl Burch (http://www.cburch.com), 2011.
+ *   Subsequent modifications by :
+ *     + Haute École Spécialisée Bernoise
+ *       http://www.bfh.ch
+ *     + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *       http://hepia.hesge.ch/
+ *     + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *       http://www.heig-vd.ch/
+ *   The project is currently maintained by :
+ *     + REDS Institute - HEIG-VD
+ *       Yverdon-les-Bains, Switzerland
+ *       http://reds.heig-vd.ch
+ *******************************************************************************/
+
+package com.cburch.logisim.circuit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import com.cburch.logisim.comp.Component;
+import com.cburch.logisim.comp.ComponentFactory;
+import com.cburch.logisim.data.BitWidth;
+import com.cburch.logisim.data.Value;
+import com.cburch.logisim.instance.Instance;
+import com.cburch.logisim.instance.StdAttr;
+import com.cburch.logisim.std.gates.Gates;
+import com.cburch.logisim.std.plexers.Plexers;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+
+public class BitSliceEvaluatorTest {
+
+	private final TestCircuits tc = new TestCircuits();
+	private final List<Component> inputs = new ArrayList<Component>();
+	private final List<Component> outputs = new ArrayList<Component>();
+	private final ComponentFactory mux = TestCircuits.factory(new Plexers(), "Multiplexer");
+	private final Circuit circ;
+	private final Component bus;
+
+	/**
+	 * Builds a circuit of gates, two controlled buffers sharing a bus (so
+	 * some lanes are undefined or in error), multiplexers selected by the
+	 * bus and by a two-bit pin, a gate with an open input and a full adder
+	 * made of gates.
+	 */
+	public BitSliceEvaluatorTest() {
+		Gates gates = new Gates();
+		ComponentFactory and = TestCircuits.factory(gates, "AND Gate");
+		ComponentFactory or = TestCircuits.factory(gates, "OR Gate");
+		ComponentFactory nand = TestCircuits.factory(gates, "NAND Gate");
+		ComponentFactory nor = TestCircuits.factory(gates, "NOR Gate");
+		ComponentFactory xnor = TestCircuits.factory(gates, "XNOR Gate");
+		ComponentFactory xor = TestCircuits.factory(gates, "XOR Gate");
+		ComponentFactory parity = TestCircuits.factory(gates, "Odd Parity");
+		ComponentFactory not = TestCircuits.factory(gates, "NOT Gate");
+		ComponentFactory buffer = TestCircuits.factory(gates, "Controlled Buffer");
+		circ = tc.circuit("main");
+		CircuitMutation m = new CircuitMutation(circ);
+		String[] names = {"a", "b", "c", "d", "e", "f"};
+		Component[] in = new Component[names.length];
+		for (int i = 0; i < names.length; i++) {
+			in[i] = TestCircuits.pin(m, 100, 100 + 200 * i, false, 1, names[i]);
+			inputs.add(in[i]);
+		}
+		Component sel = TestCircuits.pin(m, 100, 1500, false, 2, "s");
+		inputs.add(sel);
+		Component a = in[0], b = in[1], c = in[2], d = in[3], e = in[4], f = in[5];
+
+		Component and3 = TestCircuits.place(m, and, 500, 100, "inputs", 3);
+		gate(m, and3, a, b, c);
+		output(m, and3, "and");
+		Component nor2 = TestCircuits.place(m, nor, 500, 300, "inputs", 2);
+		gate(m, nor2, d, e);
+		output(m, nor2, "nor");
+		Component xnor2 = TestCircuits.place(m, xnor, 500, 500, "inputs", 2);
+		gate(m, xnor2, a, f);
+		output(m, xnor2, "xnor");
+		Component notc = TestCircuits.place(m, not, 500, 700);
+		gate(m, notc, c);
+		Component nand2 = TestCircuits.place(m, nand, 800, 700, "inputs", 2);
+		gate(m, nand2, b);
+		tc.connect(m, 1, TestCircuits.end(notc, 0), TestCircuits.end(nand2, 2));
+		output(m, nand2, "nand");
+
+		// a gate with an input left open
+		Component open = TestCircuits.place(m, or, 500, 900, "inputs", 2);
+		gate(m, open, e);
+		output(m, open, "open");
+
+		// controlled buffers driving a shared bus
+		Component buf0 = TestCircuits.place(m, buffer, 500, 1100);
+		Component buf1 = TestCircuits.place(m, buffer, 500, 1300);
+		tc.connect(m, 1, TestCircuits.end(a, 0), TestCircuits.end(buf0, 1));
+		tc.connect(m, 1, TestCircuits.end(b, 0), TestCircuits.end(buf0, 2));
+		tc.connect(m, 1, TestCircuits.end(c, 0), TestCircuits.end(buf1, 1));
+		tc.connect(m, 1, TestCircuits.end(d, 0), TestCircuits.end(buf1, 2));
+		bus = TestCircuits.pin(m, 3000, 1100, true, 1, "bus");
+		outputs.add(bus);
+		Component busAnd = TestCircuits.place(m, and, 800, 1200, "inputs", 2);
+		Component mux2 = TestCircuits.place(m, mux, 800, 1500,
+				Plexers.ATTR_ENABLE, Boolean.FALSE);
+		tc.connect(m, 1, TestCircuits.end(buf0, 0), TestCircuits.end(buf1, 0),
+				TestCircuits.end(bus, 0), TestCircuits.end(busAnd, 1),
+				TestCircuits.end(mux2, 2));
+		gateInput(m, busAnd, 2, e);
+		output(m, busAnd, "busand");
+		tc.connect(m, 1, TestCircuits.end(e, 0), TestCircuits.end(mux2, 0));
+		tc.connect(m, 1, TestCircuits.end(f, 0), TestCircuits.end(mux2, 1));
+		output(m, mux2, "mux2");
+
+		// a multiplexer with a two-bit select
+		Component mux4 = TestCircuits.place(m, mux, 800, 2000,
+				Plexers.ATTR_SELECT, BitWidth.create(2), Plexers.ATTR_ENABLE, Boolean.FALSE);
+		for (int i = 0; i < 4; i++)
+			tc.connect(m, 1, TestCircuits.end(in[i], 0), TestCircuits.end(mux4, i));
+		tc.connect(m, 2, TestCircuits.end(sel, 0), TestCircuits.end(mux4, 4));
+		output(m, mux4, "mux4");
+
+		// a full adder of d, e and f
+		Component sum = TestCircuits.place(m, parity, 500, 2500, "inputs", 3);
+		gate(m, sum, d, e, f);
+		output(m, sum, "sum");
+		Component de = TestCircuits.place(m, and, 500, 2700, "inputs", 2);
+		gate(m, de, d, e);
+		Component half = TestCircuits.place(m, xor, 500, 2900, "inputs", 2);
+		gate(m, half, d, e);
+		Component carried = TestCircuits.place(m, and, 800, 2900, "inputs", 2);
+		gateInput(m, carried, 1, f);
+		tc.connect(m, 1, TestCircuits.end(half, 0), TestCircuits.end(carried, 2));
+		Component carry = TestCircuits.place(m, or, 1100, 2800, "inputs", 2);
+		tc.connect(m, 1, TestCircuits.end(de, 0), TestCircuits.end(carry, 1));
+		tc.connect(m, 1, TestCircuits.end(carried, 0), TestCircuits.end(carry, 2));
+		output(m, carry, "carry");
+		m.execute();
+	}
+
+	private void gate(CircuitMutation m, Component gate, Component... ins) {
+		for (int i = 0; i < ins.length; i++)
+			gateInput(m, gate, i + 1, ins[i]);
+	}
+
+	private void gateInput(CircuitMutation m, Component gate, int end, Component in) {
+		tc.connect(m, 1, TestCircuits.end(in, 0), TestCircuits.end(gate, end));
+	}
+
+	private void output(CircuitMutation m, Component comp, String label) {
+		// gates have their output first, multiplexers last
+		int end = comp.getFactory() == mux ? comp.getEnds().size() - 1 : 0;
+		Component pin = TestCircuits.pin(m, 3000, 1300 + 200 * outputs.size(), true, 1, label);
+		outputs.add(pin);
+		tc.connect(m, 1, TestCircuits.end(comp, end), TestCircuits.end(pin, 0));
+	}
+
+	private static List<Instance> instances(List<Component> comps) {
+		List<Instance> ret = new ArrayList<Instance>();
+		for (Component comp : comps)
+			ret.add(Instance.getInstanceFor(comp));
+		return ret;
+	}
+
+	private static int width(Component pin) {
+		return pin.getAttributeSet().getValue(StdAttr.WIDTH).getWidth();
+	}
+
+	private static Value lane(long value, long unknown, long error, int k) {
+		if (((error >>> k) & 1) != 0)
+			return Value.ERROR;
+		if (((unknown >>> k) & 1) != 0)
+			return Value.UNKNOWN;
+		return ((value >>> k) & 1) != 0 ? Value.TRUE : Value.FALSE;
+	}
+
+	@Test
+	public final void testLanesMatchPropagation() {
+		BitSliceEvaluator lanes = BitSliceEvaluator.create(new CircuitState(tc.proj, circ),
+				instances(inputs), instances(outputs));
+		assertNotNull(lanes);
+		CircuitState state = new CircuitState(tc.proj, circ);
+		int rowBits = inputs.size() + 1; // the select pin has two bits
+		boolean[] seen = new boolean[3];
+		for (int first = 0; first < 1 << rowBits; first += 64) {
+			int bit = 0;
+			for (int j = 0; j < inputs.size(); j++) {
+				int width = width(inputs.get(j));
+				for (int b = 0; b < width; b++)
+					lanes.setInput(j, b, BitSliceEvaluator.getRowLanes(first, bit++));
+			}
+			lanes.evaluate();
+			for (int k = 0; k < 64; k++) {
+				int row = first + k;
+				bit = 0;
+				for (Component in : inputs) {
+					int width = width(in);
+					TestCircuits.setInput(state, in,
+							Value.createKnown(BitWidth.create(width), (row >> bit) & ((1 << width) - 1)));
+					bit += width;
+				}
+				state.getPropagator().propagate();
+				for (int j = 0; j < outputs.size(); j++) {
+					Value expected = TestCircuits.getOutput(state, outputs.get(j));
+					Value actual = lane(lanes.getOutputValue(j, 0),
+							lanes.getOutputUnknown(j, 0), lanes.getOutputError(j, 0), k);
+					assertEquals("row " + row + " output "
+							+ outputs.get(j).getAttributeSet().getValue(StdAttr.LABEL),
+							expected, actual);
+					if (outputs.get(j) == bus) {
+						if (actual == Value.UNKNOWN)
+							seen[0] = true;
+						else if (actual == Value.ERROR)
+							seen[1] = true;
+						else
+							seen[2] = true;
+					}
+				}
+			}
+		}
+		// the bus was floating, in conflict and driven
+		assertTrue(seen[0] && seen[1] && seen[2]);
+		state.dispose();
+	}
+}
@@ -0,0 +1,187 @@
+/*******************************************************************************
+ * This file is part of logisim-evolution.
+ *
+ *   logisim-evolution is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   logisim-evolution is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with logisim-evolution.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *   Original code by Carl Burch (http://www.cburch.com), 2011.
+ *   Subsequent modifications by :
+ *     + Haute École Spécialisée Bernoise
+ *       http://www.bfh.ch
+ *     + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *       http://hepia.hesge.ch/
+ *     + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *       http://www.heig-vd.ch/
+ *   The project is currently maintained by :
+ *     + REDS Institute - HEIG-VD
+ *       Yverdon-les-Bains, Switzerland
+ *       http://reds.heig-vd.ch
+ *******************************************************************************/
+
+package com.cburch.logisim.circuit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.cburch.logisim.comp.Component;
+import com.cburch.logisim.comp.ComponentFactory;
+import com.cburch.logisim.data.Value;
+import com.cburch.logisim.file.Options;
+import com.cburch.logisim.std.gates.Gates;
+import com.cburch.logisim.std.memory.Memory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+
+/**
+ * Runs the same input sequences through the compiled netlist and through
+ * the event queue, and compares the settled outputs.
+ */
+public class CompiledNetlistTest {
+
+	private final TestCircuits tc = new TestCircuits();
+	private Circuit circ;
+
+	/** Returns the pins d, clk, q1 and q2 of a two stage shift register. */
+	private Component[] shiftRegister() {
+		ComponentFactory dff = TestCircuits.factory(new Memory(), "D Flip-Flop");
+		circ = tc.circuit("shift");
+		CircuitMutation m = new CircuitMutation(circ);
+		Component d = TestCircuits.pin(m, 100, 100, false, 1, "d");
+		Component clk = TestCircuits.pin(m, 100, 300, false, 1, "clk");
+		Component q1 = TestCircuits.pin(m, 1100, 100, true, 1, "q1");
+		Component q2 = TestCircuits.pin(m, 1100, 300, true, 1, "q2");
+		Component ff1 = TestCircuits.place(m, dff, 400, 100);
+		Component ff2 = TestCircuits.place(m, dff, 800, 100);
+		// the ends of a D flip-flop are D, clock, Q, not Q, reset and preset
+		tc.connect(m, 1, TestCircuits.end(d, 0), TestCircuits.end(ff1, 0));
+		tc.connect(m, 1, TestCircuits.end(clk, 0), TestCircuits.end(ff1, 1),
+				TestCircuits.end(ff2, 1));
+		tc.connect(m, 1, TestCircuits.end(ff1, 2), TestCircuits.end(ff2, 0),
+				TestCircuits.end(q1, 0));
+		tc.connect(m, 1, TestCircuits.end(ff2, 2), TestCircuits.end(q2, 0));
+		m.execute();
+		return new Component[] {d, clk, q1, q2};
+	}
+
+	/** Returns the pins a, b, c, s and co of a full adder made of gates. */
+	private Component[] fullAdder() {
+		Gates gates = new Gates();
+		ComponentFactory and = TestCircuits.factory(gates, "AND Gate");
+		ComponentFactory or = TestCircuits.factory(gates, "OR Gate");
+		ComponentFactory parity = TestCircuits.factory(gates, "Odd Parity");
+		circ = tc.circuit("adder");
+		CircuitMutation m = new CircuitMutation(circ);
+		Component a = TestCircuits.pin(m, 100, 100, false, 1, "a");
+		Component b = TestCircuits.pin(m, 100, 300, false, 1, "b");
+		Component c = TestCircuits.pin(m, 100, 500, false, 1, "c");
+		Component s = TestCircuits.pin(m, 1100, 100, true, 1, "s");
+		Component co = TestCircuits.pin(m, 1100, 500, true, 1, "co");
+		Component xor = TestCircuits.place(m, parity, 500, 100, "inputs", 3);
+		Component ab = TestCircuits.place(m, and, 500, 300, "inputs", 2);
+		Component bc = TestCircuits.place(m, and, 500, 500, "inputs", 2);
+		Component ac = TestCircuits.place(m, and, 500, 700, "inputs", 2);
+		Component or3 = TestCircuits.place(m, or, 800, 500, "inputs", 3);
+		tc.connect(m, 1, TestCircuits.end(a, 0), TestCircuits.end(xor, 1),
+				TestCircuits.end(ab, 1), TestCircuits.end(ac, 1));
+		tc.connect(m, 1, TestCircuits.end(b, 0), TestCircuits.end(xor, 2),
+				TestCircuits.end(ab, 2), TestCircuits.end(bc, 1));
+		tc.connect(m, 1, TestCircuits.end(c, 0), TestCircuits.end(xor, 3),
+				TestCircuits.end(bc, 2), TestCircuits.end(ac, 2));
+		tc.connect(m, 1, TestCircuits.end(ab, 0), TestCircuits.end(or3, 1));
+		tc.connect(m, 1, TestCircuits.end(bc, 0), TestCircuits.end(or3, 2));
+		tc.connect(m, 1, TestCircuits.end(ac, 0), TestCircuits.end(or3, 3));
+		tc.connect(m, 1, TestCircuits.end(xor, 0), TestCircuits.end(s, 0));
+		tc.connect(m, 1, TestCircuits.end(or3, 0), TestCircuits.end(co, 0));
+		m.execute();
+		return new Component[] {a, b, c, s, co};
+	}
+
+	/**
+	 * Applies the rows of inputs one after the other, and returns the
+	 * outputs after each of them has settled.
+	 */
+	private List<String> run(Component[] pins, int inputCount, boolean[][] rows,
+			boolean compiled) {
+		tc.file.getOptions().getAttributeSet().setValue(Options.ATTR_SIM_RAND, 0);
+		tc.file.getOptions().getAttributeSet().setValue(Options.ATTR_SIM_COMPILED, compiled);
+		CircuitState state = new CircuitState(tc.proj, circ);
+		if (compiled) {
+			CompiledNetlist netlist = CompiledNetlist.compile(state);
+			assertTrue(netlist.isSupported());
+			netlist.dispose();
+		}
+		Propagator prop = state.getPropagator();
+		prop.propagate();
+		List<String> trace = new ArrayList<String>();
+		for (boolean[] row : rows) {
+			for (int i = 0; i < inputCount; i++)
+				TestCircuits.setInput(state, pins[i], row[i] ? Value.TRUE : Value.FALSE);
+			prop.propagate();
+			StringBuilder buf = new StringBuilder();
+			for (int i = inputCount; i < pins.length; i++)
+				buf.append(TestCircuits.getOutput(state, pins[i]));
+			trace.add(buf.toString());
+		}
+		state.dispose();
+		return trace;
+	}
+
+	@Test
+	public final void testShiftRegisterShiftsOneStagePerEdge() {
+		Component[] pins = shiftRegister();
+		Random rand = new Random(1);
+		List<boolean[]> rows = new ArrayList<boolean[]>();
+		for (int k = 0; k < 64; k++) {
+			boolean d = rand.nextBoolean();
+			rows.add(new boolean[] {d, false});
+			rows.add(new boolean[] {d, true});
+		}
+		boolean[][] sequence = rows.toArray(new boolean[0][]);
+		List<String> events = run(pins, 2, sequence, false);
+		List<String> compiled = run(pins, 2, sequence, true);
+		boolean q1 = false;
+		boolean q2 = false;
+		for (int i = 0; i < sequence.length; i++) {
+			if (sequence[i][1]) {
+				q2 = q1;
+				q1 = sequence[i][0];
+			}
+			String expected = (q1 ? "1" : "0") + (q2 ? "1" : "0");
+			assertEquals("row " + i, expected, events.get(i));
+			assertEquals("row " + i, expected, compiled.get(i));
+		}
+	}
+
+	@Test
+	public final void testCombinationalMatchesEventQueue() {
+		Component[] pins = fullAdder();
+		Random rand = new Random(2);
+		boolean[][] sequence = new boolean[64][3];
+		for (boolean[] row : sequence) {
+			for (int i = 0; i < row.length; i++)
+				row[i] = rand.nextBoolean();
+		}
+		List<String> events = run(pins, 3, sequence, false);
+		List<String> compiled = run(pins, 3, sequence, true);
+		for (int i = 0; i < sequence.length; i++) {
+			int sum = 0;
+			for (boolean bit : sequence[i])
+				sum += bit ? 1 : 0;
+			String expected = ((sum & 1) != 0 ? "1" : "0") + (sum >= 2 ? "1" : "0");
+			assertEquals("row " + i, expected, events.get(i));
+			assertEquals("row " + i, expected, compiled.get(i));
+		}
+	}
+}
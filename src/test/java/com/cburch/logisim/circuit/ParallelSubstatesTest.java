@@ -0,0 +1,192 @@
+/*******************************************************************************
+ * This file is part of logisim-evolution.
+ *
+ *   logisim-evolution is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   logisim-evolution is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with logisim-evolution.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *   Original code by Carl Burch (http://www.cburch.com), 2011.
+ *   Subsequent modifications by :
+ *     + Haute École Spécialisée Bernoise
+ *       http://www.bfh.ch
+ *     + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *       http://hepia.hesge.ch/
+ *     + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *       http://www.heig-vd.ch/
+ *   The project is currently maintained by :
+ *     + REDS Institute - HEIG-VD
+ *       Yverdon-les-Bains, Switzerland
+ *       http://reds.heig-vd.ch
+ *******************************************************************************/
+
+package com.cburch.logisim.circuit;
+
+import static org.junit.Assert.assertEquals;
+
+import com.cburch.logisim.comp.Component;
+import com.cburch.logisim.comp.ComponentFactory;
+import com.cburch.logisim.data.Location;
+import com.cburch.logisim.data.Value;
+import com.cburch.logisim.file.Options;
+import com.cburch.logisim.std.gates.Gates;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+
+public class ParallelSubstatesTest {
+
+	private static final int PAIRS = 4;
+
+	private final TestCircuits tc = new TestCircuits();
+	private final Component[] inputs = new Component[4 * PAIRS + 1];
+	private final Component[] outputs = new Component[2 * PAIRS + 1];
+	private final Circuit main;
+
+	/**
+	 * Builds an adder from subcircuits holding two full adder subcircuits
+	 * each. The carry goes from one sibling substate to the next through
+	 * their parent, so the parent propagations of changed pins matter.
+	 */
+	public ParallelSubstatesTest() {
+		Gates gates = new Gates();
+		ComponentFactory and = TestCircuits.factory(gates, "AND Gate");
+		ComponentFactory or3 = TestCircuits.factory(gates, "OR Gate");
+		ComponentFactory parity = TestCircuits.factory(gates, "Odd Parity");
+		Circuit cell = tc.circuit("cell");
+		CircuitMutation m = new CircuitMutation(cell);
+		Component a = TestCircuits.pin(m, 100, 100, false, 1, "a");
+		Component b = TestCircuits.pin(m, 100, 300, false, 1, "b");
+		Component c = TestCircuits.pin(m, 100, 500, false, 1, "c");
+		Component s = TestCircuits.pin(m, 1100, 100, true, 1, "s");
+		Component co = TestCircuits.pin(m, 1100, 500, true, 1, "co");
+		Component xor = TestCircuits.place(m, parity, 500, 100,
+				"inputs", 3);
+		Component ab = TestCircuits.place(m, and, 500, 300,
+				"inputs", 2);
+		Component bc = TestCircuits.place(m, and, 500, 500,
+				"inputs", 2);
+		Component ac = TestCircuits.place(m, and, 500, 700,
+				"inputs", 2);
+		Component or = TestCircuits.place(m, or3, 800, 500,
+				"inputs", 3);
+		tc.connect(m, 1, TestCircuits.end(a, 0), TestCircuits.end(xor, 1),
+				TestCircuits.end(ab, 1), TestCircuits.end(ac, 1));
+		tc.connect(m, 1, TestCircuits.end(b, 0), TestCircuits.end(xor, 2),
+				TestCircuits.end(ab, 2), TestCircuits.end(bc, 1));
+		tc.connect(m, 1, TestCircuits.end(c, 0), TestCircuits.end(xor, 3),
+				TestCircuits.end(bc, 2), TestCircuits.end(ac, 2));
+		tc.connect(m, 1, TestCircuits.end(ab, 0), TestCircuits.end(or, 1));
+		tc.connect(m, 1, TestCircuits.end(bc, 0), TestCircuits.end(or, 2));
+		tc.connect(m, 1, TestCircuits.end(ac, 0), TestCircuits.end(or, 3));
+		tc.connect(m, 1, TestCircuits.end(xor, 0), TestCircuits.end(s, 0));
+		tc.connect(m, 1, TestCircuits.end(or, 0), TestCircuits.end(co, 0));
+		m.execute();
+
+		Circuit pair = tc.circuit("pair");
+		m = new CircuitMutation(pair);
+		Component[] cells = new Component[2];
+		for (int i = 0; i < 2; i++) {
+			cells[i] = TestCircuits.place(m, cell.getSubcircuitFactory(),
+					1000 + 1000 * i, 2000);
+			Component pa = TestCircuits.pin(m, 100, 100 + 400 * i, false, 1, "a" + i);
+			Component pb = TestCircuits.pin(m, 100, 300 + 400 * i, false, 1, "b" + i);
+			Component ps = TestCircuits.pin(m, 3000, 100 + 400 * i, true, 1, "s" + i);
+			tc.connect(m, 1, TestCircuits.end(pa, 0), TestCircuits.port(cells[i], "a"));
+			tc.connect(m, 1, TestCircuits.end(pb, 0), TestCircuits.port(cells[i], "b"));
+			tc.connect(m, 1, TestCircuits.end(ps, 0), TestCircuits.port(cells[i], "s"));
+		}
+		Component pc = TestCircuits.pin(m, 100, 900, false, 1, "c");
+		Component pco = TestCircuits.pin(m, 3000, 900, true, 1, "co");
+		tc.connect(m, 1, TestCircuits.end(pc, 0), TestCircuits.port(cells[0], "c"));
+		tc.connect(m, 1, TestCircuits.port(cells[0], "co"), TestCircuits.port(cells[1], "c"));
+		tc.connect(m, 1, TestCircuits.port(cells[1], "co"), TestCircuits.end(pco, 0));
+		m.execute();
+
+		main = tc.circuit("adder");
+		m = new CircuitMutation(main);
+		Location carry = null;
+		for (int k = 0; k < PAIRS; k++) {
+			Component p = TestCircuits.place(m, pair.getSubcircuitFactory(),
+					1000 + 1000 * k, 5000);
+			for (int i = 0; i < 2; i++) {
+				int bit = 2 * k + i;
+				inputs[2 * bit] = TestCircuits.pin(m, 100, 100 + 200 * bit, false, 1, "a" + bit);
+				inputs[2 * bit + 1] = TestCircuits.pin(m, 300, 100 + 200 * bit, false, 1, "b" + bit);
+				outputs[bit] = TestCircuits.pin(m, 9000, 100 + 200 * bit, true, 1, "s" + bit);
+				tc.connect(m, 1, TestCircuits.end(inputs[2 * bit], 0), TestCircuits.port(p, "a" + i));
+				tc.connect(m, 1, TestCircuits.end(inputs[2 * bit + 1], 0), TestCircuits.port(p, "b" + i));
+				tc.connect(m, 1, TestCircuits.end(outputs[bit], 0), TestCircuits.port(p, "s" + i));
+			}
+			if (carry == null) {
+				inputs[4 * PAIRS] = TestCircuits.pin(m, 100, 4000, false, 1, "cin");
+				carry = TestCircuits.end(inputs[4 * PAIRS], 0);
+			}
+			tc.connect(m, 1, carry, TestCircuits.port(p, "c"));
+			carry = TestCircuits.port(p, "co");
+		}
+		outputs[2 * PAIRS] = TestCircuits.pin(m, 9000, 4000, true, 1, "cout");
+		tc.connect(m, 1, carry, TestCircuits.end(outputs[2 * PAIRS], 0));
+		m.execute();
+	}
+
+	/**
+	 * Drives random inputs and returns the outputs after every propagation
+	 * step, so differences in the order of events show up as well.
+	 */
+	private List<String> run(int threads) {
+		tc.file.getOptions().getAttributeSet().setValue(Options.ATTR_SIM_RAND, 0);
+		tc.file.getOptions().getAttributeSet().setValue(Options.ATTR_SIM_THREADS, threads);
+		CircuitState state = new CircuitState(tc.proj, main);
+		Propagator prop = state.getPropagator();
+		prop.propagate();
+		Random rand = new Random(1);
+		List<String> trace = new ArrayList<String>();
+		PropagationPoints points = new PropagationPoints();
+		boolean[] bits = new boolean[inputs.length];
+		for (int k = 0; k < 200; k++) {
+			for (int i = 0; i < inputs.length; i++) {
+				if (k == 0 || rand.nextInt(3) == 0) {
+					bits[i] = rand.nextBoolean();
+					TestCircuits.setInput(state, inputs[i], bits[i] ? Value.TRUE : Value.FALSE);
+				}
+			}
+			do {
+				prop.step(points);
+				StringBuilder buf = new StringBuilder();
+				for (Component out : outputs)
+					buf.append(TestCircuits.getOutput(state, out));
+				trace.add(buf.toString());
+			} while (prop.isPending());
+			// the settled outputs are the sum of the inputs
+			int sum = bits[4 * PAIRS] ? 1 : 0;
+			for (int bit = 0; bit < 2 * PAIRS; bit++)
+				sum += ((bits[2 * bit] ? 1 : 0) + (bits[2 * bit + 1] ? 1 : 0)) << bit;
+			for (int bit = 0; bit <= 2 * PAIRS; bit++) {
+				Value expected = ((sum >> bit) & 1) != 0 ? Value.TRUE : Value.FALSE;
+				assertEquals(expected, TestCircuits.getOutput(state, outputs[bit]));
+			}
+			trace.add("");
+		}
+		state.dispose();
+		return trace;
+	}
+
+	@Test
+	public final void testParallelMatchesSerial() {
+		List<String> serial = run(1);
+		List<String> parallel = run(4);
+		assertEquals(serial.size(), parallel.size());
+		for (int i = 0; i < serial.size(); i++)
+			assertEquals("step " + i, serial.get(i), parallel.get(i));
+	}
+}
@@ -0,0 +1,128 @@
+/*******************************************************************************
+ * This file is part of logisim-evolution.
+ *
+ *   logisim-evolution is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   logisim-evolution is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with logisim-evolution.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *   Original code by Carl Burch (http://www.cburch.com), 2011.
+ *   Subsequent modifications by :
+ *     + Haute École Spécialisée Bernoise
+ *       http://www.bfh.ch
+ *     + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *       http://hepia.hesge.ch/
+ *     + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *       http://www.heig-vd.ch/
+ *   The project is currently maintained by :
+ *     + REDS Institute - HEIG-VD
+ *       Yverdon-les-Bains, Switzerland
+ *       http://reds.heig-vd.ch
+ *******************************************************************************/
+
+package com.cburch.logisim.circuit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.cburch.logisim.data.Value;
+import java.util.PriorityQueue;
+import java.util.Random;
+import org.junit.Test;
+
+public class PropagationQueueTest {
+
+	private static class Event implements Comparable<Event> {
+		final int time;
+		final int serial;
+
+		Event(int time, int serial) {
+			this.time = time;
+			this.serial = serial;
+		}
+
+		public int compareTo(Event other) {
+			// subtraction keeps the order right across integer wraparound
+			int ret = time - other.time;
+			return ret != 0 ? (ret < 0 ? -1 : 1) : serial - other.serial;
+		}
+	}
+
+	/**
+	 * Runs the queue like the propagator does, adding events while the
+	 * current time step is polled, and checks that events come out in the
+	 * same order as from a priority queue on (time, serial number).
+	 */
+	private void checkAgainstPriorityQueue(long seed, int start, int maxDelay) {
+		Random rand = new Random(seed);
+		PropagationQueue queue = new PropagationQueue();
+		PriorityQueue<Event> ref = new PriorityQueue<Event>();
+		// the first event moves the queue to the start time; all later ones
+		// are scheduled relative to the current time, as in the propagator
+		int serial = 0;
+		queue.add(start, null, null, null, Value.createKnown(32, serial));
+		ref.add(new Event(start, serial++));
+		int polled = 0;
+		while (!queue.isEmpty()) {
+			int now = queue.advance();
+			assertEquals(ref.peek().time, now);
+			while (queue.poll()) {
+				Event expected = ref.poll();
+				assertEquals(expected.time, now);
+				assertEquals(expected.serial, (int) queue.val.toLongValue());
+				polled++;
+				if (serial < 20000) {
+					int n = rand.nextInt(queue.size() < 200 ? 4 : 3);
+					for (int k = 0; k < n; k++) {
+						// same-time events, wheel events and far future ones
+						int delay = rand.nextInt(4) == 0 ? 0 : rand.nextInt(maxDelay);
+						queue.add(now + delay, null, null, null, Value.createKnown(32, serial));
+						ref.add(new Event(now + delay, serial++));
+					}
+				}
+			}
+		}
+		assertTrue(ref.isEmpty());
+		assertEquals(serial, polled);
+	}
+
+	@Test
+	public final void testDelaysWithinWheel() {
+		checkAgainstPriorityQueue(1, 0, PropagationQueue.WHEEL_SIZE / 4);
+	}
+
+	@Test
+	public final void testDelaysBeyondWheel() {
+		checkAgainstPriorityQueue(2, 0, 5 * PropagationQueue.WHEEL_SIZE);
+	}
+
+	@Test
+	public final void testClockWraparound() {
+		checkAgainstPriorityQueue(3, Integer.MAX_VALUE - 3 * PropagationQueue.WHEEL_SIZE,
+				5 * PropagationQueue.WHEEL_SIZE);
+	}
+
+	@Test
+	public final void testClearReleasesEvents() {
+		PropagationQueue queue = new PropagationQueue();
+		queue.add(5, null, null, null, Value.TRUE);
+		queue.add(5 + 4 * PropagationQueue.WHEEL_SIZE, null, null, null, Value.TRUE);
+		assertEquals(2, queue.size());
+		queue.clear();
+		assertTrue(queue.isEmpty());
+		queue.add(7, null, null, null, Value.FALSE);
+		assertEquals(7, queue.advance());
+		assertTrue(queue.poll());
+		assertEquals(Value.FALSE, queue.val);
+		assertFalse(queue.poll());
+	}
+}
@@ -0,0 +1,131 @@
+/*******************************************************************************
+ * This file is part of logisim-evolution.
+ *
+ *   logisim-evolution is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   logisim-evolution is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with logisim-evolution.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *   Original code by Carl Burch (http://www.cburch.com), 2011.
+ *   Subsequent modifications by :
+ *     + Haute École Spécialisée Bernoise
+ *       http://www.bfh.ch
+ *     + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *       http://hepia.hesge.ch/
+ *     + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *       http://www.heig-vd.ch/
+ *   The project is currently maintained by :
+ *     + REDS Institute - HEIG-VD
+ *       Yverdon-les-Bains, Switzerland
+ *       http://reds.heig-vd.ch
+ *******************************************************************************/
+
+package com.cburch.logisim.circuit;
+
+import com.cburch.logisim.comp.Component;
+import com.cburch.logisim.comp.ComponentFactory;
+import com.cburch.logisim.data.Attribute;
+import com.cburch.logisim.data.AttributeSet;
+import com.cburch.logisim.data.BitWidth;
+import com.cburch.logisim.data.Location;
+import com.cburch.logisim.data.Value;
+import com.cburch.logisim.file.Loader;
+import com.cburch.logisim.file.LogisimFile;
+import com.cburch.logisim.instance.Instance;
+import com.cburch.logisim.instance.StdAttr;
+import com.cburch.logisim.proj.Project;
+import com.cburch.logisim.std.wiring.Pin;
+import com.cburch.logisim.std.wiring.Tunnel;
+import com.cburch.logisim.tools.AddTool;
+import com.cburch.logisim.tools.Library;
+
+/**
+ * Builds circuits through the API for the simulation tests. Ends are
+ * connected by tunnels sharing a label, so no wires need to be laid out.
+ */
+public class TestCircuits {
+
+	public final LogisimFile file;
+	public final Project proj;
+	private int tunnels = 0;
+
+	public TestCircuits() {
+		file = LogisimFile.createNew(new Loader(null), null);
+		proj = new Project(file);
+	}
+
+	public Circuit circuit(String name) {
+		Circuit ret = new Circuit(name, file, proj);
+		file.addCircuit(ret);
+		return ret;
+	}
+
+	public static ComponentFactory factory(Library lib, String name) {
+		return ((AddTool) lib.getTool(name)).getFactory();
+	}
+
+	/**
+	 * Adds a component; the attributes are given as pairs of an attribute,
+	 * or the name of one for factories that are not public, and a value.
+	 */
+	public static Component place(CircuitMutation m, ComponentFactory factory,
+			int x, int y, Object... attrs) {
+		AttributeSet set = factory.createAttributeSet();
+		for (int i = 0; i < attrs.length; i += 2) {
+			Object key = attrs[i] instanceof String
+					? set.getAttribute((String) attrs[i]) : attrs[i];
+			@SuppressWarnings("unchecked")
+			Attribute<Object> attr = (Attribute<Object>) key;
+			set.setValue(attr, attrs[i + 1]);
+		}
+		Component ret = factory.createComponent(Location.create(x, y), set);
+		m.add(ret);
+		return ret;
+	}
+
+	public static Component pin(CircuitMutation m, int x, int y, boolean output,
+			int width, String label) {
+		return place(m, Pin.FACTORY, x, y, Pin.ATTR_TYPE, output,
+				StdAttr.WIDTH, BitWidth.create(width), StdAttr.LABEL, label);
+	}
+
+	public static Location end(Component comp, int index) {
+		return comp.getEnd(index).getLocation();
+	}
+
+	/** Returns the end of a subcircuit component for the pin with the label. */
+	public static Location port(Component sub, String label) {
+		Instance[] pins = ((CircuitAttributes) sub.getAttributeSet())
+				.getPinInstances();
+		for (int i = 0; i < pins.length; i++) {
+			if (label.equals(pins[i].getAttributeValue(StdAttr.LABEL)))
+				return end(sub, i);
+		}
+		throw new IllegalArgumentException(label);
+	}
+
+	public void connect(CircuitMutation m, int width, Location... ends) {
+		String label = "t" + tunnels++;
+		for (Location end : ends) {
+			place(m, Tunnel.FACTORY, end.getX(), end.getY(), StdAttr.LABEL,
+					label, StdAttr.WIDTH, BitWidth.create(width));
+		}
+	}
+
+	public static void setInput(CircuitState state, Component pin, Value val) {
+		Pin.FACTORY.setValue(state.getInstanceState(pin), val);
+		state.markComponentAsDirty(pin);
+	}
+
+	public static Value getOutput(CircuitState state, Component pin) {
+		return state.getValue(end(pin, 0));
+	}
+}
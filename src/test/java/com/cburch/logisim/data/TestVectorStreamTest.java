@@ -0,0 +1,178 @@
+/*******************************************************************************
+ * This file is part of logisim-evolution.
+ *
+ *   logisim-evolution is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   logisim-evolution is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with logisim-evolution.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *   Original code by Carl Burch (http://www.cburch.com), 2011.
+ *   Subsequent modifications by :
+ *     + Haute École Spécialisée Bernoise
+ *       http://www.bfh.ch
+ *     + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *       http://hepia.hesge.ch/
+ *     + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *       http://www.heig-vd.ch/
+ *   The project is currently maintained by :
+ *     + REDS Institute - HEIG-VD
+ *       Yverdon-les-Bains, Switzerland
+ *       http://reds.heig-vd.ch
+ *******************************************************************************/
+
+package com.cburch.logisim.data;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.StringReader;
+import org.junit.Test;
+
+public class TestVectorStreamTest {
+
+	private static TestVectorStream open(String text) throws IOException {
+		return new TestVectorStream(new StringReader(text));
+	}
+
+	private static long[] parse(int width, String text) throws Exception {
+		long[] ret = new long[2];
+		Value.parseLogString(width, "<" + text + ">", 1, text.length() + 1, ret);
+		return ret;
+	}
+
+	private static String parseError(int width, String text) {
+		try {
+			parse(width, text);
+		} catch (Exception e) {
+			return e.getMessage();
+		}
+		fail("\"" + text + "\" was accepted");
+		return null;
+	}
+
+	/** Reads the header and all rows, returning the message of the error. */
+	private static String readError(String text) {
+		try {
+			TestVectorStream in = open(text);
+			long[] values = new long[in.getColumnCount()];
+			long[] unknowns = new long[in.getColumnCount()];
+			while (in.readRow(values, unknowns))
+				;
+		} catch (IOException e) {
+			return e.getMessage();
+		}
+		fail("the vector was accepted");
+		return null;
+	}
+
+	private static void assertContains(String expected, String actual) {
+		assertTrue("\"" + actual + "\" does not contain \"" + expected + "\"",
+				actual.contains(expected));
+	}
+
+	@Test
+	public final void testRadixes() throws Exception {
+		assertArrayEquals(new long[] {0x5, 0}, parse(4, "0101"));
+		assertArrayEquals(new long[] {13, 0}, parse(4, "13"));
+		assertArrayEquals(new long[] {0xa5, 0}, parse(8, "0xa5"));
+		assertArrayEquals(new long[] {0xA5, 0}, parse(8, "0xA5"));
+		assertArrayEquals(new long[] {057, 0}, parse(6, "0o57"));
+		assertArrayEquals(new long[] {0xffffffffL, 0}, parse(32, "0xffffffff"));
+	}
+
+	@Test
+	public final void testDontCares() throws Exception {
+		assertArrayEquals(new long[] {0x9, 0x4}, parse(4, "1x01"));
+		assertArrayEquals(new long[] {0x10, 0x0f}, parse(8, "0x1x"));
+		assertArrayEquals(new long[] {0, 0xff}, parse(8, "0xxx"));
+		assertArrayEquals(new long[] {070, 07}, parse(6, "0o7x"));
+		assertContains("unexpected character 'x'", parseError(4, "1x"));
+	}
+
+	@Test
+	public final void testBadValues() {
+		assertContains("too many bits", parseError(4, "0x1f"));
+		assertContains("too many bits", parseError(3, "1011"));
+		assertContains("too many bits", parseError(4, "16"));
+		assertContains("unexpected character '8'", parseError(6, "0o78"));
+		assertContains("unexpected character 'g'", parseError(8, "0xg0"));
+		assertContains("unexpected character '\"'", parseError(1, "\"1\""));
+		assertContains("expected digits", parseError(8, "0x"));
+	}
+
+	@Test
+	public final void testFromLogStringMatchesParser() throws Exception {
+		String[] cells = {"0101", "1x01", "13", "0xa", "0xx", "0o1x"};
+		for (String cell : cells) {
+			long[] bits = parse(4, cell);
+			assertEquals(cell, Value.create(4, 0, bits[1], bits[0]),
+					Value.fromLogString(BitWidth.create(4), cell));
+		}
+	}
+
+	@Test
+	public final void testReadRows() throws Exception {
+		TestVectorStream in = open("# a comment\n"
+				+ "a b[4]\tout[8] # names\r\n"
+				+ "\r\n"
+				+ "0 0x3 0x1x\r\n"
+				+ "   # nothing here\n"
+				+ "1 1x01 255");
+		assertArrayEquals(new String[] {"a", "b", "out"}, in.getColumnNames());
+		assertEquals(4, in.getColumnWidths()[1].getWidth());
+		assertEquals(8, in.getColumnWidths()[2].getWidth());
+		long[] values = new long[3];
+		long[] unknowns = new long[3];
+		assertTrue(in.readRow(values, unknowns));
+		assertEquals(4, in.getLineNumber());
+		assertArrayEquals(new long[] {0, 3, 0x10}, values);
+		assertArrayEquals(new long[] {0, 0, 0x0f}, unknowns);
+		assertArrayEquals(new int[] {2, 16, 16}, in.getColumnRadix());
+		assertTrue(in.readRow(values, unknowns));
+		assertEquals(6, in.getLineNumber());
+		assertArrayEquals(new long[] {1, 9, 255}, values);
+		assertArrayEquals(new long[] {0, 4, 0}, unknowns);
+		assertEquals(Value.fromLogString(BitWidth.create(4), "1x01"),
+				in.toValue(1, values[1], unknowns[1]));
+		// the radix is taken from the first row
+		assertArrayEquals(new int[] {2, 16, 16}, in.getColumnRadix());
+		assertFalse(in.readRow(values, unknowns));
+		in.close();
+	}
+
+	@Test
+	public final void testHeaderErrors() {
+		assertContains("empty file", readError("# only a comment\n\n"));
+		assertContains("on line 2: bad width: b[0]", readError("\na b[0]\n0 0\n"));
+		assertContains("on line 1: bad width: b[33]", readError("a b[33]\n"));
+		assertContains("on line 1: bad width: b[two]", readError("a b[two]\n"));
+		assertContains("on line 1: bad spec: b[]", readError("a b[]\n"));
+		assertContains("on line 1: bad spec: [4]", readError("[4]\n"));
+	}
+
+	@Test
+	public final void testDataErrorsGiveLineNumbers() {
+		String header = "a b[4]\r\n# comment\r\n0 0000\r\n";
+		assertContains("data format error on line 4: too many bits",
+				readError(header + "1 0x10\r\n"));
+		assertContains("on line 5: missing value for b",
+				readError(header + "\r\n1\n"));
+		assertContains("on line 4: 7", readError(header + "1 0001 7\n"));
+		assertContains("on line 4: unexpected character '\"'",
+				readError(header + "\"1\" 0001\n"));
+		assertContains("on line 4: unexpected character 'x'",
+				readError(header + "1 1x\n"));
+	}
+}
@@ -0,0 +1,148 @@
+/*******************************************************************************
+ * This file is part of logisim-evolution.
+ *
+ *   logisim-evolution is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   logisim-evolution is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with logisim-evolution.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *   Original code by Carl Burch (http://www.cburch.com), 2011.
+ *   Subsequent modifications by :
+ *     + Haute École Spécialisée Bernoise
+ *       http://www.bfh.ch
+ *     + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *       http://hepia.hesge.ch/
+ *     + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *       http://www.heig-vd.ch/
+ *   The project is currently maintained by :
+ *     + REDS Institute - HEIG-VD
+ *       Yverdon-les-Bains, Switzerland
+ *       http://reds.heig-vd.ch
+ *******************************************************************************/
+
+package com.cburch.logisim.gui.log;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.cburch.logisim.data.BitWidth;
+import com.cburch.logisim.data.Value;
+import java.util.ArrayList;
+import java.util.Random;
+import org.junit.Test;
+
+/**
+ * Checks the chunked log against a plain list of the appended values, with
+ * enough entries that the oldest chunks are spilled to the file.
+ */
+public class ValueLogTest {
+
+	private static final int ENTRIES = (ValueLog.MEMORY_CHUNKS + 4) * ValueLog.CHUNK_SIZE + 123;
+	private static final int[] WIDTHS = { 1, 4, 8, 32, 63, 64 };
+
+	private static Value randomValue(Random rand) {
+		int width = WIDTHS[rand.nextInt(WIDTHS.length)];
+		switch (rand.nextInt(6)) {
+		case 0:
+			return null;
+		case 1:
+			return Value.createUnknown(BitWidth.create(width));
+		case 2:
+			return Value.createError(BitWidth.create(width));
+		case 3:
+			Value[] bits = new Value[width];
+			for (int i = 0; i < width; i++) {
+				int kind = rand.nextInt(4);
+				bits[i] = kind == 0 ? Value.ERROR
+						: kind == 1 ? Value.UNKNOWN : kind == 2 ? Value.TRUE : Value.FALSE;
+			}
+			return Value.create(bits);
+		default:
+			return Value.createKnown(BitWidth.create(width), rand.nextLong());
+		}
+	}
+
+	/** Appends runs of random length, mostly short, to the log and to the list. */
+	private static ArrayList<Value> fill(ValueLog log, Random rand) {
+		ArrayList<Value> expected = new ArrayList<Value>(ENTRIES);
+		while (expected.size() < ENTRIES) {
+			Value val = randomValue(rand);
+			int run = rand.nextInt(8) == 0 ? rand.nextInt(2 * ValueLog.CHUNK_SIZE) : 1 + rand.nextInt(4);
+			for (int i = 0; i < run && expected.size() < ENTRIES; i++) {
+				log.append(val);
+				expected.add(val);
+			}
+		}
+		return expected;
+	}
+
+	private static void assertLog(ArrayList<Value> expected, ValueLog log, Random rand) {
+		assertEquals(expected.size(), log.size());
+		assertEquals(expected.get(expected.size() - 1), log.getLast());
+		for (int i = 0; i < expected.size(); i++)
+			assertEquals("entry " + i, expected.get(i), log.get(i));
+		// jump between the chunks so the cached one keeps being replaced
+		for (int k = 0; k < 20000; k++) {
+			int i = rand.nextInt(expected.size());
+			assertEquals("entry " + i, expected.get(i), log.get(i));
+		}
+	}
+
+	@Test
+	public void testSpilledLog() {
+		Random rand = new Random(42);
+		ValueLogFile file = new ValueLogFile();
+		ValueLog log = new ValueLog(file);
+		try {
+			ArrayList<Value> expected = fill(log, rand);
+			assertTrue("no chunk was spilled", file.getLength() > 0);
+			assertLog(expected, log, rand);
+		} finally {
+			file.close();
+		}
+	}
+
+	@Test
+	public void testLogWithoutFile() {
+		Random rand = new Random(7);
+		ValueLog log = new ValueLog(null);
+		assertLog(fill(log, rand), log, rand);
+	}
+
+	@Test
+	public void testClosedFile() {
+		Random rand = new Random(1234);
+		ValueLogFile file = new ValueLogFile();
+		ValueLog log = new ValueLog(file);
+		ArrayList<Value> expected = fill(log, rand);
+		assertTrue("no chunk was spilled", file.getLength() > 0);
+		// leave the second chunk in the cache, so the first one must be read
+		assertEquals(expected.get(ValueLog.CHUNK_SIZE), log.get(ValueLog.CHUNK_SIZE));
+		file.close();
+
+		assertNull(log.get(0));
+		assertNull(log.get(ValueLog.CHUNK_SIZE - 1));
+		// the chunks still in memory are unaffected
+		for (int i = ENTRIES - ValueLog.MEMORY_CHUNKS * ValueLog.CHUNK_SIZE; i < ENTRIES; i++)
+			assertEquals("entry " + i, expected.get(i), log.get(i));
+
+		// and so are the entries appended afterwards, which are no longer spilled
+		Value val = Value.createKnown(BitWidth.create(8), 0x5a);
+		for (int i = 0; i < 2 * ValueLog.CHUNK_SIZE; i++)
+			log.append(val);
+		assertEquals(0, file.getLength());
+		assertNotNull(log.get(ENTRIES));
+		for (int i = ENTRIES; i < log.size(); i++)
+			assertEquals("entry " + i, val, log.get(i));
+	}
+}
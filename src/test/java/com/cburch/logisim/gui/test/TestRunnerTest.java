@@ -0,0 +1,191 @@
+/*******************************************************************************
+ * This file is part of logisim-evolution.
+ *
+ *   logisim-evolution is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   logisim-evolution is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with logisim-evolution.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *   Original code by Carl Burch (http://www.cburch.com), 2011.
+ *   Subsequent modifications by :
+ *     + Haute École Spécialisée Bernoise
+ *       http://www.bfh.ch
+ *     + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *       http://hepia.hesge.ch/
+ *     + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *       http://www.heig-vd.ch/
+ *   The project is currently maintained by :
+ *     + REDS Institute - HEIG-VD
+ *       Yverdon-les-Bains, Switzerland
+ *       http://reds.heig-vd.ch
+ *******************************************************************************/
+
+package com.cburch.logisim.gui.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.cburch.logisim.circuit.Circuit;
+import com.cburch.logisim.circuit.CircuitMutation;
+import com.cburch.logisim.circuit.TestCircuits;
+import com.cburch.logisim.comp.Component;
+import com.cburch.logisim.comp.ComponentFactory;
+import com.cburch.logisim.data.FailException;
+import com.cburch.logisim.data.TestException;
+import com.cburch.logisim.data.TestVector;
+import com.cburch.logisim.data.TestVectorStream;
+import com.cburch.logisim.instance.Instance;
+import com.cburch.logisim.std.gates.Gates;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+
+/**
+ * Tests a full adder against a vector whose wrong rows are known, with one
+ * and with several threads, from memory and from a stream.
+ */
+public class TestRunnerTest {
+
+	private static final int ROWS = 2000;
+	private static final int THREADS = 4;
+
+	private final TestCircuits tc = new TestCircuits();
+	private final Circuit circ;
+	private final Instance[] pins;
+	private final String vector;
+
+	public TestRunnerTest() {
+		Gates gates = new Gates();
+		ComponentFactory and = TestCircuits.factory(gates, "AND Gate");
+		ComponentFactory or = TestCircuits.factory(gates, "OR Gate");
+		ComponentFactory parity = TestCircuits.factory(gates, "Odd Parity");
+		circ = tc.circuit("adder");
+		CircuitMutation m = new CircuitMutation(circ);
+		Component a = TestCircuits.pin(m, 100, 100, false, 1, "a");
+		Component b = TestCircuits.pin(m, 100, 300, false, 1, "b");
+		Component c = TestCircuits.pin(m, 100, 500, false, 1, "c");
+		Component s = TestCircuits.pin(m, 1100, 100, true, 1, "s");
+		Component co = TestCircuits.pin(m, 1100, 500, true, 1, "co");
+		Component xor = TestCircuits.place(m, parity, 500, 100, "inputs", 3);
+		Component ab = TestCircuits.place(m, and, 500, 300, "inputs", 2);
+		Component bc = TestCircuits.place(m, and, 500, 500, "inputs", 2);
+		Component ac = TestCircuits.place(m, and, 500, 700, "inputs", 2);
+		Component or3 = TestCircuits.place(m, or, 800, 500, "inputs", 3);
+		tc.connect(m, 1, TestCircuits.end(a, 0), TestCircuits.end(xor, 1),
+				TestCircuits.end(ab, 1), TestCircuits.end(ac, 1));
+		tc.connect(m, 1, TestCircuits.end(b, 0), TestCircuits.end(xor, 2),
+				TestCircuits.end(ab, 2), TestCircuits.end(bc, 1));
+		tc.connect(m, 1, TestCircuits.end(c, 0), TestCircuits.end(xor, 3),
+				TestCircuits.end(bc, 2), TestCircuits.end(ac, 2));
+		tc.connect(m, 1, TestCircuits.end(ab, 0), TestCircuits.end(or3, 1));
+		tc.connect(m, 1, TestCircuits.end(bc, 0), TestCircuits.end(or3, 2));
+		tc.connect(m, 1, TestCircuits.end(ac, 0), TestCircuits.end(or3, 3));
+		tc.connect(m, 1, TestCircuits.end(xor, 0), TestCircuits.end(s, 0));
+		tc.connect(m, 1, TestCircuits.end(or3, 0), TestCircuits.end(co, 0));
+		m.execute();
+		pins = new Instance[5];
+		Component[] comps = {a, b, c, s, co};
+		for (int i = 0; i < comps.length; i++)
+			pins[i] = Instance.getInstanceFor(comps[i]);
+
+		StringBuilder buf = new StringBuilder("a b c s co\n");
+		for (int row = 0; row < ROWS; row++) {
+			int in = row & 7;
+			int sum = (in & 1) + ((in >> 1) & 1) + ((in >> 2) & 1);
+			int s0 = sum & 1;
+			int co0 = sum >> 1;
+			// the sum is wrong in the rows divisible by 7, the carry in those divisible by 11
+			if (isWrongSum(row))
+				s0 ^= 1;
+			if (isWrongCarry(row))
+				co0 ^= 1;
+			buf.append(in >> 2).append(' ').append((in >> 1) & 1).append(' ')
+					.append(in & 1).append(' ').append(s0).append(' ').append(co0)
+					.append('\n');
+		}
+		vector = buf.toString();
+	}
+
+	private static boolean isWrongSum(int row) {
+		return row % 7 == 0;
+	}
+
+	private static boolean isWrongCarry(int row) {
+		return row % 11 == 0;
+	}
+
+	/** Returns the reported results, as the failing columns of each row. */
+	private List<String> run(TestRunner runner) throws IOException {
+		final List<String> ret = new ArrayList<String>();
+		runner.run(new TestRunner.ResultHandler() {
+			public boolean result(int row, TestException err) {
+				assertEquals(ret.size(), row);
+				if (err == null) {
+					ret.add("");
+					return true;
+				}
+				assertTrue(err instanceof FailException);
+				FailException fail = (FailException) err;
+				StringBuilder columns = new StringBuilder().append(fail.getColumn());
+				for (FailException more : fail.getMore())
+					columns.append(',').append(more.getColumn());
+				ret.add(columns.toString());
+				return true;
+			}
+		});
+		return ret;
+	}
+
+	private void checkResults(List<String> results) {
+		assertEquals(ROWS, results.size());
+		for (int row = 0; row < ROWS; row++) {
+			String expected = isWrongSum(row)
+					? (isWrongCarry(row) ? "3,4" : "3")
+					: (isWrongCarry(row) ? "4" : "");
+			assertEquals("row " + row, expected, results.get(row));
+		}
+	}
+
+	@Test
+	public final void testVectorInMemory() throws IOException {
+		TestVector vec = new TestVector(new StringReader(vector));
+		List<String> serial = run(new TestRunner(tc.proj, circ, pins, vec, 1));
+		List<String> parallel = run(new TestRunner(tc.proj, circ, pins, vec, THREADS));
+		checkResults(serial);
+		assertEquals(serial, parallel);
+	}
+
+	@Test
+	public final void testVectorStream() throws IOException {
+		List<String> serial = run(new TestRunner(tc.proj, circ, pins,
+				new TestVectorStream(new StringReader(vector)), 1));
+		List<String> parallel = run(new TestRunner(tc.proj, circ, pins,
+				new TestVectorStream(new StringReader(vector)), THREADS));
+		checkResults(serial);
+		assertEquals(serial, parallel);
+	}
+
+	@Test
+	public final void testStopsWhenAsked() throws IOException {
+		TestVector vec = new TestVector(new StringReader(vector));
+		final int[] reported = {0};
+		new TestRunner(tc.proj, circ, pins, vec, THREADS).run(
+				new TestRunner.ResultHandler() {
+					public boolean result(int row, TestException err) {
+						assertEquals(reported[0]++, row);
+						return row < 500;
+					}
+				});
+		assertEquals(501, reported[0]);
+	}
+}
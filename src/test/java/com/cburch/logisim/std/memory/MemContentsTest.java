@@ -0,0 +1,254 @@
+/*******************************************************************************
+ * This file is part of logisim-evolution.
+ *
+ *   logisim-evolution is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   logisim-evolution is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with logisim-evolution.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *   Original code by Carl Burch (http://www.cburch.com), 2011.
+ *   Subsequent modifications by :
+ *     + Haute École Spécialisée Bernoise
+ *       http://www.bfh.ch
+ *     + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *       http://hepia.hesge.ch/
+ *     + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *       http://www.heig-vd.ch/
+ *   The project is currently maintained by :
+ *     + REDS Institute - HEIG-VD
+ *       Yverdon-les-Bains, Switzerland
+ *       http://reds.heig-vd.ch
+ *******************************************************************************/
+
+package com.cburch.logisim.std.memory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Checks the paged contents against a plain array of the expected values,
+ * with the memory starting cleared and starting random.
+ */
+public class MemContentsTest {
+
+	private static final int ADDR_BITS = 16;
+	private static final int WIDTH = 16;
+	private static final long MASK = (1L << WIDTH) - 1;
+
+	private static long[] snapshot(MemContents contents) {
+		long[] ret = new long[1 << ADDR_BITS];
+		for (int i = 0; i < ret.length; i++)
+			ret[i] = contents.get(i);
+		return ret;
+	}
+
+	private static void assertContents(long[] expected, MemContents contents) {
+		for (int i = 0; i < expected.length; i++)
+			assertEquals("address " + i, expected[i], contents.get(i));
+	}
+
+	private static long[] randomValues(Random rand, int count) {
+		long[] ret = new long[count];
+		for (int i = 0; i < count; i++)
+			ret[i] = rand.nextLong() & MASK;
+		return ret;
+	}
+
+	@Test
+	public void testRandomValuesAreStable() {
+		MemContents contents = MemContents.create(ADDR_BITS, WIDTH);
+		contents.fillRandom(1234);
+		long[] first = snapshot(contents);
+		boolean anyNonZero = false;
+		for (long value : first) {
+			assertEquals(value, value & MASK);
+			anyNonZero |= value != 0;
+		}
+		assertEquals(true, anyNonZero);
+		assertContents(first, contents);
+
+		MemContents other = MemContents.create(ADDR_BITS, WIDTH);
+		other.fillRandom(1234);
+		assertContents(first, other);
+		other.fillRandom(4321);
+		assertNotEquals(first[0] + "," + first[1] + "," + first[2],
+				other.get(0) + "," + other.get(1) + "," + other.get(2));
+	}
+
+	@Test
+	public void testBlockWriteOverRandomContents() {
+		MemContents contents = MemContents.create(ADDR_BITS, WIDTH);
+		contents.fillRandom(1234);
+		long[] expected = snapshot(contents);
+		long[] values = randomValues(new Random(1), 20000);
+		contents.set(100, values);
+		System.arraycopy(values, 0, expected, 100, values.length);
+		assertContents(expected, contents);
+	}
+
+	@Test
+	public void testBlockWriteOfZeroesOverRandomContents() {
+		MemContents contents = MemContents.create(ADDR_BITS, WIDTH);
+		contents.fillRandom(1234);
+		long[] expected = snapshot(contents);
+		long[] values = new long[20000];
+		contents.set(100, values);
+		System.arraycopy(values, 0, expected, 100, values.length);
+		assertContents(expected, contents);
+	}
+
+	@Test
+	public void testBlockWriteOverClearedContents() {
+		MemContents contents = MemContents.create(ADDR_BITS, WIDTH);
+		long[] expected = new long[1 << ADDR_BITS];
+		long[] values = randomValues(new Random(2), 20000);
+		contents.set(100, values);
+		System.arraycopy(values, 0, expected, 100, values.length);
+		assertContents(expected, contents);
+	}
+
+	@Test
+	public void testMixedWritesAgainstArray() {
+		Random rand = new Random(3);
+		for (int random = 0; random < 2; random++) {
+			MemContents contents = MemContents.create(ADDR_BITS, WIDTH);
+			if (random != 0)
+				contents.fillRandom(rand.nextLong());
+			long[] expected = snapshot(contents);
+			for (int n = 0; n < 200; n++) {
+				int start = rand.nextInt(expected.length);
+				int len = 1 + rand.nextInt(Math.min(expected.length - start, 10000));
+				switch (rand.nextInt(3)) {
+				case 0:
+					long value = rand.nextLong() & MASK;
+					contents.set(start, value);
+					expected[start] = value;
+					break;
+				case 1:
+					long[] values = randomValues(rand, len);
+					contents.set(start, values);
+					System.arraycopy(values, 0, expected, start, len);
+					break;
+				default:
+					long fill = rand.nextBoolean() ? 0 : rand.nextLong() & MASK;
+					contents.fill(start, len, fill);
+					for (int i = start; i < start + len; i++)
+						expected[i] = fill;
+				}
+			}
+			assertContents(expected, contents);
+		}
+	}
+
+	/** Writes a block, a fill and single words, so that pages get created. */
+	private static void scribble(MemContents contents, long[] expected, Random rand) {
+		int start = rand.nextInt(expected.length - 20000);
+		long[] values = randomValues(rand, 20000);
+		contents.set(start, values);
+		System.arraycopy(values, 0, expected, start, values.length);
+		start = rand.nextInt(expected.length - 5000);
+		long fill = rand.nextLong() & MASK;
+		contents.fill(start, 5000, fill);
+		for (int i = start; i < start + 5000; i++)
+			expected[i] = fill;
+		for (int n = 0; n < 100; n++) {
+			int addr = rand.nextInt(expected.length);
+			long value = rand.nextLong() & MASK;
+			contents.set(addr, value);
+			expected[addr] = value;
+		}
+	}
+
+	@Test
+	public void testClonesCopySharedPagesOnWrite() {
+		Random rand = new Random(4);
+		for (int random = 0; random < 2; random++) {
+			MemContents original = MemContents.create(ADDR_BITS, WIDTH);
+			if (random != 0)
+				original.fillRandom(rand.nextLong());
+			long[] expectedOriginal = snapshot(original);
+			scribble(original, expectedOriginal, rand);
+
+			// writing the original leaves the clone as it was
+			MemContents copy = original.clone();
+			long[] expectedCopy = expectedOriginal.clone();
+			scribble(original, expectedOriginal, rand);
+			assertContents(expectedCopy, copy);
+			assertContents(expectedOriginal, original);
+
+			// writing the clone leaves the original as it was
+			MemContents second = original.clone();
+			long[] expectedSecond = expectedOriginal.clone();
+			scribble(second, expectedSecond, rand);
+			assertContents(expectedOriginal, original);
+			assertContents(expectedSecond, second);
+
+			// a page shared by three holders
+			MemContents third = second.clone();
+			MemContents fourth = second.clone();
+			long[] expectedFourth = expectedSecond.clone();
+			scribble(fourth, expectedFourth, rand);
+			assertContents(expectedSecond, second);
+			assertContents(expectedSecond, third);
+			assertContents(expectedFourth, fourth);
+			assertContents(expectedCopy, copy);
+		}
+	}
+
+	@Test
+	public void testCopyFromSharesWholePagesUntilWritten() {
+		Random rand = new Random(5);
+		int page = 4096;
+		for (int random = 0; random < 2; random++) {
+			MemContents src = MemContents.create(ADDR_BITS, WIDTH);
+			if (random != 0)
+				src.fillRandom(rand.nextLong());
+			long[] expectedSrc = snapshot(src);
+			scribble(src, expectedSrc, rand);
+			// make sure the pages copied whole exist in the source
+			long[] written = randomValues(rand, 3 * page);
+			src.set(page, written);
+			System.arraycopy(written, 0, expectedSrc, page, written.length);
+			MemContents dst = MemContents.create(ADDR_BITS, WIDTH);
+			long[] expectedDst = snapshot(dst);
+			scribble(dst, expectedDst, rand);
+
+			// whole pages, then a range that is not aligned
+			dst.copyFrom(2 * page, src, page, 3 * page);
+			System.arraycopy(expectedSrc, page, expectedDst, 2 * page, 3 * page);
+			dst.copyFrom(8 * page + 100, src, 9 * page + 7, 2 * page);
+			System.arraycopy(expectedSrc, 9 * page + 7, expectedDst, 8 * page + 100, 2 * page);
+			assertContents(expectedDst, dst);
+
+			// writing the source leaves the copied pages as they were
+			long[] values = randomValues(rand, 3 * page);
+			src.set(page, values);
+			System.arraycopy(values, 0, expectedSrc, page, values.length);
+			src.set(2 * page + 5, 1);
+			expectedSrc[2 * page + 5] = 1;
+			assertContents(expectedSrc, src);
+			assertContents(expectedDst, dst);
+
+			// writing the destination leaves the source as it was
+			dst.fill(3 * page - 10, 20, 3);
+			for (int i = 3 * page - 10; i < 3 * page + 10; i++)
+				expectedDst[i] = 3;
+			dst.set(4 * page, 2);
+			expectedDst[4 * page] = 2;
+			assertContents(expectedDst, dst);
+			assertContents(expectedSrc, src);
+		}
+	}
+}
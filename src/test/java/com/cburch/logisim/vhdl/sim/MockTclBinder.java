@@ -0,0 +1,146 @@
+/*******************************************************************************
+ * This file is part of logisim-evolution.
+ *
+ *   logisim-evolution is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   logisim-evolution is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with logisim-evolution.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *   Original code by Carl Burch (http://www.cburch.com), 2011.
+ *   Subsequent modifications by :
+ *     + Haute École Spécialisée Bernoise
+ *       http://www.bfh.ch
+ *     + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *       http://hepia.hesge.ch/
+ *     + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *       http://www.heig-vd.ch/
+ *   The project is currently maintained by :
+ *     + REDS Institute - HEIG-VD
+ *       Yverdon-les-Bains, Switzerland
+ *       http://reds.heig-vd.ch
+ *******************************************************************************/
+
+package com.cburch.logisim.vhdl.sim;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+
+/**
+ * Stands in for questasim_binder.tcl: it speaks the same frames over the
+ * socket, but each "simulation" only sets an output named X_out to the
+ * complement of the input named X_in.
+ */
+class MockTclBinder extends Thread {
+
+	private final int port;
+	private final HashMap<Integer, String> names = new HashMap<Integer, String>();
+	private final HashMap<String, long[]> signals = new HashMap<String, long[]>();
+	private final HashMap<Integer, long[]> reported = new HashMap<Integer, long[]>();
+
+	volatile int steps = 0;
+	volatile int lastDeclarations = 0;
+	volatile int lastInputs = 0;
+	volatile int lastOutputs = 0;
+
+	MockTclBinder(int port) {
+		this.port = port;
+		setDaemon(true);
+	}
+
+	@Override
+	public void run() {
+		try (Socket socket = new Socket("localhost", port)) {
+			DataInputStream in = new DataInputStream(new BufferedInputStream(
+					socket.getInputStream()));
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+					socket.getOutputStream()));
+			while (true) {
+				byte[] frame = new byte[in.readInt()];
+				in.readFully(frame);
+				if (frame[0] == VhdlSimulatorBatch.END)
+					return;
+				if (frame[0] == VhdlSimulatorBatch.RESTART) {
+					reported.clear();
+					continue;
+				}
+				byte[] reply = step(new DataInputStream(
+						new ByteArrayInputStream(frame)));
+				out.writeInt(reply.length);
+				out.write(reply);
+				out.flush();
+			}
+		} catch (IOException e) {
+			// Logisim closed the connection
+		}
+	}
+
+	private byte[] step(DataInputStream frame) throws IOException {
+		frame.readByte();
+		int count = frame.readInt();
+		for (int i = 0; i < count; i++) {
+			int id = frame.readInt();
+			frame.readByte();
+			byte[] name = new byte[frame.readShort()];
+			frame.readFully(name);
+			names.put(id, new String(name, StandardCharsets.US_ASCII));
+		}
+		lastDeclarations = count;
+
+		count = frame.readInt();
+		for (int i = 0; i < count; i++) {
+			String name = names.get(frame.readInt());
+			long width = frame.readShort();
+			long value = frame.readLong();
+			long unknown = frame.readLong();
+			signals.put(name, new long[] { width, value, unknown });
+		}
+		lastInputs = count;
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream reply = new DataOutputStream(bytes);
+		count = frame.readInt();
+		int changed = 0;
+		ByteArrayOutputStream body = new ByteArrayOutputStream();
+		DataOutputStream outputs = new DataOutputStream(body);
+		for (int i = 0; i < count; i++) {
+			int id = frame.readInt();
+			String name = names.get(id);
+			long[] in = signals.get(name.substring(0, name.length() - 4) + "_in");
+			long mask = in[0] == 64 ? -1L : (1L << in[0]) - 1;
+			long[] val = new long[] { in[0], ~in[1] & ~in[2] & mask, in[2] };
+			long[] old = reported.put(id, val);
+			if (old != null && old[1] == val[1] && old[2] == val[2])
+				continue;
+			outputs.writeInt(id);
+			outputs.writeShort((int) val[0]);
+			outputs.writeLong(val[1]);
+			outputs.writeLong(val[2]);
+			changed++;
+		}
+		lastOutputs = changed;
+		steps++;
+
+		reply.writeByte(VhdlSimulatorBatch.STEP);
+		reply.writeInt(changed);
+		outputs.flush();
+		reply.write(body.toByteArray());
+		reply.flush();
+		return bytes.toByteArray();
+	}
+}
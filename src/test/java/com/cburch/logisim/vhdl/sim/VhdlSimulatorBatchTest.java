@@ -0,0 +1,100 @@
+/*******************************************************************************
+ * This file is part of logisim-evolution.
+ *
+ *   logisim-evolution is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   logisim-evolution is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with logisim-evolution.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *   Original code by Carl Burch (http://www.cburch.com), 2011.
+ *   Subsequent modifications by :
+ *     + Haute École Spécialisée Bernoise
+ *       http://www.bfh.ch
+ *     + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *       http://hepia.hesge.ch/
+ *     + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *       http://www.heig-vd.ch/
+ *   The project is currently maintained by :
+ *     + REDS Institute - HEIG-VD
+ *       Yverdon-les-Bains, Switzerland
+ *       http://reds.heig-vd.ch
+ *******************************************************************************/
+
+package com.cburch.logisim.vhdl.sim;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.cburch.logisim.data.Value;
+import com.cburch.logisim.util.SocketClient;
+import org.junit.Test;
+
+public class VhdlSimulatorBatchTest {
+
+	private static final int IN = 1;
+	private static final int OUT = 2;
+
+	@Test
+	public final void testStepsSendOnlyChanges() throws Exception {
+		SocketClient client = new SocketClient();
+		MockTclBinder binder = new MockTclBinder(client.getServerPort());
+		binder.start();
+		client.start();
+
+		VhdlSimulatorBatch batch = new VhdlSimulatorBatch();
+		int in0 = batch.getPortId("LOGISIM_VHDL_SIM_0_in", IN);
+		int out0 = batch.getPortId("LOGISIM_VHDL_SIM_0_out", OUT);
+		int in1 = batch.getPortId("LOGISIM_VHDL_SIM_1_in", IN);
+		int out1 = batch.getPortId("LOGISIM_VHDL_SIM_1_out", OUT);
+
+		// Both entities in one frame, declared the first time
+		batch.setInput(in0, Value.createKnown(4, 0x5));
+		batch.setInput(in1, Value.TRUE);
+		batch.requestOutput(out0);
+		batch.requestOutput(out1);
+		assertTrue(batch.exchange(client));
+		assertEquals(1, binder.steps);
+		assertEquals(4, binder.lastDeclarations);
+		assertEquals(2, binder.lastInputs);
+		assertEquals(Value.createKnown(4, 0xa), batch.getOutput(out0));
+		assertEquals(Value.FALSE, batch.getOutput(out1));
+
+		// Unchanged inputs are not sent, unchanged outputs not returned
+		batch.setInput(in0, Value.createKnown(4, 0x5));
+		batch.setInput(in1, Value.UNKNOWN);
+		batch.requestOutput(out0);
+		batch.requestOutput(out1);
+		assertTrue(batch.exchange(client));
+		assertEquals(2, binder.steps);
+		assertEquals(0, binder.lastDeclarations);
+		assertEquals(1, binder.lastInputs);
+		assertEquals(1, binder.lastOutputs);
+		assertEquals(Value.createKnown(4, 0xa), batch.getOutput(out0));
+		assertEquals(Value.UNKNOWN, batch.getOutput(out1));
+
+		// After a restart every port is sent again
+		byte[] restart = batch.buildCommand(VhdlSimulatorBatch.RESTART);
+		client.sendFrame(restart, restart.length);
+		batch.reset();
+		batch.setInput(in0, Value.createKnown(4, 0x5));
+		batch.setInput(in1, Value.UNKNOWN);
+		batch.requestOutput(out0);
+		batch.requestOutput(out1);
+		assertTrue(batch.exchange(client));
+		assertEquals(2, binder.lastInputs);
+		assertEquals(2, binder.lastOutputs);
+
+		byte[] end = batch.buildCommand(VhdlSimulatorBatch.END);
+		client.sendFrame(end, end.length);
+		binder.join(1000);
+		client.stop();
+	}
+}